@@ -0,0 +1,98 @@
+package com.bookstore.benchmarks;
+
+import com.bookstore.BookCacheService;
+import com.bookstore.CacheConfig;
+import com.bookstore.cache.DualWriter;
+import com.bookstore.cache.RefreshAheadScheduler;
+import com.bookstore.cache.WriteBehindExecutor;
+import com.bookstore.entities.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.swiftcache.cache.SwiftCacheConfig;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Throughput of the {@link BookCacheService} operations behind the REST endpoints,
+ * wired as in {@link CacheConfig} but against in-memory repositories, with Zipfian keys.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookCacheServiceBenchmark {
+
+    private static final Logger SWIFT_CACHE_LOGGER = Logger.getLogger("org.swiftcache");
+
+    @Param({CacheConfig.STRIPED_ENGINE, CacheConfig.SWIFT_CACHE_ENGINE})
+    public String engine;
+
+    private BookCacheService service;
+    private WriteBehindExecutor<String, Book> writeBehindExecutor;
+    private RefreshAheadScheduler<String> refreshAheadScheduler;
+    private DualWriter dualWriter;
+    private Book[] catalog;
+    private Book[] updates;
+
+    /**
+     * Creates the service with the default cache configuration.
+     */
+    @Setup
+    public void setUp() {
+        SWIFT_CACHE_LOGGER.setLevel(Level.WARNING);
+        CacheConfig config = new CacheConfig();
+        catalog = InMemoryBookRepositories.catalog(ZipfianCursor.CATALOG_SIZE);
+        // putBook and calculateBookPrice assign ids, so they work on copies of the catalog.
+        updates = InMemoryBookRepositories.catalog(ZipfianCursor.CATALOG_SIZE);
+        writeBehindExecutor = config.getWriteBehindExecutor(4, 10_000, 100, 50, 5, 100, false);
+        refreshAheadScheduler = config.getRefreshAheadScheduler(30_000, 300_000, 2, 1000, false);
+        dualWriter = config.getDualWriter(8, 2, false, null);
+        service = BookCacheService.builder(
+                config.getSwiftCache(engine, 100, SwiftCacheConfig.LRU_EVICTION_STRATEGY, 16,
+                        SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY,
+                        writeBehindExecutor, refreshAheadScheduler, null, null, "WARNING"),
+                new InMemoryBookRepositories.PostgreSQL(catalog),
+                new InMemoryBookRepositories.MongoDB(catalog),
+                config.getBookLoader(5000),
+                dualWriter).build();
+    }
+
+    /**
+     * Stops the worker pools.
+     */
+    @TearDown
+    public void tearDown() {
+        dualWriter.shutdown();
+        writeBehindExecutor.shutdown();
+        refreshAheadScheduler.shutdown();
+    }
+
+    @Benchmark
+    public Book getBook(ZipfianCursor cursor) {
+        return service.getBook(catalog[cursor.next()].getId());
+    }
+
+    @Benchmark
+    public Book putBook(ZipfianCursor cursor) {
+        return service.putBook(updates[cursor.next()]);
+    }
+
+    @Benchmark
+    public Book calculateBookPrice(ZipfianCursor cursor) {
+        return service.calculateBookPrice(updates[cursor.next()]);
+    }
+}
@@ -0,0 +1,68 @@
+package com.bookstore.benchmarks;
+
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookIdGenerator;
+import com.bookstore.entities.LegacyBookIdGenerator;
+import com.bookstore.entities.Murmur3BookIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the book identifier schemes, computed on every save and price calculation:
+ * the concatenating {@link String#hashCode()} of the first releases, the same hash computed
+ * in place by the {@link LegacyBookIdGenerator}, and the {@link Murmur3BookIdGenerator}.
+ * Run with {@code -prof gc} to compare the bytes allocated per identifier.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookIdGeneratorBenchmark {
+
+    private final BookIdGenerator legacy = new LegacyBookIdGenerator();
+    private final BookIdGenerator murmur3 = new Murmur3BookIdGenerator();
+    private Book[] catalog;
+    private int next;
+
+    /**
+     * Creates the books to identify.
+     */
+    @Setup
+    public void setUp() {
+        catalog = InMemoryBookRepositories.catalog(ZipfianCursor.CATALOG_SIZE);
+    }
+
+    @Benchmark
+    public String concatenatedHashCode() {
+        Book book = nextBook();
+        return Integer.toHexString((book.getTitle() + book.getAuthor() + book.getIsbn()).hashCode());
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacy.generate(nextBook());
+    }
+
+    @Benchmark
+    public String murmur3() {
+        return murmur3.generate(nextBook());
+    }
+
+    private Book nextBook() {
+        Book book = catalog[next];
+        next = next + 1 == catalog.length ? 0 : next + 1;
+        return book;
+    }
+}
@@ -0,0 +1,51 @@
+package com.bookstore.benchmarks;
+
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookDTO;
+import com.bookstore.entities.BookMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the {@link BookMapper} conversions done on every request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookMapperBenchmark {
+
+    private Book book;
+    private BookDTO dto;
+
+    /**
+     * Creates the book and DTO to convert.
+     */
+    @Setup
+    public void setUp() {
+        book = InMemoryBookRepositories.catalog(1)[0];
+        dto = BookMapper.toDTO(book);
+    }
+
+    @Benchmark
+    public Book toEntity() {
+        return BookMapper.toEntity(dto);
+    }
+
+    @Benchmark
+    public BookDTO toDTO() {
+        return BookMapper.toDTO(book);
+    }
+}
@@ -0,0 +1,205 @@
+package com.bookstore.benchmarks;
+
+import com.bookstore.entities.Book;
+import com.bookstore.mongorepo.BookMongoDBCacheRepository;
+import com.bookstore.postgresrepo.BookPostgreSQLCacheRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory stand-ins for the PostgreSQL and MongoDB cache repositories, so that
+ * benchmarks measure the cache and service code rather than database round-trips.
+ * A fixed latency can be added to every operation to make the calling thread wait
+ * as it would for a database.
+ */
+public final class InMemoryBookRepositories {
+
+    private InMemoryBookRepositories() {
+        // Utility class
+    }
+
+    /**
+     * Creates a catalog of books whose ids are their index.
+     *
+     * @param size the number of books
+     * @return the books, indexed by id
+     */
+    public static Book[] catalog(int size) {
+        Book[] books = new Book[size];
+        for (int i = 0; i < size; i++) {
+            Book book = new Book();
+            book.setId(String.valueOf(i));
+            book.setTitle("Title " + i);
+            book.setAuthor("Author " + (i % 997));
+            book.setIsbn(String.format("978-%09d", i));
+            book.setPrice(5 + i % 20);
+            books[i] = book;
+        }
+        return books;
+    }
+
+    private static void roundTrip(long latencyMillis) {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * PostgreSQL cache repository backed by a {@link ConcurrentHashMap}.
+     */
+    public static final class PostgreSQL extends BookPostgreSQLCacheRepository {
+
+        private final Map<String, Book> books = new ConcurrentHashMap<>();
+        private final long latencyMillis;
+
+        /**
+         * Constructs a repository holding the given books.
+         *
+         * @param catalog the initial books
+         */
+        public PostgreSQL(Book[] catalog) {
+            this(catalog, 0);
+        }
+
+        /**
+         * Constructs a repository holding the given books whose operations each take the given time.
+         *
+         * @param catalog the initial books
+         * @param latencyMillis the time each operation waits before returning
+         */
+        public PostgreSQL(Book[] catalog, long latencyMillis) {
+            super(null);
+            this.latencyMillis = latencyMillis;
+            for (Book book : catalog) {
+                books.put(book.getId(), book);
+            }
+        }
+
+        @Override
+        public Book get(String key) {
+            roundTrip(latencyMillis);
+            return books.get(key);
+        }
+
+        @Override
+        public void put(String key, Book value) {
+            roundTrip(latencyMillis);
+            books.put(key, value);
+        }
+
+        @Override
+        public void remove(String key) {
+            roundTrip(latencyMillis);
+            books.remove(key);
+        }
+
+        @Override
+        public Map<String, Book> getAll(Collection<String> keys) {
+            roundTrip(latencyMillis);
+            Map<String, Book> found = new HashMap<>();
+            for (String key : keys) {
+                Book book = books.get(key);
+                if (book != null) {
+                    found.put(key, book);
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public void putAll(Map<String, Book> values) {
+            roundTrip(latencyMillis);
+            books.putAll(values);
+        }
+
+        @Override
+        public void removeAll(Collection<String> keys) {
+            roundTrip(latencyMillis);
+            keys.forEach(books::remove);
+        }
+    }
+
+    /**
+     * MongoDB cache repository backed by a {@link ConcurrentHashMap}.
+     */
+    public static final class MongoDB extends BookMongoDBCacheRepository {
+
+        private final Map<String, Book> books = new ConcurrentHashMap<>();
+        private final long latencyMillis;
+
+        /**
+         * Constructs a repository holding the given books.
+         *
+         * @param catalog the initial books
+         */
+        public MongoDB(Book[] catalog) {
+            this(catalog, 0);
+        }
+
+        /**
+         * Constructs a repository holding the given books whose operations each take the given time.
+         *
+         * @param catalog the initial books
+         * @param latencyMillis the time each operation waits before returning
+         */
+        public MongoDB(Book[] catalog, long latencyMillis) {
+            super(null);
+            this.latencyMillis = latencyMillis;
+            for (Book book : catalog) {
+                books.put(book.getId(), book);
+            }
+        }
+
+        @Override
+        public Book get(String key) {
+            roundTrip(latencyMillis);
+            return books.get(key);
+        }
+
+        @Override
+        public void put(String key, Book value) {
+            roundTrip(latencyMillis);
+            books.put(key, value);
+        }
+
+        @Override
+        public void remove(String key) {
+            roundTrip(latencyMillis);
+            books.remove(key);
+        }
+
+        @Override
+        public Map<String, Book> getAll(Collection<String> keys) {
+            roundTrip(latencyMillis);
+            Map<String, Book> found = new HashMap<>();
+            for (String key : keys) {
+                Book book = books.get(key);
+                if (book != null) {
+                    found.put(key, book);
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public void putAll(Map<String, Book> values) {
+            roundTrip(latencyMillis);
+            books.putAll(values);
+        }
+
+        @Override
+        public void removeAll(Collection<String> keys) {
+            roundTrip(latencyMillis);
+            keys.forEach(books::remove);
+        }
+    }
+}
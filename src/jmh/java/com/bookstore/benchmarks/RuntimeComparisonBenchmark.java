@@ -0,0 +1,189 @@
+package com.bookstore.benchmarks;
+
+import com.bookstore.BookCacheService;
+import com.bookstore.CacheConfig;
+import com.bookstore.ReactiveBookCacheService;
+import com.bookstore.cache.DualWriter;
+import com.bookstore.entities.Book;
+import com.bookstore.mongorepo.ReactiveBookRepositoryMongoDB;
+import com.bookstore.postgresrepo.ReactiveBookRepositoryPostgreSQL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.swiftcache.cache.SwiftCache;
+import org.swiftcache.cache.SwiftCacheConfig;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Throughput of {@code GET /api/books/{id}} lookups in the servlet and the reactive
+ * runtimes, each with {@value #IN_FLIGHT} lookups in flight, against in-memory
+ * databases taking {@value #ROUND_TRIP_MILLIS} ms per round trip.
+ *
+ * <p>
+ * The servlet runtime is modeled as {@code BookController} runs it: each lookup is
+ * handed to {@link BookCacheService#getBookAsync(String)}, whose executor is built
+ * with the default {@code bookstore.async.*} settings and blocks one of its threads
+ * for every round trip. The reactive runtime subscribes to
+ * {@link ReactiveBookCacheService#getBook(String)}, whose PostgreSQL repository
+ * answers after a timer rather than a blocked thread, as the R2DBC driver does.
+ * </p>
+ *
+ * <p>
+ * The ids of the cached books are looked up as hits; {@link #missPercent} percent of
+ * the lookups are for books missing from the database, which cost a round trip every
+ * time because neither runtime caches them.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RuntimeComparisonBenchmark {
+
+    private static final int IN_FLIGHT = 256;
+    private static final long ROUND_TRIP_MILLIS = 1;
+    private static final int CACHED_BOOKS = 1000;
+    private static final Logger SWIFT_CACHE_LOGGER = Logger.getLogger("org.swiftcache");
+
+    @Param({"0", "10", "50"})
+    public int missPercent;
+
+    private ExecutorService ioExecutor;
+    private DualWriter dualWriter;
+    private BookCacheService servlet;
+    private ReactiveBookCacheService reactive;
+    private String[] ids;
+    private int next;
+
+    /**
+     * Creates both services over the same catalog and warms their caches with it.
+     */
+    @Setup
+    public void setUp() {
+        SWIFT_CACHE_LOGGER.setLevel(Level.WARNING);
+        CacheConfig config = new CacheConfig();
+        Book[] catalog = InMemoryBookRepositories.catalog(CACHED_BOOKS);
+
+        ioExecutor = config.getBookIoExecutor(32, 1000, false);
+        dualWriter = config.getDualWriter(8, 2, false, null);
+        servlet = BookCacheService.builder(cache(config),
+                new InMemoryBookRepositories.PostgreSQL(catalog, ROUND_TRIP_MILLIS),
+                new InMemoryBookRepositories.MongoDB(catalog, ROUND_TRIP_MILLIS),
+                config.getBookLoader(5000),
+                dualWriter).ioExecutor(ioExecutor).build();
+        reactive = new ReactiveBookCacheService(cache(config), reactivePostgreSQL(catalog),
+                unused(ReactiveBookRepositoryMongoDB.class), null, null);
+
+        Random random = new Random(42);
+        ids = new String[IN_FLIGHT * 64];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = random.nextInt(100) < missPercent
+                    ? "missing-" + i
+                    : catalog[random.nextInt(CACHED_BOOKS)].getId();
+        }
+        for (Book book : catalog) {
+            servlet.getBook(book.getId());
+            reactive.getBook(book.getId()).block();
+        }
+    }
+
+    /**
+     * Stops the worker pools.
+     */
+    @TearDown
+    public void tearDown() {
+        ioExecutor.shutdown();
+        dualWriter.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public int servlet() {
+        List<CompletableFuture<Book>> lookups = new ArrayList<>(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            lookups.add(servlet.getBookAsync(nextId()));
+        }
+        int found = 0;
+        for (CompletableFuture<Book> lookup : lookups) {
+            if (lookup.join() != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public long reactive() {
+        List<String> batch = new ArrayList<>(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            batch.add(nextId());
+        }
+        return Flux.fromIterable(batch)
+                .flatMap(reactive::getBook, IN_FLIGHT)
+                .count()
+                .block();
+    }
+
+    private String nextId() {
+        String id = ids[next];
+        next = next + 1 == ids.length ? 0 : next + 1;
+        return id;
+    }
+
+    private static SwiftCache<String, Book> cache(CacheConfig config) {
+        return config.getSwiftCache(CacheConfig.STRIPED_ENGINE, CACHED_BOOKS * 2, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                16, SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY, null, null, null, null,
+                "WARNING");
+    }
+
+    private static ReactiveBookRepositoryPostgreSQL reactivePostgreSQL(Book[] catalog) {
+        Map<String, Book> books = new HashMap<>();
+        for (Book book : catalog) {
+            books.put(book.getId(), book);
+        }
+        Duration roundTrip = Duration.ofMillis(ROUND_TRIP_MILLIS);
+        return (ReactiveBookRepositoryPostgreSQL) Proxy.newProxyInstance(
+                ReactiveBookRepositoryPostgreSQL.class.getClassLoader(),
+                new Class<?>[]{ReactiveBookRepositoryPostgreSQL.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findById") && args[0] instanceof String) {
+                        return Mono.delay(roundTrip).flatMap(tick -> Mono.justOrEmpty(books.get(args[0])));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static <T> T unused(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+    }
+}
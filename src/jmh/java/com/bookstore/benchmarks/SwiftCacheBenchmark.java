@@ -0,0 +1,103 @@
+package com.bookstore.benchmarks;
+
+import com.bookstore.CacheConfig;
+import com.bookstore.cache.RefreshAheadScheduler;
+import com.bookstore.cache.WriteBehindExecutor;
+import com.bookstore.entities.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.swiftcache.cache.SwiftCache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Throughput of {@link SwiftCache#get} and {@link SwiftCache#put} for each cache engine,
+ * eviction strategy and reading/writing policy, with Zipfian keys over a catalog a
+ * hundred times larger than the cache.
+ *
+ * <p>
+ * Select a subset of the combinations with JMH's {@code -p}, for example
+ * {@code -p engine=striped -p writePolicy=WriteAlways}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SwiftCacheBenchmark {
+
+    private static final int CACHE_SIZE = 100;
+
+    // The stock SwiftCache logs every operation at INFO level.
+    private static final Logger SWIFT_CACHE_LOGGER = Logger.getLogger("org.swiftcache");
+
+    @Param({CacheConfig.STRIPED_ENGINE, CacheConfig.SWIFT_CACHE_ENGINE})
+    public String engine;
+
+    @Param({"LRU", "FIFO", "WTinyLFU"})
+    public String evictionStrategy;
+
+    @Param({"SimpleRead", "ReadThrough", "RefreshAhead"})
+    public String readPolicy;
+
+    @Param({"WriteAlways", "WriteIfAbsent", "WriteBehind"})
+    public String writePolicy;
+
+    private SwiftCache<String, Book> cache;
+    private InMemoryBookRepositories.PostgreSQL repository;
+    private WriteBehindExecutor<String, Book> writeBehindExecutor;
+    private RefreshAheadScheduler<String> refreshAheadScheduler;
+    private Book[] catalog;
+
+    /**
+     * Creates the cache and fills it with the most popular books.
+     */
+    @Setup
+    public void setUp() {
+        SWIFT_CACHE_LOGGER.setLevel(Level.WARNING);
+        CacheConfig config = new CacheConfig();
+        catalog = InMemoryBookRepositories.catalog(ZipfianCursor.CATALOG_SIZE);
+        repository = new InMemoryBookRepositories.PostgreSQL(catalog);
+        writeBehindExecutor = config.getWriteBehindExecutor(4, 10_000, 100, 50, 5, 100, false);
+        refreshAheadScheduler = config.getRefreshAheadScheduler(30_000, 300_000, 2, 1000, false);
+        cache = config.getSwiftCache(engine, CACHE_SIZE, evictionStrategy, 16, readPolicy, writePolicy,
+                writeBehindExecutor, refreshAheadScheduler, null, null, "WARNING");
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            cache.put(repository, catalog[i].getId(), catalog[i]);
+        }
+    }
+
+    /**
+     * Stops the write-behind and refresh-ahead workers.
+     */
+    @TearDown
+    public void tearDown() {
+        writeBehindExecutor.shutdown();
+        refreshAheadScheduler.shutdown();
+    }
+
+    @Benchmark
+    public Book get(ZipfianCursor cursor) {
+        return cache.get(repository, catalog[cursor.next()].getId());
+    }
+
+    @Benchmark
+    public Book put(ZipfianCursor cursor) {
+        Book book = catalog[cursor.next()];
+        return cache.put(repository, book.getId(), book);
+    }
+}
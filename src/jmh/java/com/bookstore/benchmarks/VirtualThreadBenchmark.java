@@ -0,0 +1,154 @@
+package com.bookstore.benchmarks;
+
+import com.bookstore.BookCacheService;
+import com.bookstore.CacheConfig;
+import com.bookstore.cache.DualWriter;
+import com.bookstore.cache.RefreshAheadScheduler;
+import com.bookstore.cache.VirtualThreads;
+import com.bookstore.cache.WriteBehindExecutor;
+import com.bookstore.entities.Book;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.swiftcache.cache.SwiftCacheConfig;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Requests per second of {@link BookCacheService#getBook(String)} with many requests in
+ * flight, each handled on a platform thread of a Tomcat-sized pool or on its own virtual
+ * thread.
+ *
+ * <p>
+ * Every repository operation waits {@value #ROUND_TRIP_MILLIS} ms, standing in for a
+ * database round trip, and the cache holds 1% of the Zipfian catalog, so most requests
+ * block on a load. The platform pool has {@value #PLATFORM_THREADS} threads, Tomcat's
+ * default {@code server.tomcat.threads.max}; requests beyond that wait in its queue.
+ * The worker pools of the service run on the same kind of thread as the requests.
+ * The databases themselves are not a bottleneck here, so the results show the ceiling
+ * the request threads impose, not the throughput of a real deployment.
+ * </p>
+ *
+ * <p>
+ * The {@code virtual} runs require Java 21 ({@code -Pjmh,jdk21}); on older JVMs their
+ * setup fails and only the {@code platform} runs report results.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+    private static final Logger SWIFT_CACHE_LOGGER = Logger.getLogger("org.swiftcache");
+    private static final int PLATFORM_THREADS = 200;
+    private static final long ROUND_TRIP_MILLIS = 5;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"200", "1000", "5000"})
+    public int inFlight;
+
+    private ExecutorService requestExecutor;
+    private BookCacheService service;
+    private WriteBehindExecutor<String, Book> writeBehindExecutor;
+    private RefreshAheadScheduler<String> refreshAheadScheduler;
+    private DualWriter dualWriter;
+    private Book[] catalog;
+
+    /**
+     * Counts the requests completed by each burst, reported by JMH as requests per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Requests {
+
+        public long requests;
+
+        /**
+         * Resets the counter before each iteration.
+         */
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void reset() {
+            requests = 0;
+        }
+    }
+
+    /**
+     * Creates the request executor and the service with the default cache configuration.
+     */
+    @Setup
+    public void setUp() {
+        SWIFT_CACHE_LOGGER.setLevel(Level.WARNING);
+        boolean virtual = "virtual".equals(threads);
+        AtomicInteger count = new AtomicInteger();
+        requestExecutor = virtual
+                ? VirtualThreads.newThreadPerTaskExecutor("request-")
+                : Executors.newFixedThreadPool(PLATFORM_THREADS, runnable -> {
+                    Thread thread = new Thread(runnable, "request-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        CacheConfig config = new CacheConfig();
+        catalog = InMemoryBookRepositories.catalog(ZipfianCursor.CATALOG_SIZE);
+        writeBehindExecutor = config.getWriteBehindExecutor(4, 10_000, 100, 50, 5, 100, virtual);
+        refreshAheadScheduler = config.getRefreshAheadScheduler(30_000, 300_000, 2, 1000, virtual);
+        dualWriter = config.getDualWriter(8, 2, virtual, null);
+        service = BookCacheService.builder(
+                config.getSwiftCache(CacheConfig.STRIPED_ENGINE, ZipfianCursor.CATALOG_SIZE / 100,
+                        SwiftCacheConfig.LRU_EVICTION_STRATEGY, 16,
+                        SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY,
+                        writeBehindExecutor, refreshAheadScheduler, null, null, "WARNING"),
+                new InMemoryBookRepositories.PostgreSQL(catalog, ROUND_TRIP_MILLIS),
+                new InMemoryBookRepositories.MongoDB(catalog, ROUND_TRIP_MILLIS),
+                config.getBookLoader(5000),
+                dualWriter).build();
+    }
+
+    /**
+     * Stops the request executor and the worker pools.
+     */
+    @TearDown
+    public void tearDown() {
+        requestExecutor.shutdownNow();
+        dualWriter.shutdown();
+        writeBehindExecutor.shutdown();
+        refreshAheadScheduler.shutdown();
+    }
+
+    @Benchmark
+    public void getBooksInFlight(ZipfianCursor cursor, Requests requests) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            String id = catalog[cursor.next()].getId();
+            requestExecutor.execute(() -> {
+                try {
+                    service.getBook(id);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        requests.requests += inFlight;
+    }
+}
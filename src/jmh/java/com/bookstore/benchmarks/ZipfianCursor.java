@@ -0,0 +1,66 @@
+package com.bookstore.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Per-thread stream of catalog indexes following a Zipfian distribution.
+ *
+ * <p>
+ * The indexes are drawn up front into a fixed-size trace that is replayed in a
+ * loop, so sampling costs nothing during measurement. Index 0 is the most popular.
+ * </p>
+ */
+@State(Scope.Thread)
+public class ZipfianCursor {
+
+    /**
+     * The number of distinct books the indexes are drawn from.
+     */
+    public static final int CATALOG_SIZE = 10_000;
+
+    private static final int TRACE_LENGTH = 1 << 16;
+
+    /**
+     * The skew of the distribution; higher values concentrate requests on fewer books.
+     */
+    @Param({"0.99"})
+    public double exponent;
+
+    private int[] trace;
+    private int position;
+
+    /**
+     * Draws the trace, seeded per thread so that threads do not replay identical sequences.
+     */
+    @Setup
+    public void setUp() {
+        double[] cumulative = new double[CATALOG_SIZE];
+        double sum = 0;
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+
+        Random random = new Random(Thread.currentThread().getId());
+        trace = new int[TRACE_LENGTH];
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            trace[i] = index >= 0 ? index : -index - 1;
+        }
+    }
+
+    /**
+     * Returns the next catalog index.
+     *
+     * @return an index between 0 and {@link #CATALOG_SIZE} - 1
+     */
+    public int next() {
+        return trace[position++ & (TRACE_LENGTH - 1)];
+    }
+}
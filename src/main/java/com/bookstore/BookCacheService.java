@@ -1,11 +1,49 @@
 package com.bookstore;
 
+import com.bookstore.cache.BatchCacheRepository;
+import com.bookstore.cache.DualWriteException;
+import com.bookstore.cache.DualWriter;
+import com.bookstore.cache.InvalidationBus;
+import com.bookstore.cache.MappedFileCache;
+import com.bookstore.cache.NegativeCache;
+import com.bookstore.cache.NegativeCacheRepository;
+import com.bookstore.cache.NoOpCacheRepository;
+import com.bookstore.cache.PersistentCacheRepository;
+import com.bookstore.cache.PriceMemo;
+import com.bookstore.cache.ReadRouter;
+import com.bookstore.cache.RoutingCacheRepository;
+import com.bookstore.cache.RoutingStats;
+import com.bookstore.cache.SharedCache;
+import com.bookstore.cache.SharedCacheRepository;
+import com.bookstore.cache.SingleFlightLoader;
+import com.bookstore.cache.StripedSwiftCache;
+import com.bookstore.cache.TierStats;
 import com.bookstore.entities.Book;
+import com.bookstore.entities.BookIdCollisionException;
+import com.bookstore.entities.BookIdGenerator;
+import com.bookstore.entities.Murmur3BookIdGenerator;
 import com.bookstore.mongorepo.BookMongoDBCacheRepository;
 import com.bookstore.postgresrepo.BookPostgreSQLCacheRepository;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
+import com.bookstore.pricing.PricingEngine;
+import com.bookstore.search.BookIndex;
+import com.bookstore.search.SearchPage;
+import org.springframework.lang.Nullable;
 import org.swiftcache.cache.SwiftCache;
+import org.swiftcache.cacherepository.ICacheRepository;
+import org.swiftcache.utils.TriFunction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 /**
  * Service class for managing {@link Book} entities with caching capabilities,
@@ -16,79 +54,887 @@ import org.swiftcache.cache.SwiftCache;
  * as well as calculating the price of a book. It utilizes a cache to optimize
  * performance and reduce database access.
  * </p>
+ *
+ * <p>
+ * The multi-key operations check the cache for all books first and then read or
+ * write the rest with one batched call per repository when the cache is a
+ * {@link StripedSwiftCache}, falling back to one call per book otherwise.
+ * </p>
+ *
+ * <p>
+ * In deployments with several nodes, an optional {@link SharedCache} acts as a second
+ * level shared by all of them: it sits between the local cache and PostgreSQL, so a
+ * book loaded by one node is served to the others without another query. Every write
+ * and delete removes the book from it and is then announced on the {@link InvalidationBus}, and the other nodes drop
+ * the changed books from their local caches.
+ * </p>
+ *
+ * <p>
+ * An optional {@link MappedFileCache} keeps the books read or written by this node in
+ * a file on local disk, between the local cache and the shared cache or PostgreSQL, so
+ * that a restarted node serves them without a database round trip. Books written by
+ * this node are removed from the file before the databases are written, and books
+ * changed by other nodes or evicted after a failed write are removed from it as well.
+ * With an {@link InvalidationBus}, the file is emptied on startup, as the books other
+ * nodes changed while this one was down were not removed from it.
+ * </p>
+ *
+ * <p>
+ * With a {@link ReadRouter}, books missing from the caches are read from MongoDB
+ * instead of PostgreSQL while MongoDB answers faster, and a read that takes longer
+ * than usual is hedged with the other database. Writes always go to both; a book
+ * whose last write failed on either database is read from PostgreSQL only until it
+ * is written to both again.
+ * </p>
+ *
+ * <p>
+ * Each operation also has an asynchronous variant that runs the database round trips
+ * on a dedicated bounded executor, so that request threads are not held while the
+ * databases answer. Single-book lookups that hit the cache complete on the calling
+ * thread; when the executor is saturated the returned future fails with a
+ * {@link RejectedExecutionException}.
+ * </p>
+ *
+ * <p>
+ * With a {@link PriceMemo}, a price calculation repeated with the same book, input price
+ * and pricing rule is answered from the memo without any write. A new price is cached
+ * right away, and written to both databases with the other prices calculated since
+ * the last write-back in one batch per database.
+ * </p>
+ *
+ * <p>
+ * Prices are calculated by the {@link PricingEngine} when one is configured, and by the
+ * fixed rule of the {@link BookPriceCalculator} otherwise.
+ * </p>
+ *
+ * <p>
+ * With a {@link BookIndex}, the books this service saves or prices are indexed by
+ * ISBN, author and title, and removed books are dropped from the index, so that
+ * searches are answered without querying the databases. The books stored before the
+ * start are indexed by the {@link BookIndexLoader}.
+ * </p>
+ *
+ * <p>
+ * Books are identified by the {@link BookIdGenerator}, from their title, author and
+ * ISBN. Before books are saved, the copies cached on the heap under their identifiers
+ * are compared with them, and a save that would overwrite a different book fails with
+ * a {@link BookIdCollisionException} instead. Books that are not cached are not looked
+ * up, so that a save costs no extra database round trip; the {@link BookIdMigrator}
+ * checks every book it re-keys against the databases.
+ * </p>
+ *
+ * <p>
+ * With a {@link NegativeCache}, the ids of books that were looked up and not found are
+ * remembered for a short time, and lookups of them are answered without querying any
+ * level behind the heap. Saving a book, here or on another node, forgets its id.
+ * </p>
  */
-@Service
 public class BookCacheService {
 
     private final SwiftCache<String, Book> cache;
+    private final StripedSwiftCache<String, Book> batchCache;
 
-    private final BookPostgreSQLCacheRepository postgreSQLRepository;
+    private final BatchCacheRepository<String, Book> postgreSQLRepository;
+    private final RoutingCacheRepository<String, Book> routingRepository;
+    private final SharedCacheRepository<String, Book> sharedRepository;
+    private final MappedFileCache<Book> persistentCache;
     private final BookMongoDBCacheRepository mongoDBRepository;
+    private final SingleFlightLoader<String, Book> bookLoader;
+    private final DualWriter dualWriter;
+    private final InvalidationBus<String> invalidationBus;
+    private final ReadRouter readRouter;
+    private final Executor ioExecutor;
+    private final PriceMemo<String, Book> priceMemo;
+    private final PricingEngine pricingEngine;
+    private final BookIndex bookIndex;
+    private final BookIdGenerator idGenerator;
+    private final NegativeCache<String> negativeCache;
+    private final NoOpCacheRepository<String, Book> cacheOnlyRepository = new NoOpCacheRepository<>();
+
+    @SuppressWarnings("unchecked")
+    private BookCacheService(Builder builder) {
+        this.cache = builder.cache;
+        this.batchCache = cache instanceof StripedSwiftCache ? (StripedSwiftCache<String, Book>) cache : null;
+        this.routingRepository = builder.readRouter != null
+                ? new RoutingCacheRepository<>(builder.bookRepositoryPostgreSQL, builder.bookRepositoryMongoDB,
+                builder.readRouter)
+                : null;
+        BatchCacheRepository<String, Book> database = routingRepository != null
+                ? routingRepository
+                : builder.bookRepositoryPostgreSQL;
+        this.sharedRepository = builder.sharedCache != null
+                ? new SharedCacheRepository<>(builder.sharedCache, database)
+                : null;
+        BatchCacheRepository<String, Book> remote = sharedRepository != null ? sharedRepository : database;
+        this.persistentCache = builder.persistentCache;
+        BatchCacheRepository<String, Book> local = persistentCache != null
+                ? new PersistentCacheRepository<>(persistentCache, remote)
+                : remote;
+        this.negativeCache = builder.negativeCache;
+        this.postgreSQLRepository = negativeCache != null ? new NegativeCacheRepository<>(negativeCache, local) : local;
+        this.mongoDBRepository = builder.bookRepositoryMongoDB;
+        this.bookLoader = builder.bookLoader;
+        this.dualWriter = builder.dualWriter;
+        this.invalidationBus = builder.invalidationBus;
+        this.readRouter = builder.readRouter;
+        this.ioExecutor = builder.ioExecutor != null ? builder.ioExecutor : Runnable::run;
+        this.priceMemo = builder.priceMemo;
+        this.pricingEngine = builder.pricingEngine;
+        this.bookIndex = builder.bookIndex;
+        this.idGenerator = builder.idGenerator != null ? builder.idGenerator : new Murmur3BookIdGenerator();
+        if (priceMemo != null) {
+            priceMemo.start(this::writePrices);
+        }
+        if (invalidationBus != null) {
+            if (persistentCache != null) {
+                // Invalidations sent while this node was down were missed, so the file may be stale.
+                persistentCache.clear();
+            }
+            invalidationBus.subscribe(this::evict);
+        }
+    }
 
     /**
-     * Constructs a new instance of {@link BookCacheService}.
+     * Starts building a {@link BookCacheService} from its required collaborators; the
+     * optional ones are left out unless set on the returned builder.
      *
      * @param cache the cache for storing book entities
      * @param bookRepositoryPostgreSQL the PostgreSQL repository for book entities
      * @param bookRepositoryMongoDB the MongoDB repository for book entities
+     * @param bookLoader the loader collapsing concurrent lookups of the same book
+     * @param dualWriter the writer applying changes to PostgreSQL and MongoDB concurrently
+     * @return the builder
      */
-    @Autowired
-    public BookCacheService(SwiftCache<String, Book> cache,
-                            BookPostgreSQLCacheRepository bookRepositoryPostgreSQL,
-                            BookMongoDBCacheRepository bookRepositoryMongoDB) {
-        this.cache = cache;
-        this.postgreSQLRepository = bookRepositoryPostgreSQL;
-        this.mongoDBRepository = bookRepositoryMongoDB;
+    public static Builder builder(SwiftCache<String, Book> cache,
+                                  BookPostgreSQLCacheRepository bookRepositoryPostgreSQL,
+                                  BookMongoDBCacheRepository bookRepositoryMongoDB,
+                                  SingleFlightLoader<String, Book> bookLoader,
+                                  DualWriter dualWriter) {
+        return new Builder(cache, bookRepositoryPostgreSQL, bookRepositoryMongoDB, bookLoader, dualWriter);
     }
 
     /**
      * Retrieves a {@link Book} entity from the cache or the PostgreSQL repository.
      *
+     * <p>
+     * A book held by the cache is returned at once. Concurrent lookups of the same id
+     * that miss the cache share a single cache lookup, so a miss on a popular book
+     * results in one PostgreSQL query rather than one per request.
+     * </p>
+     *
      * @param id the unique identifier of the book
      * @return the Book entity
      */
     public Book getBook(String id) {
-        return cache.get(postgreSQLRepository, id);
+        Book cached = batchCache != null ? batchCache.getIfPresent(id) : cache.get(cacheOnlyRepository, id);
+        if (cached != null) {
+            return cached;
+        }
+        return bookLoader.load(id, () -> cache.get(postgreSQLRepository, id));
     }
 
     /**
      * Saves a {@link Book} entity to the cache and both PostgreSQL and MongoDB repositories.
      *
+     * <p>
+     * Both repositories are written concurrently. If either write still fails after
+     * its retries, the book is evicted from the cache so that it is reloaded from
+     * PostgreSQL on the next read, and the failure is rethrown. Either way the other
+     * nodes are told to drop their copy of the book.
+     * </p>
+     *
      * @param book the Book entity to be saved
      * @return the saved Book entity
+     * @throws BookIdCollisionException if a different book is cached under the identifier of the book
+     * @throws DualWriteException if either repository could not be written
      */
     public Book putBook(Book book) {
-        book.setId(Integer.toHexString((book.getTitle() + book.getAuthor() + book.getIsbn()).hashCode()));
-        cache.put(postgreSQLRepository, book.getId(), book);
-        book = cache.put(mongoDBRepository, book.getId(), book);
-
-        return book;
+        idGenerator.assignId(book);
+        String id = book.getId();
+        checkIds(Collections.singletonMap(id, book));
+        forgetPrices(Collections.singletonList(id));
+        try {
+            Book saved = dualWriter.write(
+                    () -> cache.put(postgreSQLRepository, id, book),
+                    () -> cache.put(mongoDBRepository, id, book)
+            );
+            index(Collections.singletonList(book));
+            replicated(Collections.singletonList(id));
+            return saved;
+        } catch (DualWriteException e) {
+            unreplicated(Collections.singletonList(id));
+            evict(id);
+            evictShared(Collections.singletonList(id));
+            throw e;
+        } finally {
+            invalidateOtherNodes(Collections.singletonList(id));
+        }
     }
 
     /**
      * Removes a {@link Book} entity from the cache and both PostgreSQL and MongoDB repositories.
      *
+     * <p>
+     * Both repositories are written concurrently; a failure on either side is
+     * rethrown once the other side has completed. The other nodes are told to drop
+     * their copy of the book.
+     * </p>
+     *
      * @param id the unique identifier of the book to be removed
+     * @throws DualWriteException if either repository could not be written
      */
     public void removeBook(String id) {
-        cache.remove(postgreSQLRepository, id);
-        cache.remove(mongoDBRepository, id);
+        forgetPrices(Collections.singletonList(id));
+        unindex(Collections.singletonList(id));
+        try {
+            dualWriter.write(
+                    () -> {
+                        cache.remove(postgreSQLRepository, id);
+                        return null;
+                    },
+                    () -> {
+                        cache.remove(mongoDBRepository, id);
+                        return null;
+                    }
+            );
+            replicated(Collections.singletonList(id));
+        } catch (DualWriteException e) {
+            unreplicated(Collections.singletonList(id));
+            throw e;
+        } finally {
+            invalidateOtherNodes(Collections.singletonList(id));
+        }
+    }
+
+    /**
+     * Retrieves several {@link Book} entities from the cache or the PostgreSQL repository.
+     *
+     * @param ids the unique identifiers of the books
+     * @return the Book entities found, in the order of their first identifier; missing books are skipped
+     */
+    public List<Book> getBooks(Collection<String> ids) {
+        Collection<String> uniqueIds = new LinkedHashSet<>(ids);
+        Map<String, Book> found;
+        if (batchCache != null) {
+            found = batchCache.getAll(postgreSQLRepository, uniqueIds);
+        } else {
+            found = new LinkedHashMap<>();
+            for (String id : uniqueIds) {
+                found.put(id, getBook(id));
+            }
+        }
+
+        List<Book> books = new ArrayList<>();
+        for (String id : uniqueIds) {
+            Book book = found.get(id);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Saves several {@link Book} entities to the cache and both PostgreSQL and MongoDB
+     * repositories, with a single batch write per repository.
+     *
+     * <p>
+     * The consistency contract is that of {@link #putBook(Book)}: if either repository
+     * write fails, all of the books are evicted from the cache and the failure is rethrown.
+     * </p>
+     *
+     * @param books the Book entities to be saved
+     * @return the saved Book entities
+     * @throws BookIdCollisionException if a different book is cached under the identifier of one of the books
+     * @throws DualWriteException if either repository could not be written
+     */
+    public List<Book> putBooks(List<Book> books) {
+        Map<String, Book> byId = new LinkedHashMap<>();
+        for (Book book : books) {
+            idGenerator.assignId(book);
+            byId.put(book.getId(), book);
+        }
+        checkIds(byId);
+        forgetPrices(byId.keySet());
+        try {
+            Map<String, Book> saved = dualWriter.write(
+                    () -> putAll(postgreSQLRepository, byId),
+                    () -> putAll(mongoDBRepository, byId)
+            );
+            index(byId.values());
+            replicated(byId.keySet());
+            return new ArrayList<>(saved.values());
+        } catch (DualWriteException e) {
+            unreplicated(byId.keySet());
+            byId.keySet().forEach(this::evict);
+            evictShared(byId.keySet());
+            throw e;
+        } finally {
+            invalidateOtherNodes(byId.keySet());
+        }
+    }
+
+    /**
+     * Removes several {@link Book} entities from the cache and both PostgreSQL and MongoDB
+     * repositories, with a single batch delete per repository.
+     *
+     * @param ids the unique identifiers of the books to be removed
+     * @throws DualWriteException if either repository could not be written
+     */
+    public void removeBooks(Collection<String> ids) {
+        Collection<String> uniqueIds = new LinkedHashSet<>(ids);
+        forgetPrices(uniqueIds);
+        unindex(uniqueIds);
+        try {
+            dualWriter.write(
+                    () -> {
+                        removeAll(postgreSQLRepository, uniqueIds);
+                        return null;
+                    },
+                    () -> {
+                        removeAll(mongoDBRepository, uniqueIds);
+                        return null;
+                    }
+            );
+            replicated(uniqueIds);
+        } catch (DualWriteException e) {
+            unreplicated(uniqueIds);
+            throw e;
+        } finally {
+            invalidateOtherNodes(uniqueIds);
+        }
+    }
+
+    /**
+     * Applies a write of books to the databases that bypasses the cache, such as a bulk
+     * import, keeping the caches consistent with it.
+     *
+     * <p>
+     * Memoized prices of the books are forgotten before the write, so that no pending
+     * price overwrites the written books. Afterwards, whether or not the write succeeded,
+     * the books are evicted from the cache, including the shared cache, so that their
+     * next read loads them from the database, and the other nodes are told to drop their
+     * copy. The books are indexed if the write succeeded; if it failed with a
+     * {@link DualWriteException}, they are read from PostgreSQL only until written again.
+     * </p>
+     *
+     * @param books the books written, with their ids assigned
+     * @param write the write of the books to both databases
+     * @throws BookIdCollisionException if a different book is cached under the identifier of one of the books,
+     *         in which case nothing is written
+     * @throws RuntimeException if the write fails, which is rethrown
+     */
+    public void writeAround(Collection<Book> books, Runnable write) {
+        Map<String, Book> byId = new LinkedHashMap<>();
+        books.forEach(book -> byId.put(book.getId(), book));
+        checkIds(byId);
+        Collection<String> ids = byId.keySet();
+        forgetPrices(ids);
+        try {
+            write.run();
+            index(books);
+            replicated(ids);
+        } catch (DualWriteException e) {
+            unreplicated(ids);
+            throw e;
+        } finally {
+            ids.forEach(this::evict);
+            evictShared(ids);
+            invalidateOtherNodes(ids);
+        }
+    }
+
+    /**
+     * Retrieves a {@link Book} entity like {@link #getBook(String)} without blocking the
+     * calling thread on the databases.
+     *
+     * @param id the unique identifier of the book
+     * @return a future completed with the Book entity, already completed if the book is cached
+     */
+    public CompletableFuture<Book> getBookAsync(String id) {
+        Book cached = batchCache != null ? batchCache.getIfPresent(id) : null;
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (negativeCache != null && negativeCache.contains(id, false)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return async(() -> getBook(id));
+    }
+
+    /**
+     * Saves a {@link Book} entity like {@link #putBook(Book)} without blocking the calling thread.
+     *
+     * @param book the Book entity to be saved
+     * @return a future completed with the saved Book entity
+     */
+    public CompletableFuture<Book> putBookAsync(Book book) {
+        return async(() -> putBook(book));
+    }
+
+    /**
+     * Removes a {@link Book} entity like {@link #removeBook(String)} without blocking the calling thread.
+     *
+     * @param id the unique identifier of the book to be removed
+     * @return a future completed once the book is removed
+     */
+    public CompletableFuture<Void> removeBookAsync(String id) {
+        return async(() -> {
+            removeBook(id);
+            return null;
+        });
+    }
+
+    /**
+     * Retrieves several {@link Book} entities like {@link #getBooks(Collection)} without
+     * blocking the calling thread.
+     *
+     * @param ids the unique identifiers of the books
+     * @return a future completed with the Book entities found
+     */
+    public CompletableFuture<List<Book>> getBooksAsync(Collection<String> ids) {
+        return async(() -> getBooks(ids));
     }
 
     /**
-     * Calculates the price of a {@link Book} entity using the {@link BookPriceCalculator}.
+     * Saves several {@link Book} entities like {@link #putBooks(List)} without blocking the calling thread.
+     *
+     * @param books the Book entities to be saved
+     * @return a future completed with the saved Book entities
+     */
+    public CompletableFuture<List<Book>> putBooksAsync(List<Book> books) {
+        return async(() -> putBooks(books));
+    }
+
+    /**
+     * Removes several {@link Book} entities like {@link #removeBooks(Collection)} without
+     * blocking the calling thread.
+     *
+     * @param ids the unique identifiers of the books to be removed
+     * @return a future completed once the books are removed
+     */
+    public CompletableFuture<Void> removeBooksAsync(Collection<String> ids) {
+        return async(() -> {
+            removeBooks(ids);
+            return null;
+        });
+    }
+
+    /**
+     * Finds the books matching every given condition in the {@link BookIndex}.
+     *
+     * <p>
+     * The index answers the ids of the books on the page, which are then read like
+     * {@link #getBooks(Collection)}, usually from the cache. Ids of books that no longer
+     * exist, because another node removed them, are dropped from the index and from
+     * the page.
+     * </p>
+     *
+     * @param isbn the ISBN of the books, or null for any ISBN
+     * @param author the author of the books, or null for any author
+     * @param titlePrefix the start of the title of the books, or null for any title
+     * @param page the zero-based number of the page to return
+     * @param size the maximum number of results on a page
+     * @return the matching books on the page ordered by title, or null if books cannot be searched
+     * @throws IllegalArgumentException if no condition is given, or the page or size is out of range
+     */
+    public SearchPage<Book> searchBooks(String isbn, String author, String titlePrefix, int page, int size) {
+        if (bookIndex == null) {
+            return null;
+        }
+        return load(bookIndex.search(isbn, author, titlePrefix, page, size));
+    }
+
+    /**
+     * Finds books like {@link #searchBooks(String, String, String, int, int)} without
+     * blocking the calling thread on the databases.
+     *
+     * @param isbn the ISBN of the books, or null for any ISBN
+     * @param author the author of the books, or null for any author
+     * @param titlePrefix the start of the title of the books, or null for any title
+     * @param page the zero-based number of the page to return
+     * @param size the maximum number of results on a page
+     * @return a future completed with the matching books on the page, or null if books cannot be searched
+     * @throws IllegalArgumentException if no condition is given, or the page or size is out of range
+     */
+    public CompletableFuture<SearchPage<Book>> searchBooksAsync(String isbn, String author, String titlePrefix,
+                                                                int page, int size) {
+        if (bookIndex == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        SearchPage<String> ids = bookIndex.search(isbn, author, titlePrefix, page, size);
+        return async(() -> load(ids));
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of each cache level, followed by
+     * those of the cache on local disk and the hits and misses of the shared cache as
+     * seen by this node.
+     *
+     * @return the statistics of each cache level, or an empty list if the cache does not report them
+     */
+    public List<TierStats> getCacheStats() {
+        List<TierStats> stats = new ArrayList<>();
+        if (batchCache != null) {
+            stats.addAll(batchCache.getTierStats());
+        }
+        if (persistentCache != null) {
+            stats.add(persistentCache.getStats());
+        }
+        if (sharedRepository != null) {
+            stats.add(sharedRepository.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the number of reads sent to, hedged with and answered by PostgreSQL and
+     * MongoDB, with their recent latencies.
+     *
+     * @return the statistics of PostgreSQL followed by those of MongoDB, or an empty list if reads are not routed
+     */
+    public List<RoutingStats> getRoutingStats() {
+        return readRouter != null ? readRouter.getStats() : Collections.emptyList();
+    }
+
+    /**
+     * Calculates the price of a {@link Book} entity using the {@link PricingEngine}, or the
+     * {@link BookPriceCalculator} without one.
+     *
+     * <p>
+     * Without a {@link PriceMemo}, the priced book is written to PostgreSQL on every call.
+     * With one, a calculation memoized for the same input price and rule version is
+     * answered from the memo. Otherwise the price is calculated, and unless the cached
+     * book already has that price, the priced book is cached and queued for the next
+     * batched write-back to both databases.
+     * </p>
      *
      * @param book the Book entity for which to calculate the price
      * @return the Book entity with the calculated price
+     * @throws BookIdCollisionException if a different book is cached under the identifier of the book
      */
     public Book calculateBookPrice(Book book) {
-        book.setId(Integer.toHexString((book.getTitle() + book.getAuthor() + book.getIsbn()).hashCode()));
-
-        return cache.executeWithCache(
-                postgreSQLRepository,
-                book.getId(),
-                book,
-                BookPriceCalculator::calculatePrice
-        );
+        idGenerator.assignId(book);
+        checkIds(Collections.singletonMap(book.getId(), book));
+        TriFunction<ICacheRepository<String, Book>, String, Book, Book> pricing = pricingEngine != null
+                ? pricingEngine::calculatePrice
+                : BookPriceCalculator::calculatePrice;
+        if (priceMemo == null) {
+            Book priced = cache.executeWithCache(postgreSQLRepository, book.getId(), book, pricing);
+            index(Collections.singletonList(priced));
+            return priced;
+        }
+
+        String id = book.getId();
+        double inputPrice = book.getPrice();
+        long ruleVersion = pricingEngine != null ? pricingEngine.getVersion() : BookPriceCalculator.RULE_VERSION;
+        Double memoized = priceMemo.get(id, inputPrice, ruleVersion);
+        if (memoized != null) {
+            book.setPrice(memoized);
+            return book;
+        }
+        Book priced = pricing.apply(cacheOnlyRepository, id, book);
+        Book cached = batchCache != null ? batchCache.getIfPresent(id) : null;
+        if (cached == null || Double.compare(cached.getPrice(), priced.getPrice()) != 0) {
+            cache.put(cacheOnlyRepository, id, priced);
+            priceMemo.writeBack(id, priced);
+            index(Collections.singletonList(priced));
+        }
+        priceMemo.put(id, inputPrice, ruleVersion, priced.getPrice());
+        return priced;
+    }
+
+    private void checkIds(Map<String, Book> books) {
+        books.forEach((id, saved) -> {
+            Book stored = batchCache != null ? batchCache.getIfPresent(id) : cache.get(cacheOnlyRepository, id);
+            if (stored != null && !sameBook(stored, saved)) {
+                throw new BookIdCollisionException(id, stored, saved);
+            }
+        });
+    }
+
+    /**
+     * Returns whether two books have the title, author and ISBN their identifier is derived from in common.
+     *
+     * @param stored the book stored under an identifier
+     * @param saved the book being saved under the same identifier
+     * @return true if saving the book updates the stored one, false if their identifiers collide
+     */
+    static boolean sameBook(Book stored, Book saved) {
+        return Objects.equals(stored.getTitle(), saved.getTitle())
+                && Objects.equals(stored.getAuthor(), saved.getAuthor())
+                && Objects.equals(stored.getIsbn(), saved.getIsbn());
+    }
+
+    private Map<String, Book> putAll(BatchCacheRepository<String, Book> repository, Map<String, Book> books) {
+        if (batchCache != null) {
+            return batchCache.putAll(repository, books);
+        }
+        Map<String, Book> saved = new LinkedHashMap<>();
+        books.forEach((id, book) -> saved.put(id, cache.put(repository, id, book)));
+        return saved;
+    }
+
+    private void removeAll(BatchCacheRepository<String, Book> repository, Collection<String> ids) {
+        if (batchCache != null) {
+            batchCache.removeAll(repository, ids);
+        } else {
+            ids.forEach(id -> cache.remove(repository, id));
+        }
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(operation, ioExecutor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    private void invalidateOtherNodes(Collection<String> ids) {
+        if (invalidationBus != null) {
+            invalidationBus.publish(ids);
+        }
+    }
+
+    private void evict(String id) {
+        cache.remove(cacheOnlyRepository, id);
+        if (persistentCache != null) {
+            persistentCache.remove(id);
+        }
+        if (priceMemo != null) {
+            priceMemo.invalidate(id);
+        }
+        if (negativeCache != null) {
+            negativeCache.invalidate(id);
+        }
+    }
+
+    private void replicated(Collection<String> ids) {
+        if (routingRepository != null) {
+            routingRepository.markReplicated(ids);
+        }
+    }
+
+    private void unreplicated(Collection<String> ids) {
+        if (routingRepository != null) {
+            routingRepository.markUnreplicated(ids);
+        }
+    }
+
+    private void evictShared(Collection<String> ids) {
+        if (sharedRepository != null) {
+            sharedRepository.evictAll(ids);
+        }
+    }
+
+    private SearchPage<Book> load(SearchPage<String> ids) {
+        List<Book> books = getBooks(ids.getContent());
+        long total = ids.getTotal();
+        if (books.size() < ids.getContent().size()) {
+            Collection<String> missing = new LinkedHashSet<>(ids.getContent());
+            books.forEach(book -> missing.remove(book.getId()));
+            bookIndex.removeAll(missing);
+            total -= missing.size();
+        }
+        return new SearchPage<>(books, ids.getPage(), ids.getSize(), total, ids.isTotalExact());
+    }
+
+    private void index(Collection<Book> books) {
+        if (bookIndex != null) {
+            bookIndex.addAll(books);
+        }
+    }
+
+    private void unindex(Collection<String> ids) {
+        if (bookIndex != null) {
+            bookIndex.removeAll(ids);
+        }
+    }
+
+    private void forgetPrices(Collection<String> ids) {
+        if (priceMemo != null) {
+            ids.forEach(priceMemo::invalidate);
+        }
+    }
+
+    private void writePrices(Map<String, Book> books) {
+        try {
+            dualWriter.write(
+                    () -> {
+                        postgreSQLRepository.putAll(books);
+                        return null;
+                    },
+                    () -> {
+                        mongoDBRepository.putAll(books);
+                        return null;
+                    }
+            );
+            replicated(books.keySet());
+        } catch (DualWriteException e) {
+            unreplicated(books.keySet());
+            books.keySet().forEach(this::evict);
+            evictShared(books.keySet());
+            throw e;
+        } finally {
+            invalidateOtherNodes(books.keySet());
+        }
+    }
+
+    /**
+     * Builder of {@link BookCacheService} instances. Every optional collaborator left
+     * unset, or set to null, disables the feature it provides.
+     */
+    public static final class Builder {
+
+        private final SwiftCache<String, Book> cache;
+        private final BookPostgreSQLCacheRepository bookRepositoryPostgreSQL;
+        private final BookMongoDBCacheRepository bookRepositoryMongoDB;
+        private final SingleFlightLoader<String, Book> bookLoader;
+        private final DualWriter dualWriter;
+        private SharedCache<String, Book> sharedCache;
+        private MappedFileCache<Book> persistentCache;
+        private InvalidationBus<String> invalidationBus;
+        private ReadRouter readRouter;
+        private Executor ioExecutor;
+        private PriceMemo<String, Book> priceMemo;
+        private PricingEngine pricingEngine;
+        private BookIndex bookIndex;
+        private BookIdGenerator idGenerator;
+        private NegativeCache<String> negativeCache;
+
+        private Builder(SwiftCache<String, Book> cache,
+                        BookPostgreSQLCacheRepository bookRepositoryPostgreSQL,
+                        BookMongoDBCacheRepository bookRepositoryMongoDB,
+                        SingleFlightLoader<String, Book> bookLoader,
+                        DualWriter dualWriter) {
+            this.cache = cache;
+            this.bookRepositoryPostgreSQL = bookRepositoryPostgreSQL;
+            this.bookRepositoryMongoDB = bookRepositoryMongoDB;
+            this.bookLoader = bookLoader;
+            this.dualWriter = dualWriter;
+        }
+
+        /**
+         * Sets the cache shared with the other nodes.
+         *
+         * @param sharedCache the shared cache, or null if books are only cached locally
+         * @return this builder
+         */
+        public Builder sharedCache(@Nullable SharedCache<String, Book> sharedCache) {
+            this.sharedCache = sharedCache;
+            return this;
+        }
+
+        /**
+         * Sets the cache on local disk surviving restarts.
+         *
+         * @param persistentCache the persistent cache, or null if books are only cached in memory
+         * @return this builder
+         */
+        public Builder persistentCache(@Nullable MappedFileCache<Book> persistentCache) {
+            this.persistentCache = persistentCache;
+            return this;
+        }
+
+        /**
+         * Sets the bus announcing changed books to the other nodes.
+         *
+         * @param invalidationBus the invalidation bus, or null for a single node
+         * @return this builder
+         */
+        public Builder invalidationBus(@Nullable InvalidationBus<String> invalidationBus) {
+            this.invalidationBus = invalidationBus;
+            return this;
+        }
+
+        /**
+         * Sets the router sending reads to the faster database.
+         *
+         * @param readRouter the read router, or null to read from PostgreSQL only
+         * @return this builder
+         */
+        public Builder readRouter(@Nullable ReadRouter readRouter) {
+            this.readRouter = readRouter;
+            return this;
+        }
+
+        /**
+         * Sets the executor running the asynchronous operations.
+         *
+         * @param ioExecutor the executor, or null to run them on the calling thread
+         * @return this builder
+         */
+        public Builder ioExecutor(@Nullable Executor ioExecutor) {
+            this.ioExecutor = ioExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the memo of calculated prices writing them back in batches.
+         *
+         * @param priceMemo the price memo, or null to write every calculation
+         * @return this builder
+         */
+        public Builder priceMemo(@Nullable PriceMemo<String, Book> priceMemo) {
+            this.priceMemo = priceMemo;
+            return this;
+        }
+
+        /**
+         * Sets the engine applying the configured pricing rules.
+         *
+         * @param pricingEngine the pricing engine, or null for the fixed pricing rule
+         * @return this builder
+         */
+        public Builder pricingEngine(@Nullable PricingEngine pricingEngine) {
+            this.pricingEngine = pricingEngine;
+            return this;
+        }
+
+        /**
+         * Sets the index of books by ISBN, author and title.
+         *
+         * @param bookIndex the book index, or null if books cannot be searched
+         * @return this builder
+         */
+        public Builder bookIndex(@Nullable BookIndex bookIndex) {
+            this.bookIndex = bookIndex;
+            return this;
+        }
+
+        /**
+         * Sets the generator of book identifiers.
+         *
+         * @param idGenerator the id generator, or null for {@link Murmur3BookIdGenerator}
+         * @return this builder
+         */
+        public Builder idGenerator(@Nullable BookIdGenerator idGenerator) {
+            this.idGenerator = idGenerator;
+            return this;
+        }
+
+        /**
+         * Sets the ids of books known not to exist.
+         *
+         * @param negativeCache the negative cache, or null to look up every missing id
+         * @return this builder
+         */
+        public Builder negativeCache(@Nullable NegativeCache<String> negativeCache) {
+            this.negativeCache = negativeCache;
+            return this;
+        }
+
+        /**
+         * Builds the service, starting the price write-back and subscribing to the
+         * invalidation bus when they are set.
+         *
+         * @return the service
+         */
+        public BookCacheService build() {
+            return new BookCacheService(this);
+        }
     }
 }
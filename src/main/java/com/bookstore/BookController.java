@@ -1,80 +1,293 @@
 package com.bookstore;
 
+import com.bookstore.cache.RoutingStats;
+import com.bookstore.cache.TierStats;
 import com.bookstore.entities.Book;
 import com.bookstore.entities.BookDTO;
+import com.bookstore.entities.BookFormat;
+import com.bookstore.entities.BookIdCollisionException;
 import com.bookstore.entities.BookMapper;
+import com.bookstore.mongorepo.BookMongoDBCacheRepository;
+import com.bookstore.postgresrepo.BookPostgreSQLCacheRepository;
+import com.bookstore.search.BookIndex;
+import com.bookstore.search.SearchPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 /**
  * REST controller for managing {@link Book} entities.
  *
  * <p>
  * This class provides endpoints for retrieving, adding, removing, and calculating
- * the price of books. It uses the {@link BookCacheService} to handle the business logic
+ * the price of books, individually or in batches. It uses the {@link BookCacheService} to handle the business logic
  * and data access.
  * </p>
+ *
+ * <p>
+ * The endpoints that reach the databases are asynchronous: they return a
+ * {@link DeferredResult} and release the servlet thread while the database round
+ * trips run on the service's executor. A request that is not answered within the
+ * configured timeout, or that the executor has no room for, is answered with
+ * {@code 503 Service Unavailable}.
+ * </p>
+ *
+ * <p>
+ * The catalog export is streamed by the {@link BookExportService} on the streaming
+ * executor of {@link ServletConfig}. Bulk imports are read by the
+ * {@link BookImportService} on the service's executor, like the other database round
+ * trips, and are answered with {@code 503} if it has no room for them or if they are
+ * not done within their own, longer timeout, in which case they are cancelled.
+ * </p>
  */
 @RestController
 @RequestMapping("/api/books")
+@Profile("!" + BookstoreApplication.REACTIVE_PROFILE)
 public class BookController {
 
     private final BookCacheService bookCacheService;
+    private final BookExportService bookExportService;
+    private final BookImportService bookImportService;
+    private final long timeoutMillis;
+    private final long importTimeoutMillis;
 
     /**
      * Constructs a new instance of {@link BookController}.
      *
      * @param bookCacheService the service for managing book entities
+     * @param bookExportService the service exporting the catalog
+     * @param bookImportService the service importing feeds of books
+     * @param timeoutMillis how long an asynchronous request may take before it is answered with 503
+     * @param importTimeoutMillis how long an import may take before it is answered with 503
      */
     @Autowired
-    public BookController(BookCacheService bookCacheService) {
+    public BookController(BookCacheService bookCacheService,
+                          BookExportService bookExportService,
+                          BookImportService bookImportService,
+                          @Value("${bookstore.api.timeout-ms:5000}") long timeoutMillis,
+                          @Value("${bookstore.import.timeout-ms:600000}") long importTimeoutMillis) {
         this.bookCacheService = bookCacheService;
+        this.bookExportService = bookExportService;
+        this.bookImportService = bookImportService;
+        this.timeoutMillis = timeoutMillis;
+        this.importTimeoutMillis = importTimeoutMillis;
     }
 
     /**
      * Retrieves a {@link Book} entity by its unique identifier.
      *
      * @param id the unique identifier of the book
-     * @return a ResponseEntity containing the Book if found, or an appropriate HTTP status
+     * @return a DeferredResult completed with the Book if found, or with a 404 status otherwise
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Book> getBook(@PathVariable String id) {
-        Book book = bookCacheService.getBook(id);
-        if (book == null) {
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        }
-        return new ResponseEntity<>(book, HttpStatus.OK);
+    public DeferredResult<ResponseEntity<Book>> getBook(@PathVariable String id) {
+        return respond(bookCacheService.getBookAsync(id), book -> {
+            if (book == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(book, HttpStatus.OK);
+        });
     }
 
     /**
      * Adds a new {@link Book} entity.
      *
      * @param bookDTO the Data Transfer Object containing book details
-     * @return a ResponseEntity containing the saved Book if successful, or an appropriate HTTP status
+     * @return a DeferredResult completed with the saved Book if successful, or an appropriate HTTP status
      */
     @PostMapping
-    public ResponseEntity<Book> addBook(@RequestBody BookDTO bookDTO) {
+    public DeferredResult<ResponseEntity<Book>> addBook(@RequestBody BookDTO bookDTO) {
         Book book = BookMapper.toEntity(bookDTO);
-        Book savedBook = bookCacheService.putBook(book);
-
-        if (savedBook == null) {
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        }
-        return new ResponseEntity<>(savedBook, HttpStatus.OK);
+        return respond(bookCacheService.putBookAsync(book), savedBook -> {
+            if (savedBook == null) {
+                return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+            return new ResponseEntity<>(savedBook, HttpStatus.OK);
+        });
     }
 
     /**
      * Removes a {@link Book} entity by its unique identifier.
      *
      * @param id the unique identifier of the book to be removed
-     * @return a ResponseEntity indicating the result of the operation
+     * @return a DeferredResult indicating the result of the operation
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> removeBook(@PathVariable String id) {
-        bookCacheService.removeBook(id);
-        return new ResponseEntity<>(HttpStatus.OK);
+    public DeferredResult<ResponseEntity<Void>> removeBook(@PathVariable String id) {
+        return respond(bookCacheService.removeBookAsync(id), removed -> new ResponseEntity<>(HttpStatus.OK));
+    }
+
+    /**
+     * Retrieves several {@link Book} entities by their unique identifiers.
+     *
+     * @param ids the unique identifiers of the books
+     * @return a DeferredResult completed with the Books found; unknown identifiers are skipped
+     */
+    @GetMapping(params = "ids")
+    public DeferredResult<ResponseEntity<List<Book>>> getBooks(@RequestParam List<String> ids) {
+        return respond(bookCacheService.getBooksAsync(ids), books -> new ResponseEntity<>(books, HttpStatus.OK));
+    }
+
+    /**
+     * Searches the books by ISBN, author and title prefix, combining the given conditions.
+     *
+     * @param isbn the ISBN of the books
+     * @param author the author of the books
+     * @param title the start of the title of the books
+     * @param page the zero-based number of the page to return
+     * @param size the maximum number of books on a page, at most {@value BookIndex#MAX_PAGE_SIZE}
+     * @return a DeferredResult completed with the page of matching books ordered by title, 400 if no condition
+     *         is given or the page is out of range, or 404 if search is disabled
+     */
+    @GetMapping("/search")
+    public DeferredResult<ResponseEntity<SearchPage<Book>>> searchBooks(
+            @RequestParam(required = false) String isbn,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String title,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        CompletableFuture<SearchPage<Book>> found;
+        try {
+            found = bookCacheService.searchBooksAsync(isbn, author, title, page, size);
+        } catch (IllegalArgumentException e) {
+            DeferredResult<ResponseEntity<SearchPage<Book>>> result = new DeferredResult<>();
+            result.setResult(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+            return result;
+        }
+        return respond(found, books -> books == null
+                ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                : new ResponseEntity<>(books, HttpStatus.OK));
+    }
+
+    /**
+     * Adds several new {@link Book} entities.
+     *
+     * @param bookDTOs the Data Transfer Objects containing the book details
+     * @return a DeferredResult completed with the saved Books
+     */
+    @PostMapping("/batch")
+    public DeferredResult<ResponseEntity<List<Book>>> addBooks(@RequestBody List<BookDTO> bookDTOs) {
+        List<Book> books = new ArrayList<>(bookDTOs.size());
+        for (BookDTO bookDTO : bookDTOs) {
+            books.add(BookMapper.toEntity(bookDTO));
+        }
+        return respond(bookCacheService.putBooksAsync(books), saved -> new ResponseEntity<>(saved, HttpStatus.OK));
+    }
+
+    /**
+     * Removes several {@link Book} entities by their unique identifiers.
+     *
+     * @param ids the unique identifiers of the books to be removed
+     * @return a DeferredResult indicating the result of the operation
+     */
+    @DeleteMapping("/batch")
+    public DeferredResult<ResponseEntity<Void>> removeBooks(@RequestBody List<String> ids) {
+        return respond(bookCacheService.removeBooksAsync(ids), removed -> new ResponseEntity<>(HttpStatus.OK));
+    }
+
+    /**
+     * Streams every book of one database, without holding the catalog in memory.
+     *
+     * @param source the database to read, {@value BookPostgreSQLCacheRepository#STORE} or
+     *               {@value BookMongoDBCacheRepository#STORE}
+     * @param format the format of the books, {@code ndjson} or {@code binary}
+     * @return a ResponseEntity streaming the books, or 400 if the source or format is unknown
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(
+            @RequestParam(defaultValue = BookPostgreSQLCacheRepository.STORE) String source,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        BookFormat bookFormat;
+        try {
+            bookFormat = BookFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        StreamingResponseBody body;
+        if (BookPostgreSQLCacheRepository.STORE.equals(source)) {
+            body = out -> bookExportService.exportPostgreSQL(bookFormat, out);
+        } else if (BookMongoDBCacheRepository.STORE.equals(source)) {
+            body = out -> bookExportService.exportMongoDB(bookFormat, out);
+        } else {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(bookFormat.getMediaType()))
+                .body(body);
+    }
+
+    /**
+     * Imports a feed of books into both databases in batches, upserting books that
+     * already exist. An import that times out is answered with 503 and cancelled, so
+     * the rest of the feed is not read.
+     *
+     * @param format the format of the feed, {@code ndjson} or {@code csv}
+     * @param body the feed
+     * @return a DeferredResult completed with the summary of the import, or 400 if the format or CSV header
+     *         is invalid
+     */
+    @PostMapping("/import")
+    public DeferredResult<ResponseEntity<BookImportReport>> importBooks(
+            @RequestParam(defaultValue = "ndjson") String format, InputStream body) {
+        BookImportService.Format importFormat;
+        try {
+            importFormat = BookImportService.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            DeferredResult<ResponseEntity<BookImportReport>> result = new DeferredResult<>();
+            result.setResult(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+            return result;
+        }
+        CompletableFuture<BookImportReport> running = bookImportService.importBooksAsync(body, importFormat);
+        CompletableFuture<ResponseEntity<BookImportReport>> imported = running
+                .handle((report, error) -> {
+                    if (error == null) {
+                        return new ResponseEntity<>(report, HttpStatus.OK);
+                    }
+                    if (unwrap(error) instanceof IllegalArgumentException) {
+                        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                    }
+                    throw error instanceof CompletionException ? (CompletionException) error
+                            : new CompletionException(error);
+                });
+        DeferredResult<ResponseEntity<BookImportReport>> result =
+                respond(imported, importTimeoutMillis, Function.identity());
+        // The request body is no longer readable once the timeout is answered.
+        result.onTimeout(() -> running.cancel(false));
+        return result;
+    }
+
+    /**
+     * Retrieves the hit, miss and eviction counters of each cache level.
+     *
+     * @return a ResponseEntity containing the statistics of each cache level
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<List<TierStats>> getCacheStats() {
+        return new ResponseEntity<>(bookCacheService.getCacheStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves the number of reads sent to, hedged with and answered by each database.
+     *
+     * @return a ResponseEntity containing the read routing statistics of each database
+     */
+    @GetMapping("/routing/stats")
+    public ResponseEntity<List<RoutingStats>> getRoutingStats() {
+        return new ResponseEntity<>(bookCacheService.getRoutingStats(), HttpStatus.OK);
     }
 
     /**
@@ -92,4 +305,54 @@ public class BookController {
         }
         return new ResponseEntity<>(updatedBook, HttpStatus.OK);
     }
-}
\ No newline at end of file
+
+    /**
+     * Answers a request that the executor of a streaming response had no room for.
+     *
+     * @param e the rejection
+     * @return a ResponseEntity with status 503
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Void> handleRejected(RejectedExecutionException e) {
+        return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Answers a request to save a book under the identifier of a different stored book.
+     *
+     * @param e the collision
+     * @return a ResponseEntity with status 409
+     */
+    @ExceptionHandler(BookIdCollisionException.class)
+    public ResponseEntity<Void> handleIdCollision(BookIdCollisionException e) {
+        return new ResponseEntity<>(HttpStatus.CONFLICT);
+    }
+
+    private <T, R> DeferredResult<ResponseEntity<R>> respond(CompletableFuture<T> future,
+                                                             Function<T, ResponseEntity<R>> response) {
+        return respond(future, timeoutMillis, response);
+    }
+
+    private <T, R> DeferredResult<ResponseEntity<R>> respond(CompletableFuture<T> future, long timeoutMillis,
+                                                             Function<T, ResponseEntity<R>> response) {
+        DeferredResult<ResponseEntity<R>> result =
+                new DeferredResult<>(timeoutMillis, new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE));
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                result.setResult(response.apply(value));
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof RejectedExecutionException) {
+                result.setResult(new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE));
+            } else {
+                result.setErrorResult(cause);
+            }
+        });
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,107 @@
+package com.bookstore;
+
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookFormat;
+import com.bookstore.mongorepo.BookRepositoryMongoDB;
+import com.bookstore.postgresrepo.BookRepositoryPostgreSQL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Service writing the whole catalog of one database to a stream.
+ *
+ * <p>
+ * Books are read from a server-side cursor, a batch of rows or documents at a time,
+ * and written out one by one, so memory use does not grow with the size of the
+ * catalog. Books read from PostgreSQL are detached from the persistence context
+ * once written. The export bypasses the cache and reflects the database as of the
+ * start of the query.
+ * </p>
+ */
+@Service
+@Profile("!" + BookstoreApplication.REACTIVE_PROFILE)
+public class BookExportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookExportService.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BookRepositoryPostgreSQL postgreSQLRepository;
+    private final BookRepositoryMongoDB mongoDBRepository;
+    private final EntityManager entityManager;
+
+    /**
+     * Constructs a new instance of {@link BookExportService}.
+     *
+     * @param postgreSQLRepository the PostgreSQL repository for book entities
+     * @param mongoDBRepository the MongoDB repository for book entities
+     * @param entityManager the entity manager of the PostgreSQL persistence context
+     */
+    @Autowired
+    public BookExportService(BookRepositoryPostgreSQL postgreSQLRepository,
+                             BookRepositoryMongoDB mongoDBRepository,
+                             EntityManager entityManager) {
+        this.postgreSQLRepository = postgreSQLRepository;
+        this.mongoDBRepository = mongoDBRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Writes every book stored in PostgreSQL to a stream.
+     *
+     * @param format the format of the books in the stream
+     * @param out the stream to write to, which is flushed but not closed
+     * @return the number of books written
+     * @throws IOException if the stream cannot be written
+     */
+    @Transactional(readOnly = true)
+    public long exportPostgreSQL(BookFormat format, OutputStream out) throws IOException {
+        try (Stream<Book> books = postgreSQLRepository.streamAll()) {
+            return write(books, format, out, entityManager::detach);
+        }
+    }
+
+    /**
+     * Writes every book stored in MongoDB to a stream.
+     *
+     * @param format the format of the books in the stream
+     * @param out the stream to write to, which is flushed but not closed
+     * @return the number of books written
+     * @throws IOException if the stream cannot be written
+     */
+    public long exportMongoDB(BookFormat format, OutputStream out) throws IOException {
+        try (Stream<Book> books = mongoDBRepository.streamAllBy()) {
+            return write(books, format, out, book -> {
+            });
+        }
+    }
+
+    private static long write(Stream<Book> books, BookFormat format, OutputStream out, Consumer<Book> written)
+            throws IOException {
+        long start = System.nanoTime();
+        long count = 0;
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        Iterator<Book> iterator = books.iterator();
+        while (iterator.hasNext()) {
+            Book book = iterator.next();
+            format.write(book, buffered);
+            written.accept(book);
+            count++;
+        }
+        buffered.flush();
+        LOGGER.info("Exported {} books as {} in {} ms", count, format,
+                (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+}
@@ -0,0 +1,177 @@
+package com.bookstore;
+
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookDTO;
+import com.bookstore.entities.BookIdCollisionException;
+import com.bookstore.entities.BookMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * WebFlux handler functions serving the {@code /api/books} API of {@link BookController}
+ * under the {@value BookstoreApplication#REACTIVE_PROFILE} profile.
+ *
+ * <p>
+ * Each handler returns as soon as its database calls are subscribed; no thread waits
+ * for PostgreSQL or MongoDB. Responses and status codes match those of the servlet
+ * controller, including the {@code 503 Service Unavailable} answer to requests that
+ * are not answered within the configured timeout. The routes are declared in
+ * {@link ReactiveConfig}.
+ * </p>
+ */
+@Component
+@Profile(BookstoreApplication.REACTIVE_PROFILE)
+public class BookHandler {
+
+    private static final ParameterizedTypeReference<List<String>> ID_LIST =
+            new ParameterizedTypeReference<List<String>>() {
+            };
+
+    private final ReactiveBookCacheService bookCacheService;
+    private final Duration timeout;
+
+    /**
+     * Constructs a new instance of {@link BookHandler}.
+     *
+     * @param bookCacheService the reactive service for managing book entities
+     * @param timeoutMillis how long a request may take before it is answered with 503
+     */
+    @Autowired
+    public BookHandler(ReactiveBookCacheService bookCacheService,
+                       @Value("${bookstore.api.timeout-ms:5000}") long timeoutMillis) {
+        this.bookCacheService = bookCacheService;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+    }
+
+    /**
+     * Retrieves a {@link Book} entity by the unique identifier in the path.
+     *
+     * @param request the request carrying the {@code id} path variable
+     * @return the Book if found, or a 404 status otherwise
+     */
+    public Mono<ServerResponse> getBook(ServerRequest request) {
+        return respond(bookCacheService.getBook(request.pathVariable("id"))
+                .flatMap(book -> ServerResponse.ok().bodyValue(book))
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build())));
+    }
+
+    /**
+     * Adds a new {@link Book} entity.
+     *
+     * @param request the request carrying the book details
+     * @return the saved Book
+     */
+    public Mono<ServerResponse> addBook(ServerRequest request) {
+        return respond(request.bodyToMono(BookDTO.class)
+                .map(BookMapper::toEntity)
+                .flatMap(bookCacheService::putBook)
+                .flatMap(book -> ServerResponse.ok().bodyValue(book)));
+    }
+
+    /**
+     * Removes a {@link Book} entity by the unique identifier in the path.
+     *
+     * @param request the request carrying the {@code id} path variable
+     * @return an empty response once the book is removed
+     */
+    public Mono<ServerResponse> removeBook(ServerRequest request) {
+        return respond(bookCacheService.removeBook(request.pathVariable("id"))
+                .then(ServerResponse.ok().build()));
+    }
+
+    /**
+     * Retrieves several {@link Book} entities by the comma-separated or repeated {@code ids} parameter.
+     *
+     * @param request the request carrying the {@code ids} query parameter
+     * @return the Books found; unknown identifiers are skipped
+     */
+    public Mono<ServerResponse> getBooks(ServerRequest request) {
+        List<String> ids = new ArrayList<>();
+        for (String value : request.queryParams().getOrDefault("ids", Collections.emptyList())) {
+            Collections.addAll(ids, value.split(","));
+        }
+        return respond(bookCacheService.getBooks(ids)
+                .flatMap(books -> ServerResponse.ok().bodyValue(books)));
+    }
+
+    /**
+     * Adds several new {@link Book} entities.
+     *
+     * @param request the request carrying a JSON array of book details
+     * @return the saved Books
+     */
+    public Mono<ServerResponse> addBooks(ServerRequest request) {
+        return respond(request.bodyToFlux(BookDTO.class)
+                .map(BookMapper::toEntity)
+                .collectList()
+                .flatMap(bookCacheService::putBooks)
+                .flatMap(books -> ServerResponse.ok().bodyValue(books)));
+    }
+
+    /**
+     * Removes several {@link Book} entities.
+     *
+     * @param request the request carrying a JSON array of identifiers
+     * @return an empty response once the books are removed
+     */
+    public Mono<ServerResponse> removeBooks(ServerRequest request) {
+        return respond(request.bodyToMono(ID_LIST)
+                .flatMap(bookCacheService::removeBooks)
+                .then(ServerResponse.ok().build()));
+    }
+
+    /**
+     * Retrieves the hit, miss and eviction counters of each cache level.
+     *
+     * @param request the request
+     * @return the statistics of each cache level
+     */
+    public Mono<ServerResponse> getCacheStats(ServerRequest request) {
+        return ServerResponse.ok().bodyValue(bookCacheService.getCacheStats());
+    }
+
+    /**
+     * Retrieves the read routing statistics, which are always empty since the reactive
+     * runtime reads from PostgreSQL only.
+     *
+     * @param request the request
+     * @return an empty list
+     */
+    public Mono<ServerResponse> getRoutingStats(ServerRequest request) {
+        return ServerResponse.ok().bodyValue(Collections.emptyList());
+    }
+
+    /**
+     * Calculates the price of a {@link Book} entity.
+     *
+     * @param request the request carrying the book details
+     * @return the Book with its calculated price
+     */
+    public Mono<ServerResponse> calculateBookPrice(ServerRequest request) {
+        return respond(request.bodyToMono(BookDTO.class)
+                .map(BookMapper::toEntity)
+                .flatMap(bookCacheService::calculateBookPrice)
+                .flatMap(book -> ServerResponse.ok().bodyValue(book)));
+    }
+
+    private Mono<ServerResponse> respond(Mono<ServerResponse> response) {
+        return response.timeout(timeout)
+                .onErrorResume(TimeoutException.class,
+                        e -> ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).build())
+                .onErrorResume(BookIdCollisionException.class,
+                        e -> ServerResponse.status(HttpStatus.CONFLICT).build());
+    }
+}
@@ -0,0 +1,160 @@
+package com.bookstore;
+
+import com.bookstore.cache.DualWriter;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookIdCollisionException;
+import com.bookstore.entities.BookIdGenerator;
+import com.bookstore.entities.BookMapper;
+import com.bookstore.entities.Murmur3BookIdGenerator;
+import com.bookstore.mongorepo.BookMongoDBBulkWriter;
+import com.bookstore.postgresrepo.BookPostgreSQLBulkWriter;
+import com.bookstore.postgresrepo.BookRepositoryPostgreSQL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Re-keys the books stored under the 32-bit identifiers of the first releases to the
+ * 128-bit identifiers of the {@link Murmur3BookIdGenerator}, when the application starts
+ * with {@code bookstore.ids.migrate=true}.
+ *
+ * <p>
+ * Books whose identifier is shorter than {@value Murmur3BookIdGenerator#ID_LENGTH}
+ * characters are read from PostgreSQL in batches. Each book is upserted into both
+ * databases under its new identifier, unless it was already saved under it since the
+ * switch, and then removed under its old one. A different book stored under the new
+ * identifier is a collision, which stops the migration with a
+ * {@link BookIdCollisionException} rather than overwrite either book; the saves of
+ * {@link BookCacheService} only compare books with their cached copies, so this is
+ * where stored books are checked. The migration holds up the start of
+ * the application until it is done, and may be stopped and run again: books already
+ * re-keyed are no longer found by the next run. Clients holding old identifiers must
+ * look their books up again.
+ * </p>
+ */
+@Component
+@Profile("!" + BookstoreApplication.REACTIVE_PROFILE)
+@ConditionalOnProperty(name = "bookstore.ids.migrate", havingValue = "true")
+public class BookIdMigrator implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookIdMigrator.class);
+
+    private final BookRepositoryPostgreSQL postgreSQLRepository;
+    private final BookCacheService bookCacheService;
+    private final BookPostgreSQLBulkWriter postgreSQLWriter;
+    private final BookMongoDBBulkWriter mongoDBWriter;
+    private final DualWriter dualWriter;
+    private final BookIdGenerator idGenerator;
+    private final int batchSize;
+
+    /**
+     * Constructs a new instance of {@link BookIdMigrator}.
+     *
+     * @param postgreSQLRepository the PostgreSQL repository the books to migrate are read from
+     * @param bookCacheService the service keeping the caches consistent with the re-keyed books
+     * @param postgreSQLWriter the writer upserting re-keyed books into PostgreSQL
+     * @param mongoDBWriter the writer upserting re-keyed books into MongoDB
+     * @param dualWriter the writer applying each batch to PostgreSQL and MongoDB concurrently
+     * @param idGenerator the generator of book identifiers, which must be a {@link Murmur3BookIdGenerator}
+     * @param batchSize the number of books re-keyed at a time
+     */
+    @Autowired
+    public BookIdMigrator(BookRepositoryPostgreSQL postgreSQLRepository,
+                          BookCacheService bookCacheService,
+                          BookPostgreSQLBulkWriter postgreSQLWriter,
+                          BookMongoDBBulkWriter mongoDBWriter,
+                          DualWriter dualWriter,
+                          BookIdGenerator idGenerator,
+                          @Value("${bookstore.import.batch-size:1000}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid migration batch size");
+        }
+        this.postgreSQLRepository = postgreSQLRepository;
+        this.bookCacheService = bookCacheService;
+        this.postgreSQLWriter = postgreSQLWriter;
+        this.mongoDBWriter = mongoDBWriter;
+        this.dualWriter = dualWriter;
+        this.idGenerator = idGenerator;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Migrates every book still stored under an old identifier.
+     *
+     * @param args the application arguments
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!(idGenerator instanceof Murmur3BookIdGenerator)) {
+            LOGGER.warn("Book ids are only migrated to the {} scheme; set bookstore.ids.scheme accordingly",
+                    CacheConfig.MURMUR3_ID_SCHEME);
+            return;
+        }
+        migrate();
+    }
+
+    /**
+     * Re-keys the books stored under old identifiers, a batch at a time, until none is left.
+     *
+     * @return the number of books migrated
+     * @throws BookIdCollisionException if a different book is stored under the new identifier of a book
+     * @throws RuntimeException if a batch cannot be written, in which case the books already migrated stay migrated
+     */
+    public long migrate() {
+        long start = System.nanoTime();
+        long migrated = 0;
+        List<Book> books;
+        while (!(books = postgreSQLRepository.findByIdShorterThan(Murmur3BookIdGenerator.ID_LENGTH,
+                PageRequest.of(0, batchSize))).isEmpty()) {
+            migrateBatch(books);
+            migrated += books.size();
+            LOGGER.info("Migrated {} book ids so far", migrated);
+        }
+        LOGGER.info("Migrated {} book ids in {} ms", migrated, (System.nanoTime() - start) / 1_000_000);
+        return migrated;
+    }
+
+    private void migrateBatch(List<Book> books) {
+        List<String> oldIds = new ArrayList<>(books.size());
+        Map<String, Book> rekeyed = new LinkedHashMap<>();
+        for (Book book : books) {
+            oldIds.add(book.getId());
+            Book copy = BookMapper.toEntity(BookMapper.toDTO(book));
+            idGenerator.assignId(copy);
+            rekeyed.put(copy.getId(), copy);
+        }
+        for (Book saved : bookCacheService.getBooks(rekeyed.keySet())) {
+            Book copy = rekeyed.remove(saved.getId());
+            if (!BookCacheService.sameBook(saved, copy)) {
+                throw new BookIdCollisionException(saved.getId(), saved, copy);
+            }
+        }
+
+        if (!rekeyed.isEmpty()) {
+            List<Book> batch = new ArrayList<>(rekeyed.values());
+            bookCacheService.writeAround(batch, () -> dualWriter.write(
+                    () -> {
+                        postgreSQLWriter.upsertAll(batch);
+                        return null;
+                    },
+                    () -> {
+                        mongoDBWriter.upsertAll(batch);
+                        return null;
+                    }
+            ));
+        }
+        bookCacheService.removeBooks(oldIds);
+    }
+}
@@ -0,0 +1,77 @@
+package com.bookstore;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable summary of a bulk import of books.
+ */
+@Getter
+public class BookImportReport {
+
+    /**
+     * The number of records read from the feed.
+     */
+    private final long read;
+
+    /**
+     * The number of books written to both databases.
+     */
+    private final long imported;
+
+    /**
+     * The number of records that could not be parsed and were skipped.
+     */
+    private final long rejected;
+
+    /**
+     * The number of books of the batches that could not be written.
+     */
+    private final long failed;
+
+    /**
+     * The number of batches written or attempted.
+     */
+    private final long batches;
+
+    /**
+     * The number of batches that could not be written.
+     */
+    private final long failedBatches;
+
+    /**
+     * The first errors met, each naming the line or batch it concerns.
+     */
+    private final List<String> errors;
+
+    /**
+     * The time the import took, in milliseconds.
+     */
+    private final long elapsedMillis;
+
+    /**
+     * Constructs a new instance of {@link BookImportReport}.
+     *
+     * @param read the number of records read from the feed
+     * @param imported the number of books written to both databases
+     * @param rejected the number of records that could not be parsed
+     * @param failed the number of books of the batches that could not be written
+     * @param batches the number of batches written or attempted
+     * @param failedBatches the number of batches that could not be written
+     * @param errors the first errors met
+     * @param elapsedMillis the time the import took, in milliseconds
+     */
+    public BookImportReport(long read, long imported, long rejected, long failed, long batches, long failedBatches,
+                            List<String> errors, long elapsedMillis) {
+        this.read = read;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.failed = failed;
+        this.batches = batches;
+        this.failedBatches = failedBatches;
+        this.errors = Collections.unmodifiableList(errors);
+        this.elapsedMillis = elapsedMillis;
+    }
+}
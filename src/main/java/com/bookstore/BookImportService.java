@@ -0,0 +1,403 @@
+package com.bookstore;
+
+import com.bookstore.cache.DualWriter;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookDTO;
+import com.bookstore.entities.BookIdGenerator;
+import com.bookstore.entities.BookMapper;
+import com.bookstore.mongorepo.BookMongoDBBulkWriter;
+import com.bookstore.postgresrepo.BookPostgreSQLBulkWriter;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Service importing a feed of books into both databases in batches.
+ *
+ * <p>
+ * The feed is read one line at a time, either as newline-delimited JSON or as CSV
+ * with a header naming the {@code title}, {@code author}, {@code isbn} and
+ * {@code price} columns. Each record is mapped to a {@link Book}, given its id and
+ * staged into a batch. A full batch is upserted into PostgreSQL with a JDBC batch
+ * and into MongoDB with an unordered bulk write, concurrently, through the
+ * {@link DualWriter}, while the next batch is being read; at most two batches are held
+ * in memory and batches are written in feed order.
+ * </p>
+ *
+ * <p>
+ * Errors are isolated: a record that cannot be parsed is skipped, and a batch that
+ * cannot be written, or would overwrite a different book stored under the same
+ * identifier, is reported and evicted from the cache while the import goes on.
+ * Progress is logged and published as {@code bookstore.import.books} counters tagged
+ * with the result.
+ * </p>
+ */
+@Service
+@Profile("!" + BookstoreApplication.REACTIVE_PROFILE)
+public class BookImportService {
+
+    /**
+     * Formats of the imported feeds.
+     */
+    public enum Format {
+        /**
+         * One JSON book per line.
+         */
+        NDJSON,
+        /**
+         * One book per line, with a header line naming the columns.
+         */
+        CSV;
+
+        /**
+         * Returns the format with the given name, regardless of case.
+         *
+         * @param name the name of the format
+         * @return the format
+         * @throws IllegalArgumentException if there is no format with that name
+         */
+        public static Format of(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookImportService.class);
+    private static final ObjectReader BOOK_READER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readerFor(BookDTO.class);
+    private static final int MAX_ERRORS = 20;
+    private static final int PROGRESS_BATCHES = 100;
+
+    private final BookCacheService bookCacheService;
+    private final BookPostgreSQLBulkWriter postgreSQLWriter;
+    private final BookMongoDBBulkWriter mongoDBWriter;
+    private final DualWriter dualWriter;
+    private final BookIdGenerator idGenerator;
+    private final Executor executor;
+    private final int batchSize;
+
+    private final Counter importedBooks;
+    private final Counter rejectedBooks;
+    private final Counter failedBooks;
+
+    /**
+     * Constructs a new instance of {@link BookImportService}.
+     *
+     * @param bookCacheService the service keeping the caches consistent with the imported books
+     * @param postgreSQLWriter the writer upserting batches into PostgreSQL
+     * @param mongoDBWriter the writer upserting batches into MongoDB
+     * @param dualWriter the writer applying each batch to PostgreSQL and MongoDB concurrently
+     * @param idGenerator the generator of book identifiers
+     * @param executor the executor writing a batch while the next one is read, or null to write on the calling thread
+     * @param batchSize the number of books written with each batch
+     * @param meterRegistry the registry publishing the import counters
+     */
+    @Autowired
+    public BookImportService(BookCacheService bookCacheService,
+                             BookPostgreSQLBulkWriter postgreSQLWriter,
+                             BookMongoDBBulkWriter mongoDBWriter,
+                             DualWriter dualWriter,
+                             BookIdGenerator idGenerator,
+                             @Nullable @Qualifier(CacheConfig.BOOK_IO_EXECUTOR) Executor executor,
+                             @Value("${bookstore.import.batch-size:1000}") int batchSize,
+                             MeterRegistry meterRegistry) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid import batch size");
+        }
+        this.bookCacheService = bookCacheService;
+        this.postgreSQLWriter = postgreSQLWriter;
+        this.mongoDBWriter = mongoDBWriter;
+        this.dualWriter = dualWriter;
+        this.idGenerator = idGenerator;
+        this.executor = executor != null ? executor : Runnable::run;
+        this.batchSize = batchSize;
+        this.importedBooks = counter(meterRegistry, "imported", "Books imported into both databases");
+        this.rejectedBooks = counter(meterRegistry, "rejected", "Imported records that could not be parsed");
+        this.failedBooks = counter(meterRegistry, "failed", "Imported books whose batch could not be written");
+    }
+
+    /**
+     * Imports every book of a feed like {@link #importBooks(InputStream, Format)} on the
+     * executor, without blocking the calling thread.
+     *
+     * <p>
+     * Cancelling the returned future stops the import before its next line: the feed is
+     * no longer read, and no further batch is written once the batch in flight completes.
+     * </p>
+     *
+     * @param in the feed, encoded in UTF-8, which is read to its end, or until the import is cancelled,
+     *        but not closed
+     * @param format the format of the feed
+     * @return a future completed with the summary of the import, or with a {@link RejectedExecutionException}
+     *         if the executor has no room for it
+     */
+    public CompletableFuture<BookImportReport> importBooksAsync(InputStream in, Format format) {
+        CompletableFuture<BookImportReport> report = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    report.complete(importBooks(in, format, report::isCancelled));
+                } catch (IOException | RuntimeException e) {
+                    report.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            report.completeExceptionally(e);
+        }
+        return report;
+    }
+
+    /**
+     * Imports every book of a feed.
+     *
+     * @param in the feed, encoded in UTF-8, which is read to its end but not closed
+     * @param format the format of the feed
+     * @return the summary of the import
+     * @throws IOException if the feed cannot be read
+     * @throws IllegalArgumentException if a CSV feed has no header or lacks a column
+     */
+    public BookImportReport importBooks(InputStream in, Format format) throws IOException {
+        return importBooks(in, format, () -> false);
+    }
+
+    private BookImportReport importBooks(InputStream in, Format format, BooleanSupplier cancelled)
+            throws IOException {
+        long start = System.nanoTime();
+        Progress progress = new Progress();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        Map<String, Integer> columns = null;
+        if (format == Format.CSV) {
+            columns = header(reader.readLine());
+            lineNumber++;
+        }
+
+        FutureTask<Void> pending = null;
+        Map<String, Book> batch = new LinkedHashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (cancelled.getAsBoolean()) {
+                await(pending);
+                LOGGER.info("Import cancelled at line {} after {} books", lineNumber + 1, progress.imported.sum());
+                throw new CancellationException("Import cancelled");
+            }
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            progress.read.increment();
+            try {
+                BookDTO dto = columns != null ? csvRecord(line, columns) : BOOK_READER.readValue(line);
+                Book book = BookMapper.toEntity(dto);
+                idGenerator.assignId(book);
+                batch.put(book.getId(), book);
+            } catch (IOException | IllegalArgumentException e) {
+                progress.rejected.increment();
+                rejectedBooks.increment();
+                progress.error("Line " + lineNumber + ": " + e.getMessage());
+            }
+            if (batch.size() >= batchSize) {
+                await(pending);
+                pending = write(new ArrayList<>(batch.values()), progress);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        await(pending);
+        if (!batch.isEmpty()) {
+            await(write(new ArrayList<>(batch.values()), progress));
+        }
+
+        BookImportReport report = progress.report((System.nanoTime() - start) / 1_000_000);
+        LOGGER.info("Imported {} of {} books in {} ms: {} rejected, {} in {} failed batches", report.getImported(),
+                report.getRead(), report.getElapsedMillis(), report.getRejected(), report.getFailed(),
+                report.getFailedBatches());
+        return report;
+    }
+
+    private FutureTask<Void> write(List<Book> books, Progress progress) {
+        progress.batches.increment();
+        long number = progress.batches.sum();
+        FutureTask<Void> task = new FutureTask<>(() -> writeBatch(books, number, progress), null);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+        return task;
+    }
+
+    private static void await(FutureTask<Void> task) {
+        if (task == null) {
+            return;
+        }
+        // An import running on the executor may wait for a batch queued behind it, so the
+        // batch is written here unless a worker has already started it.
+        task.run();
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Import interrupted");
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private void writeBatch(List<Book> books, long number, Progress progress) {
+        try {
+            bookCacheService.writeAround(books, () -> dualWriter.write(
+                    () -> {
+                        postgreSQLWriter.upsertAll(books);
+                        return null;
+                    },
+                    () -> {
+                        mongoDBWriter.upsertAll(books);
+                        return null;
+                    }
+            ));
+            progress.imported.add(books.size());
+            importedBooks.increment(books.size());
+            if (number % PROGRESS_BATCHES == 0) {
+                LOGGER.info("Imported {} books in {} batches so far", progress.imported.sum(), number);
+            }
+        } catch (RuntimeException e) {
+            progress.failed.add(books.size());
+            progress.failedBatches.increment();
+            failedBooks.increment(books.size());
+            progress.error("Batch " + number + " of " + books.size() + " books: " + e.getMessage());
+            LOGGER.warn("Cannot import batch {} of {} books", number, books.size(), e);
+        }
+    }
+
+    private static Map<String, Integer> header(String line) {
+        if (line == null) {
+            throw new IllegalArgumentException("Missing CSV header");
+        }
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        List<String> names = csvFields(line);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : new String[]{"title", "author", "isbn", "price"}) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("Missing CSV column " + column);
+            }
+        }
+        return columns;
+    }
+
+    private static BookDTO csvRecord(String line, Map<String, Integer> columns) {
+        List<String> fields = csvFields(line);
+        if (fields.size() < columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " fields, found " + fields.size());
+        }
+        BookDTO dto = new BookDTO();
+        dto.setTitle(fields.get(columns.get("title")));
+        dto.setAuthor(fields.get(columns.get("author")));
+        dto.setIsbn(fields.get(columns.get("isbn")));
+        dto.setPrice(Double.parseDouble(fields.get(columns.get("price")).trim()));
+        return dto;
+    }
+
+    private static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static Counter counter(MeterRegistry registry, String result, String description) {
+        return Counter.builder("bookstore.import.books")
+                .tag("result", result)
+                .description(description)
+                .register(registry);
+    }
+
+    private static final class Progress {
+
+        private final LongAdder read = new LongAdder();
+        private final LongAdder imported = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder failedBatches = new LongAdder();
+        private final List<String> errors = new ArrayList<>();
+        private final ReentrantLock errorsLock = new ReentrantLock();
+
+        private void error(String message) {
+            errorsLock.lock();
+            try {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add(message);
+                }
+            } finally {
+                errorsLock.unlock();
+            }
+        }
+
+        private BookImportReport report(long elapsedMillis) {
+            errorsLock.lock();
+            try {
+                return new BookImportReport(read.sum(), imported.sum(), rejected.sum(), failed.sum(), batches.sum(),
+                        failedBatches.sum(), new ArrayList<>(errors), elapsedMillis);
+            } finally {
+                errorsLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.bookstore;
+
+import com.bookstore.entities.Book;
+import com.bookstore.postgresrepo.BookRepositoryPostgreSQL;
+import com.bookstore.search.BookIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Fills the {@link BookIndex} with every book stored in PostgreSQL once the
+ * application has started.
+ *
+ * <p>
+ * The books are read from the server-side cursor of
+ * {@link BookRepositoryPostgreSQL#streamAll()} within a read-only transaction, and
+ * indexed and detached {@value BookRepositoryPostgreSQL#STREAM_FETCH_SIZE} at a time,
+ * so memory use does not grow with the size of the catalog. The load runs on a
+ * background thread; searches meanwhile only find the books indexed so far.
+ * </p>
+ *
+ * <p>
+ * Books already indexed are left alone, since {@link BookCacheService} indexed them
+ * when it wrote them, after the cursor was opened. A book removed while the load runs
+ * may still be indexed from the cursor; it is dropped from the index by the first
+ * search that fails to load it.
+ * </p>
+ */
+@Component
+@Profile("!" + BookstoreApplication.REACTIVE_PROFILE)
+@ConditionalOnProperty(name = "bookstore.search.enabled", havingValue = "true", matchIfMissing = true)
+public class BookIndexLoader implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookIndexLoader.class);
+    private static final int BATCH_SIZE = Integer.parseInt(BookRepositoryPostgreSQL.STREAM_FETCH_SIZE);
+
+    private final BookRepositoryPostgreSQL postgreSQLRepository;
+    private final BookIndex bookIndex;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+
+    /**
+     * Constructs a new instance of {@link BookIndexLoader}.
+     *
+     * @param postgreSQLRepository the PostgreSQL repository the books are read from
+     * @param bookIndex the index to fill
+     * @param entityManager the entity manager of the PostgreSQL persistence context
+     * @param transactionManager the transaction manager keeping the cursor open
+     */
+    @Autowired
+    public BookIndexLoader(BookRepositoryPostgreSQL postgreSQLRepository,
+                           BookIndex bookIndex,
+                           EntityManager entityManager,
+                           PlatformTransactionManager transactionManager) {
+        this.postgreSQLRepository = postgreSQLRepository;
+        this.bookIndex = bookIndex;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Starts loading the index without waiting for it to finish.
+     *
+     * @param args the application arguments
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread thread = new Thread(this::loadQuietly, "book-index-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Indexes every book stored in PostgreSQL that is not indexed yet.
+     *
+     * @return the number of books read
+     */
+    public long load() {
+        long start = System.nanoTime();
+        Long read = readOnlyTransaction.execute(status -> {
+            try (Stream<Book> books = postgreSQLRepository.streamAll()) {
+                return index(books.iterator());
+            }
+        });
+        LOGGER.info("Indexed {} books from PostgreSQL in {} ms", read, (System.nanoTime() - start) / 1_000_000);
+        return read == null ? 0 : read;
+    }
+
+    private long index(Iterator<Book> books) {
+        long read = 0;
+        List<Book> batch = new ArrayList<>(BATCH_SIZE);
+        while (books.hasNext()) {
+            batch.add(books.next());
+            if (batch.size() == BATCH_SIZE || !books.hasNext()) {
+                bookIndex.addAllIfAbsent(batch);
+                batch.forEach(entityManager::detach);
+                read += batch.size();
+                batch.clear();
+            }
+        }
+        return read;
+    }
+
+    private void loadQuietly() {
+        try {
+            load();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot index the books of PostgreSQL; only books saved from now on are searchable", e);
+        }
+    }
+}
@@ -14,6 +14,12 @@ import org.swiftcache.cacherepository.ICacheRepository;
  */
 public class BookPriceCalculator {
 
+    /**
+     * The version of the pricing rule, to be incremented whenever the rule changes so
+     * that prices memoized with the previous rule are calculated again.
+     */
+    public static final long RULE_VERSION = 1;
+
     /**
      * Private constructor to prevent instantiation of the utility class.
      */
@@ -2,29 +2,30 @@ package com.bookstore;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
 /**
  * The main application class for the Bookstore Spring Boot application.
  *
  * <p>
  * This class serves as the entry point for the application, initializing
- * the Spring context and enabling JPA repositories for PostgreSQL and
- * MongoDB repositories.
+ * the Spring context.
  * </p>
  *
  * <p>
- * The application is configured to scan the specified base packages for
- * repository interfaces and enables the necessary configurations for
- * both MongoDB and JPA.
+ * By default the application runs on the servlet stack with JPA and blocking
+ * MongoDB repositories, as set up by {@link ServletConfig}. With the
+ * {@value #REACTIVE_PROFILE} profile active it serves the same API with WebFlux,
+ * R2DBC and reactive MongoDB repositories instead, as set up by {@link ReactiveConfig}.
  * </p>
  */
 @SpringBootApplication
-@EnableMongoRepositories(basePackages = "com.bookstore.mongorepo")
-@EnableJpaRepositories(basePackages = "com.bookstore.postgresrepo")
 public class BookstoreApplication {
 
+    /**
+     * Name of the profile selecting the reactive runtime.
+     */
+    public static final String REACTIVE_PROFILE = "reactive";
+
     /**
      * The main method that starts the Spring Boot application.
      *
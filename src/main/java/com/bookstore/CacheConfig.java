@@ -1,12 +1,57 @@
 package com.bookstore;
 
+import com.bookstore.cache.CacheEventTracer;
+import com.bookstore.cache.CacheMetrics;
+import com.bookstore.cache.CacheTier;
+import com.bookstore.cache.DualWriter;
+import com.bookstore.cache.InMemoryInvalidationBus;
+import com.bookstore.cache.InMemorySharedCache;
+import com.bookstore.cache.InvalidationBus;
+import com.bookstore.cache.OffHeapTier;
+import com.bookstore.cache.ReadRouter;
+import com.bookstore.cache.RedisInvalidationBus;
+import com.bookstore.cache.RedisSharedCache;
+import com.bookstore.cache.RefreshAheadScheduler;
+import com.bookstore.cache.SharedCache;
+import com.bookstore.cache.SingleFlightLoader;
+import com.bookstore.cache.StripedSwiftCache;
+import com.bookstore.cache.VirtualThreads;
+import com.bookstore.cache.WTinyLfuEvictionStrategy;
+import com.bookstore.cache.WriteBehindExecutor;
 import com.bookstore.entities.Book;
+import com.bookstore.entities.BookCodec;
+import com.bookstore.entities.BookIdGenerator;
+import com.bookstore.entities.LegacyBookIdGenerator;
+import com.bookstore.entities.Murmur3BookIdGenerator;
+import com.bookstore.mongorepo.BookMongoDBCacheRepository;
+import com.bookstore.postgresrepo.BookPostgreSQLCacheRepository;
+import com.bookstore.pricing.PricingEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.lang.Nullable;
 import org.swiftcache.SwiftCacheManager;
 import org.swiftcache.cache.SwiftCache;
 import org.swiftcache.cache.SwiftCacheConfig;
 
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 /**
  * Configuration class for setting up the cache for the bookstore application.
  *
@@ -18,29 +63,484 @@ import org.swiftcache.cache.SwiftCacheConfig;
 @Configuration
 public class CacheConfig {
 
+    /**
+     * Engine name selecting the lock-striped {@link StripedSwiftCache}.
+     */
+    public static final String STRIPED_ENGINE = "striped";
+
+    /**
+     * Engine name selecting the stock {@link SwiftCache} created by {@link SwiftCacheManager}.
+     */
+    public static final String SWIFT_CACHE_ENGINE = "swiftcache";
+
+    /**
+     * Identifier scheme selecting the 128-bit {@link Murmur3BookIdGenerator}.
+     */
+    public static final String MURMUR3_ID_SCHEME = "murmur3";
+
+    /**
+     * Identifier scheme selecting the 32-bit {@link LegacyBookIdGenerator} of the first releases.
+     */
+    public static final String LEGACY_ID_SCHEME = "legacy";
+
+    /**
+     * Name of the book cache in the {@code cache} tag of its meters.
+     */
+    public static final String CACHE_NAME = "books";
+
+    /**
+     * Name of the executor bean running the asynchronous book operations.
+     */
+    public static final String BOOK_IO_EXECUTOR = "bookIoExecutor";
+
+    /**
+     * Shared cache type keeping the second level in the memory of this process.
+     */
+    public static final String MEMORY_SHARED_CACHE = "memory";
+
+    /**
+     * Shared cache type keeping the second level in Redis.
+     */
+    public static final String REDIS_SHARED_CACHE = "redis";
+
+    /**
+     * Parent logger of the stock SwiftCache classes, which log every get, put, removal
+     * and eviction at INFO. It is held here because loggers are only weakly referenced
+     * and would otherwise lose the level set on them.
+     */
+    private static final Logger SWIFT_CACHE_LOGGER = Logger.getLogger("org.swiftcache");
+
     /**
      * Creates a {@link SwiftCache} instance with the specified configuration.
      *
      * <p>
      * The cache configuration includes:
-     * - Maximum size of 100 entries
-     * - Least Recently Used (LRU) eviction strategy
-     * - Read-through policy for fetching data from the cache
-     * - Write-always policy for updating the cache on write operations
+     * - Maximum size of 100 entries, unless overridden with the
+     *   {@code bookstore.cache.max-size} property
+     * - Least Recently Used (LRU) eviction strategy, unless overridden with the
+     *   {@code bookstore.cache.eviction-strategy} property, which also accepts
+     *   {@value WTinyLfuEvictionStrategy#W_TINY_LFU_EVICTION_STRATEGY}
+     * - Read-through policy for fetching data from the cache, unless overridden
+     *   with the {@code bookstore.cache.read-policy} property
+     * - Write-always policy for updating the cache on write operations, unless
+     *   overridden with the {@code bookstore.cache.write-policy} property
      * </p>
      *
+     * <p>
+     * The cache engine is selected with the {@code bookstore.cache.engine} property,
+     * which defaults to {@value #STRIPED_ENGINE}. Only the striped engine persists
+     * write-behind operations through the pooled {@link WriteBehindExecutor} and
+     * refreshes entries through the bounded {@link RefreshAheadScheduler}. It also
+     * demotes evicted entries into the off-heap tier when one is configured, and
+     * records its operations through the {@link CacheEventTracer}.
+     * </p>
+     *
+     * <p>
+     * The per-operation INFO logging of the stock {@link SwiftCache} is limited to
+     * {@code bookstore.cache.swiftcache-log-level}, which defaults to {@code WARNING}.
+     * </p>
+     *
+     * @param engine the cache engine to create
+     * @param maxSize the maximum number of entries held on the heap
+     * @param evictionStrategy the eviction strategy of the cache
+     * @param concurrencyLevel the number of segments used by the striped engine
+     * @param readPolicy the reading policy of the cache
+     * @param writePolicy the writing policy of the cache
+     * @param writeBehindExecutor the executor used by the write-behind policy, or null if it is not configured
+     * @param refreshAheadScheduler the scheduler used by the refresh-ahead policy
+     * @param offHeapTier the second cache level used by the striped engine, or null if it is disabled
+     * @param eventTracer the tracer recording the operations of the striped engine, or null if it is disabled
+     * @param swiftCacheLogLevel the java.util.logging level of the stock SwiftCache classes
      * @return the configured SwiftCache instance
      */
     @Bean
-    public SwiftCache<String, Book> getSwiftCache() {
+    public SwiftCache<String, Book> getSwiftCache(
+            @Value("${bookstore.cache.engine:" + STRIPED_ENGINE + "}") String engine,
+            @Value("${bookstore.cache.max-size:100}") long maxSize,
+            @Value("${bookstore.cache.eviction-strategy:" + SwiftCacheConfig.LRU_EVICTION_STRATEGY + "}") String evictionStrategy,
+            @Value("${bookstore.cache.concurrency-level:" + StripedSwiftCache.DEFAULT_CONCURRENCY_LEVEL + "}") int concurrencyLevel,
+            @Value("${bookstore.cache.read-policy:" + SwiftCacheConfig.READ_THROUGH_POLICY + "}") String readPolicy,
+            @Value("${bookstore.cache.write-policy:" + SwiftCacheConfig.WRITE_ALWAYS_POLICY + "}") String writePolicy,
+            @Nullable WriteBehindExecutor<String, Book> writeBehindExecutor,
+            RefreshAheadScheduler<String> refreshAheadScheduler,
+            @Nullable CacheTier<String, Book> offHeapTier,
+            @Nullable CacheEventTracer eventTracer,
+            @Value("${bookstore.cache.swiftcache-log-level:WARNING}") String swiftCacheLogLevel) {
+        SWIFT_CACHE_LOGGER.setLevel(Level.parse(swiftCacheLogLevel));
+
         // Create cache configuration
         SwiftCacheConfig config = new SwiftCacheConfig(
-                100, // max size
-                SwiftCacheConfig.LRU_EVICTION_STRATEGY, // eviction strategy
-                SwiftCacheConfig.READ_THROUGH_POLICY, // read policy
-                SwiftCacheConfig.WRITE_ALWAYS_POLICY // write policy
+                maxSize, // max size
+                evictionStrategy, // eviction strategy
+                readPolicy, // read policy
+                writePolicy // write policy
         );
-        SwiftCacheManager<String, Book> manager = new SwiftCacheManager<>(config);
-        return manager.getSwiftCache();
+
+        if (STRIPED_ENGINE.equals(engine)) {
+            return new StripedSwiftCache<>(config, concurrencyLevel, writeBehindExecutor, refreshAheadScheduler,
+                    offHeapTier, eventTracer);
+        }
+        if (SWIFT_CACHE_ENGINE.equals(engine)) {
+            if (WTinyLfuEvictionStrategy.W_TINY_LFU_EVICTION_STRATEGY.equals(evictionStrategy)) {
+                // SwiftCacheManager only knows its own strategies, so it only supplies the policies here.
+                SwiftCache<String, Book> policies = new SwiftCacheManager<String, Book>(new SwiftCacheConfig(maxSize,
+                        SwiftCacheConfig.LRU_EVICTION_STRATEGY, readPolicy, writePolicy)).getSwiftCache();
+                return new SwiftCache<>(maxSize, new WTinyLfuEvictionStrategy<>(maxSize),
+                        policies.getWritingPolicy(), policies.getReadingPolicy());
+            }
+            SwiftCacheManager<String, Book> manager = new SwiftCacheManager<>(config);
+            return manager.getSwiftCache();
+        }
+        throw new IllegalArgumentException("Invalid cache engine: " + engine);
+    }
+
+    /**
+     * Creates the {@link OffHeapTier} holding books evicted from the heap in direct
+     * memory, encoded with the {@link BookCodec}.
+     *
+     * <p>
+     * The tier is only created when {@code bookstore.cache.off-heap.enabled} is true.
+     * Its slabs are divided among as many stripes as the striped engine has segments.
+     * </p>
+     *
+     * @param capacityBytes the maximum number of off-heap bytes
+     * @param slabSize the size of each direct buffer slab in bytes
+     * @param concurrencyLevel the number of stripes of the tier
+     * @return the off-heap tier
+     */
+    @Bean
+    @ConditionalOnProperty(name = "bookstore.cache.off-heap.enabled", havingValue = "true")
+    public CacheTier<String, Book> getOffHeapTier(
+            @Value("${bookstore.cache.off-heap.capacity-bytes:67108864}") long capacityBytes,
+            @Value("${bookstore.cache.off-heap.slab-size-bytes:1048576}") int slabSize,
+            @Value("${bookstore.cache.concurrency-level:" + StripedSwiftCache.DEFAULT_CONCURRENCY_LEVEL + "}") int concurrencyLevel) {
+        return new OffHeapTier<>(new BookCodec(), capacityBytes, slabSize, concurrencyLevel);
+    }
+
+    /**
+     * Creates the {@link CacheEventTracer} recording sampled cache operations as JDK
+     * Flight Recorder events.
+     *
+     * <p>
+     * The tracer is only created when {@code bookstore.cache.trace.enabled} is true,
+     * which is the default. Sample rates are set per event type with
+     * {@code bookstore.cache.trace.sampling}.
+     * </p>
+     *
+     * @param sampling the sample rate of each event type, as comma-separated {@code type=rate} pairs
+     * @param bufferSize the number of events buffered for the drain thread
+     * @return the event tracer
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "bookstore.cache.trace.enabled", havingValue = "true", matchIfMissing = true)
+    public CacheEventTracer getCacheEventTracer(
+            @Value("${bookstore.cache.trace.sampling:evict=1,promote=1,load=1,refresh=1,miss=16}") String sampling,
+            @Value("${bookstore.cache.trace.buffer-size:8192}") int bufferSize) {
+        return new CacheEventTracer(CacheEventTracer.parseSampleRates(sampling), bufferSize,
+                CacheEventTracer.defaultSink());
+    }
+
+    /**
+     * Creates the {@link WriteBehindExecutor} that persists write-behind operations
+     * of the cache in batches on a fixed pool of workers.
+     *
+     * <p>
+     * The executor and its workers are only created when {@code bookstore.cache.write-policy}
+     * is {@value SwiftCacheConfig#WRITE_BEHIND_POLICY}. It is shut down with the
+     * application context, which flushes every pending write before the workers exit.
+     * </p>
+     *
+     * @param workers the number of worker threads
+     * @param queueCapacity the number of keys each worker queues before writers block
+     * @param batchSize the maximum number of writes per batch
+     * @param flushIntervalMillis how long a worker waits to fill a batch
+     * @param maxAttempts the number of times a write is attempted before it is dropped
+     * @param retryBackoffMillis the delay before the first retry of a failed write
+     * @param virtualThreads whether the workers run on virtual threads
+     * @return the write-behind executor
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "bookstore.cache.write-policy", havingValue = SwiftCacheConfig.WRITE_BEHIND_POLICY)
+    public WriteBehindExecutor<String, Book> getWriteBehindExecutor(
+            @Value("${bookstore.cache.write-behind.workers:4}") int workers,
+            @Value("${bookstore.cache.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${bookstore.cache.write-behind.batch-size:100}") int batchSize,
+            @Value("${bookstore.cache.write-behind.flush-interval-ms:50}") long flushIntervalMillis,
+            @Value("${bookstore.cache.write-behind.max-attempts:5}") int maxAttempts,
+            @Value("${bookstore.cache.write-behind.retry-backoff-ms:100}") long retryBackoffMillis,
+            @Value("${bookstore.threads.virtual:false}") boolean virtualThreads) {
+        return new WriteBehindExecutor<>(workers, queueCapacity, batchSize, flushIntervalMillis, maxAttempts,
+                retryBackoffMillis, threadFactory(virtualThreads, "write-behind-"));
+    }
+
+    /**
+     * Creates the {@link RefreshAheadScheduler} that reloads aging cache entries
+     * in the background when the refresh-ahead policy is configured.
+     *
+     * @param refreshAfterMillis the age after which an entry is reloaded in the background
+     * @param expireAfterMillis the age after which an entry is no longer served
+     * @param threads the number of reload worker threads
+     * @param queueCapacity the maximum number of reloads waiting for a worker
+     * @param virtualThreads whether the reloads run on virtual threads
+     * @return the refresh-ahead scheduler
+     */
+    @Bean(destroyMethod = "shutdown")
+    public RefreshAheadScheduler<String> getRefreshAheadScheduler(
+            @Value("${bookstore.cache.refresh-ahead.refresh-after-ms:30000}") long refreshAfterMillis,
+            @Value("${bookstore.cache.refresh-ahead.expire-after-ms:300000}") long expireAfterMillis,
+            @Value("${bookstore.cache.refresh-ahead.threads:2}") int threads,
+            @Value("${bookstore.cache.refresh-ahead.queue-capacity:1000}") int queueCapacity,
+            @Value("${bookstore.threads.virtual:false}") boolean virtualThreads) {
+        return new RefreshAheadScheduler<>(refreshAfterMillis, expireAfterMillis, threads, queueCapacity,
+                threadFactory(virtualThreads, "refresh-ahead-"));
+    }
+
+    /**
+     * Creates the {@link SingleFlightLoader} that collapses concurrent cache misses
+     * for the same book into a single repository load.
+     *
+     * @param timeoutMillis how long a request waits for a load started by another request
+     * @return the single-flight loader
+     */
+    @Bean
+    public SingleFlightLoader<String, Book> getBookLoader(
+            @Value("${bookstore.cache.load-timeout-ms:5000}") long timeoutMillis) {
+        return new SingleFlightLoader<>(timeoutMillis);
+    }
+
+    /**
+     * Creates the {@link BookIdGenerator} deriving the identifiers of books from their
+     * title, author and ISBN, as selected by the {@code bookstore.ids.scheme} property.
+     *
+     * @param scheme the identifier scheme, {@value #MURMUR3_ID_SCHEME} or {@value #LEGACY_ID_SCHEME}
+     * @return the identifier generator
+     * @throws IllegalArgumentException if the scheme is unknown
+     */
+    @Bean
+    public BookIdGenerator getBookIdGenerator(
+            @Value("${bookstore.ids.scheme:" + MURMUR3_ID_SCHEME + "}") String scheme) {
+        if (MURMUR3_ID_SCHEME.equals(scheme)) {
+            return new Murmur3BookIdGenerator();
+        }
+        if (LEGACY_ID_SCHEME.equals(scheme)) {
+            return new LegacyBookIdGenerator();
+        }
+        throw new IllegalArgumentException("Invalid book id scheme: " + scheme);
+    }
+
+    /**
+     * Creates the {@link DualWriter} that applies book writes to PostgreSQL and
+     * MongoDB concurrently, recording the latency of each database as a timer.
+     *
+     * @param threads the number of threads writing to MongoDB, or 0 to write both repositories sequentially
+     * @param maxAttempts the number of times each repository write is attempted
+     * @param virtualThreads whether the MongoDB writes run on virtual threads
+     * @param meterRegistry the registry recording the latency of each database, or null for the global registry
+     * @return the dual writer
+     */
+    @Bean(destroyMethod = "shutdown")
+    public DualWriter getDualWriter(
+            @Value("${bookstore.dual-write.threads:8}") int threads,
+            @Value("${bookstore.dual-write.max-attempts:2}") int maxAttempts,
+            @Value("${bookstore.threads.virtual:false}") boolean virtualThreads,
+            @Nullable MeterRegistry meterRegistry) {
+        return new DualWriter(BookPostgreSQLCacheRepository.STORE, BookMongoDBCacheRepository.STORE, threads,
+                maxAttempts, threadFactory(virtualThreads, "dual-write-"),
+                meterRegistry != null ? meterRegistry : Metrics.globalRegistry);
+    }
+
+    /**
+     * Creates the {@link ReadRouter} that serves cache misses from whichever of
+     * PostgreSQL and MongoDB currently answers faster.
+     *
+     * <p>
+     * The router and its hedging threads are only created when
+     * {@code bookstore.read-routing.enabled} is true; otherwise every miss is read
+     * from PostgreSQL.
+     * </p>
+     *
+     * @param hedgeThreads the number of threads running reads, or 0 to read on the request thread without hedging
+     * @param minHedgeDelayMillis the shortest time to wait for the chosen database before asking the other one
+     * @param failureThreshold the number of consecutive failures after which a database stops receiving reads
+     * @param retryAfterMillis how long a failing database stops receiving reads
+     * @param virtualThreads whether the reads run on virtual threads
+     * @return the read router
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "bookstore.read-routing.enabled", havingValue = "true")
+    public ReadRouter getReadRouter(
+            @Value("${bookstore.read-routing.hedge-threads:16}") int hedgeThreads,
+            @Value("${bookstore.read-routing.min-hedge-delay-ms:2}") long minHedgeDelayMillis,
+            @Value("${bookstore.read-routing.failure-threshold:3}") int failureThreshold,
+            @Value("${bookstore.read-routing.retry-after-ms:5000}") long retryAfterMillis,
+            @Value("${bookstore.threads.virtual:false}") boolean virtualThreads) {
+        return new ReadRouter(BookPostgreSQLCacheRepository.STORE, BookMongoDBCacheRepository.STORE,
+                hedgeThreads, minHedgeDelayMillis, failureThreshold, retryAfterMillis,
+                threadFactory(virtualThreads, "read-router-"));
+    }
+
+    /**
+     * Creates the bounded executor running the database round trips of the asynchronous
+     * {@link BookCacheService} operations.
+     *
+     * <p>
+     * Tasks beyond the queue capacity are rejected rather than queued without bound,
+     * so that an overloaded database turns into fast {@code 503} responses instead of
+     * a growing backlog.
+     * </p>
+     *
+     * @param threads the number of threads waiting on the databases
+     * @param queueCapacity the number of operations waiting for a thread
+     * @param virtualThreads whether the operations run on virtual threads
+     * @return the executor
+     */
+    @Bean(name = BOOK_IO_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService getBookIoExecutor(
+            @Value("${bookstore.async.threads:32}") int threads,
+            @Value("${bookstore.async.queue-capacity:1000}") int queueCapacity,
+            @Value("${bookstore.threads.virtual:false}") boolean virtualThreads) {
+        ThreadFactory threadFactory = threadFactory(virtualThreads, "book-io-");
+        if (threadFactory == null) {
+            AtomicInteger count = new AtomicInteger();
+            threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "book-io-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+    }
+
+    /**
+     * Creates the {@link PricingEngine} pricing books with the configured rules.
+     *
+     * <p>
+     * Without a rules path, the rules bundled with the application are used and never
+     * reloaded. A rules file is checked for changes at the given interval, and its new
+     * rules replace the current ones without pausing requests.
+     * </p>
+     *
+     * @param rulesPath the JSON file holding the pricing rules, or empty for the bundled rules
+     * @param reloadIntervalMillis the time between two checks of the rules file for changes, or 0 to never reload
+     * @param virtualThreads whether the reload runs on a virtual thread
+     * @return the pricing engine
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "bookstore.pricing.rules.enabled", havingValue = "true", matchIfMissing = true)
+    public PricingEngine getPricingEngine(
+            @Value("${bookstore.pricing.rules.path:}") String rulesPath,
+            @Value("${bookstore.pricing.rules.reload-interval-ms:5000}") long reloadIntervalMillis,
+            @Value("${bookstore.threads.virtual:false}") boolean virtualThreads) {
+        return new PricingEngine(rulesPath.isEmpty() ? null : Paths.get(rulesPath), reloadIntervalMillis,
+                threadFactory(virtualThreads, "pricing-rules-reload-"));
+    }
+
+    /**
+     * Creates the {@link CacheMetrics} publishing the hit, miss, eviction and entry
+     * counts of the book cache, the write-behind queue depth and the refresh-ahead
+     * and single-flight counters as meters.
+     *
+     * <p>
+     * Spring Boot Actuator binds the meters to its registries, which exposes them
+     * through {@code /actuator/metrics} and {@code /actuator/prometheus}.
+     * </p>
+     *
+     * @param cache the book cache
+     * @param writeBehindExecutor the executor used by the write-behind policy, or null if it is not configured
+     * @param refreshAheadScheduler the scheduler used by the refresh-ahead policy
+     * @param bookLoader the loader collapsing concurrent lookups of the same book
+     * @return the cache metrics
+     */
+    @Bean
+    public CacheMetrics getCacheMetrics(SwiftCache<String, Book> cache,
+                                        @Nullable WriteBehindExecutor<String, Book> writeBehindExecutor,
+                                        RefreshAheadScheduler<String> refreshAheadScheduler,
+                                        SingleFlightLoader<String, Book> bookLoader) {
+        return new CacheMetrics(CACHE_NAME, cache, writeBehindExecutor, refreshAheadScheduler, bookLoader);
+    }
+
+    /**
+     * Creates the {@link SharedCache} kept in the memory of this process when
+     * {@code bookstore.cache.shared.type} is {@value #MEMORY_SHARED_CACHE}.
+     *
+     * @return the in-memory shared cache
+     */
+    @Bean
+    @ConditionalOnProperty(name = "bookstore.cache.shared.type", havingValue = MEMORY_SHARED_CACHE)
+    public SharedCache<String, Book> getInMemorySharedCache() {
+        return new InMemorySharedCache<>();
+    }
+
+    /**
+     * Creates the {@link InvalidationBus} connecting the caches of this process when
+     * {@code bookstore.cache.shared.type} is {@value #MEMORY_SHARED_CACHE}.
+     *
+     * @return the in-memory invalidation bus
+     */
+    @Bean
+    @ConditionalOnProperty(name = "bookstore.cache.shared.type", havingValue = MEMORY_SHARED_CACHE)
+    public InvalidationBus<String> getInMemoryInvalidationBus() {
+        return new InMemoryInvalidationBus<>();
+    }
+
+    /**
+     * Creates the {@link SharedCache} stored in Redis when {@code bookstore.cache.shared.type}
+     * is {@value #REDIS_SHARED_CACHE}, with books encoded by the {@link BookCodec}.
+     *
+     * @param connectionFactory the Redis connection factory configured by the {@code spring.redis} properties
+     * @param keyPrefix the namespace prepended to every book id
+     * @param ttlMillis the time to live of every shared book
+     * @return the Redis shared cache
+     */
+    @Bean
+    @ConditionalOnProperty(name = "bookstore.cache.shared.type", havingValue = REDIS_SHARED_CACHE)
+    public SharedCache<String, Book> getRedisSharedCache(
+            RedisConnectionFactory connectionFactory,
+            @Value("${bookstore.cache.shared.key-prefix:bookstore:book:}") String keyPrefix,
+            @Value("${bookstore.cache.shared.ttl-ms:600000}") long ttlMillis) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return new RedisSharedCache<>(template, keyPrefix, new BookCodec(), ttlMillis);
+    }
+
+    /**
+     * Creates the container delivering Redis invalidation messages when
+     * {@code bookstore.cache.shared.type} is {@value #REDIS_SHARED_CACHE}.
+     *
+     * @param connectionFactory the Redis connection factory
+     * @return the listener container
+     */
+    @Bean
+    @ConditionalOnProperty(name = "bookstore.cache.shared.type", havingValue = REDIS_SHARED_CACHE)
+    public RedisMessageListenerContainer getInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    /**
+     * Creates the {@link InvalidationBus} broadcasting changed book ids over a Redis
+     * channel when {@code bookstore.cache.shared.type} is {@value #REDIS_SHARED_CACHE}.
+     *
+     * @param template the template used to publish invalidations
+     * @param container the container delivering invalidations
+     * @param channel the name of the channel
+     * @return the Redis invalidation bus
+     */
+    @Bean
+    @ConditionalOnProperty(name = "bookstore.cache.shared.type", havingValue = REDIS_SHARED_CACHE)
+    public InvalidationBus<String> getRedisInvalidationBus(
+            StringRedisTemplate template,
+            RedisMessageListenerContainer container,
+            @Value("${bookstore.cache.shared.channel:bookstore:cache:invalidations}") String channel) {
+        return new RedisInvalidationBus(template, container, channel);
+    }
+
+    private static ThreadFactory threadFactory(boolean virtualThreads, String namePrefix) {
+        return virtualThreads ? VirtualThreads.factory(namePrefix) : null;
     }
 }
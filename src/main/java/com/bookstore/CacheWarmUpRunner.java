@@ -0,0 +1,47 @@
+package com.bookstore;
+
+import com.bookstore.cache.CacheWarmer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Starts warming the book cache from the last hot key snapshot once the application
+ * has started.
+ *
+ * <p>
+ * The warm-up runs in the background, so the application reports itself ready while
+ * the hottest books are still being read in batches; requests arriving meanwhile load
+ * their books on demand as usual. Progress and the time to warm are published as
+ * {@code bookstore.cache.warm-up.*} meters.
+ * </p>
+ */
+@Component
+@Profile("!" + BookstoreApplication.REACTIVE_PROFILE)
+public class CacheWarmUpRunner implements ApplicationRunner {
+
+    private final ObjectProvider<CacheWarmer> cacheWarmer;
+
+    /**
+     * Constructs a new instance of {@link CacheWarmUpRunner}.
+     *
+     * @param cacheWarmer the cache warmer, if the warm-up is enabled
+     */
+    @Autowired
+    public CacheWarmUpRunner(ObjectProvider<CacheWarmer> cacheWarmer) {
+        this.cacheWarmer = cacheWarmer;
+    }
+
+    /**
+     * Starts the warm-up without waiting for it to finish.
+     *
+     * @param args the application arguments
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        cacheWarmer.ifAvailable(CacheWarmer::start);
+    }
+}
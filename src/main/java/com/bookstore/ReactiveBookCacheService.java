@@ -0,0 +1,270 @@
+package com.bookstore;
+
+import com.bookstore.cache.NoOpCacheRepository;
+import com.bookstore.cache.StripedSwiftCache;
+import com.bookstore.cache.TierStats;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookIdCollisionException;
+import com.bookstore.entities.BookIdGenerator;
+import com.bookstore.entities.Murmur3BookIdGenerator;
+import com.bookstore.mongorepo.ReactiveBookRepositoryMongoDB;
+import com.bookstore.postgresrepo.ReactiveBookRepositoryPostgreSQL;
+import com.bookstore.pricing.PricingEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.swiftcache.cache.SwiftCache;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Non-blocking counterpart of {@link BookCacheService} for the
+ * {@value BookstoreApplication#REACTIVE_PROFILE} profile, using R2DBC for PostgreSQL
+ * and the reactive driver for MongoDB.
+ *
+ * <p>
+ * The {@link SwiftCache} only ever sees a {@link NoOpCacheRepository}, so none of
+ * its operations wait on a database: lookups read the heap level in place and
+ * misses are loaded by subscribing to PostgreSQL, after which the book is cached
+ * unless it was saved or removed while it was loading. Concurrent misses on the same id share one query. Writes go to both databases
+ * concurrently and then to the cache; if either write fails, the book is evicted
+ * from the cache and the failure is propagated.
+ * </p>
+ *
+ * <p>
+ * The shared second cache level and read routing of the servlet runtime are not
+ * available here; books are cached on this node only and read from PostgreSQL.
+ * </p>
+ */
+@Service
+@Profile(BookstoreApplication.REACTIVE_PROFILE)
+public class ReactiveBookCacheService {
+
+    private final SwiftCache<String, Book> cache;
+    private final StripedSwiftCache<String, Book> batchCache;
+
+    private final ReactiveBookRepositoryPostgreSQL postgreSQLRepository;
+    private final ReactiveBookRepositoryMongoDB mongoDBRepository;
+    private final PricingEngine pricingEngine;
+    private final BookIdGenerator idGenerator;
+    private final NoOpCacheRepository<String, Book> cacheOnlyRepository = new NoOpCacheRepository<>();
+    private final Map<String, Mono<Book>> loads = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new instance of {@link ReactiveBookCacheService}.
+     *
+     * @param cache the cache for storing book entities
+     * @param postgreSQLRepository the reactive PostgreSQL repository for book entities
+     * @param mongoDBRepository the reactive MongoDB repository for book entities
+     * @param pricingEngine the engine applying the configured pricing rules, or null for the fixed pricing rule
+     * @param idGenerator the generator of book identifiers, or null for {@link Murmur3BookIdGenerator}
+     */
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public ReactiveBookCacheService(SwiftCache<String, Book> cache,
+                                    ReactiveBookRepositoryPostgreSQL postgreSQLRepository,
+                                    ReactiveBookRepositoryMongoDB mongoDBRepository,
+                                    @Nullable PricingEngine pricingEngine,
+                                    @Nullable BookIdGenerator idGenerator) {
+        this.cache = cache;
+        this.batchCache = cache instanceof StripedSwiftCache ? (StripedSwiftCache<String, Book>) cache : null;
+        this.postgreSQLRepository = postgreSQLRepository;
+        this.mongoDBRepository = mongoDBRepository;
+        this.pricingEngine = pricingEngine;
+        this.idGenerator = idGenerator != null ? idGenerator : new Murmur3BookIdGenerator();
+    }
+
+    /**
+     * Retrieves a {@link Book} entity from the cache or the PostgreSQL repository.
+     *
+     * @param id the unique identifier of the book
+     * @return the Book entity, already available if it is cached, or empty if it does not exist
+     */
+    public Mono<Book> getBook(String id) {
+        Book cached = cached(id);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return loads.computeIfAbsent(id, key -> {
+            long stamp = stamp(key);
+            return postgreSQLRepository.findById(key)
+                    .doOnNext(book -> fill(key, book, stamp))
+                    .doFinally(signal -> loads.remove(key))
+                    .cache();
+        });
+    }
+
+    /**
+     * Saves a {@link Book} entity to both PostgreSQL and MongoDB and then to the cache.
+     *
+     * @param book the Book entity to be saved
+     * @return the saved Book entity, or a {@link BookIdCollisionException} if a different book is cached
+     *         under its identifier
+     */
+    public Mono<Book> putBook(Book book) {
+        idGenerator.assignId(book);
+        String id = book.getId();
+        return checkIds(Collections.singletonMap(id, book))
+                .then(Mono.when(upsert(book), mongoDBRepository.save(book)))
+                .then(Mono.fromSupplier(() -> cache.put(cacheOnlyRepository, id, book)))
+                .doOnError(e -> cache.remove(cacheOnlyRepository, id));
+    }
+
+    /**
+     * Removes a {@link Book} entity from both PostgreSQL and MongoDB and from the cache.
+     *
+     * @param id the unique identifier of the book to be removed
+     * @return a Mono completing once the book is removed
+     */
+    public Mono<Void> removeBook(String id) {
+        return Mono.when(postgreSQLRepository.deleteById(id), mongoDBRepository.deleteById(id))
+                .doOnTerminate(() -> cache.remove(cacheOnlyRepository, id));
+    }
+
+    /**
+     * Retrieves several {@link Book} entities from the cache, reading the missing ones
+     * from PostgreSQL with a single query.
+     *
+     * @param ids the unique identifiers of the books
+     * @return the Book entities found, in the order of their first identifier; missing books are skipped
+     */
+    public Mono<List<Book>> getBooks(Collection<String> ids) {
+        Collection<String> uniqueIds = new LinkedHashSet<>(ids);
+        Map<String, Book> found = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        Map<String, Long> stamps = new HashMap<>();
+        for (String id : uniqueIds) {
+            Book cached = cached(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+                stamps.put(id, stamp(id));
+            }
+        }
+        Mono<Map<String, Book>> loaded = missing.isEmpty()
+                ? Mono.just(Collections.emptyMap())
+                : postgreSQLRepository.findAllById(missing)
+                        .doOnNext(book -> fill(book.getId(), book, stamps.get(book.getId())))
+                        .collectMap(Book::getId);
+        return loaded.map(books -> {
+            List<Book> ordered = new ArrayList<>();
+            for (String id : uniqueIds) {
+                Book book = found.containsKey(id) ? found.get(id) : books.get(id);
+                if (book != null) {
+                    ordered.add(book);
+                }
+            }
+            return ordered;
+        });
+    }
+
+    /**
+     * Saves several {@link Book} entities to both PostgreSQL and MongoDB and then to the cache.
+     *
+     * @param books the Book entities to be saved
+     * @return the saved Book entities, or a {@link BookIdCollisionException} if a different book is cached
+     *         under the identifier of one of them
+     */
+    public Mono<List<Book>> putBooks(List<Book> books) {
+        Map<String, Book> byId = new LinkedHashMap<>();
+        for (Book book : books) {
+            idGenerator.assignId(book);
+            byId.put(book.getId(), book);
+        }
+        return checkIds(byId)
+                .then(Mono.when(Flux.fromIterable(byId.values()).concatMap(this::upsert),
+                        mongoDBRepository.saveAll(byId.values())))
+                .then(Mono.fromSupplier(() -> {
+                    List<Book> saved = new ArrayList<>(byId.size());
+                    byId.forEach((id, book) -> saved.add(cache.put(cacheOnlyRepository, id, book)));
+                    return saved;
+                }))
+                .doOnError(e -> byId.keySet().forEach(id -> cache.remove(cacheOnlyRepository, id)));
+    }
+
+    /**
+     * Removes several {@link Book} entities from both PostgreSQL and MongoDB and from the cache.
+     *
+     * @param ids the unique identifiers of the books to be removed
+     * @return a Mono completing once the books are removed
+     */
+    public Mono<Void> removeBooks(Collection<String> ids) {
+        Collection<String> uniqueIds = new LinkedHashSet<>(ids);
+        return Mono.when(postgreSQLRepository.deleteAllById(uniqueIds), mongoDBRepository.deleteAllById(uniqueIds))
+                .doOnTerminate(() -> uniqueIds.forEach(id -> cache.remove(cacheOnlyRepository, id)));
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of each cache level.
+     *
+     * @return the statistics of each cache level, or an empty list if the cache does not report them
+     */
+    public List<TierStats> getCacheStats() {
+        return batchCache != null ? batchCache.getTierStats() : Collections.emptyList();
+    }
+
+    /**
+     * Calculates the price of a {@link Book} entity using the {@link PricingEngine}, or the
+     * {@link BookPriceCalculator} without one, and saves it to PostgreSQL.
+     *
+     * @param book the Book entity for which to calculate the price
+     * @return the Book entity with the calculated price, or a {@link BookIdCollisionException} if a different
+     *         book is cached under its identifier
+     */
+    public Mono<Book> calculateBookPrice(Book book) {
+        idGenerator.assignId(book);
+        return checkIds(Collections.singletonMap(book.getId(), book)).then(Mono.defer(() -> {
+            Book priced = pricingEngine != null
+                    ? pricingEngine.calculatePrice(cacheOnlyRepository, book.getId(), book)
+                    : BookPriceCalculator.calculatePrice(cacheOnlyRepository, book.getId(), book);
+            return upsert(priced).thenReturn(priced);
+        }));
+    }
+
+    private Book cached(String id) {
+        return batchCache != null ? batchCache.getIfPresent(id, true) : cache.get(cacheOnlyRepository, id);
+    }
+
+    private long stamp(String id) {
+        return batchCache != null ? batchCache.stamp(id) : -1;
+    }
+
+    private void fill(String id, Book book, long stamp) {
+        // A book loaded before a save or removal of it completed is left out of the cache.
+        if (batchCache != null) {
+            batchCache.fill(id, book, stamp);
+        } else {
+            cache.put(cacheOnlyRepository, id, book);
+        }
+    }
+
+    private Mono<Void> checkIds(Map<String, Book> books) {
+        // Like BookCacheService, only the cached copies are compared so that a save costs no extra query.
+        return Mono.defer(() -> {
+            for (Map.Entry<String, Book> entry : books.entrySet()) {
+                Book stored = cached(entry.getKey());
+                if (stored != null && !BookCacheService.sameBook(stored, entry.getValue())) {
+                    return Mono.error(new BookIdCollisionException(entry.getKey(), stored, entry.getValue()));
+                }
+            }
+            return Mono.empty();
+        });
+    }
+
+    private Mono<Integer> upsert(Book book) {
+        return postgreSQLRepository.upsert(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+                book.getPrice());
+    }
+}
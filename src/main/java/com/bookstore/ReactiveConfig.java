@@ -0,0 +1,62 @@
+package com.bookstore;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Configuration class for the reactive runtime of the bookstore application.
+ *
+ * <p>
+ * Active under the {@value BookstoreApplication#REACTIVE_PROFILE} profile, this class
+ * enables the R2DBC repositories for PostgreSQL and the reactive MongoDB repositories,
+ * routes the {@code /api/books} API to the {@link BookHandler} functions and runs
+ * them on Netty.
+ * </p>
+ */
+@Configuration
+@Profile(BookstoreApplication.REACTIVE_PROFILE)
+@EnableReactiveMongoRepositories(basePackages = "com.bookstore.mongorepo")
+@EnableR2dbcRepositories(basePackages = "com.bookstore.postgresrepo")
+public class ReactiveConfig {
+
+    /**
+     * Creates the routes of the {@code /api/books} API, mirroring the mappings of {@link BookController}.
+     * Routes are matched in order, so the fixed paths come before {@code /api/books/{id}}.
+     *
+     * @param handler the handler functions
+     * @return the router function
+     */
+    @Bean
+    public RouterFunction<ServerResponse> getBookRoutes(BookHandler handler) {
+        return RouterFunctions.route()
+                .GET("/api/books/cache/stats", handler::getCacheStats)
+                .GET("/api/books/routing/stats", handler::getRoutingStats)
+                .GET("/api/books", RequestPredicates.queryParam("ids", ids -> true), handler::getBooks)
+                .POST("/api/books/batch", handler::addBooks)
+                .DELETE("/api/books/batch", handler::removeBooks)
+                .POST("/api/books/calculate-price", handler::calculateBookPrice)
+                .GET("/api/books/{id}", handler::getBook)
+                .POST("/api/books", handler::addBook)
+                .DELETE("/api/books/{id}", handler::removeBook)
+                .build();
+    }
+
+    /**
+     * Creates the Netty server factory, so that the reactive runtime uses an event loop
+     * even though Tomcat is on the classpath for the servlet runtime.
+     *
+     * @return the server factory
+     */
+    @Bean
+    public NettyReactiveWebServerFactory getNettyWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,327 @@
+package com.bookstore;
+
+import com.bookstore.cache.CacheWarmer;
+import com.bookstore.cache.DualWriter;
+import com.bookstore.cache.HotKeySnapshot;
+import com.bookstore.cache.InvalidationBus;
+import com.bookstore.cache.MappedFileCache;
+import com.bookstore.cache.NegativeCache;
+import com.bookstore.cache.PriceMemo;
+import com.bookstore.cache.ReadRouter;
+import com.bookstore.cache.SharedCache;
+import com.bookstore.cache.SingleFlightLoader;
+import com.bookstore.cache.StripedSwiftCache;
+import com.bookstore.cache.VirtualThreads;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookCodec;
+import com.bookstore.entities.BookIdGenerator;
+import com.bookstore.mongorepo.BookMongoDBCacheRepository;
+import com.bookstore.postgresrepo.BookPostgreSQLCacheRepository;
+import com.bookstore.pricing.PricingEngine;
+import com.bookstore.search.BookIndex;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.swiftcache.cache.SwiftCache;
+
+import java.nio.file.Paths;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configuration class for the default servlet runtime of the bookstore application.
+ *
+ * <p>
+ * This class enables the JPA repositories for PostgreSQL and the blocking MongoDB
+ * repositories used by {@link BookCacheService}, leaving out the reactive repositories
+ * of the same packages. It is inactive under the
+ * {@value BookstoreApplication#REACTIVE_PROFILE} profile.
+ * </p>
+ *
+ * <p>
+ * With {@code bookstore.threads.virtual=true}, Tomcat handles every request on a new
+ * virtual thread instead of its pool of platform threads, so a request waiting on
+ * PostgreSQL or MongoDB no longer holds an operating system thread.
+ * </p>
+ *
+ * <p>
+ * Unless {@code bookstore.cache.warm-up.enabled=false}, the hottest cached books are
+ * snapshotted to local disk and read back in batches by {@link CacheWarmUpRunner}
+ * after the next start.
+ * </p>
+ *
+ * <p>
+ * With {@code bookstore.cache.persistent.enabled=true}, books are also kept in a
+ * memory-mapped {@link MappedFileCache} on local disk, which a restarted node serves
+ * from right away.
+ * </p>
+ *
+ * <p>
+ * Unless {@code bookstore.pricing.memo.enabled=false}, calculated prices are memoized
+ * by a {@link PriceMemo} and written back to the databases in periodic batches.
+ * </p>
+ *
+ * <p>
+ * Unless {@code bookstore.cache.negative.enabled=false}, the ids of books found missing
+ * are remembered by a {@link NegativeCache} for a short time, so that repeated lookups
+ * of them are answered with a 404 without querying the databases.
+ * </p>
+ *
+ * <p>
+ * Streaming responses such as the catalog export are written on a small dedicated
+ * executor, so that a long export neither holds a Tomcat thread nor competes with
+ * the asynchronous book operations.
+ * </p>
+ */
+@Configuration
+@Profile("!" + BookstoreApplication.REACTIVE_PROFILE)
+@EnableMongoRepositories(basePackages = "com.bookstore.mongorepo",
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+                classes = ReactiveCrudRepository.class))
+@EnableJpaRepositories(basePackages = "com.bookstore.postgresrepo",
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+                classes = ReactiveCrudRepository.class))
+public class ServletConfig {
+
+    /**
+     * Name of the executor bean writing streaming responses.
+     */
+    public static final String STREAMING_EXECUTOR = "streamingExecutor";
+
+    /**
+     * Creates the customizer running the requests handled by Tomcat on virtual threads.
+     *
+     * @return the Tomcat protocol handler customizer
+     * @throws IllegalStateException if the running JVM does not support virtual threads
+     */
+    @Bean
+    @ConditionalOnProperty(name = "bookstore.threads.virtual", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<?> getVirtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("tomcat-"));
+    }
+
+    /**
+     * Creates the executor writing streaming responses such as the catalog export.
+     *
+     * <p>
+     * Each response holds a thread until it is written, so the number of threads
+     * bounds the number of concurrent exports; further ones are rejected with
+     * {@code 503 Service Unavailable} rather than queued.
+     * </p>
+     *
+     * @param threads the maximum number of responses streamed at once
+     * @param virtualThreads whether the responses are written on virtual threads
+     * @return the executor
+     */
+    @Bean(name = STREAMING_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService getStreamingExecutor(
+            @Value("${bookstore.export.threads:2}") int threads,
+            @Value("${bookstore.threads.virtual:false}") boolean virtualThreads) {
+        ThreadFactory threadFactory = virtualThreads ? VirtualThreads.factory("streaming-") : null;
+        if (threadFactory == null) {
+            AtomicInteger count = new AtomicInteger();
+            threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "streaming-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                threadFactory);
+    }
+
+    /**
+     * Creates the Spring MVC configuration running streaming responses on the
+     * {@value #STREAMING_EXECUTOR}.
+     *
+     * <p>
+     * The timeout only applies to asynchronous responses without one of their own, which
+     * are the streaming ones; the other asynchronous endpoints set theirs explicitly.
+     * </p>
+     *
+     * @param streamingExecutor the executor writing streaming responses
+     * @param timeoutMillis how long a streaming response may take to be written
+     * @return the Spring MVC configuration
+     */
+    @Bean
+    public WebMvcConfigurer getAsyncSupportConfigurer(
+            @Qualifier(STREAMING_EXECUTOR) ExecutorService streamingExecutor,
+            @Value("${bookstore.export.timeout-ms:3600000}") long timeoutMillis) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new ConcurrentTaskExecutor(streamingExecutor));
+                configurer.setDefaultTimeout(timeoutMillis);
+            }
+        };
+    }
+
+    /**
+     * Creates the {@link CacheWarmer} that snapshots the hottest book ids and warms the
+     * cache from the last snapshot after a restart.
+     *
+     * <p>
+     * Only the striped engine can list its hottest keys, so with the stock engine the
+     * cache is still warmed from an existing snapshot but no new snapshot is written.
+     * </p>
+     *
+     * @param cache the book cache
+     * @param bookCacheService the service loading books into the cache in batches
+     * @param snapshotPath the file holding the snapshot
+     * @param maxKeys the maximum number of book ids snapshotted and warmed
+     * @param batchSize the number of books read with each query while warming
+     * @param snapshotIntervalMillis the time between two snapshots
+     * @return the cache warmer
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "bookstore.cache.warm-up.enabled", havingValue = "true", matchIfMissing = true)
+    @SuppressWarnings("unchecked")
+    public CacheWarmer getCacheWarmer(SwiftCache<String, Book> cache, BookCacheService bookCacheService,
+            @Value("${bookstore.cache.warm-up.snapshot-path:data/hot-keys.snapshot}") String snapshotPath,
+            @Value("${bookstore.cache.warm-up.max-keys:10000}") int maxKeys,
+            @Value("${bookstore.cache.warm-up.batch-size:500}") int batchSize,
+            @Value("${bookstore.cache.warm-up.snapshot-interval-ms:60000}") long snapshotIntervalMillis) {
+        StripedSwiftCache<String, Book> striped =
+                cache instanceof StripedSwiftCache ? (StripedSwiftCache<String, Book>) cache : null;
+        return new CacheWarmer(CacheConfig.CACHE_NAME, new HotKeySnapshot(Paths.get(snapshotPath)),
+                striped != null ? striped::getHotKeys : null, bookCacheService::getBooks,
+                maxKeys, batchSize, snapshotIntervalMillis);
+    }
+
+    /**
+     * Creates the {@link MappedFileCache} keeping books, encoded with the {@link BookCodec},
+     * in a file on local disk between the local cache and the databases.
+     *
+     * @param path the log file; its index is stored next to it
+     * @param capacityBytes the size of the log file
+     * @param compactionThreshold the share of the log taken by overwritten books at which it is compacted
+     * @param maxAgeMillis the time after which a book in the log is no longer served, or 0 for no limit
+     * @return the persistent cache
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "bookstore.cache.persistent.enabled", havingValue = "true")
+    public MappedFileCache<Book> getPersistentCache(
+            @Value("${bookstore.cache.persistent.path:data/books.log}") String path,
+            @Value("${bookstore.cache.persistent.capacity-bytes:268435456}") int capacityBytes,
+            @Value("${bookstore.cache.persistent.compaction-threshold:0.5}") double compactionThreshold,
+            @Value("${bookstore.cache.persistent.max-age-ms:3600000}") long maxAgeMillis) {
+        return new MappedFileCache<>(CacheConfig.CACHE_NAME, Paths.get(path), new BookCodec(), capacityBytes,
+                compactionThreshold, maxAgeMillis);
+    }
+
+    /**
+     * Creates the {@link PriceMemo} answering repeated price calculations and writing
+     * calculated prices back in batches.
+     *
+     * @param maxEntries the maximum number of books whose price is memoized
+     * @param flushIntervalMillis the time between two write-backs
+     * @param virtualThreads whether the write-backs run on a virtual thread
+     * @return the price memo
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "bookstore.pricing.memo.enabled", havingValue = "true", matchIfMissing = true)
+    public PriceMemo<String, Book> getPriceMemo(
+            @Value("${bookstore.pricing.memo.max-entries:10000}") int maxEntries,
+            @Value("${bookstore.pricing.write-back.interval-ms:1000}") long flushIntervalMillis,
+            @Value("${bookstore.threads.virtual:false}") boolean virtualThreads) {
+        return new PriceMemo<>(maxEntries, flushIntervalMillis,
+                virtualThreads ? VirtualThreads.factory("price-write-back-") : null);
+    }
+
+    /**
+     * Creates the {@link NegativeCache} remembering the ids of books found missing.
+     *
+     * @param maxEntries the maximum number of ids remembered
+     * @param ttlMillis the time an id is remembered for
+     * @return the negative cache
+     */
+    @Bean
+    @ConditionalOnProperty(name = "bookstore.cache.negative.enabled", havingValue = "true", matchIfMissing = true)
+    public NegativeCache<String> getNegativeCache(
+            @Value("${bookstore.cache.negative.max-entries:100000}") int maxEntries,
+            @Value("${bookstore.cache.negative.ttl-ms:30000}") long ttlMillis) {
+        return new NegativeCache<>(maxEntries, ttlMillis);
+    }
+
+    /**
+     * Creates the {@link BookCacheService}, with each optional collaborator that is
+     * configured as a bean.
+     *
+     * @param cache the cache for storing book entities
+     * @param bookRepositoryPostgreSQL the PostgreSQL repository for book entities
+     * @param bookRepositoryMongoDB the MongoDB repository for book entities
+     * @param bookLoader the loader collapsing concurrent lookups of the same book
+     * @param dualWriter the writer applying changes to PostgreSQL and MongoDB concurrently
+     * @param sharedCache the cache shared with the other nodes, if enabled
+     * @param persistentCache the cache on local disk, if enabled
+     * @param invalidationBus the bus announcing changed books to the other nodes, if enabled
+     * @param readRouter the router sending reads to the faster database, if enabled
+     * @param ioExecutor the executor running the asynchronous operations
+     * @param priceMemo the memo of calculated prices, if enabled
+     * @param pricingEngine the engine applying the configured pricing rules, if enabled
+     * @param bookIndex the index of books by ISBN, author and title, if enabled
+     * @param idGenerator the generator of book identifiers
+     * @param negativeCache the ids of books known not to exist, if enabled
+     * @return the book cache service
+     */
+    @Bean
+    public BookCacheService getBookCacheService(SwiftCache<String, Book> cache,
+                                                BookPostgreSQLCacheRepository bookRepositoryPostgreSQL,
+                                                BookMongoDBCacheRepository bookRepositoryMongoDB,
+                                                SingleFlightLoader<String, Book> bookLoader,
+                                                DualWriter dualWriter,
+                                                ObjectProvider<SharedCache<String, Book>> sharedCache,
+                                                ObjectProvider<MappedFileCache<Book>> persistentCache,
+                                                ObjectProvider<InvalidationBus<String>> invalidationBus,
+                                                ObjectProvider<ReadRouter> readRouter,
+                                                @Qualifier(CacheConfig.BOOK_IO_EXECUTOR)
+                                                ObjectProvider<Executor> ioExecutor,
+                                                ObjectProvider<PriceMemo<String, Book>> priceMemo,
+                                                ObjectProvider<PricingEngine> pricingEngine,
+                                                ObjectProvider<BookIndex> bookIndex,
+                                                ObjectProvider<BookIdGenerator> idGenerator,
+                                                ObjectProvider<NegativeCache<String>> negativeCache) {
+        return BookCacheService.builder(cache, bookRepositoryPostgreSQL, bookRepositoryMongoDB, bookLoader,
+                        dualWriter)
+                .sharedCache(sharedCache.getIfAvailable())
+                .persistentCache(persistentCache.getIfAvailable())
+                .invalidationBus(invalidationBus.getIfAvailable())
+                .readRouter(readRouter.getIfAvailable())
+                .ioExecutor(ioExecutor.getIfAvailable())
+                .priceMemo(priceMemo.getIfAvailable())
+                .pricingEngine(pricingEngine.getIfAvailable())
+                .bookIndex(bookIndex.getIfAvailable())
+                .idGenerator(idGenerator.getIfAvailable())
+                .negativeCache(negativeCache.getIfAvailable())
+                .build();
+    }
+
+    /**
+     * Creates the {@link BookIndex} answering book searches by ISBN, author and title.
+     *
+     * @return the book index
+     */
+    @Bean
+    @ConditionalOnProperty(name = "bookstore.search.enabled", havingValue = "true", matchIfMissing = true)
+    public BookIndex getBookIndex() {
+        return new BookIndex();
+    }
+}
@@ -0,0 +1,67 @@
+package com.bookstore.cache;
+
+import org.swiftcache.cacherepository.ICacheRepository;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Extension of {@link ICacheRepository} for data sources that can read or apply
+ * several values in a single round-trip.
+ *
+ * <p>
+ * Components that accumulate writes, such as the {@link WriteBehindExecutor},
+ * use these operations when available and fall back to the single-key
+ * operations of {@link ICacheRepository} otherwise.
+ * </p>
+ *
+ * @param <K> the type of keys maintained by the repository
+ * @param <V> the type of stored values
+ */
+public interface BatchCacheRepository<K, V> extends ICacheRepository<K, V> {
+
+    /**
+     * Retrieves all values with the given keys in a single batch.
+     *
+     * @param keys the unique identifiers of the values to retrieve
+     * @return the values found, keyed by their unique identifier; keys that were not found are absent
+     */
+    Map<K, V> getAll(Collection<K> keys);
+
+    /**
+     * Saves all given values in a single batch.
+     *
+     * @param values the values to save, keyed by their unique identifier
+     */
+    void putAll(Map<K, V> values);
+
+    /**
+     * Deletes all values with the given keys in a single batch.
+     *
+     * @param keys the unique identifiers of the values to delete
+     */
+    void removeAll(Collection<K> keys);
+
+    /**
+     * Retrieves a value for the reload of an aging cache entry. Repositories that keep
+     * a cache level of their own, or read from a replica, bypass it and read the value
+     * from the authoritative data source.
+     *
+     * @param key the unique identifier of the value to reload
+     * @return the value, or null if it no longer exists
+     */
+    default V reload(K key) {
+        return get(key);
+    }
+
+    /**
+     * Retrieves several values for the reload of aging cache entries in a single batch,
+     * like {@link #reload(Object)}.
+     *
+     * @param keys the unique identifiers of the values to reload
+     * @return the values found, keyed by their unique identifier; keys that no longer exist are absent
+     */
+    default Map<K, V> reloadAll(Collection<K> keys) {
+        return getAll(keys);
+    }
+}
@@ -0,0 +1,24 @@
+package com.bookstore.cache;
+
+/**
+ * Receives the cache events drained from a {@link CacheEventTracer}.
+ *
+ * <p>
+ * Events are passed as primitives so that draining does not allocate. The sink is
+ * only ever called from the drain thread of its tracer, never from the thread that
+ * performed the cache operation.
+ * </p>
+ */
+@FunctionalInterface
+public interface CacheEventSink {
+
+    /**
+     * Handles one event.
+     *
+     * @param type the kind of operation
+     * @param keyHash the hash code of the key the operation applied to
+     * @param value the value recorded with the event, such as a load time in nanoseconds
+     * @param recordedAt the {@link System#nanoTime()} at which the event was recorded
+     */
+    void accept(CacheEventType type, int keyHash, long value, long recordedAt);
+}
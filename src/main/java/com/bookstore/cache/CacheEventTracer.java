@@ -0,0 +1,247 @@
+package com.bookstore.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sampled tracing of cache operations through a fixed-size ring buffer.
+ *
+ * <p>
+ * Recording an event does not allocate, lock or log: the event is sampled, a slot
+ * is claimed with a compare-and-set and its fields are written into preallocated
+ * arrays. A single daemon thread drains published slots in order and hands them to
+ * a {@link CacheEventSink}, by default one emitting JDK Flight Recorder events. When
+ * the drain thread falls behind and the buffer is full, new events are dropped and
+ * counted rather than slowing down the caller.
+ * </p>
+ *
+ * <p>
+ * Each {@link CacheEventType} has its own sample rate: {@code 0} disables the type,
+ * {@code 1} records every event and {@code n} records one event in {@code n} on
+ * average. Rates are written as {@code type=rate} pairs separated by commas, for
+ * example {@code evict=1,load=1,miss=64}; types that are not listed are disabled.
+ * </p>
+ */
+public class CacheEventTracer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheEventTracer.class);
+    private static final CacheEventType[] TYPES = CacheEventType.values();
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int[] sampleRates = new int[TYPES.length];
+    private final int capacity;
+    private final int mask;
+    private final CacheEventSink sink;
+
+    private final byte[] types;
+    private final int[] keyHashes;
+    private final long[] values;
+    private final long[] recordedAt;
+    // Slot i holds sequence + 1 once the event with that sequence is fully written.
+    private final AtomicLongArray published;
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    private final LongAdder recordedEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+
+    /**
+     * Constructs a new instance of {@link CacheEventTracer} and starts its drain thread.
+     *
+     * @param sampleRates the sample rate of each event type; missing types are disabled
+     * @param bufferSize the number of events the buffer holds, rounded up to a power of two
+     * @param sink the sink receiving drained events
+     */
+    public CacheEventTracer(Map<CacheEventType, Integer> sampleRates, int bufferSize, CacheEventSink sink) {
+        if (bufferSize <= 0 || bufferSize > 1 << 30) {
+            throw new IllegalArgumentException("Invalid event buffer size: " + bufferSize);
+        }
+        for (Map.Entry<CacheEventType, Integer> rate : sampleRates.entrySet()) {
+            if (rate.getValue() < 0) {
+                throw new IllegalArgumentException("Invalid sample rate for " + rate.getKey() + ": " + rate.getValue());
+            }
+            this.sampleRates[rate.getKey().ordinal()] = rate.getValue();
+        }
+        int size = Integer.highestOneBit(bufferSize);
+        this.capacity = size < bufferSize ? size << 1 : size;
+        this.mask = capacity - 1;
+        this.sink = sink;
+        this.types = new byte[capacity];
+        this.keyHashes = new int[capacity];
+        this.values = new long[capacity];
+        this.recordedAt = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+
+        this.drainer = new Thread(this::drainLoop, "cache-event-drain");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Parses sample rates written as comma-separated {@code type=rate} pairs.
+     *
+     * @param sampling the sample rates, for example {@code evict=1,miss=64}; blank disables every type
+     * @return the sample rate of each listed event type
+     * @throws IllegalArgumentException if a pair names an unknown type or an invalid rate
+     */
+    public static Map<CacheEventType, Integer> parseSampleRates(String sampling) {
+        Map<CacheEventType, Integer> rates = new EnumMap<>(CacheEventType.class);
+        for (String pair : sampling.split(",")) {
+            if (pair.trim().isEmpty()) {
+                continue;
+            }
+            String[] parts = pair.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid sample rate: " + pair.trim());
+            }
+            try {
+                rates.put(CacheEventType.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid sample rate: " + pair.trim(), e);
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Returns the default sink: JDK Flight Recorder events when Flight Recorder is
+     * available in this JVM, and debug log lines written from the drain thread otherwise.
+     *
+     * @return the default sink
+     */
+    public static CacheEventSink defaultSink() {
+        if (JfrCacheEventSink.isAvailable()) {
+            return new JfrCacheEventSink();
+        }
+        return (type, keyHash, value, recordedAt) ->
+                LOGGER.debug("Cache event {} for key hash {} with value {}", type, keyHash, value);
+    }
+
+    /**
+     * Returns whether events of the given type are recorded at all, so that callers can
+     * skip measuring the value of a disabled event.
+     *
+     * @param type the kind of operation
+     * @return true if the type has a non-zero sample rate
+     */
+    public boolean isEnabled(CacheEventType type) {
+        return sampleRates[type.ordinal()] != 0;
+    }
+
+    /**
+     * Records an event if it is sampled and the buffer has room for it.
+     *
+     * @param type the kind of operation
+     * @param key the key the operation applied to
+     * @param value the value recorded with the event
+     */
+    public void record(CacheEventType type, Object key, long value) {
+        int rate = sampleRates[type.ordinal()];
+        if (rate == 0 || (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0)) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= capacity) {
+                droppedEvents.increment();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & mask;
+        types[slot] = (byte) type.ordinal();
+        keyHashes[slot] = key.hashCode();
+        values[slot] = value;
+        recordedAt[slot] = System.nanoTime();
+        published.lazySet(slot, sequence + 1);
+        recordedEvents.increment();
+    }
+
+    /**
+     * Stops the drain thread once every event recorded so far has been handed to the sink.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of sampled events written to the buffer.
+     *
+     * @return the number of recorded events
+     */
+    public long getRecordedEvents() {
+        return recordedEvents.sum();
+    }
+
+    /**
+     * Returns the number of sampled events discarded because the buffer was full.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Returns the number of events the sink threw an exception for.
+     *
+     * @return the number of failed events
+     */
+    public long getFailedEvents() {
+        return failedEvents.sum();
+    }
+
+    /**
+     * Returns the number of events the buffer holds.
+     *
+     * @return the buffer capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void drainLoop() {
+        while (true) {
+            boolean stopping = !running;
+            long next = tail;
+            int slot = (int) next & mask;
+            if (published.get(slot) == next + 1) {
+                try {
+                    sink.accept(TYPES[types[slot]], keyHashes[slot], values[slot], recordedAt[slot]);
+                } catch (RuntimeException e) {
+                    failedEvents.increment();
+                    LOGGER.warn("Cache event sink failed", e);
+                }
+                tail = next + 1;
+            } else if (next == head.get()) {
+                if (stopping) {
+                    return;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            } else {
+                // A producer claimed the slot but has not finished writing it yet.
+                Thread.yield();
+            }
+        }
+    }
+}
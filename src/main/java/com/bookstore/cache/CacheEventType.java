@@ -0,0 +1,47 @@
+package com.bookstore.cache;
+
+/**
+ * The kinds of cache operations recorded by the {@link CacheEventTracer}.
+ */
+public enum CacheEventType {
+
+    /**
+     * A lookup found the key on the heap.
+     */
+    HIT,
+
+    /**
+     * A lookup did not find the key on the heap, or found it expired.
+     */
+    MISS,
+
+    /**
+     * A key missing on the heap was taken back from the second cache level.
+     */
+    PROMOTE,
+
+    /**
+     * A key was loaded from the repository; the value is the load time in nanoseconds.
+     */
+    LOAD,
+
+    /**
+     * A key was written to the cache.
+     */
+    PUT,
+
+    /**
+     * A key was removed from the cache.
+     */
+    REMOVE,
+
+    /**
+     * A key was evicted from the heap.
+     */
+    EVICT,
+
+    /**
+     * A background reload of an aging key was requested; the value is 1 if it was scheduled.
+     */
+    REFRESH
+}
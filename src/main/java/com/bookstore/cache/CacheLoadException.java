@@ -0,0 +1,20 @@
+package com.bookstore.cache;
+
+/**
+ * Thrown when a value could not be obtained from a shared load, either because
+ * the wait for it timed out or because the load itself failed with a checked exception.
+ */
+public class CacheLoadException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new instance of {@link CacheLoadException}.
+     *
+     * @param message the detail message
+     * @param cause the underlying cause
+     */
+    public CacheLoadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
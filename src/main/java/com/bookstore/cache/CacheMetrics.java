@@ -0,0 +1,199 @@
+package com.bookstore.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.swiftcache.cache.SwiftCache;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the counters of a cache and of the components around it as meters.
+ *
+ * <p>
+ * The cache meters follow the Micrometer cache conventions ({@code cache.gets},
+ * {@code cache.evictions} and {@code cache.size}) plus a {@code cache.hit.ratio}
+ * gauge, tagged with the cache name and, for a {@link StripedSwiftCache}, with the
+ * level ({@code heap} or {@code off-heap}) they describe. The stock
+ * {@link SwiftCache} does not count hits, so only its size is published.
+ * </p>
+ *
+ * <p>
+ * Every meter reads the live counters of the component it describes when it is
+ * scraped; nothing is recorded on the request path. The level meters share one
+ * snapshot of {@link StripedSwiftCache#getTierStats()}, taken by the first of them
+ * to be read and reused for {@value #TIER_SNAPSHOT_MILLIS} ms, so that a scrape
+ * locks the off-heap stripes once rather than once per meter.
+ * </p>
+ */
+public class CacheMetrics implements MeterBinder {
+
+    /**
+     * The time in milliseconds for which the level meters reuse a snapshot of the level counters.
+     */
+    public static final long TIER_SNAPSHOT_MILLIS = 1000;
+
+    private final String cacheName;
+    private final SwiftCache<?, ?> cache;
+    private final WriteBehindExecutor<?, ?> writeBehindExecutor;
+    private final RefreshAheadScheduler<?> refreshAheadScheduler;
+    private final SingleFlightLoader<?, ?> loader;
+
+    /**
+     * Constructs a new instance of {@link CacheMetrics}.
+     *
+     * @param cacheName the name of the cache, used as the {@code cache} tag
+     * @param cache the cache to publish
+     * @param writeBehindExecutor the write-behind executor of the cache, or null
+     * @param refreshAheadScheduler the refresh-ahead scheduler of the cache, or null
+     * @param loader the loader collapsing concurrent lookups through the cache, or null
+     */
+    public CacheMetrics(String cacheName, SwiftCache<?, ?> cache, WriteBehindExecutor<?, ?> writeBehindExecutor,
+                        RefreshAheadScheduler<?> refreshAheadScheduler, SingleFlightLoader<?, ?> loader) {
+        this.cacheName = cacheName;
+        this.cache = cache;
+        this.writeBehindExecutor = writeBehindExecutor;
+        this.refreshAheadScheduler = refreshAheadScheduler;
+        this.loader = loader;
+    }
+
+    /**
+     * Registers the meters with the given registry.
+     *
+     * @param registry the registry to register the meters with
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (cache instanceof StripedSwiftCache) {
+            bindTiers(registry, (StripedSwiftCache<?, ?>) cache);
+        } else {
+            Gauge.builder("cache.size", cache, SwiftCache::size)
+                    .tag("cache", cacheName)
+                    .description("The number of entries in the cache")
+                    .register(registry);
+        }
+        if (writeBehindExecutor != null) {
+            bindWriteBehind(registry, writeBehindExecutor);
+        }
+        if (refreshAheadScheduler != null) {
+            bindRefreshAhead(registry, refreshAheadScheduler);
+        }
+        if (loader != null) {
+            bindLoader(registry, loader);
+        }
+    }
+
+    private void bindTiers(MeterRegistry registry, StripedSwiftCache<?, ?> striped) {
+        List<TierStats> tiers = striped.getTierStats();
+        TierSnapshot snapshot = new TierSnapshot(striped);
+        for (int i = 0; i < tiers.size(); i++) {
+            final int index = i;
+            String tier = tiers.get(i).getName();
+            FunctionCounter.builder("cache.gets", snapshot, s -> s.get(index).getHits())
+                    .tags("cache", cacheName, "tier", tier, "result", "hit")
+                    .description("The number of times a lookup found an entry in the cache level")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", snapshot, s -> s.get(index).getMisses())
+                    .tags("cache", cacheName, "tier", tier, "result", "miss")
+                    .description("The number of times a lookup did not find an entry in the cache level")
+                    .register(registry);
+            FunctionCounter.builder("cache.evictions", snapshot, s -> s.get(index).getEvictions())
+                    .tags("cache", cacheName, "tier", tier)
+                    .description("The number of entries evicted from the cache level")
+                    .register(registry);
+            Gauge.builder("cache.size", snapshot, s -> s.get(index).getEntries())
+                    .tags("cache", cacheName, "tier", tier)
+                    .description("The number of entries in the cache level")
+                    .register(registry);
+            Gauge.builder("cache.hit.ratio", snapshot, s -> s.get(index).getHitRate())
+                    .tags("cache", cacheName, "tier", tier)
+                    .description("The share of lookups in the cache level that found an entry")
+                    .register(registry);
+        }
+    }
+
+    private void bindWriteBehind(MeterRegistry registry, WriteBehindExecutor<?, ?> executor) {
+        gauge(registry, "bookstore.cache.write-behind.queue.depth", executor, WriteBehindExecutor::getQueueDepth,
+                "The number of keys waiting to be flushed");
+        gauge(registry, "bookstore.cache.write-behind.flush.lag.max", executor,
+                WriteBehindExecutor::getMaxFlushLagMillis, "The longest time in milliseconds a write waited to be flushed");
+        counter(registry, "bookstore.cache.write-behind.flushed", executor, WriteBehindExecutor::getFlushedWrites,
+                "The number of writes applied to a repository");
+        counter(registry, "bookstore.cache.write-behind.batches", executor, WriteBehindExecutor::getFlushedBatches,
+                "The number of batches applied to a repository");
+        counter(registry, "bookstore.cache.write-behind.coalesced", executor, WriteBehindExecutor::getCoalescedWrites,
+                "The number of writes replaced by a later write to the same key before being flushed");
+        counter(registry, "bookstore.cache.write-behind.failed", executor, WriteBehindExecutor::getFailedWrites,
+                "The number of attempts to apply a write that failed");
+        counter(registry, "bookstore.cache.write-behind.retried", executor, WriteBehindExecutor::getRetriedWrites,
+                "The number of failed writes queued again to be retried");
+        counter(registry, "bookstore.cache.write-behind.dropped", executor, WriteBehindExecutor::getDroppedWrites,
+                "The number of writes dropped after failing their last attempt");
+        counter(registry, "bookstore.cache.write-behind.back-pressure", executor,
+                WriteBehindExecutor::getBackPressureWaits, "The number of writes that waited for queue space");
+    }
+
+    private void bindRefreshAhead(MeterRegistry registry, RefreshAheadScheduler<?> scheduler) {
+        gauge(registry, "bookstore.cache.refresh-ahead.in-flight", scheduler,
+                RefreshAheadScheduler::getInFlightRefreshes, "The number of reloads scheduled or running");
+        counter(registry, "bookstore.cache.refresh-ahead.scheduled", scheduler,
+                RefreshAheadScheduler::getScheduledRefreshes, "The number of reloads handed to the worker pool");
+        counter(registry, "bookstore.cache.refresh-ahead.deduplicated", scheduler,
+                RefreshAheadScheduler::getDeduplicatedRefreshes, "The number of reloads skipped because one was in flight");
+        counter(registry, "bookstore.cache.refresh-ahead.rejected", scheduler,
+                RefreshAheadScheduler::getRejectedRefreshes, "The number of reloads skipped because the queue was full");
+        counter(registry, "bookstore.cache.refresh-ahead.failed", scheduler,
+                RefreshAheadScheduler::getFailedRefreshes, "The number of reloads that threw an exception");
+    }
+
+    private void bindLoader(MeterRegistry registry, SingleFlightLoader<?, ?> singleFlightLoader) {
+        gauge(registry, "bookstore.cache.loads.in-flight", singleFlightLoader, SingleFlightLoader::getInFlightLoads,
+                "The number of cache lookups currently running");
+        counter(registry, "bookstore.cache.loads", singleFlightLoader, SingleFlightLoader::getLoads,
+                "The number of cache lookups started");
+        counter(registry, "bookstore.cache.loads.coalesced", singleFlightLoader, SingleFlightLoader::getCoalescedLoads,
+                "The number of lookups that waited for a lookup of the same key instead of starting one");
+        counter(registry, "bookstore.cache.loads.timed-out", singleFlightLoader, SingleFlightLoader::getTimedOutWaits,
+                "The number of lookups that stopped waiting for a lookup of the same key");
+    }
+
+    private <T> void gauge(MeterRegistry registry, String name, T source, ToDoubleFunction<T> value,
+                           String description) {
+        Gauge.builder(name, source, value).tag("cache", cacheName).description(description).register(registry);
+    }
+
+    private <T> void counter(MeterRegistry registry, String name, T source, ToDoubleFunction<T> value,
+                             String description) {
+        FunctionCounter.builder(name, source, value).tag("cache", cacheName).description(description)
+                .register(registry);
+    }
+
+    /**
+     * The level counters of a cache, read at most once per {@link #TIER_SNAPSHOT_MILLIS}.
+     */
+    private static final class TierSnapshot {
+
+        private final StripedSwiftCache<?, ?> cache;
+        private volatile List<TierStats> stats;
+        private volatile long takenAt;
+
+        TierSnapshot(StripedSwiftCache<?, ?> cache) {
+            this.cache = cache;
+        }
+
+        TierStats get(int index) {
+            List<TierStats> current = stats;
+            long now = System.nanoTime();
+            if (current == null || now - takenAt > TimeUnit.MILLISECONDS.toNanos(TIER_SNAPSHOT_MILLIS)) {
+                current = cache.getTierStats();
+                // Written before the list so that a reader seeing the new list sees its time too.
+                takenAt = now;
+                stats = current;
+            }
+            return current.get(index);
+        }
+    }
+}
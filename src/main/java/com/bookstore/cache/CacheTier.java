@@ -0,0 +1,59 @@
+package com.bookstore.cache;
+
+/**
+ * A lower cache level holding the entries evicted from the in-heap segments of a
+ * {@link StripedSwiftCache}.
+ *
+ * <p>
+ * Tiers are exclusive: an entry is demoted into the tier when the segments evict it
+ * and taken out of the tier again when a read promotes it back, so each key is held
+ * by at most one level at a time.
+ * </p>
+ *
+ * @param <K> the type of keys maintained by the tier
+ * @param <V> the type of stored values
+ */
+public interface CacheTier<K, V> {
+
+    /**
+     * Stores a value demoted from the level above, replacing any previous value for the key.
+     *
+     * @param key the key of the value
+     * @param value the value
+     */
+    void put(K key, V value);
+
+    /**
+     * Removes a value from the tier and returns it, counting the lookup as a hit or a miss.
+     *
+     * @param key the key of the value
+     * @return the removed value, or null if the tier did not hold the key
+     */
+    V take(K key);
+
+    /**
+     * Invalidates a value without counting the lookup.
+     *
+     * @param key the key of the value
+     */
+    void remove(K key);
+
+    /**
+     * Removes all values from the tier.
+     */
+    void clear();
+
+    /**
+     * Returns the number of values held by the tier.
+     *
+     * @return the number of values
+     */
+    long size();
+
+    /**
+     * Returns a snapshot of the tier's counters.
+     *
+     * @return the tier statistics
+     */
+    TierStats getStats();
+}
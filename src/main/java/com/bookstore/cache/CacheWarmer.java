@@ -0,0 +1,274 @@
+package com.bookstore.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Refills a cache after a restart from a {@link HotKeySnapshot} of its hottest keys.
+ *
+ * <p>
+ * {@link #start()} reads the snapshot and hands its keys to the loader in batches on
+ * a background thread, so the application serves requests while the cache warms.
+ * Once the warm-up has finished, the hottest keys are written back to the snapshot
+ * periodically and when the warmer shuts down. Snapshots are never taken before the
+ * warm-up has finished, so that a cold cache cannot overwrite the hot set of the
+ * previous run.
+ * </p>
+ *
+ * <p>
+ * Progress and the time the warm-up took are published as meters tagged with the
+ * cache name. A failed batch is counted and skipped; its keys are loaded on demand.
+ * </p>
+ */
+public class CacheWarmer implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final String cacheName;
+    private final HotKeySnapshot snapshot;
+    private final IntFunction<List<String>> hotKeys;
+    private final Consumer<List<String>> loader;
+    private final int maxKeys;
+    private final int batchSize;
+    private final long snapshotIntervalMillis;
+    private final ScheduledExecutorService executor;
+    private final CompletableFuture<Void> warmedUp = new CompletableFuture<>();
+
+    private final AtomicInteger snapshotKeys = new AtomicInteger();
+    private final AtomicInteger warmedKeys = new AtomicInteger();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder snapshotsWritten = new LongAdder();
+    private volatile long warmUpMillis = -1;
+
+    /**
+     * Constructs a new instance of {@link CacheWarmer}.
+     *
+     * @param cacheName the name of the cache, used as the {@code cache} tag
+     * @param snapshot the snapshot the cache is warmed from and written to
+     * @param hotKeys returns the hottest cached keys up to the given number, or null to never write snapshots
+     * @param loader loads a batch of keys into the cache
+     * @param maxKeys the maximum number of keys snapshotted and warmed
+     * @param batchSize the maximum number of keys handed to the loader at once
+     * @param snapshotIntervalMillis the time between two snapshots
+     */
+    public CacheWarmer(String cacheName, HotKeySnapshot snapshot, IntFunction<List<String>> hotKeys,
+                       Consumer<List<String>> loader, int maxKeys, int batchSize, long snapshotIntervalMillis) {
+        if (maxKeys < 0 || batchSize <= 0 || snapshotIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Invalid cache warm-up settings");
+        }
+        this.cacheName = cacheName;
+        this.snapshot = snapshot;
+        this.hotKeys = hotKeys;
+        this.loader = loader;
+        this.maxKeys = maxKeys;
+        this.batchSize = batchSize;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = scheduler;
+    }
+
+    /**
+     * Starts warming the cache in the background, followed by the periodic snapshots.
+     *
+     * @return a future completed once the warm-up has finished or was stopped by {@link #shutdown()}
+     */
+    public CompletableFuture<Void> start() {
+        executor.execute(this::warmUp);
+        return warmedUp;
+    }
+
+    /**
+     * Writes the hottest cached keys to the snapshot, unless the warm-up has not finished yet.
+     *
+     * @return true if a snapshot was written
+     */
+    public boolean snapshot() {
+        if (hotKeys == null || !isWarm()) {
+            return false;
+        }
+        snapshot.write(hotKeys.apply(maxKeys));
+        snapshotsWritten.increment();
+        return true;
+    }
+
+    /**
+     * Stops the warm-up and the periodic snapshots, and writes a last snapshot.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+            snapshot();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot write hot key snapshot on shutdown", e);
+        }
+    }
+
+    /**
+     * Returns whether the warm-up has finished.
+     *
+     * @return true once every batch of the snapshot has been loaded or has failed
+     */
+    public boolean isWarm() {
+        return warmUpMillis >= 0;
+    }
+
+    /**
+     * Returns the number of keys read from the snapshot.
+     *
+     * @return the number of keys to warm
+     */
+    public int getSnapshotKeys() {
+        return snapshotKeys.get();
+    }
+
+    /**
+     * Returns the number of snapshot keys handed to the loader so far.
+     *
+     * @return the number of keys warmed
+     */
+    public int getWarmedKeys() {
+        return warmedKeys.get();
+    }
+
+    /**
+     * Returns the share of the snapshot keys handed to the loader so far.
+     *
+     * @return the progress between 0 and 1, or 1 once an empty snapshot has been read
+     */
+    public double getProgress() {
+        int total = snapshotKeys.get();
+        if (total == 0) {
+            return isWarm() ? 1 : 0;
+        }
+        return (double) warmedKeys.get() / total;
+    }
+
+    /**
+     * Returns the time the warm-up took.
+     *
+     * @return the duration in milliseconds, or -1 if the warm-up has not finished
+     */
+    public long getWarmUpMillis() {
+        return warmUpMillis;
+    }
+
+    /**
+     * Returns the number of batches that could not be loaded.
+     *
+     * @return the number of failed batches
+     */
+    public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    /**
+     * Returns the number of snapshots written.
+     *
+     * @return the number of snapshots
+     */
+    public long getSnapshotsWritten() {
+        return snapshotsWritten.sum();
+    }
+
+    /**
+     * Registers the warm-up meters with the given registry.
+     *
+     * @param registry the registry to register the meters with
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bookstore.cache.warm-up.keys", this, CacheWarmer::getSnapshotKeys)
+                .tag("cache", cacheName)
+                .description("The number of keys read from the hot key snapshot")
+                .register(registry);
+        Gauge.builder("bookstore.cache.warm-up.warmed", this, CacheWarmer::getWarmedKeys)
+                .tag("cache", cacheName)
+                .description("The number of snapshot keys loaded into the cache so far")
+                .register(registry);
+        Gauge.builder("bookstore.cache.warm-up.progress", this, CacheWarmer::getProgress)
+                .tag("cache", cacheName)
+                .description("The share of the snapshot keys loaded into the cache so far")
+                .register(registry);
+        TimeGauge.builder("bookstore.cache.warm-up.duration", this, TimeUnit.MILLISECONDS,
+                        warmer -> warmer.isWarm() ? warmer.getWarmUpMillis() : Double.NaN)
+                .tag("cache", cacheName)
+                .description("The time it took to warm the cache from the snapshot")
+                .register(registry);
+        FunctionCounter.builder("bookstore.cache.warm-up.failed", this, CacheWarmer::getFailedBatches)
+                .tag("cache", cacheName)
+                .description("The number of snapshot batches that could not be loaded")
+                .register(registry);
+        FunctionCounter.builder("bookstore.cache.snapshots", this, CacheWarmer::getSnapshotsWritten)
+                .tag("cache", cacheName)
+                .description("The number of hot key snapshots written")
+                .register(registry);
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        boolean finished = false;
+        try {
+            List<String> keys = snapshot.read();
+            if (keys.size() > maxKeys) {
+                keys = keys.subList(0, maxKeys);
+            }
+            snapshotKeys.set(keys.size());
+            for (int from = 0; from < keys.size() && !Thread.currentThread().isInterrupted(); from += batchSize) {
+                List<String> batch = keys.subList(from, Math.min(from + batchSize, keys.size()));
+                try {
+                    loader.accept(batch);
+                } catch (RuntimeException e) {
+                    failedBatches.increment();
+                    LOGGER.warn("Cannot warm {} keys of cache {}", batch.size(), cacheName, e);
+                }
+                warmedKeys.addAndGet(batch.size());
+            }
+            finished = !Thread.currentThread().isInterrupted();
+        } finally {
+            if (finished) {
+                warmUpMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }
+            warmedUp.complete(null);
+        }
+        if (!finished) {
+            return;
+        }
+        LOGGER.info("Warmed cache {} with {} keys from {} in {} ms", cacheName, warmedKeys.get(),
+                snapshot.getPath(), warmUpMillis);
+        if (hotKeys != null && !executor.isShutdown()) {
+            executor.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalMillis, snapshotIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot write hot key snapshot {}", snapshot.getPath(), e);
+        }
+    }
+}
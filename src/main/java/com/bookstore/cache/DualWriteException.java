@@ -0,0 +1,44 @@
+package com.bookstore.cache;
+
+/**
+ * Thrown when one or both sides of a dual write still fail after all retries.
+ */
+public class DualWriteException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean primaryFailed;
+    private final boolean secondaryFailed;
+
+    /**
+     * Constructs a new instance of {@link DualWriteException}.
+     *
+     * @param message the detail message
+     * @param cause the last failure of the first failed side
+     * @param primaryFailed whether the write to the primary store failed
+     * @param secondaryFailed whether the write to the secondary store failed
+     */
+    public DualWriteException(String message, Throwable cause, boolean primaryFailed, boolean secondaryFailed) {
+        super(message, cause);
+        this.primaryFailed = primaryFailed;
+        this.secondaryFailed = secondaryFailed;
+    }
+
+    /**
+     * Returns whether the write to the primary store failed.
+     *
+     * @return true if the primary store was not written
+     */
+    public boolean isPrimaryFailed() {
+        return primaryFailed;
+    }
+
+    /**
+     * Returns whether the write to the secondary store failed.
+     *
+     * @return true if the secondary store was not written
+     */
+    public boolean isSecondaryFailed() {
+        return secondaryFailed;
+    }
+}
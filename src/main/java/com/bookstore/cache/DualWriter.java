@@ -0,0 +1,204 @@
+package com.bookstore.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Applies the same logical write to a primary and a secondary store concurrently.
+ *
+ * <p>
+ * The secondary write is handed to a dedicated pool while the primary write runs on
+ * the calling thread, so the latency of a dual write is that of the slower store
+ * rather than the sum of both. When no pool thread is idle the secondary write runs
+ * on the calling thread after the primary one.
+ * </p>
+ *
+ * <p>
+ * The latency of each side is recorded under {@value #WRITE_TIMER}, tagged with the
+ * store, with a percentile histogram and its 99th percentile. Retried attempts and
+ * sides failing after all attempts are counted under {@value #RETRIES_COUNTER} and
+ * {@value #FAILURES_COUNTER}.
+ * </p>
+ *
+ * <p>
+ * Consistency contract: each side is attempted up to {@code maxAttempts} times. The
+ * call returns normally only if both sides succeeded. If either side still fails, a
+ * {@link DualWriteException} reports which side failed; the other side's write has
+ * been applied and the caller is responsible for invalidating any state derived from
+ * it, such as a cached copy.
+ * </p>
+ */
+public class DualWriter {
+
+    /**
+     * Name of the timer recording the latency of each side of a dual write.
+     */
+    public static final String WRITE_TIMER = "bookstore.dual-write";
+
+    /**
+     * Name of the counter of failed attempts that were retried.
+     */
+    public static final String RETRIES_COUNTER = "bookstore.dual-write.retries";
+
+    /**
+     * Name of the counter of sides that still failed after all attempts.
+     */
+    public static final String FAILURES_COUNTER = "bookstore.dual-write.failures";
+
+    private final ThreadPoolExecutor executor;
+    private final int maxAttempts;
+    private final Side primary;
+    private final Side secondary;
+
+    /**
+     * Constructs a new instance of {@link DualWriter} whose stores are tagged {@code primary}
+     * and {@code secondary} in the global meter registry.
+     *
+     * @param threads the number of threads writing to the secondary store, or 0 to write both stores sequentially
+     * @param maxAttempts the number of times each side is attempted before giving up
+     */
+    public DualWriter(int threads, int maxAttempts) {
+        this("primary", "secondary", threads, maxAttempts, null, Metrics.globalRegistry);
+    }
+
+    /**
+     * Constructs a new instance of {@link DualWriter} whose secondary writes run on threads of the given factory.
+     *
+     * @param primaryStore the name of the primary store, used as the {@code store} tag
+     * @param secondaryStore the name of the secondary store, used as the {@code store} tag
+     * @param threads the number of threads writing to the secondary store, or 0 to write both stores sequentially
+     * @param maxAttempts the number of times each side is attempted before giving up
+     * @param threadFactory the factory of the writing threads, or null for daemon platform threads
+     * @param meterRegistry the registry recording the latency, retries and failures of each side
+     */
+    public DualWriter(String primaryStore, String secondaryStore, int threads, int maxAttempts,
+                      ThreadFactory threadFactory, MeterRegistry meterRegistry) {
+        if (threads < 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("Invalid dual-write settings");
+        }
+        this.maxAttempts = maxAttempts;
+        this.primary = new Side(meterRegistry, primaryStore);
+        this.secondary = new Side(meterRegistry, secondaryStore);
+        // Rejected secondary writes run after the primary write rather than before it, see write().
+        this.executor = threads == 0 ? null : new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), threadFactory != null ? threadFactory : new DualWriteThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Writes to both stores and returns the result of the secondary write.
+     *
+     * @param primaryWrite the write to the primary store
+     * @param secondaryWrite the write to the secondary store
+     * @param <T> the type of the secondary write's result
+     * @return the result of the secondary write
+     * @throws DualWriteException if either side failed after all attempts
+     */
+    public <T> T write(Supplier<?> primaryWrite, Supplier<T> secondaryWrite) {
+        CompletableFuture<Outcome<T>> pending = null;
+        if (executor != null) {
+            try {
+                pending = CompletableFuture.supplyAsync(() -> attempt(secondaryWrite, secondary), executor);
+            } catch (RejectedExecutionException e) {
+                // No idle thread: the secondary write runs on this thread once the primary one is done.
+            }
+        }
+        Outcome<?> primaryOutcome = attempt(primaryWrite, primary);
+        Outcome<T> secondaryOutcome = pending != null ? pending.join() : attempt(secondaryWrite, secondary);
+
+        if (primaryOutcome.failure != null || secondaryOutcome.failure != null) {
+            RuntimeException cause = primaryOutcome.failure != null ? primaryOutcome.failure : secondaryOutcome.failure;
+            throw new DualWriteException("Dual write failed (primary: "
+                    + (primaryOutcome.failure == null ? "ok" : "failed")
+                    + ", secondary: " + (secondaryOutcome.failure == null ? "ok" : "failed") + ")",
+                    cause, primaryOutcome.failure != null, secondaryOutcome.failure != null);
+        }
+        return secondaryOutcome.value;
+    }
+
+    /**
+     * Stops the secondary write pool after the writes in progress have finished.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private <T> Outcome<T> attempt(Supplier<T> write, Side side) {
+        RuntimeException failure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            long start = System.nanoTime();
+            try {
+                T value = write.get();
+                side.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return new Outcome<>(value, null);
+            } catch (RuntimeException e) {
+                failure = e;
+                if (attempt < maxAttempts) {
+                    side.retries.increment();
+                }
+            }
+        }
+        side.failures.increment();
+        return new Outcome<>(null, failure);
+    }
+
+    private static final class Side {
+
+        private final Timer latency;
+        private final Counter retries;
+        private final Counter failures;
+
+        Side(MeterRegistry registry, String store) {
+            this.latency = Timer.builder(WRITE_TIMER)
+                    .description("Latency of one side of a dual write")
+                    .tag("store", store)
+                    .publishPercentiles(0.99)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.retries = Counter.builder(RETRIES_COUNTER)
+                    .description("Failed dual-write attempts that were retried")
+                    .tag("store", store)
+                    .register(registry);
+            this.failures = Counter.builder(FAILURES_COUNTER)
+                    .description("Sides of a dual write that failed after all attempts")
+                    .tag("store", store)
+                    .register(registry);
+        }
+    }
+
+    private static final class Outcome<T> {
+
+        private final T value;
+        private final RuntimeException failure;
+
+        Outcome(T value, RuntimeException failure) {
+            this.value = value;
+            this.failure = failure;
+        }
+    }
+
+    private static final class DualWriteThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "dual-write-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.bookstore.cache;
+
+/**
+ * Count-min sketch estimating how often keys have been accessed recently.
+ *
+ * <p>
+ * Each key is hashed into one 4-bit counter per row, and its frequency is the minimum
+ * of those counters, so the estimate can only overcount through collisions. Once the
+ * number of increments reaches ten times the maximum cache size, every counter is
+ * halved. This aging lets the sketch forget keys that used to be popular, so the
+ * cache adapts when the workload shifts.
+ * </p>
+ *
+ * <p>
+ * Each row has at least four counters per cache entry, rounded up to a power of two,
+ * and packs sixteen counters into each {@code long}, so the sketch takes 8 to 16 bytes
+ * per entry of the cache.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @param <K> the type of counted keys
+ */
+public class FrequencySketch<K> {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final int MAX_COUNT = 15;
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[][] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Constructs a new instance of {@link FrequencySketch}.
+     *
+     * @param maximumSize the maximum number of entries of the cache using the sketch
+     */
+    public FrequencySketch(long maximumSize) {
+        int width = Integer.highestOneBit((int) Math.min(Math.max(maximumSize * 4, 64), 1 << 29) * 2 - 1);
+        this.table = new long[SEEDS.length][width >>> 4];
+        this.mask = width - 1;
+        this.sampleSize = (int) Math.min(10 * maximumSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Records an access to a key, aging all counters when the sample size is reached.
+     *
+     * @param key the accessed key
+     */
+    public void increment(K key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int index = indexOf(hash, row);
+            int shift = (index & 15) << 2;
+            if (((table[row][index >>> 4] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table[row][index >>> 4] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Returns the estimated number of recent accesses to a key.
+     *
+     * @param key the key
+     * @return the estimated frequency, at most 15
+     */
+    public int frequency(K key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int index = indexOf(hash, row);
+            frequency = Math.min(frequency, (int) (table[row][index >>> 4] >>> ((index & 15) << 2)) & MAX_COUNT);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        // Halves the sixteen counters of a word at once, dropping the bit each shifts into its neighbour.
+        for (long[] row : table) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (row[i] >>> 1) & RESET_MASK;
+            }
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & mask;
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 17;
+        h *= 0xed5ad4bb;
+        h ^= h >>> 11;
+        h *= 0xac4c1b51;
+        return h ^ (h >>> 15);
+    }
+}
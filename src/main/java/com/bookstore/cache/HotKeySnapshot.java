@@ -0,0 +1,126 @@
+package com.bookstore.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A file on local disk holding the keys of the hottest cache entries.
+ *
+ * <p>
+ * The file starts with a magic number, a format version and the number of keys,
+ * followed by each key in modified UTF-8. Only keys are stored: values are read
+ * again from the repositories when the cache is warmed, so a snapshot never brings
+ * back stale books.
+ * </p>
+ *
+ * <p>
+ * A snapshot is written to a temporary file next to the target and then moved over
+ * it, so a crash during a write leaves the previous snapshot intact. A missing,
+ * truncated or foreign file reads as an empty snapshot.
+ * </p>
+ */
+public class HotKeySnapshot {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HotKeySnapshot.class);
+    private static final int MAGIC = 0x484B5331;
+    private static final int VERSION = 1;
+
+    private final Path path;
+
+    /**
+     * Constructs a new instance of {@link HotKeySnapshot}.
+     *
+     * @param path the file holding the snapshot
+     */
+    public HotKeySnapshot(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Replaces the snapshot with the given keys.
+     *
+     * @param keys the keys, hottest first
+     * @throws UncheckedIOException if the snapshot cannot be written
+     */
+    public void write(Collection<String> keys) {
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(keys.size());
+                    for (String key : keys) {
+                        out.writeUTF(key);
+                    }
+                }
+                move(temporary);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write hot key snapshot " + path, e);
+        }
+    }
+
+    /**
+     * Reads the keys of the snapshot.
+     *
+     * @return the keys, hottest first, or an empty list if there is no readable snapshot
+     */
+    public List<String> read() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOGGER.warn("Ignoring hot key snapshot {} written in an unknown format", path);
+                return Collections.emptyList();
+            }
+            int count = in.readInt();
+            List<String> keys = new ArrayList<>(Math.max(0, Math.min(count, 1 << 16)));
+            for (int i = 0; i < count; i++) {
+                keys.add(in.readUTF());
+            }
+            return keys;
+        } catch (NoSuchFileException e) {
+            return Collections.emptyList();
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable hot key snapshot {}", path, e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the file holding the snapshot.
+     *
+     * @return the path of the snapshot
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    private void move(Path temporary) throws IOException {
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.bookstore.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link InvalidationBus} connecting nodes that run in the same JVM.
+ *
+ * <p>
+ * A new bus is the only node of its own network; further nodes are added with
+ * {@link #join()}. Messages are delivered synchronously on the publishing thread,
+ * which keeps tests that simulate several nodes deterministic.
+ * </p>
+ *
+ * @param <K> the type of invalidated keys
+ */
+public class InMemoryInvalidationBus<K> implements InvalidationBus<K> {
+
+    private final List<InMemoryInvalidationBus<K>> network;
+    private final List<Consumer<K>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a new instance of {@link InMemoryInvalidationBus} on a network of its own.
+     */
+    public InMemoryInvalidationBus() {
+        this(new CopyOnWriteArrayList<>());
+    }
+
+    private InMemoryInvalidationBus(List<InMemoryInvalidationBus<K>> network) {
+        this.network = network;
+        network.add(this);
+    }
+
+    /**
+     * Creates the bus of another node on the same network as this one.
+     *
+     * @return the bus of the new node
+     */
+    public InMemoryInvalidationBus<K> join() {
+        return new InMemoryInvalidationBus<>(network);
+    }
+
+    /**
+     * Calls the listeners of every other node on the network with each key.
+     *
+     * @param keys the changed keys
+     */
+    @Override
+    public void publish(Collection<K> keys) {
+        for (InMemoryInvalidationBus<K> node : network) {
+            if (node != this) {
+                for (K key : keys) {
+                    node.listeners.forEach(listener -> listener.accept(key));
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers a listener called with every key published by another node.
+     *
+     * @param listener the listener, called on the publishing thread
+     */
+    @Override
+    public void subscribe(Consumer<K> listener) {
+        listeners.add(listener);
+    }
+}
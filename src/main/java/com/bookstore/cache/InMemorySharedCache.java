@@ -0,0 +1,124 @@
+package com.bookstore.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link SharedCache} held in the memory of the current process.
+ *
+ * <p>
+ * It is only shared between the caches of one JVM, which makes it suitable for
+ * single-node deployments and for tests that simulate several nodes by giving
+ * each of them the same instance.
+ * </p>
+ *
+ * @param <K> the type of keys maintained by the cache
+ * @param <V> the type of cached values
+ */
+public class InMemorySharedCache<K, V> implements SharedCache<K, V> {
+
+    private final ConcurrentMap<K, V> values = new ConcurrentHashMap<>();
+
+    /**
+     * Retrieves a value.
+     *
+     * @param key the key of the value
+     * @return the cached value, or null if it is not cached
+     */
+    @Override
+    public V get(K key) {
+        return values.get(key);
+    }
+
+    /**
+     * Retrieves several values.
+     *
+     * @param keys the keys of the values
+     * @return the cached values, keyed by their key
+     */
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> found = new HashMap<>();
+        for (K key : keys) {
+            V value = values.get(key);
+            if (value != null) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Stores a value.
+     *
+     * @param key the key of the value
+     * @param value the value to store
+     */
+    @Override
+    public void put(K key, V value) {
+        values.put(key, value);
+    }
+
+    /**
+     * Stores several values.
+     *
+     * @param values the values to store, keyed by their key
+     */
+    @Override
+    public void putAll(Map<K, V> values) {
+        this.values.putAll(values);
+    }
+
+    /**
+     * Stores a value unless a value is already cached for its key.
+     *
+     * @param key the key of the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIfAbsent(K key, V value) {
+        values.putIfAbsent(key, value);
+    }
+
+    /**
+     * Stores several values, each unless a value is already cached for its key.
+     *
+     * @param values the values to store, keyed by their key
+     */
+    @Override
+    public void putAllIfAbsent(Map<K, V> values) {
+        values.forEach(this.values::putIfAbsent);
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param key the key of the value
+     */
+    @Override
+    public void remove(K key) {
+        values.remove(key);
+    }
+
+    /**
+     * Removes several values.
+     *
+     * @param keys the keys of the values
+     */
+    @Override
+    public void removeAll(Collection<K> keys) {
+        keys.forEach(values::remove);
+    }
+
+    /**
+     * Returns the number of cached values.
+     *
+     * @return the number of cached values
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,33 @@
+package com.bookstore.cache;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts the keys changed on one node to every other node of a deployment, so
+ * that they drop their local copies.
+ *
+ * <p>
+ * Messages are delivered at most once and never back to the node that published
+ * them. A lost message leaves a stale local copy until it is evicted, refreshed or
+ * invalidated again.
+ * </p>
+ *
+ * @param <K> the type of invalidated keys
+ */
+public interface InvalidationBus<K> {
+
+    /**
+     * Tells every other node that the given keys changed.
+     *
+     * @param keys the changed keys
+     */
+    void publish(Collection<K> keys);
+
+    /**
+     * Registers a listener called with every key invalidated by another node.
+     *
+     * @param listener the listener, called on a thread of the bus
+     */
+    void subscribe(Consumer<K> listener);
+}
@@ -0,0 +1,86 @@
+package com.bookstore.cache;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * {@link CacheEventSink} emitting every drained event as a JDK Flight Recorder event
+ * named {@value CacheJfrEvent#NAME}.
+ *
+ * <p>
+ * Events are only created while a recording that enables them is running, so the
+ * sink costs nothing when Flight Recorder is idle.
+ * </p>
+ */
+public class JfrCacheEventSink implements CacheEventSink {
+
+    /**
+     * Returns whether JDK Flight Recorder can be used in this JVM.
+     *
+     * @return true if the Flight Recorder API is present and available
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return FlightRecorder.isAvailable();
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Emits one event as a {@link CacheJfrEvent}.
+     *
+     * @param type the kind of operation
+     * @param keyHash the hash code of the key the operation applied to
+     * @param value the value recorded with the event
+     * @param recordedAt the {@link System#nanoTime()} at which the event was recorded
+     */
+    @Override
+    public void accept(CacheEventType type, int keyHash, long value, long recordedAt) {
+        CacheJfrEvent event = new CacheJfrEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.operation = type.name();
+        event.keyHash = keyHash;
+        event.value = value;
+        event.drainDelay = System.nanoTime() - recordedAt;
+        event.commit();
+    }
+
+    /**
+     * Flight Recorder event describing one cache operation.
+     */
+    @Name(CacheJfrEvent.NAME)
+    @Label("Cache Operation")
+    @Category({"Bookstore", "Cache"})
+    @Description("A sampled operation on the book cache")
+    static class CacheJfrEvent extends Event {
+
+        /**
+         * Name of the event in recordings.
+         */
+        static final String NAME = "com.bookstore.CacheOperation";
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Key Hash")
+        int keyHash;
+
+        @Label("Value")
+        @Description("Value recorded with the operation, such as the load time in nanoseconds")
+        long value;
+
+        @Label("Drain Delay")
+        @Description("Time between the operation and its event being emitted")
+        @Timespan(Timespan.NANOSECONDS)
+        long drainDelay;
+    }
+}
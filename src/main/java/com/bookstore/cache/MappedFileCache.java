@@ -0,0 +1,858 @@
+package com.bookstore.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * A cache on local disk that survives restarts, storing encoded values in a
+ * memory-mapped, append-only log file.
+ *
+ * <p>
+ * Every write appends a record made of a CRC32 checksum, the time it was written, the
+ * key and the value encoded with a {@link ValueCodec}; a delete appends a tombstone.
+ * A record older than the maximum age is no longer served, so that the file does not
+ * keep a value that changed elsewhere for longer than that. Only the keys and the
+ * offsets of their latest records stay on the heap. Values are decoded from the
+ * mapped file when they are read, and their checksum is verified first, so a record
+ * torn by a crash is treated as a miss rather than returned.
+ * </p>
+ *
+ * <p>
+ * An index file next to the log holds the offsets of all records written up to a
+ * given position. It is written when the log is compacted and when the cache is
+ * closed. On startup the index is read back and only the records appended after it
+ * are scanned, keys only, so the cache serves values right away without decoding
+ * the whole file. A log without a matching index is scanned from the start. The scan
+ * stops at the first record whose checksum does not match, and new records are
+ * appended from there.
+ * </p>
+ *
+ * <p>
+ * Overwritten and deleted records are garbage until the log is compacted: once they
+ * take up the given share of the capacity, or once a write did not fit, a background
+ * thread copies the live records, without decoding them, to a new file that replaces
+ * the log. A write that does not fit deletes its key instead, so that an older value is
+ * never served; a share of the log is kept free for such deletes.
+ * </p>
+ *
+ * <p>
+ * A compaction copies and flushes the live records without holding the lock of the
+ * log, as records are never moved once appended. It then takes the lock only to copy
+ * the records appended in the meantime and to swap the files, and writes the index
+ * after releasing it again. A compaction that overlaps {@link #clear()} is abandoned.
+ * </p>
+ *
+ * <p>
+ * A value loaded from a data source may reach the log after a newer value of its key
+ * was written. Such a value is appended with {@link #fill(String, Object, long)} and
+ * the {@link #stamp(String)} taken before the load, and is dropped if the key was
+ * written or removed in the meantime.
+ * </p>
+ *
+ * <p>
+ * All operations are serialized by a single lock, but only copy bytes while holding
+ * it; values are encoded, checksummed and decoded, and files are flushed and written,
+ * outside of the lock.
+ * </p>
+ *
+ * @param <V> the type of stored values
+ */
+public class MappedFileCache<V> implements MeterBinder, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileCache.class);
+    private static final int LOG_MAGIC = 0x424B4C31;
+    private static final int INDEX_MAGIC = 0x424B4931;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 20;
+    private static final int TOMBSTONE = -1;
+    private static final byte[] END_OF_LOG = new byte[RECORD_HEADER_SIZE];
+    private static final int STAMP_STRIPES = 64;
+
+    private final String cacheName;
+    private final Path logPath;
+    private final Path indexPath;
+    private final ValueCodec<V> codec;
+    private final int capacity;
+    private final long compactionGarbageBytes;
+    private final long maxAgeMillis;
+    private final ThreadPoolExecutor compactor;
+    private final int deleteReserve;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final Map<String, Slot> index = new HashMap<>();
+    private final long[] writeStamps = new long[STAMP_STRIPES];
+    private MappedByteBuffer log;
+    private long logId;
+    private int position;
+    private long liveBytes;
+    private long generation;
+    private boolean full;
+    private boolean closed;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    private final LongAdder corruptRecords = new LongAdder();
+
+    /**
+     * Constructs a new instance of {@link MappedFileCache}, reading back the records
+     * of an existing log.
+     *
+     * @param cacheName the name of the cache, used as the {@code cache} tag
+     * @param path the log file; the index is stored next to it with an {@code .idx} suffix
+     * @param codec the encoding of stored values
+     * @param capacityBytes the size of the log file, which also bounds the size of a single record
+     * @param compactionThreshold the share of the capacity taken by garbage at which the log is compacted
+     * @throws UncheckedIOException if the log cannot be opened
+     */
+    public MappedFileCache(String cacheName, Path path, ValueCodec<V> codec, int capacityBytes,
+                           double compactionThreshold) {
+        this(cacheName, path, codec, capacityBytes, compactionThreshold, 0);
+    }
+
+    /**
+     * Constructs a new instance of {@link MappedFileCache} serving records up to a maximum
+     * age, reading back the records of an existing log.
+     *
+     * @param cacheName the name of the cache, used as the {@code cache} tag
+     * @param path the log file; the index is stored next to it with an {@code .idx} suffix
+     * @param codec the encoding of stored values
+     * @param capacityBytes the size of the log file, which also bounds the size of a single record
+     * @param compactionThreshold the share of the capacity taken by garbage at which the log is compacted
+     * @param maxAgeMillis the time after which a record is no longer served, or 0 to serve records of any age
+     * @throws UncheckedIOException if the log cannot be opened
+     */
+    public MappedFileCache(String cacheName, Path path, ValueCodec<V> codec, int capacityBytes,
+                           double compactionThreshold, long maxAgeMillis) {
+        if (capacityBytes < HEADER_SIZE + 2 * RECORD_HEADER_SIZE
+                || compactionThreshold <= 0 || compactionThreshold > 1 || maxAgeMillis < 0) {
+            throw new IllegalArgumentException("Invalid persistent cache settings");
+        }
+        this.maxAgeMillis = maxAgeMillis;
+        this.cacheName = cacheName;
+        this.logPath = path.toAbsolutePath();
+        this.indexPath = logPath.resolveSibling(logPath.getFileName() + ".idx");
+        this.codec = codec;
+        this.capacity = capacityBytes;
+        this.compactionGarbageBytes = (long) (compactionThreshold * capacityBytes);
+        this.deleteReserve = Math.min(capacityBytes / 16, 1 << 16);
+        this.compactor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+                new CompactionThreadFactory(), new ThreadPoolExecutor.DiscardPolicy());
+        try {
+            Files.createDirectories(logPath.getParent());
+            open();
+        } catch (IOException e) {
+            compactor.shutdown();
+            throw new UncheckedIOException("Cannot open persistent cache " + logPath, e);
+        }
+    }
+
+    /**
+     * Retrieves a value from the log.
+     *
+     * @param key the key of the value
+     * @return the value, or null if the log does not hold it, or its record is corrupt or too old
+     */
+    public V get(String key) {
+        Slot slot;
+        byte[] record;
+        lock.lock();
+        try {
+            slot = closed ? null : index.get(key);
+            if (slot == null) {
+                misses.increment();
+                return null;
+            }
+            record = new byte[slot.length];
+            ByteBuffer source = log.duplicate();
+            ((Buffer) source).position(slot.offset);
+            source.get(record);
+        } finally {
+            lock.unlock();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        if (buffer.getInt(0) != checksum(record)) {
+            corruptRecords.increment();
+            misses.increment();
+            LOGGER.warn("Dropping corrupt record of key {} at offset {} of {}", key, slot.offset, logPath);
+            discard(key, slot);
+            return null;
+        }
+        if (maxAgeMillis > 0 && System.currentTimeMillis() - buffer.getLong(12) > maxAgeMillis) {
+            misses.increment();
+            discard(key, slot);
+            return null;
+        }
+        hits.increment();
+        ((Buffer) buffer).position(RECORD_HEADER_SIZE + buffer.getInt(4));
+        return codec.decode(buffer);
+    }
+
+    /**
+     * Encodes a value and appends it to the log.
+     *
+     * @param key the key of the value
+     * @param value the value
+     */
+    public void put(String key, V value) {
+        write(key, value, -1);
+    }
+
+    /**
+     * Encodes a value loaded from a data source and appends it to the log, unless the
+     * key was written or removed since the given stamp was taken.
+     *
+     * @param key the key of the value
+     * @param value the loaded value
+     * @param stamp the {@link #stamp(String)} of the key taken before the value was loaded;
+     *              a negative stamp never matches
+     * @return true if the value was appended
+     */
+    public boolean fill(String key, V value, long stamp) {
+        return stamp >= 0 && write(key, value, stamp);
+    }
+
+    /**
+     * Returns the stamp to pass to {@link #fill(String, Object, long)} for a load of a key about to start.
+     *
+     * @param key the key about to be loaded
+     * @return the current stamp of the key
+     */
+    public long stamp(String key) {
+        lock.lock();
+        try {
+            return writeStamps[stripe(key)];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a tombstone for a key to the log, unless the log does not hold the key.
+     *
+     * @param key the key of the value
+     */
+    public void remove(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            writeStamps[stripe(key)]++;
+            if (!closed) {
+                delete(key, keyBytes);
+            }
+        } finally {
+            lock.unlock();
+        }
+        scheduleCompaction();
+    }
+
+    /**
+     * Removes every value from the log.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            if (!closed) {
+                reset();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the live records to a new log file replacing the current one, and writes the index.
+     *
+     * @return true if the log was compacted
+     */
+    public boolean compact() {
+        return compactLog(false);
+    }
+
+    /**
+     * Returns the number of values held by the log.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the log taken by records, live or not.
+     *
+     * @return the number of used bytes
+     */
+    public long getUsedBytes() {
+        lock.lock();
+        try {
+            return position - HEADER_SIZE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the log taken by overwritten records and tombstones.
+     *
+     * @return the number of bytes reclaimed by the next compaction
+     */
+    public long getGarbageBytes() {
+        lock.lock();
+        try {
+            return position - HEADER_SIZE - liveBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of times the log was compacted.
+     *
+     * @return the number of compactions
+     */
+    public long getCompactions() {
+        return compactions.sum();
+    }
+
+    /**
+     * Returns the number of records dropped because their checksum did not match.
+     *
+     * @return the number of corrupt records
+     */
+    public long getCorruptRecords() {
+        return corruptRecords.sum();
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the log, where evictions are
+     * values that did not fit in it.
+     *
+     * @return the statistics of the log
+     */
+    public TierStats getStats() {
+        lock.lock();
+        try {
+            return new TierStats("disk", hits.sum(), misses.sum(), evictions.sum(), index.size(),
+                    position - HEADER_SIZE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers the persistent cache meters with the given registry.
+     *
+     * @param registry the registry to register the meters with
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", cacheName, "tier", "disk", "result", "hit")
+                .description("The number of lookups answered by the persistent cache")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", cacheName, "tier", "disk", "result", "miss")
+                .description("The number of lookups the persistent cache could not answer")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tags("cache", cacheName, "tier", "disk")
+                .description("The number of values that did not fit in the persistent cache")
+                .register(registry);
+        Gauge.builder("cache.size", this, MappedFileCache::size)
+                .tags("cache", cacheName, "tier", "disk")
+                .description("The number of values held by the persistent cache")
+                .register(registry);
+        Gauge.builder("bookstore.cache.persistent.used", this, MappedFileCache::getUsedBytes)
+                .tag("cache", cacheName)
+                .baseUnit(BaseUnits.BYTES)
+                .description("The bytes of the persistent cache log taken by records")
+                .register(registry);
+        Gauge.builder("bookstore.cache.persistent.garbage", this, MappedFileCache::getGarbageBytes)
+                .tag("cache", cacheName)
+                .baseUnit(BaseUnits.BYTES)
+                .description("The bytes of the persistent cache log reclaimed by the next compaction")
+                .register(registry);
+        FunctionCounter.builder("bookstore.cache.persistent.compactions", compactions, LongAdder::sum)
+                .tag("cache", cacheName)
+                .description("The number of times the persistent cache log was compacted")
+                .register(registry);
+        FunctionCounter.builder("bookstore.cache.persistent.corrupt", corruptRecords, LongAdder::sum)
+                .tag("cache", cacheName)
+                .description("The number of persistent cache records dropped because of a checksum mismatch")
+                .register(registry);
+    }
+
+    /**
+     * Stops the background compaction, flushes the log to disk and writes the index.
+     */
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+        try {
+            compactor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compactionLock.lock();
+        try {
+            MappedByteBuffer flushed;
+            Map<String, Slot> slots;
+            long id;
+            int end;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                flushed = log;
+                slots = new HashMap<>(index);
+                id = logId;
+                end = position;
+            } finally {
+                lock.unlock();
+            }
+            flushed.force();
+            writeIndex(id, end, slots);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write persistent cache index {}", indexPath, e);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private boolean write(String key, V value, long stamp) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] record = record(keyBytes, codec.encode(value));
+        lock.lock();
+        try {
+            int stripe = stripe(key);
+            if (stamp < 0) {
+                writeStamps[stripe]++;
+            } else if (stamp != writeStamps[stripe]) {
+                return false;
+            }
+            if (closed) {
+                return false;
+            }
+            if (!append(key, record)) {
+                evictions.increment();
+                delete(key, keyBytes);
+            }
+        } finally {
+            lock.unlock();
+        }
+        scheduleCompaction();
+        return true;
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STAMP_STRIPES - 1);
+    }
+
+    private void open() throws IOException {
+        log = map(logPath);
+        if (log.getInt(0) != LOG_MAGIC || log.getInt(4) != VERSION) {
+            if (log.getInt(0) != 0) {
+                LOGGER.warn("Ignoring persistent cache {} written in an unknown format", logPath);
+            }
+            reset();
+            return;
+        }
+        logId = log.getLong(8);
+        int from = readIndex();
+        int end = scan(from);
+        if (end < capacity && !isEndOfLog(end)) {
+            corruptRecords.increment();
+            LOGGER.warn("Truncating persistent cache {} at the corrupt record at offset {}", logPath, end);
+            writeAt(end, END_OF_LOG);
+        }
+        position = end;
+        LOGGER.info("Opened persistent cache {} with {} entries", logPath, index.size());
+    }
+
+    private int readIndex() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != VERSION || in.readLong() != logId) {
+                return HEADER_SIZE;
+            }
+            int end = in.readInt();
+            int count = in.readInt();
+            if (end < HEADER_SIZE || end > capacity) {
+                return HEADER_SIZE;
+            }
+            Map<String, Slot> slots = new HashMap<>();
+            long live = 0;
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                Slot slot = new Slot(in.readInt(), in.readInt());
+                if (slot.offset < HEADER_SIZE || slot.length < RECORD_HEADER_SIZE
+                        || slot.length > end - slot.offset) {
+                    return HEADER_SIZE;
+                }
+                slots.put(key, slot);
+                live += slot.length;
+            }
+            index.putAll(slots);
+            liveBytes = live;
+            return end;
+        } catch (NoSuchFileException e) {
+            return HEADER_SIZE;
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable persistent cache index {}", indexPath, e);
+            return HEADER_SIZE;
+        }
+    }
+
+    private int scan(int from) {
+        int offset = from;
+        while (true) {
+            int length = recordLength(offset);
+            if (length < 0) {
+                return offset;
+            }
+            byte[] record = new byte[length];
+            ByteBuffer source = log.duplicate();
+            ((Buffer) source).position(offset);
+            source.get(record);
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            if (buffer.getInt(0) != checksum(record)) {
+                return offset;
+            }
+            String key = new String(record, RECORD_HEADER_SIZE, buffer.getInt(4), StandardCharsets.UTF_8);
+            boolean tombstone = buffer.getInt(8) == TOMBSTONE;
+            Slot previous = tombstone ? index.remove(key) : index.put(key, new Slot(offset, length));
+            if (previous != null) {
+                liveBytes -= previous.length;
+            }
+            if (!tombstone) {
+                liveBytes += length;
+            }
+            offset += length;
+        }
+    }
+
+    private int recordLength(int offset) {
+        if (capacity - offset < RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        long keyLength = log.getInt(offset + 4);
+        long valueLength = log.getInt(offset + 8);
+        if (keyLength <= 0 || valueLength < TOMBSTONE) {
+            return -1;
+        }
+        long length = RECORD_HEADER_SIZE + keyLength + Math.max(0, valueLength);
+        return length <= capacity - offset ? (int) length : -1;
+    }
+
+    private boolean isEndOfLog(int offset) {
+        for (int i = 0; i < RECORD_HEADER_SIZE && offset + i < capacity; i++) {
+            if (log.get(offset + i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean append(String key, byte[] record) {
+        boolean tombstone = ByteBuffer.wrap(record).getInt(8) == TOMBSTONE;
+        if (record.length > capacity - HEADER_SIZE - deleteReserve) {
+            return false;
+        }
+        if (record.length > (tombstone ? capacity : capacity - deleteReserve) - position) {
+            // The log is compacted in the background; until then, the write does not fit.
+            full = true;
+            return false;
+        }
+        writeAt(position, record);
+        if (capacity - position - record.length >= RECORD_HEADER_SIZE) {
+            writeAt(position + record.length, END_OF_LOG);
+        }
+        Slot previous = tombstone ? index.remove(key) : index.put(key, new Slot(position, record.length));
+        if (previous != null) {
+            liveBytes -= previous.length;
+        }
+        if (!tombstone) {
+            liveBytes += record.length;
+        }
+        position += record.length;
+        return true;
+    }
+
+    private void delete(String key, byte[] keyBytes) {
+        if (index.containsKey(key) && !append(key, record(keyBytes, null))) {
+            evictions.add(index.size());
+            reset();
+        }
+    }
+
+    private void discard(String key, Slot slot) {
+        lock.lock();
+        try {
+            if (index.get(key) == slot) {
+                index.remove(key);
+                liveBytes -= slot.length;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reset() {
+        index.clear();
+        liveBytes = 0;
+        generation++;
+        full = false;
+        logId = ThreadLocalRandom.current().nextLong();
+        writeHeader(log, logId);
+        writeAt(HEADER_SIZE, END_OF_LOG);
+        position = HEADER_SIZE;
+    }
+
+    private void scheduleCompaction() {
+        boolean due;
+        lock.lock();
+        try {
+            due = isCompactionDue();
+        } finally {
+            lock.unlock();
+        }
+        if (due) {
+            compactor.execute(() -> compactLog(true));
+        }
+    }
+
+    private boolean isCompactionDue() {
+        long garbage = position - HEADER_SIZE - liveBytes;
+        return !closed && garbage > 0 && (garbage >= compactionGarbageBytes || full);
+    }
+
+    private boolean compactLog(boolean onlyIfDue) {
+        Path compacted = logPath.resolveSibling(logPath.getFileName() + ".compact");
+        compactionLock.lock();
+        try {
+            Map<String, Slot> copied;
+            ByteBuffer source;
+            long copiedGeneration;
+            lock.lock();
+            try {
+                if (closed || onlyIfDue && !isCompactionDue()) {
+                    return false;
+                }
+                copied = new HashMap<>(index);
+                source = log.duplicate();
+                copiedGeneration = generation;
+            } finally {
+                lock.unlock();
+            }
+
+            Files.deleteIfExists(compacted);
+            MappedByteBuffer target = map(compacted);
+            long id = ThreadLocalRandom.current().nextLong();
+            writeHeader(target, id);
+            ByteBuffer destination = target.duplicate();
+            ((Buffer) destination).position(HEADER_SIZE);
+            Map<String, Slot> moved = new HashMap<>(copied.size() * 2);
+            for (Map.Entry<String, Slot> entry : copied.entrySet()) {
+                moved.put(entry.getKey(), copy(source, entry.getValue(), destination));
+            }
+            target.force();
+
+            Map<String, Slot> slots;
+            int end;
+            lock.lock();
+            try {
+                if (closed || generation != copiedGeneration) {
+                    return false;
+                }
+                slots = new HashMap<>(index.size() * 2);
+                ByteBuffer current = log.duplicate();
+                long live = 0;
+                for (Map.Entry<String, Slot> entry : index.entrySet()) {
+                    Slot slot = entry.getValue();
+                    Slot compactedSlot = copied.get(entry.getKey()) == slot ? moved.get(entry.getKey()) : null;
+                    if (compactedSlot == null) {
+                        // Written since the copy started, so it is copied now.
+                        if (slot.length > destination.remaining()) {
+                            return false;
+                        }
+                        compactedSlot = copy(current, slot, destination);
+                    }
+                    slots.put(entry.getKey(), compactedSlot);
+                    live += slot.length;
+                }
+                move(compacted, logPath);
+                log = target;
+                logId = id;
+                position = destination.position();
+                index.clear();
+                index.putAll(slots);
+                liveBytes = live;
+                generation++;
+                full = false;
+                end = position;
+            } finally {
+                lock.unlock();
+            }
+            compactions.increment();
+            writeIndex(id, end, slots);
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Cannot compact persistent cache {}", logPath, e);
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(compacted);
+            } catch (IOException e) {
+                LOGGER.warn("Cannot delete {}", compacted, e);
+            }
+            compactionLock.unlock();
+        }
+    }
+
+    private static Slot copy(ByteBuffer source, Slot slot, ByteBuffer destination) {
+        ((Buffer) source).clear();
+        ((Buffer) source).position(slot.offset);
+        ((Buffer) source).limit(slot.offset + slot.length);
+        Slot copied = new Slot(destination.position(), slot.length);
+        destination.put(source);
+        return copied;
+    }
+
+    private void writeIndex(long id, int end, Map<String, Slot> slots) throws IOException {
+        Path temporary = Files.createTempFile(indexPath.getParent(), indexPath.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(id);
+                out.writeInt(end);
+                out.writeInt(slots.size());
+                for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().offset);
+                    out.writeInt(entry.getValue().length);
+                }
+            }
+            move(temporary, indexPath);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private void writeAt(int offset, byte[] bytes) {
+        ByteBuffer destination = log.duplicate();
+        ((Buffer) destination).position(offset);
+        destination.put(bytes);
+    }
+
+    private static void writeHeader(ByteBuffer buffer, long id) {
+        buffer.putInt(0, LOG_MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, id);
+    }
+
+    private static byte[] record(byte[] key, byte[] value) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + key.length + (value == null ? 0 : value.length));
+        buffer.putInt(0);
+        buffer.putInt(key.length);
+        buffer.putInt(value == null ? TOMBSTONE : value.length);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.put(key);
+        if (value != null) {
+            buffer.put(value);
+        }
+        byte[] record = buffer.array();
+        buffer.putInt(0, checksum(record));
+        return record;
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, Integer.BYTES, record.length - Integer.BYTES);
+        return (int) crc.getValue();
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static final class Slot {
+
+        private final int offset;
+        private final int length;
+
+        private Slot(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class CompactionThreadFactory implements ThreadFactory {
+
+        private static final String NAME = "persistent-cache-compaction";
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, NAME);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.bookstore.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded set of tombstones for keys known to be absent from the repository, each kept
+ * for a fixed time.
+ *
+ * <p>
+ * A lookup of a tombstoned key is answered as absent without reaching the repository,
+ * so that repeated requests for keys that do not exist, such as random probes, cost no
+ * query. The set holds at most the given number of keys and drops the oldest
+ * tombstones first; a tombstone also expires after the given time, which bounds how
+ * long a value written by other means than {@link #invalidate(Object)} stays hidden.
+ * </p>
+ *
+ * <p>
+ * A lookup that found nothing may complete after a concurrent write of the same key,
+ * and would then tombstone a key that exists. To avoid it, a tombstone is only added
+ * with the {@link #stamp()} taken before the lookup, and is not added if any key was
+ * invalidated since.
+ * </p>
+ *
+ * @param <K> the type of keys
+ */
+public class NegativeCache<K> implements MeterBinder {
+
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Long> tombstones;
+    private long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder added = new LongAdder();
+
+    /**
+     * Constructs a new instance of {@link NegativeCache}.
+     *
+     * @param maxEntries the maximum number of tombstones
+     * @param ttlMillis the time after which a tombstone expires
+     */
+    public NegativeCache(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Invalid negative cache settings");
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.tombstones = new LinkedHashMap<K, Long>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns whether a key is known to be absent, counting the lookup as a hit or a miss.
+     *
+     * @param key the key looked up
+     * @return true if the key has an unexpired tombstone
+     */
+    public boolean contains(K key) {
+        return contains(key, true);
+    }
+
+    /**
+     * Returns whether a key is known to be absent, counting a tombstoned key as a hit.
+     *
+     * @param key the key looked up
+     * @param countMiss whether a key without a tombstone counts as a miss, for callers
+     *                  that go on to look it up through {@link #contains(Object)}
+     * @return true if the key has an unexpired tombstone
+     */
+    public boolean contains(K key, boolean countMiss) {
+        long now = System.nanoTime();
+        boolean absent;
+        lock.lock();
+        try {
+            Long expiresAt = tombstones.get(key);
+            absent = expiresAt != null && expiresAt - now > 0;
+            if (expiresAt != null && !absent) {
+                tombstones.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (absent) {
+            hits.increment();
+        } else if (countMiss) {
+            misses.increment();
+        }
+        return absent;
+    }
+
+    /**
+     * Returns the stamp to pass to {@link #add(Object, long)} for a lookup about to start.
+     *
+     * @return the current stamp
+     */
+    public long stamp() {
+        lock.lock();
+        try {
+            return invalidations;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tombstones a key found absent, unless a key was invalidated since the lookup started.
+     *
+     * @param key the key found absent
+     * @param stamp the {@link #stamp()} taken before the lookup
+     * @return true if the key was tombstoned
+     */
+    public boolean add(K key, long stamp) {
+        long expiresAt = System.nanoTime() + ttlNanos;
+        lock.lock();
+        try {
+            if (stamp != invalidations) {
+                return false;
+            }
+            // Re-inserted so that the set stays ordered by expiry.
+            tombstones.remove(key);
+            tombstones.put(key, expiresAt);
+        } finally {
+            lock.unlock();
+        }
+        added.increment();
+        return true;
+    }
+
+    /**
+     * Removes the tombstone of a key that is about to be written.
+     *
+     * @param key the key written
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            invalidations++;
+            tombstones.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the tombstones of several keys that are about to be written.
+     *
+     * @param keys the keys written
+     */
+    public void invalidateAll(Collection<K> keys) {
+        lock.lock();
+        try {
+            invalidations++;
+            keys.forEach(tombstones::remove);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of unexpired tombstones, dropping the expired ones.
+     *
+     * @return the number of tombstones
+     */
+    public int size() {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Iterator<Long> expiries = tombstones.values().iterator();
+            while (expiries.hasNext() && expiries.next() - now <= 0) {
+                expiries.remove();
+            }
+            return tombstones.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of lookups answered from a tombstone.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups of keys without a tombstone.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of tombstones added.
+     *
+     * @return the number of tombstones added
+     */
+    public long getAdded() {
+        return added.sum();
+    }
+
+    /**
+     * Registers the negative cache meters with the given registry.
+     *
+     * @param registry the registry to register the meters with
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("bookstore.cache.negative", this, NegativeCache::getHits)
+                .tag("result", "hit")
+                .description("The number of lookups answered as absent from a tombstone")
+                .register(registry);
+        FunctionCounter.builder("bookstore.cache.negative", this, NegativeCache::getMisses)
+                .tag("result", "miss")
+                .description("The number of lookups of keys without a tombstone")
+                .register(registry);
+        FunctionCounter.builder("bookstore.cache.negative.added", this, NegativeCache::getAdded)
+                .description("The number of keys found absent and tombstoned")
+                .register(registry);
+        Gauge.builder("bookstore.cache.negative.size", this, NegativeCache::size)
+                .description("The number of tombstones")
+                .register(registry);
+    }
+}
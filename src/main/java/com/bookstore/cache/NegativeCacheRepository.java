@@ -0,0 +1,175 @@
+package com.bookstore.cache;
+
+import org.swiftcache.cacherepository.ICacheRepository;
+import org.swiftcache.utils.TriFunction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link BatchCacheRepository} answering lookups of keys known to be absent from a
+ * {@link NegativeCache} in front of another repository.
+ *
+ * <p>
+ * Passed to a local cache in place of the repository it wraps, it keeps the misses
+ * on keys that do not exist from reaching the repository again until their tombstone
+ * expires: keys the repository does not hold are tombstoned, and tombstoned keys are
+ * returned as absent without a lookup.
+ * </p>
+ *
+ * <p>
+ * Writes and deletes remove the tombstones of their keys before they are applied to
+ * the repository, so that a saved value is found by the next lookup.
+ * </p>
+ *
+ * @param <V> the type of stored values
+ */
+public class NegativeCacheRepository<V> implements BatchCacheRepository<String, V> {
+
+    private final NegativeCache<String> negativeCache;
+    private final BatchCacheRepository<String, V> repository;
+
+    /**
+     * Constructs a new instance of {@link NegativeCacheRepository}.
+     *
+     * @param negativeCache the tombstones of the keys known to be absent
+     * @param repository the repository behind the tombstones
+     */
+    public NegativeCacheRepository(NegativeCache<String> negativeCache, BatchCacheRepository<String, V> repository) {
+        this.negativeCache = negativeCache;
+        this.repository = repository;
+    }
+
+    /**
+     * Retrieves a value from the repository, unless its key is tombstoned, and
+     * tombstones the key if the repository does not hold it.
+     *
+     * @param key the key of the value
+     * @return the value, or null if the key is tombstoned or the repository does not hold it
+     */
+    @Override
+    public V get(String key) {
+        if (negativeCache.contains(key)) {
+            return null;
+        }
+        long stamp = negativeCache.stamp();
+        V value = repository.get(key);
+        if (value == null) {
+            negativeCache.add(key, stamp);
+        }
+        return value;
+    }
+
+    /**
+     * Removes the tombstone of a key and writes its value to the repository.
+     *
+     * @param key the key of the value
+     * @param value the value to write
+     */
+    @Override
+    public void put(String key, V value) {
+        negativeCache.invalidate(key);
+        repository.put(key, value);
+    }
+
+    /**
+     * Deletes a value from the repository, leaving its key to be tombstoned by the next lookup.
+     *
+     * @param key the key of the value
+     */
+    @Override
+    public void remove(String key) {
+        negativeCache.invalidate(key);
+        repository.remove(key);
+    }
+
+    /**
+     * Retrieves several values, reading the ones whose key is not tombstoned from the
+     * repository in a single batch and tombstoning the keys it does not hold.
+     *
+     * @param keys the keys of the values
+     * @return the values found, keyed by their key
+     */
+    @Override
+    public Map<String, V> getAll(Collection<String> keys) {
+        List<String> unknown = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            if (!negativeCache.contains(key)) {
+                unknown.add(key);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return new HashMap<>();
+        }
+        long stamp = negativeCache.stamp();
+        Map<String, V> values = repository.getAll(unknown);
+        for (String key : unknown) {
+            if (!values.containsKey(key)) {
+                negativeCache.add(key, stamp);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reloads a value from the repository without consulting the tombstones.
+     *
+     * @param key the key of the value
+     * @return the value, or null if the repository no longer holds it
+     */
+    @Override
+    public V reload(String key) {
+        return repository.reload(key);
+    }
+
+    /**
+     * Reloads several values from the repository in a single batch without consulting the tombstones.
+     *
+     * @param keys the keys of the values
+     * @return the values found, keyed by their key
+     */
+    @Override
+    public Map<String, V> reloadAll(Collection<String> keys) {
+        return repository.reloadAll(keys);
+    }
+
+    /**
+     * Removes the tombstones of several keys and writes their values to the repository in a single batch.
+     *
+     * @param values the values to write, keyed by their key
+     */
+    @Override
+    public void putAll(Map<String, V> values) {
+        negativeCache.invalidateAll(values.keySet());
+        repository.putAll(values);
+    }
+
+    /**
+     * Deletes several values from the repository in a single batch.
+     *
+     * @param keys the keys of the values
+     */
+    @Override
+    public void removeAll(Collection<String> keys) {
+        negativeCache.invalidateAll(keys);
+        repository.removeAll(keys);
+    }
+
+    /**
+     * Executes the given operation against this repository.
+     *
+     * @param operation the operation to be executed
+     * @param key the key passed to the operation
+     * @param value the value passed to the operation
+     * @param <R> the type of the result returned by the operation
+     * @return the result of the operation
+     */
+    @Override
+    public <R> R executeWithCache(TriFunction<ICacheRepository<String, V>, String, V, R> operation, String key,
+                                  V value) {
+        return operation.apply(this, key, value);
+    }
+}
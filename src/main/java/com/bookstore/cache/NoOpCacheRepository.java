@@ -0,0 +1,64 @@
+package com.bookstore.cache;
+
+import org.swiftcache.cacherepository.ICacheRepository;
+import org.swiftcache.utils.TriFunction;
+
+/**
+ * {@link ICacheRepository} without a data source behind it.
+ *
+ * <p>
+ * Passing it to a cache operation confines that operation to the cache itself,
+ * for example to invalidate a key without deleting it from any store.
+ * </p>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class NoOpCacheRepository<K, V> implements ICacheRepository<K, V> {
+
+    /**
+     * Always returns null, since there is no data source to load from.
+     *
+     * @param key the key of the value
+     * @return null
+     */
+    @Override
+    public V get(K key) {
+        return null;
+    }
+
+    /**
+     * Does nothing.
+     *
+     * @param key the key of the value
+     * @param value the value
+     */
+    @Override
+    public void put(K key, V value) {
+        // Nothing to write to
+    }
+
+    /**
+     * Does nothing.
+     *
+     * @param key the key of the value
+     */
+    @Override
+    public void remove(K key) {
+        // Nothing to remove from
+    }
+
+    /**
+     * Executes the given operation against this repository.
+     *
+     * @param operation the operation to be executed
+     * @param key the key passed to the operation
+     * @param value the value passed to the operation
+     * @param <R> the type of the result returned by the operation
+     * @return the result of the operation
+     */
+    @Override
+    public <R> R executeWithCache(TriFunction<ICacheRepository<K, V>, K, V, R> operation, K key, V value) {
+        return operation.apply(this, key, value);
+    }
+}
@@ -0,0 +1,344 @@
+package com.bookstore.cache;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link CacheTier} storing encoded values in direct {@link ByteBuffer} slabs outside
+ * the Java heap, sized in bytes rather than entries.
+ *
+ * <p>
+ * The capacity is divided into fixed-size slabs that are allocated on demand and
+ * filled as an append-only log: every write is encoded with a {@link ValueCodec} and
+ * appended to the current slab, and only a small index of keys to slab offsets stays
+ * on the heap. When the last slab is full, the oldest slab is recycled and every entry
+ * still pointing into it is evicted, so allocation and eviction are O(1) per entry and
+ * the garbage collector never scans the cached values. Space used by overwritten or
+ * removed entries is reclaimed when their slab is recycled.
+ * </p>
+ *
+ * <p>
+ * Keys are spread by hash over independent stripes, each a log of its own slabs with
+ * its own index and lock, so that writers of different stripes do not wait for each
+ * other, like the segments of {@link StripedSwiftCache}. A stripe only copies bytes
+ * while holding its lock; values are encoded and decoded outside of it. Slabs are
+ * recycled per stripe, so the evicted entries are the oldest of their stripe rather
+ * than of the whole tier.
+ * </p>
+ *
+ * @param <K> the type of keys maintained by the tier
+ * @param <V> the type of stored values
+ */
+public class OffHeapTier<K, V> implements CacheTier<K, V> {
+
+    private final ValueCodec<V> codec;
+    private final int slabSize;
+    private final List<Stripe> stripes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a new instance of {@link OffHeapTier} with a single stripe.
+     *
+     * @param codec the encoding of stored values
+     * @param capacityBytes the maximum number of off-heap bytes, rounded down to whole slabs
+     * @param slabSize the size of each slab in bytes, which also bounds the size of a single encoded value
+     */
+    public OffHeapTier(ValueCodec<V> codec, long capacityBytes, int slabSize) {
+        this(codec, capacityBytes, slabSize, 1);
+    }
+
+    /**
+     * Constructs a new instance of {@link OffHeapTier} whose slabs are divided among stripes.
+     *
+     * @param codec the encoding of stored values
+     * @param capacityBytes the maximum number of off-heap bytes, rounded down to whole slabs
+     * @param slabSize the size of each slab in bytes, which also bounds the size of a single encoded value
+     * @param concurrencyLevel the number of stripes, reduced to the number of slabs if there are fewer
+     */
+    public OffHeapTier(ValueCodec<V> codec, long capacityBytes, int slabSize, int concurrencyLevel) {
+        if (slabSize <= 0 || capacityBytes < slabSize || capacityBytes / slabSize > Integer.MAX_VALUE
+                || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Invalid off-heap tier settings");
+        }
+        this.codec = codec;
+        this.slabSize = slabSize;
+        int slabCount = (int) (capacityBytes / slabSize);
+        int stripeCount = Math.min(concurrencyLevel, slabCount);
+        this.stripes = new ArrayList<>(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            // The first stripes take one more slab each so that the stripes hold every slab.
+            stripes.add(new Stripe(slabCount / stripeCount + (i < slabCount % stripeCount ? 1 : 0)));
+        }
+    }
+
+    /**
+     * Encodes a value and appends it to the current slab of its stripe. Values larger than a slab are not stored.
+     *
+     * @param key the key of the value
+     * @param value the value
+     */
+    @Override
+    public void put(K key, V value) {
+        stripeFor(key).put(key, codec.encode(value));
+    }
+
+    /**
+     * Removes a value from the tier and decodes it.
+     *
+     * @param key the key of the value
+     * @return the removed value, or null if the tier did not hold the key
+     */
+    @Override
+    public V take(K key) {
+        byte[] bytes = stripeFor(key).take(key);
+        if (bytes == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return codec.decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Invalidates a value without counting the lookup.
+     *
+     * @param key the key of the value
+     */
+    @Override
+    public void remove(K key) {
+        stripeFor(key).remove(key);
+    }
+
+    /**
+     * Removes all values. Allocated slabs are kept and reused.
+     */
+    @Override
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * Returns the number of values held by the tier.
+     *
+     * @return the number of values
+     */
+    @Override
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns a snapshot of the tier's counters, taking the lock of one stripe at a time.
+     *
+     * @return the tier statistics
+     */
+    @Override
+    public TierStats getStats() {
+        long entries = 0;
+        long usedBytes = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                entries += stripe.index.size();
+                usedBytes += stripe.usedBytes;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return new TierStats("off-heap", hits.sum(), misses.sum(), evictions.sum(), entries, usedBytes);
+    }
+
+    /**
+     * Returns the number of bytes of direct memory allocated so far.
+     *
+     * @return the allocated bytes
+     */
+    public long getAllocatedBytes() {
+        long allocated = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                allocated += (long) stripe.slabs.size() * slabSize;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return allocated;
+    }
+
+    private Stripe stripeFor(K key) {
+        int h = key.hashCode();
+        return stripes.get(((h ^ (h >>> 16)) & Integer.MAX_VALUE) % stripes.size());
+    }
+
+    /**
+     * An append-only log of slabs holding the values of the keys hashed to it.
+     */
+    private final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<K, Slot<K>> index = new HashMap<>();
+        private final List<Slab<K>> slabs;
+        private final int maxSlabs;
+        private int current;
+        private long usedBytes;
+
+        Stripe(int maxSlabs) {
+            this.maxSlabs = maxSlabs;
+            this.slabs = new ArrayList<>(maxSlabs);
+        }
+
+        void put(K key, byte[] bytes) {
+            lock.lock();
+            try {
+                release(index.remove(key));
+                if (bytes.length > slabSize) {
+                    return;
+                }
+                Slab<K> slab = slabFor(bytes.length);
+                ByteBuffer buffer = slab.buffer.duplicate();
+                ((Buffer) buffer).position(slab.writeOffset);
+                buffer.put(bytes);
+                index.put(key, new Slot<>(slab, slab.writeOffset, bytes.length));
+                slab.keys.add(key);
+                slab.writeOffset += bytes.length;
+                usedBytes += bytes.length;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        byte[] take(K key) {
+            lock.lock();
+            try {
+                Slot<K> slot = index.remove(key);
+                if (slot == null) {
+                    return null;
+                }
+                byte[] bytes = new byte[slot.length];
+                ByteBuffer buffer = slot.slab.buffer.duplicate();
+                ((Buffer) buffer).position(slot.offset);
+                buffer.get(bytes);
+                release(slot);
+                return bytes;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(K key) {
+            lock.lock();
+            try {
+                release(index.remove(key));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                index.clear();
+                for (Slab<K> slab : slabs) {
+                    slab.reset();
+                }
+                current = 0;
+                usedBytes = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return index.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Slab<K> slabFor(int length) {
+            if (!slabs.isEmpty()) {
+                Slab<K> slab = slabs.get(current);
+                if (slab.writeOffset + length <= slabSize) {
+                    return slab;
+                }
+            }
+            if (slabs.size() < maxSlabs) {
+                Slab<K> slab = new Slab<>(slabSize);
+                slabs.add(slab);
+                current = slabs.size() - 1;
+                return slab;
+            }
+            current = (current + 1) % maxSlabs;
+            Slab<K> slab = slabs.get(current);
+            for (K key : slab.keys) {
+                Slot<K> slot = index.get(key);
+                if (slot != null && slot.slab == slab) {
+                    index.remove(key);
+                    usedBytes -= slot.length;
+                    evictions.increment();
+                }
+            }
+            slab.reset();
+            return slab;
+        }
+
+        private void release(Slot<K> slot) {
+            if (slot != null) {
+                usedBytes -= slot.length;
+            }
+        }
+    }
+
+    /**
+     * A direct buffer filled from the start, together with the keys written into it.
+     */
+    private static final class Slab<K> {
+
+        private final ByteBuffer buffer;
+        private final List<K> keys = new ArrayList<>();
+        private int writeOffset;
+
+        Slab(int size) {
+            this.buffer = ByteBuffer.allocateDirect(size);
+        }
+
+        void reset() {
+            keys.clear();
+            writeOffset = 0;
+        }
+    }
+
+    /**
+     * The location of an encoded value.
+     */
+    private static final class Slot<K> {
+
+        private final Slab<K> slab;
+        private final int offset;
+        private final int length;
+
+        Slot(Slab<K> slab, int offset, int length) {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.bookstore.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftcache.cacherepository.ICacheRepository;
+import org.swiftcache.utils.TriFunction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * {@link BatchCacheRepository} placing a {@link MappedFileCache} in front of another repository.
+ *
+ * <p>
+ * Passed to a local cache in place of the repository it wraps, it makes the file on
+ * local disk the level behind the heap: misses are looked up in the file before the
+ * repository, and values loaded from the repository are appended to it, so that they
+ * are still served without a database round trip after a restart.
+ * </p>
+ *
+ * <p>
+ * Writes and deletes first remove the value from the file, then are applied to the
+ * repository, and writes finally append the new value. A crash or a failed write in
+ * between therefore leaves no value in the file rather than an outdated one. A failing
+ * file never fails an operation; the failure is logged and counted.
+ * </p>
+ *
+ * <p>
+ * A value loaded from the repository is only appended if its key was not written or
+ * removed in the file since the load started, so that a load racing a write cannot
+ * leave the older value behind. Deletes remove the value from the file once more after
+ * the repository, in case a load read it before it was deleted there.
+ * </p>
+ *
+ * <p>
+ * Reloads of aging cache entries, such as refresh-ahead reloads, bypass the file so
+ * that they reach the repository, and replace the copy in the file with what they read.
+ * </p>
+ *
+ * @param <V> the type of stored values
+ */
+public class PersistentCacheRepository<V> implements BatchCacheRepository<String, V> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentCacheRepository.class);
+
+    private final MappedFileCache<V> fileCache;
+    private final BatchCacheRepository<String, V> repository;
+
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Constructs a new instance of {@link PersistentCacheRepository}.
+     *
+     * @param fileCache the cache on local disk
+     * @param repository the repository behind the file
+     */
+    public PersistentCacheRepository(MappedFileCache<V> fileCache, BatchCacheRepository<String, V> repository) {
+        this.fileCache = fileCache;
+        this.repository = repository;
+    }
+
+    /**
+     * Retrieves a value from the file, or from the repository if the file does not
+     * hold it, in which case it is appended to the file.
+     *
+     * @param key the key of the value
+     * @return the value, or null if the repository does not hold it
+     */
+    @Override
+    public V get(String key) {
+        V value = null;
+        try {
+            value = fileCache.get(key);
+        } catch (RuntimeException e) {
+            failed(e);
+        }
+        if (value != null) {
+            return value;
+        }
+        long stamp = stamp(key);
+        value = repository.get(key);
+        if (value != null) {
+            V loaded = value;
+            apply(file -> file.fill(key, loaded, stamp));
+        }
+        return value;
+    }
+
+    /**
+     * Reloads a value from the repository without consulting the file, and replaces the
+     * copy in the file with it, or removes that copy if the repository no longer holds it.
+     *
+     * @param key the key of the value
+     * @return the value, or null if the repository no longer holds it
+     */
+    @Override
+    public V reload(String key) {
+        long stamp = stamp(key);
+        V value = repository.reload(key);
+        if (value != null) {
+            apply(file -> file.fill(key, value, stamp));
+        } else {
+            apply(file -> file.remove(key));
+        }
+        return value;
+    }
+
+    /**
+     * Reloads several values from the repository in a single batch without consulting
+     * the file, and replaces or removes their copies in the file.
+     *
+     * @param keys the keys of the values
+     * @return the values found, keyed by their key
+     */
+    @Override
+    public Map<String, V> reloadAll(Collection<String> keys) {
+        Map<String, Long> stamps = new HashMap<>();
+        for (String key : keys) {
+            stamps.put(key, stamp(key));
+        }
+        Map<String, V> values = repository.reloadAll(keys);
+        apply(file -> {
+            for (String key : keys) {
+                V value = values.get(key);
+                if (value != null) {
+                    file.fill(key, value, stamps.get(key));
+                } else {
+                    file.remove(key);
+                }
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Removes a value from the file, writes it to the repository and appends it to the file.
+     *
+     * @param key the key of the value
+     * @param value the value to write
+     */
+    @Override
+    public void put(String key, V value) {
+        apply(file -> file.remove(key));
+        repository.put(key, value);
+        apply(file -> file.put(key, value));
+    }
+
+    /**
+     * Removes a value from the file, deletes it from the repository and removes it from the file again.
+     *
+     * @param key the key of the value
+     */
+    @Override
+    public void remove(String key) {
+        apply(file -> file.remove(key));
+        repository.remove(key);
+        apply(file -> file.remove(key));
+    }
+
+    /**
+     * Retrieves several values, reading the ones the file does not hold from the
+     * repository in a single batch and appending them to the file.
+     *
+     * @param keys the keys of the values
+     * @return the values found, keyed by their key
+     */
+    @Override
+    public Map<String, V> getAll(Collection<String> keys) {
+        Map<String, V> values = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            V value = null;
+            try {
+                value = fileCache.get(key);
+            } catch (RuntimeException e) {
+                failed(e);
+            }
+            if (value != null) {
+                values.put(key, value);
+            } else {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return values;
+        }
+        Map<String, Long> stamps = new HashMap<>();
+        for (String key : missing) {
+            stamps.put(key, stamp(key));
+        }
+        Map<String, V> loaded = repository.getAll(missing);
+        apply(file -> loaded.forEach((key, value) -> file.fill(key, value, stamps.get(key))));
+        values.putAll(loaded);
+        return values;
+    }
+
+    /**
+     * Removes several values from the file, writes them to the repository in a single
+     * batch and appends them to the file.
+     *
+     * @param values the values to write, keyed by their key
+     */
+    @Override
+    public void putAll(Map<String, V> values) {
+        apply(file -> values.keySet().forEach(file::remove));
+        repository.putAll(values);
+        apply(file -> values.forEach(file::put));
+    }
+
+    /**
+     * Removes several values from the file, deletes them from the repository in a single
+     * batch and removes them from the file again.
+     *
+     * @param keys the keys of the values
+     */
+    @Override
+    public void removeAll(Collection<String> keys) {
+        apply(file -> keys.forEach(file::remove));
+        repository.removeAll(keys);
+        apply(file -> keys.forEach(file::remove));
+    }
+
+    /**
+     * Executes the given operation against this repository.
+     *
+     * @param operation the operation to be executed
+     * @param key the key passed to the operation
+     * @param value the value passed to the operation
+     * @param <R> the type of the result returned by the operation
+     * @return the result of the operation
+     */
+    @Override
+    public <R> R executeWithCache(TriFunction<ICacheRepository<String, V>, String, V, R> operation, String key,
+                                  V value) {
+        return operation.apply(this, key, value);
+    }
+
+    /**
+     * Returns the number of file operations that failed.
+     *
+     * @return the number of failures
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    private long stamp(String key) {
+        try {
+            return fileCache.stamp(key);
+        } catch (RuntimeException e) {
+            failed(e);
+            // A value is then never appended, as no stamp is negative.
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private void apply(Consumer<MappedFileCache<V>> operation) {
+        try {
+            operation.accept(fileCache);
+        } catch (RuntimeException e) {
+            failed(e);
+        }
+    }
+
+    private void failed(RuntimeException e) {
+        failures.increment();
+        LOGGER.warn("Persistent cache operation failed", e);
+    }
+}
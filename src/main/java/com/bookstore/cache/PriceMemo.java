@@ -0,0 +1,391 @@
+package com.bookstore.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Memo of computed prices with a coalescing write-back of the priced values.
+ *
+ * <p>
+ * The memo keeps the last price computed for each key together with the input price
+ * and the version of the pricing rule it was computed from, so a repeated calculation
+ * with the same inputs is answered without running the rule again. It holds at most
+ * the given number of keys and drops the least recently used ones first.
+ * </p>
+ *
+ * <p>
+ * Priced values waiting to be written are kept per key, a newer value replacing an
+ * older one that has not been written yet, and handed to the writer in one batch at
+ * a fixed interval. {@link #invalidate(Object)} drops both the memoized price and the
+ * pending value of a key, and waits for a batch being written, so that a value written
+ * by other means afterwards is never overwritten by an older priced one. The values of
+ * a batch the writer fails on are queued again for the next write-back, unless their
+ * key has been priced again or invalidated in the meantime.
+ * </p>
+ *
+ * @param <K> the type of keys priced by this memo
+ * @param <V> the type of priced values
+ */
+public class PriceMemo<K, V> implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PriceMemo.class);
+
+    private final long flushIntervalMillis;
+    private final ScheduledThreadPoolExecutor executor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Map<K, Memo> prices;
+    private Map<K, V> pending = new LinkedHashMap<>();
+    private Consumer<Map<K, V>> writer;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalescedWrites = new LongAdder();
+    private final LongAdder flushedWrites = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+
+    /**
+     * Constructs a new instance of {@link PriceMemo}.
+     *
+     * @param maxEntries the maximum number of keys whose price is memoized
+     * @param flushIntervalMillis the time between two write-backs
+     */
+    public PriceMemo(int maxEntries, long flushIntervalMillis) {
+        this(maxEntries, flushIntervalMillis, null);
+    }
+
+    /**
+     * Constructs a new instance of {@link PriceMemo} whose write-backs run on a thread of the given factory.
+     *
+     * @param maxEntries the maximum number of keys whose price is memoized
+     * @param flushIntervalMillis the time between two write-backs
+     * @param threadFactory the factory of the write-back thread, or null for a daemon platform thread
+     */
+    public PriceMemo(int maxEntries, long flushIntervalMillis, ThreadFactory threadFactory) {
+        if (maxEntries <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Invalid price memo settings");
+        }
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.prices = new LinkedHashMap<K, Memo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Memo> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.executor = new ScheduledThreadPoolExecutor(1,
+                threadFactory != null ? threadFactory : new WriteBackThreadFactory());
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Starts writing pending values back with the given writer at the configured interval.
+     *
+     * @param writer writes a batch of priced values, keyed by their key
+     */
+    public void start(Consumer<Map<K, V>> writer) {
+        lock.lock();
+        try {
+            if (this.writer != null) {
+                throw new IllegalStateException("Price memo already started");
+            }
+            this.writer = writer;
+        } finally {
+            lock.unlock();
+        }
+        executor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the price memoized for a key, provided it was computed from the same inputs.
+     *
+     * @param key the key of the priced value
+     * @param inputPrice the price the calculation starts from
+     * @param ruleVersion the version of the pricing rule
+     * @return the memoized price, or null if it has to be computed
+     */
+    public Double get(K key, double inputPrice, long ruleVersion) {
+        Memo memo;
+        lock.lock();
+        try {
+            memo = prices.get(key);
+        } finally {
+            lock.unlock();
+        }
+        if (memo == null || Double.compare(memo.inputPrice, inputPrice) != 0 || memo.ruleVersion != ruleVersion) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return memo.price;
+    }
+
+    /**
+     * Memoizes the price computed for a key.
+     *
+     * @param key the key of the priced value
+     * @param inputPrice the price the calculation started from
+     * @param ruleVersion the version of the pricing rule
+     * @param price the computed price
+     */
+    public void put(K key, double inputPrice, long ruleVersion, double price) {
+        Memo memo = new Memo(inputPrice, ruleVersion, price);
+        lock.lock();
+        try {
+            prices.put(key, memo);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a priced value for the next write-back, replacing a value of the same key still waiting.
+     *
+     * @param key the key of the value
+     * @param value the priced value
+     */
+    public void writeBack(K key, V value) {
+        lock.lock();
+        try {
+            if (pending.put(key, value) != null) {
+                coalescedWrites.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the memoized price and the pending value of a key, waiting for a write-back
+     * in progress to complete so that it cannot overwrite a value written afterwards.
+     *
+     * @param key the key of the value
+     */
+    public void invalidate(K key) {
+        flushLock.lock();
+        try {
+            lock.lock();
+            try {
+                prices.remove(key);
+                pending.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Hands every pending value to the writer in a single batch.
+     *
+     * @return the number of values written
+     * @throws RuntimeException if the writer fails, in which case the prices of the batch are forgotten and
+     *         its values are queued again unless a newer value of the same key is pending
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushLocked() {
+        Map<K, V> batch;
+        Consumer<Map<K, V>> batchWriter;
+        lock.lock();
+        try {
+            if (pending.isEmpty() || writer == null) {
+                return 0;
+            }
+            batch = pending;
+            batchWriter = writer;
+            pending = new LinkedHashMap<>();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            batchWriter.accept(batch);
+        } catch (RuntimeException e) {
+            failedWrites.add(batch.size());
+            lock.lock();
+            try {
+                // Keys written or invalidated since have been replaced or must stay dropped.
+                batch.forEach(pending::putIfAbsent);
+                batch.keySet().forEach(prices::remove);
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        flushedWrites.add(batch.size());
+        return batch.size();
+    }
+
+    /**
+     * Stops the periodic write-backs and writes the values still pending.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    /**
+     * Returns the number of keys whose price is memoized.
+     *
+     * @return the number of memoized prices
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return prices.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of priced values waiting to be written.
+     *
+     * @return the number of pending values
+     */
+    public int getPendingWrites() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of calculations answered from the memo.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of calculations the memo could not answer.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of pending values replaced by a newer value of the same key.
+     *
+     * @return the number of coalesced writes
+     */
+    public long getCoalescedWrites() {
+        return coalescedWrites.sum();
+    }
+
+    /**
+     * Returns the number of values handed to the writer successfully.
+     *
+     * @return the number of flushed writes
+     */
+    public long getFlushedWrites() {
+        return flushedWrites.sum();
+    }
+
+    /**
+     * Returns the number of values in batches the writer failed on.
+     *
+     * @return the number of failed writes
+     */
+    public long getFailedWrites() {
+        return failedWrites.sum();
+    }
+
+    /**
+     * Registers the price memo meters with the given registry.
+     *
+     * @param registry the registry to register the meters with
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("bookstore.pricing.memo", this, PriceMemo::getHits)
+                .tag("result", "hit")
+                .description("The number of price calculations answered from the memo")
+                .register(registry);
+        FunctionCounter.builder("bookstore.pricing.memo", this, PriceMemo::getMisses)
+                .tag("result", "miss")
+                .description("The number of price calculations that ran the pricing rule")
+                .register(registry);
+        Gauge.builder("bookstore.pricing.memo.size", this, PriceMemo::size)
+                .description("The number of memoized prices")
+                .register(registry);
+        Gauge.builder("bookstore.pricing.write-back.pending", this, PriceMemo::getPendingWrites)
+                .description("The number of priced books waiting to be written")
+                .register(registry);
+        FunctionCounter.builder("bookstore.pricing.write-back.coalesced", this, PriceMemo::getCoalescedWrites)
+                .description("The number of priced books replaced by a newer price before being written")
+                .register(registry);
+        FunctionCounter.builder("bookstore.pricing.write-back.flushed", this, PriceMemo::getFlushedWrites)
+                .description("The number of priced books written")
+                .register(registry);
+        FunctionCounter.builder("bookstore.pricing.write-back.failed", this, PriceMemo::getFailedWrites)
+                .description("The number of priced books that could not be written")
+                .register(registry);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Price write-back failed", e);
+        }
+    }
+
+    private static final class Memo {
+
+        private final double inputPrice;
+        private final long ruleVersion;
+        private final double price;
+
+        private Memo(double inputPrice, long ruleVersion, double price) {
+            this.inputPrice = inputPrice;
+            this.ruleVersion = ruleVersion;
+            this.price = price;
+        }
+    }
+
+    private static final class WriteBackThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "price-write-back-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
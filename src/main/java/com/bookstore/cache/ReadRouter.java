@@ -0,0 +1,335 @@
+package com.bookstore.cache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Sends each read to whichever of a primary and a secondary store currently answers faster.
+ *
+ * <p>
+ * The router keeps the latencies of the last reads of each store and sends a read to
+ * the healthy store with the lower median, except for one read in
+ * {@value #PROBE_INTERVAL} which goes to the other store so that its latency stays
+ * known. A store that fails several reads in a row stops receiving reads until a
+ * cool-down has passed; the next read then tries it again.
+ * </p>
+ *
+ * <p>
+ * With hedging enabled, reads run on a dedicated pool. If the chosen store has not
+ * answered within its own 95th percentile latency, the same read is sent to the other
+ * store and whichever answers first wins; the slower read is left to complete in the
+ * background. When no pool thread is idle, reads run on the calling thread without
+ * hedging.
+ * </p>
+ *
+ * <p>
+ * The primary store is authoritative. An answer of the secondary store that the caller
+ * does not consider complete, such as a missing value, is only used once the primary
+ * store has confirmed it or failed.
+ * </p>
+ */
+public class ReadRouter {
+
+    private static final int PROBE_INTERVAL = 20;
+    private static final int WINDOW_SIZE = 256;
+    private static final int SORT_INTERVAL = 16;
+
+    private final Store primary;
+    private final Store secondary;
+    private final ThreadPoolExecutor executor;
+    private final long minHedgeDelayNanos;
+    private final int failureThreshold;
+    private final long retryAfterNanos;
+    private final AtomicLong routed = new AtomicLong();
+
+    /**
+     * Constructs a new instance of {@link ReadRouter}.
+     *
+     * @param primaryName the name of the primary store
+     * @param secondaryName the name of the secondary store
+     * @param hedgeThreads the number of threads running reads, or 0 to read on the calling thread without hedging
+     * @param minHedgeDelayMillis the shortest time to wait for the chosen store before hedging
+     * @param failureThreshold the number of consecutive failures after which a store stops receiving reads
+     * @param retryAfterMillis how long a failing store stops receiving reads
+     */
+    public ReadRouter(String primaryName, String secondaryName, int hedgeThreads, long minHedgeDelayMillis,
+                      int failureThreshold, long retryAfterMillis) {
+        this(primaryName, secondaryName, hedgeThreads, minHedgeDelayMillis, failureThreshold, retryAfterMillis, null);
+    }
+
+    /**
+     * Constructs a new instance of {@link ReadRouter} whose reads run on threads of the given factory.
+     *
+     * @param primaryName the name of the primary store
+     * @param secondaryName the name of the secondary store
+     * @param hedgeThreads the number of threads running reads, or 0 to read on the calling thread without hedging
+     * @param minHedgeDelayMillis the shortest time to wait for the chosen store before hedging
+     * @param failureThreshold the number of consecutive failures after which a store stops receiving reads
+     * @param retryAfterMillis how long a failing store stops receiving reads
+     * @param threadFactory the factory of the reading threads, or null for daemon platform threads
+     */
+    public ReadRouter(String primaryName, String secondaryName, int hedgeThreads, long minHedgeDelayMillis,
+                      int failureThreshold, long retryAfterMillis, ThreadFactory threadFactory) {
+        if (hedgeThreads < 0 || minHedgeDelayMillis < 0 || failureThreshold <= 0 || retryAfterMillis < 0) {
+            throw new IllegalArgumentException("Invalid read routing settings");
+        }
+        this.primary = new Store(primaryName);
+        this.secondary = new Store(secondaryName);
+        this.minHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(minHedgeDelayMillis);
+        this.failureThreshold = failureThreshold;
+        this.retryAfterNanos = TimeUnit.MILLISECONDS.toNanos(retryAfterMillis);
+        this.executor = hedgeThreads == 0 ? null : new ThreadPoolExecutor(hedgeThreads, hedgeThreads,
+                0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                threadFactory != null ? threadFactory : new ReadThreadFactory());
+    }
+
+    /**
+     * Reads from the faster store, hedging with the other one when the first is slow.
+     *
+     * @param primaryRead the read from the primary store
+     * @param secondaryRead the same read from the secondary store
+     * @param complete whether an answer of the secondary store can be used without asking the primary store
+     * @param <T> the type of the result
+     * @return the first usable answer
+     * @throws RuntimeException the failure of the first store tried if neither store answered
+     */
+    public <T> T read(Supplier<T> primaryRead, Supplier<T> secondaryRead, Predicate<T> complete) {
+        Store first = choose();
+        Store second = first == primary ? secondary : primary;
+        Supplier<T> firstRead = first == primary ? primaryRead : secondaryRead;
+        Supplier<T> secondRead = first == primary ? secondaryRead : primaryRead;
+        first.reads.increment();
+
+        BlockingQueue<Outcome<T>> outcomes = new LinkedBlockingQueue<>();
+        if (executor == null || !second.isAvailable() || !submit(first, firstRead, complete, outcomes)) {
+            Outcome<T> outcome = attempt(first, firstRead, complete);
+            if (outcome.answered || !second.isAvailable() && outcome.failure == null) {
+                return outcome.resolve();
+            }
+            return better(outcome, attempt(second, secondRead, complete)).resolve();
+        }
+
+        int pending = 1;
+        boolean secondStarted = false;
+        Outcome<T> best = null;
+        long hedgeDelay = Math.max(minHedgeDelayNanos, first.percentile(0.95));
+        while (pending > 0) {
+            Outcome<T> outcome = secondStarted ? take(outcomes) : poll(outcomes, hedgeDelay);
+            if (outcome == null) {
+                second.hedges.increment();
+            } else {
+                pending--;
+                if (outcome.answered) {
+                    return outcome.resolve();
+                }
+                best = better(best, outcome);
+            }
+            if (!secondStarted) {
+                secondStarted = true;
+                if (!submit(second, secondRead, complete, outcomes)) {
+                    outcomes.add(attempt(second, secondRead, complete));
+                }
+                pending++;
+            }
+        }
+        return best.resolve();
+    }
+
+    /**
+     * Returns the routing counters and recent latencies of the primary and the secondary store.
+     *
+     * @return the statistics of the primary store followed by those of the secondary store
+     */
+    public List<RoutingStats> getStats() {
+        return Arrays.asList(primary.stats(), secondary.stats());
+    }
+
+    /**
+     * Stops the read pool after the reads in progress have finished.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private Store choose() {
+        boolean primaryAvailable = primary.isAvailable();
+        boolean secondaryAvailable = secondary.isAvailable();
+        if (!secondaryAvailable) {
+            return primary;
+        }
+        if (!primaryAvailable) {
+            return secondary;
+        }
+        Store faster = secondary.percentile(0.5) < primary.percentile(0.5) ? secondary : primary;
+        if (routed.incrementAndGet() % PROBE_INTERVAL == 0) {
+            return faster == primary ? secondary : primary;
+        }
+        return faster;
+    }
+
+    private <T> boolean submit(Store store, Supplier<T> read, Predicate<T> complete,
+                               BlockingQueue<Outcome<T>> outcomes) {
+        try {
+            executor.execute(() -> outcomes.add(attempt(store, read, complete)));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private <T> Outcome<T> attempt(Store store, Supplier<T> read, Predicate<T> complete) {
+        long start = System.nanoTime();
+        try {
+            T value = read.get();
+            store.recordSuccess(System.nanoTime() - start);
+            return new Outcome<>(store, value, null, store == primary || complete.test(value));
+        } catch (RuntimeException e) {
+            store.recordFailure();
+            return new Outcome<>(store, null, e, false);
+        }
+    }
+
+    private static <T> Outcome<T> better(Outcome<T> best, Outcome<T> outcome) {
+        if (best == null || outcome.answered || best.failure != null && outcome.failure == null) {
+            return outcome;
+        }
+        return best;
+    }
+
+    private static <T> Outcome<T> poll(BlockingQueue<Outcome<T>> outcomes, long timeoutNanos) {
+        try {
+            return outcomes.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheLoadException("Interrupted while waiting for a read", e);
+        }
+    }
+
+    private static <T> Outcome<T> take(BlockingQueue<Outcome<T>> outcomes) {
+        try {
+            return outcomes.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheLoadException("Interrupted while waiting for a read", e);
+        }
+    }
+
+    private final class Store {
+
+        private final String name;
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder wins = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile long retryAt;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] window = new long[WINDOW_SIZE];
+        private final long[] sorted = new long[WINDOW_SIZE];
+        private int next;
+        private int count;
+        private int unsorted;
+
+        Store(String name) {
+            this.name = name;
+        }
+
+        boolean isAvailable() {
+            return consecutiveFailures.get() < failureThreshold || System.nanoTime() - retryAt >= 0;
+        }
+
+        void recordSuccess(long nanos) {
+            consecutiveFailures.set(0);
+            lock.lock();
+            try {
+                window[next] = nanos;
+                next = (next + 1) % WINDOW_SIZE;
+                count = Math.min(count + 1, WINDOW_SIZE);
+                unsorted++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void recordFailure() {
+            failures.increment();
+            if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                retryAt = System.nanoTime() + retryAfterNanos;
+            }
+        }
+
+        long percentile(double quantile) {
+            lock.lock();
+            try {
+                if (count == 0) {
+                    return 0;
+                }
+                if (unsorted >= SORT_INTERVAL || unsorted > 0 && count <= SORT_INTERVAL) {
+                    System.arraycopy(window, 0, sorted, 0, count);
+                    Arrays.sort(sorted, 0, count);
+                    unsorted = 0;
+                }
+                return sorted[Math.max(0, (int) Math.ceil(quantile * count) - 1)];
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        RoutingStats stats() {
+            double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+            return new RoutingStats(name, isAvailable(), reads.sum(), hedges.sum(), wins.sum(), failures.sum(),
+                    percentile(0.5) / nanosPerMilli, percentile(0.95) / nanosPerMilli);
+        }
+    }
+
+    private static final class Outcome<T> {
+
+        private final Store store;
+        private final T value;
+        private final RuntimeException failure;
+        private final boolean answered;
+
+        Outcome(Store store, T value, RuntimeException failure, boolean answered) {
+            this.store = store;
+            this.value = value;
+            this.failure = failure;
+            this.answered = answered;
+        }
+
+        T resolve() {
+            if (failure != null) {
+                throw failure;
+            }
+            store.wins.increment();
+            return value;
+        }
+    }
+
+    private static final class ReadThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "read-router-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.bookstore.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link InvalidationBus} broadcasting over a Redis pub/sub channel.
+ *
+ * <p>
+ * Each message carries the identifier of the publishing node on its first line and
+ * one key per following line, so keys must not contain line breaks. Nodes ignore
+ * their own messages. Redis pub/sub does not store messages, so a node that is
+ * disconnected while a key changes keeps its copy until it expires from the shared
+ * cache and is evicted or refreshed locally.
+ * </p>
+ */
+public class RedisInvalidationBus implements InvalidationBus<String>, MessageListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisInvalidationBus.class);
+
+    private final StringRedisTemplate template;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a new instance of {@link RedisInvalidationBus} and subscribes it to the channel.
+     *
+     * @param template the template used to publish messages
+     * @param container the container delivering the messages of the channel
+     * @param channel the name of the channel
+     */
+    public RedisInvalidationBus(StringRedisTemplate template, RedisMessageListenerContainer container,
+                                String channel) {
+        this.template = template;
+        this.channel = channel;
+        container.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    /**
+     * Publishes the keys on the channel. A failure is logged rather than thrown, since
+     * the change itself has already been applied.
+     *
+     * @param keys the changed keys
+     */
+    @Override
+    public void publish(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(nodeId);
+        for (String key : keys) {
+            message.append('\n').append(key);
+        }
+        try {
+            template.convertAndSend(channel, message.toString());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not publish the invalidation of {} keys", keys.size(), e);
+        }
+    }
+
+    /**
+     * Registers a listener called with every key published by another node.
+     *
+     * @param listener the listener, called on a thread of the listener container
+     */
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Delivers the keys of a message published by another node to the listeners.
+     *
+     * @param message the message received on the channel
+     * @param pattern the pattern that matched the channel, if any
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] lines = new String(message.getBody(), StandardCharsets.UTF_8).split("\n");
+        if (lines[0].equals(nodeId)) {
+            return;
+        }
+        for (int i = 1; i < lines.length; i++) {
+            String key = lines[i];
+            listeners.forEach(listener -> listener.accept(key));
+        }
+    }
+
+    /**
+     * Returns the identifier this node attaches to its messages.
+     *
+     * @return the node identifier
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,169 @@
+package com.bookstore.cache;
+
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SharedCache} stored in Redis.
+ *
+ * <p>
+ * Each value is stored under its key prefixed with a namespace, encoded with a
+ * {@link ValueCodec} and given a time to live, so that values whose invalidation
+ * was lost still disappear eventually. Multi-key operations use {@code MGET},
+ * pipelined {@code SET}s, with {@code NX} for the conditional ones, and a single {@code DEL}.
+ * </p>
+ *
+ * @param <V> the type of cached values
+ */
+public class RedisSharedCache<V> implements SharedCache<String, V> {
+
+    private final RedisTemplate<String, byte[]> template;
+    private final String keyPrefix;
+    private final ValueCodec<V> codec;
+    private final long ttlMillis;
+
+    /**
+     * Constructs a new instance of {@link RedisSharedCache}.
+     *
+     * @param template the template with string keys and raw byte values
+     * @param keyPrefix the namespace prepended to every key
+     * @param codec the encoding of the values
+     * @param ttlMillis the time to live of every value
+     */
+    public RedisSharedCache(RedisTemplate<String, byte[]> template, String keyPrefix, ValueCodec<V> codec,
+                            long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Invalid time to live: " + ttlMillis);
+        }
+        this.template = template;
+        this.keyPrefix = keyPrefix;
+        this.codec = codec;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Retrieves a value with {@code GET}.
+     *
+     * @param key the key of the value
+     * @return the cached value, or null if it is not cached
+     */
+    @Override
+    public V get(String key) {
+        return decode(template.opsForValue().get(keyPrefix + key));
+    }
+
+    /**
+     * Retrieves several values with a single {@code MGET}.
+     *
+     * @param keys the keys of the values
+     * @return the cached values, keyed by their key
+     */
+    @Override
+    public Map<String, V> getAll(Collection<String> keys) {
+        List<String> ordered = new ArrayList<>(keys);
+        List<byte[]> encoded = template.opsForValue().multiGet(prefixed(ordered));
+        Map<String, V> values = new HashMap<>();
+        for (int i = 0; encoded != null && i < ordered.size(); i++) {
+            V value = decode(encoded.get(i));
+            if (value != null) {
+                values.put(ordered.get(i), value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Stores a value with {@code SET ... PX}.
+     *
+     * @param key the key of the value
+     * @param value the value to store
+     */
+    @Override
+    public void put(String key, V value) {
+        template.opsForValue().set(keyPrefix + key, codec.encode(value), ttlMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stores several values with pipelined {@code SET ... PX} commands.
+     *
+     * @param values the values to store, keyed by their key
+     */
+    @Override
+    public void putAll(Map<String, V> values) {
+        set(values, SetOption.upsert());
+    }
+
+    /**
+     * Stores a value with {@code SET ... PX ... NX}, unless the key already holds one.
+     *
+     * @param key the key of the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIfAbsent(String key, V value) {
+        template.opsForValue().setIfAbsent(keyPrefix + key, codec.encode(value), ttlMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stores several values with pipelined {@code SET ... PX ... NX} commands.
+     *
+     * @param values the values to store, keyed by their key
+     */
+    @Override
+    public void putAllIfAbsent(Map<String, V> values) {
+        set(values, SetOption.ifAbsent());
+    }
+
+    /**
+     * Removes a value with {@code DEL}.
+     *
+     * @param key the key of the value
+     */
+    @Override
+    public void remove(String key) {
+        template.delete(keyPrefix + key);
+    }
+
+    /**
+     * Removes several values with a single {@code DEL}.
+     *
+     * @param keys the keys of the values
+     */
+    @Override
+    public void removeAll(Collection<String> keys) {
+        template.delete(prefixed(keys));
+    }
+
+    private void set(Map<String, V> values, SetOption option) {
+        template.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<String, V> value : values.entrySet()) {
+                connection.stringCommands().set((keyPrefix + value.getKey()).getBytes(StandardCharsets.UTF_8),
+                        codec.encode(value.getValue()), Expiration.milliseconds(ttlMillis), option);
+            }
+            return null;
+        });
+    }
+
+    private List<String> prefixed(Collection<String> keys) {
+        List<String> prefixed = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            prefixed.add(keyPrefix + key);
+        }
+        return prefixed;
+    }
+
+    private V decode(byte[] encoded) {
+        return encoded != null ? codec.decode(ByteBuffer.wrap(encoded)) : null;
+    }
+}
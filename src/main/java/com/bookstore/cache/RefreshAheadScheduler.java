@@ -0,0 +1,201 @@
+package com.bookstore.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded scheduler for refresh-ahead reloads of cache entries.
+ *
+ * <p>
+ * Entries younger than the refresh threshold are served as they are. Entries past
+ * the threshold are still served, but a reload is scheduled on a small shared pool
+ * of worker threads; at most one reload per key is in flight at any time, so a hot
+ * key read thousands of times per second is reloaded once. Entries older than the
+ * expiry are no longer served and must be loaded synchronously by the caller.
+ * </p>
+ *
+ * <p>
+ * The work queue is bounded. When it is full the refresh is skipped rather than
+ * queued, since the stale value remains usable until the next read schedules it again.
+ * </p>
+ *
+ * @param <K> the type of keys refreshed by this scheduler
+ */
+public class RefreshAheadScheduler<K> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RefreshAheadScheduler.class);
+
+    private final long refreshAfterNanos;
+    private final long expireAfterNanos;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<K, Boolean> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder scheduledRefreshes = new LongAdder();
+    private final LongAdder deduplicatedRefreshes = new LongAdder();
+    private final LongAdder rejectedRefreshes = new LongAdder();
+    private final LongAdder failedRefreshes = new LongAdder();
+
+    /**
+     * Constructs a new instance of {@link RefreshAheadScheduler}.
+     *
+     * @param refreshAfterMillis the age after which an entry is reloaded in the background
+     * @param expireAfterMillis the age after which an entry is no longer served
+     * @param threads the number of reload worker threads
+     * @param queueCapacity the maximum number of reloads waiting for a worker
+     */
+    public RefreshAheadScheduler(long refreshAfterMillis, long expireAfterMillis, int threads, int queueCapacity) {
+        this(refreshAfterMillis, expireAfterMillis, threads, queueCapacity, null);
+    }
+
+    /**
+     * Constructs a new instance of {@link RefreshAheadScheduler} whose reloads run on threads of the given factory.
+     *
+     * @param refreshAfterMillis the age after which an entry is reloaded in the background
+     * @param expireAfterMillis the age after which an entry is no longer served
+     * @param threads the number of reload worker threads
+     * @param queueCapacity the maximum number of reloads waiting for a worker
+     * @param threadFactory the factory of the worker threads, or null for daemon platform threads
+     */
+    public RefreshAheadScheduler(long refreshAfterMillis, long expireAfterMillis, int threads, int queueCapacity,
+                                 ThreadFactory threadFactory) {
+        if (refreshAfterMillis < 0 || expireAfterMillis < refreshAfterMillis || threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid refresh-ahead settings");
+        }
+        this.refreshAfterNanos = TimeUnit.MILLISECONDS.toNanos(refreshAfterMillis);
+        this.expireAfterNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterMillis);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory != null ? threadFactory : new RefreshThreadFactory());
+    }
+
+    /**
+     * Returns whether an entry of the given age must be reloaded in the background.
+     *
+     * @param ageNanos the time since the entry was written
+     * @return true if the entry is past the refresh threshold
+     */
+    public boolean needsRefresh(long ageNanos) {
+        return ageNanos >= refreshAfterNanos;
+    }
+
+    /**
+     * Returns whether an entry of the given age may no longer be served.
+     *
+     * @param ageNanos the time since the entry was written
+     * @return true if the entry is past its expiry
+     */
+    public boolean isExpired(long ageNanos) {
+        return ageNanos >= expireAfterNanos;
+    }
+
+    /**
+     * Schedules a reload of a key unless one is already in flight.
+     *
+     * @param key the key to reload
+     * @param reload the action that reloads the key
+     * @return true if the reload was scheduled, false if it was deduplicated or rejected
+     */
+    public boolean schedule(final K key, final Runnable reload) {
+        if (inFlight.putIfAbsent(key, Boolean.TRUE) != null) {
+            deduplicatedRefreshes.increment();
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    reload.run();
+                } catch (RuntimeException e) {
+                    failedRefreshes.increment();
+                    LOGGER.warn("Refresh-ahead reload of key {} failed", key, e);
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+            scheduledRefreshes.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key);
+            rejectedRefreshes.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Stops accepting reloads and waits for the ones already scheduled to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of reloads currently scheduled or running.
+     *
+     * @return the number of in-flight reloads
+     */
+    public int getInFlightRefreshes() {
+        return inFlight.size();
+    }
+
+    /**
+     * Returns the number of reloads handed to the worker pool.
+     *
+     * @return the number of scheduled reloads
+     */
+    public long getScheduledRefreshes() {
+        return scheduledRefreshes.sum();
+    }
+
+    /**
+     * Returns the number of reloads skipped because one was already in flight for the key.
+     *
+     * @return the number of deduplicated reloads
+     */
+    public long getDeduplicatedRefreshes() {
+        return deduplicatedRefreshes.sum();
+    }
+
+    /**
+     * Returns the number of reloads skipped because the work queue was full.
+     *
+     * @return the number of rejected reloads
+     */
+    public long getRejectedRefreshes() {
+        return rejectedRefreshes.sum();
+    }
+
+    /**
+     * Returns the number of reloads that threw an exception.
+     *
+     * @return the number of failed reloads
+     */
+    public long getFailedRefreshes() {
+        return failedRefreshes.sum();
+    }
+
+    private static final class RefreshThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "refresh-ahead-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.bookstore.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Latency timers of the operations of one backing store.
+ *
+ * <p>
+ * Reads are recorded under {@value #LOAD_TIMER} and writes under
+ * {@value #WRITE_TIMER}, both tagged with the store and the operation. The timers
+ * publish percentile histograms, so latency percentiles can be aggregated across
+ * instances from the Prometheus buckets.
+ * </p>
+ */
+public class RepositoryMetrics {
+
+    /**
+     * Name of the timer recording reads from a store.
+     */
+    public static final String LOAD_TIMER = "bookstore.repository.load";
+
+    /**
+     * Name of the timer recording writes and deletes applied to a store.
+     */
+    public static final String WRITE_TIMER = "bookstore.repository.write";
+
+    private final Map<Operation, Timer> timers = new EnumMap<>(Operation.class);
+
+    /**
+     * Constructs a new instance of {@link RepositoryMetrics} and registers its timers.
+     *
+     * @param registry the registry the timers are registered with
+     * @param store the name of the backing store, used as the {@code store} tag
+     */
+    public RepositoryMetrics(MeterRegistry registry, String store) {
+        for (Operation operation : Operation.values()) {
+            timers.put(operation, Timer.builder(operation.load ? LOAD_TIMER : WRITE_TIMER)
+                    .description(operation.load ? "Latency of reads from a backing store"
+                            : "Latency of writes to a backing store")
+                    .tag("store", store)
+                    .tag("operation", operation.tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Returns the timer of an operation.
+     *
+     * @param operation the repository operation
+     * @return the timer recording the latency of the operation
+     */
+    public Timer timer(Operation operation) {
+        return timers.get(operation);
+    }
+
+    /**
+     * Operations of a {@link BatchCacheRepository} that are timed.
+     */
+    public enum Operation {
+        GET("get", true),
+        GET_ALL("getAll", true),
+        PUT("put", false),
+        PUT_ALL("putAll", false),
+        REMOVE("remove", false),
+        REMOVE_ALL("removeAll", false),
+        UPSERT_ALL("upsertAll", false);
+
+        private final String tag;
+        private final boolean load;
+
+        Operation(String tag, boolean load) {
+            this.tag = tag;
+            this.load = load;
+        }
+    }
+}
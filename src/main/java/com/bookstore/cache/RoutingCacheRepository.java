@@ -0,0 +1,193 @@
+package com.bookstore.cache;
+
+import org.swiftcache.cacherepository.ICacheRepository;
+import org.swiftcache.utils.TriFunction;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link BatchCacheRepository} reading from whichever of two replicas of the same data
+ * currently answers faster, as decided by a {@link ReadRouter}.
+ *
+ * <p>
+ * Passed to a cache in place of the primary repository, it lets cache misses be served
+ * by the secondary repository while the primary one is slow or failing. A value or
+ * batch the secondary repository does not fully hold is read from the primary one.
+ * Writes and deletes only reach the primary repository; keeping the secondary one up
+ * to date is left to the caller. Reloads of aging cache entries always read the primary
+ * repository.
+ * </p>
+ *
+ * <p>
+ * The caller reports the keys whose write to the secondary repository failed with
+ * {@link #markUnreplicated(Collection)}: until a later write of a key reaches both
+ * repositories and is reported with {@link #markReplicated(Collection)}, the key is
+ * only read from the primary repository, since the secondary one may hold an older
+ * value or a deleted one.
+ * </p>
+ *
+ * @param <K> the type of keys maintained by the repositories
+ * @param <V> the type of stored values
+ */
+public class RoutingCacheRepository<K, V> implements BatchCacheRepository<K, V> {
+
+    private final BatchCacheRepository<K, V> primary;
+    private final BatchCacheRepository<K, V> secondary;
+    private final ReadRouter router;
+    private final Set<K> unreplicated = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a new instance of {@link RoutingCacheRepository}.
+     *
+     * @param primary the authoritative repository, which also receives the writes
+     * @param secondary the replica read when it answers faster
+     * @param router the router choosing between the two repositories
+     */
+    public RoutingCacheRepository(BatchCacheRepository<K, V> primary, BatchCacheRepository<K, V> secondary,
+                                  ReadRouter router) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.router = router;
+    }
+
+    /**
+     * Retrieves a value from the faster repository.
+     *
+     * @param key the key of the value
+     * @return the value, or null if the primary repository does not hold it
+     */
+    @Override
+    public V get(K key) {
+        if (unreplicated.contains(key)) {
+            return primary.get(key);
+        }
+        return router.read(() -> primary.get(key), () -> secondary.get(key), Objects::nonNull);
+    }
+
+    /**
+     * Reloads a value from the primary repository.
+     *
+     * @param key the key of the value
+     * @return the value, or null if the primary repository does not hold it
+     */
+    @Override
+    public V reload(K key) {
+        return primary.reload(key);
+    }
+
+    /**
+     * Reloads several values from the primary repository in a single batch.
+     *
+     * @param keys the keys of the values
+     * @return the values found, keyed by their key
+     */
+    @Override
+    public Map<K, V> reloadAll(Collection<K> keys) {
+        return primary.reloadAll(keys);
+    }
+
+    /**
+     * Writes a value to the primary repository.
+     *
+     * @param key the key of the value
+     * @param value the value to write
+     */
+    @Override
+    public void put(K key, V value) {
+        primary.put(key, value);
+    }
+
+    /**
+     * Deletes a value from the primary repository.
+     *
+     * @param key the key of the value
+     */
+    @Override
+    public void remove(K key) {
+        primary.remove(key);
+    }
+
+    /**
+     * Retrieves several values from the faster repository in a single batch.
+     *
+     * @param keys the keys of the values
+     * @return the values found, keyed by their key
+     */
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        if (!unreplicated.isEmpty() && keys.stream().anyMatch(unreplicated::contains)) {
+            return primary.getAll(keys);
+        }
+        return router.read(() -> primary.getAll(keys), () -> secondary.getAll(keys),
+                values -> values.size() == keys.size());
+    }
+
+    /**
+     * Writes several values to the primary repository.
+     *
+     * @param values the values to write, keyed by their key
+     */
+    @Override
+    public void putAll(Map<K, V> values) {
+        primary.putAll(values);
+    }
+
+    /**
+     * Deletes several values from the primary repository.
+     *
+     * @param keys the keys of the values
+     */
+    @Override
+    public void removeAll(Collection<K> keys) {
+        primary.removeAll(keys);
+    }
+
+    /**
+     * Reads the given keys from the primary repository only, because their last write
+     * could not be applied to the secondary repository.
+     *
+     * @param keys the keys whose secondary copy may be stale
+     */
+    public void markUnreplicated(Collection<K> keys) {
+        unreplicated.addAll(keys);
+    }
+
+    /**
+     * Lets the given keys be read from either repository again, because their last write
+     * was applied to both.
+     *
+     * @param keys the keys whose secondary copy is up to date
+     */
+    public void markReplicated(Collection<K> keys) {
+        if (!unreplicated.isEmpty()) {
+            unreplicated.removeAll(keys);
+        }
+    }
+
+    /**
+     * Returns the number of keys read from the primary repository only.
+     *
+     * @return the number of keys whose secondary copy may be stale
+     */
+    public int getUnreplicated() {
+        return unreplicated.size();
+    }
+
+    /**
+     * Executes the given operation against this repository.
+     *
+     * @param operation the operation to be executed
+     * @param key the key passed to the operation
+     * @param value the value passed to the operation
+     * @param <R> the type of the result returned by the operation
+     * @return the result of the operation
+     */
+    @Override
+    public <R> R executeWithCache(TriFunction<ICacheRepository<K, V>, K, V, R> operation, K key, V value) {
+        return operation.apply(this, key, value);
+    }
+}
@@ -0,0 +1,74 @@
+package com.bookstore.cache;
+
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of the read routing counters of one store.
+ */
+@Getter
+public class RoutingStats {
+
+    /**
+     * The name of the store.
+     */
+    private final String name;
+
+    /**
+     * Whether reads are currently routed to the store.
+     */
+    private final boolean healthy;
+
+    /**
+     * The number of reads sent to the store first.
+     */
+    private final long reads;
+
+    /**
+     * The number of reads sent to the store because the other store was slower than usual.
+     */
+    private final long hedges;
+
+    /**
+     * The number of reads answered by the store.
+     */
+    private final long wins;
+
+    /**
+     * The number of reads the store failed.
+     */
+    private final long failures;
+
+    /**
+     * The median latency of the recent reads of the store.
+     */
+    private final double medianMillis;
+
+    /**
+     * The 95th percentile latency of the recent reads of the store.
+     */
+    private final double p95Millis;
+
+    /**
+     * Constructs a new instance of {@link RoutingStats}.
+     *
+     * @param name the name of the store
+     * @param healthy whether reads are currently routed to the store
+     * @param reads the number of reads sent to the store first
+     * @param hedges the number of reads sent to the store because the other store was slower than usual
+     * @param wins the number of reads answered by the store
+     * @param failures the number of reads the store failed
+     * @param medianMillis the median latency of the recent reads of the store
+     * @param p95Millis the 95th percentile latency of the recent reads of the store
+     */
+    public RoutingStats(String name, boolean healthy, long reads, long hedges, long wins, long failures,
+                        double medianMillis, double p95Millis) {
+        this.name = name;
+        this.healthy = healthy;
+        this.reads = reads;
+        this.hedges = hedges;
+        this.wins = wins;
+        this.failures = failures;
+        this.medianMillis = medianMillis;
+        this.p95Millis = p95Millis;
+    }
+}
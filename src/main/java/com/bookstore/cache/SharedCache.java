@@ -0,0 +1,81 @@
+package com.bookstore.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Cache shared by every node of a deployment, used as the second level behind the
+ * local cache of each node.
+ *
+ * <p>
+ * Implementations are expected to be remote, so every operation may fail with a
+ * runtime exception; callers treat such failures as misses rather than errors.
+ * </p>
+ *
+ * @param <K> the type of keys maintained by the cache
+ * @param <V> the type of cached values
+ */
+public interface SharedCache<K, V> {
+
+    /**
+     * Retrieves a value.
+     *
+     * @param key the key of the value
+     * @return the cached value, or null if it is not cached
+     */
+    V get(K key);
+
+    /**
+     * Retrieves several values in a single round-trip.
+     *
+     * @param keys the keys of the values
+     * @return the cached values, keyed by their key; keys that are not cached are absent
+     */
+    Map<K, V> getAll(Collection<K> keys);
+
+    /**
+     * Stores a value.
+     *
+     * @param key the key of the value
+     * @param value the value to store
+     */
+    void put(K key, V value);
+
+    /**
+     * Stores several values in a single round-trip.
+     *
+     * @param values the values to store, keyed by their key
+     */
+    void putAll(Map<K, V> values);
+
+    /**
+     * Stores a value unless the cache already holds one for its key, so that a value
+     * loaded before a concurrent write does not replace the value stored since.
+     *
+     * @param key the key of the value
+     * @param value the value to store
+     */
+    void putIfAbsent(K key, V value);
+
+    /**
+     * Stores several values in a single round-trip, each unless the cache already holds
+     * one for its key.
+     *
+     * @param values the values to store, keyed by their key
+     */
+    void putAllIfAbsent(Map<K, V> values);
+
+    /**
+     * Removes a value.
+     *
+     * @param key the key of the value
+     */
+    void remove(K key);
+
+    /**
+     * Removes several values in a single round-trip.
+     *
+     * @param keys the keys of the values
+     */
+    void removeAll(Collection<K> keys);
+}
@@ -0,0 +1,260 @@
+package com.bookstore.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftcache.cacherepository.ICacheRepository;
+import org.swiftcache.utils.TriFunction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * {@link BatchCacheRepository} placing a {@link SharedCache} in front of another repository.
+ *
+ * <p>
+ * Passed to a local cache in place of the repository it wraps, it makes the shared
+ * cache the second level behind the local one: local misses are looked up in the
+ * shared cache before the repository, values loaded from the repository are stored
+ * in the shared cache, and writes and deletes are applied to the repository first
+ * and then remove the value from the shared cache.
+ * </p>
+ *
+ * <p>
+ * A loaded value is only stored if the shared cache holds none for its key, and a
+ * write removes the shared value rather than replacing it, so that neither a load
+ * that read the repository before a write completed nor a slower concurrent write
+ * leaves an older value shared. The window left, a load that read the repository
+ * before a write and stores its value after the write removed the shared one, is
+ * bounded by the time to live of the shared values.
+ * </p>
+ *
+ * <p>
+ * A failing shared cache never fails an operation. Lookups fall back to the
+ * repository, and updates that could not be applied are logged and counted.
+ * </p>
+ *
+ * @param <K> the type of keys maintained by the repository
+ * @param <V> the type of stored values
+ */
+public class SharedCacheRepository<K, V> implements BatchCacheRepository<K, V> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedCacheRepository.class);
+
+    private final SharedCache<K, V> sharedCache;
+    private final BatchCacheRepository<K, V> repository;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Constructs a new instance of {@link SharedCacheRepository}.
+     *
+     * @param sharedCache the cache shared by every node
+     * @param repository the repository behind the shared cache
+     */
+    public SharedCacheRepository(SharedCache<K, V> sharedCache, BatchCacheRepository<K, V> repository) {
+        this.sharedCache = sharedCache;
+        this.repository = repository;
+    }
+
+    /**
+     * Retrieves a value from the shared cache, or from the repository if it is not
+     * shared yet, in which case it is stored in the shared cache unless another node
+     * stored it meanwhile.
+     *
+     * @param key the key of the value
+     * @return the value, or null if the repository does not hold it
+     */
+    @Override
+    public V get(K key) {
+        V value = shared(() -> sharedCache.get(key), null);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        value = repository.get(key);
+        if (value != null) {
+            V loaded = value;
+            shared(() -> {
+                sharedCache.putIfAbsent(key, loaded);
+                return null;
+            }, null);
+        }
+        return value;
+    }
+
+    /**
+     * Writes a value to the repository and then removes it from the shared cache.
+     *
+     * @param key the key of the value
+     * @param value the value to write
+     */
+    @Override
+    public void put(K key, V value) {
+        repository.put(key, value);
+        shared(() -> {
+            sharedCache.remove(key);
+            return null;
+        }, null);
+    }
+
+    /**
+     * Deletes a value from the repository and then from the shared cache.
+     *
+     * @param key the key of the value
+     */
+    @Override
+    public void remove(K key) {
+        repository.remove(key);
+        shared(() -> {
+            sharedCache.remove(key);
+            return null;
+        }, null);
+    }
+
+    /**
+     * Retrieves several values, reading the ones that are not shared yet from the
+     * repository in a single batch and storing those that no other node stored meanwhile
+     * in the shared cache.
+     *
+     * @param keys the keys of the values
+     * @return the values found, keyed by their key
+     */
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> values = new HashMap<>(shared(() -> sharedCache.getAll(keys), Collections.<K, V>emptyMap()));
+        hits.add(values.size());
+        List<K> unshared = new ArrayList<>();
+        for (K key : keys) {
+            if (!values.containsKey(key)) {
+                unshared.add(key);
+            }
+        }
+        if (unshared.isEmpty()) {
+            return values;
+        }
+        misses.add(unshared.size());
+        Map<K, V> loaded = repository.getAll(unshared);
+        if (!loaded.isEmpty()) {
+            shared(() -> {
+                sharedCache.putAllIfAbsent(loaded);
+                return null;
+            }, null);
+        }
+        values.putAll(loaded);
+        return values;
+    }
+
+    /**
+     * Reloads a value from the repository without consulting the shared cache.
+     *
+     * @param key the key of the value
+     * @return the value, or null if the repository no longer holds it
+     */
+    @Override
+    public V reload(K key) {
+        return repository.reload(key);
+    }
+
+    /**
+     * Reloads several values from the repository in a single batch without consulting the shared cache.
+     *
+     * @param keys the keys of the values
+     * @return the values found, keyed by their key
+     */
+    @Override
+    public Map<K, V> reloadAll(Collection<K> keys) {
+        return repository.reloadAll(keys);
+    }
+
+    /**
+     * Writes several values to the repository and then removes them from the shared cache.
+     *
+     * @param values the values to write, keyed by their key
+     */
+    @Override
+    public void putAll(Map<K, V> values) {
+        repository.putAll(values);
+        shared(() -> {
+            sharedCache.removeAll(values.keySet());
+            return null;
+        }, null);
+    }
+
+    /**
+     * Deletes several values from the repository and then from the shared cache.
+     *
+     * @param keys the keys of the values
+     */
+    @Override
+    public void removeAll(Collection<K> keys) {
+        repository.removeAll(keys);
+        shared(() -> {
+            sharedCache.removeAll(keys);
+            return null;
+        }, null);
+    }
+
+    /**
+     * Removes several values from the shared cache only, for writes that bypassed this
+     * repository or that failed after reaching it.
+     *
+     * @param keys the keys of the values
+     */
+    public void evictAll(Collection<K> keys) {
+        shared(() -> {
+            sharedCache.removeAll(keys);
+            return null;
+        }, null);
+    }
+
+    /**
+     * Executes the given operation against this repository.
+     *
+     * @param operation the operation to be executed
+     * @param key the key passed to the operation
+     * @param value the value passed to the operation
+     * @param <R> the type of the result returned by the operation
+     * @return the result of the operation
+     */
+    @Override
+    public <R> R executeWithCache(TriFunction<ICacheRepository<K, V>, K, V, R> operation, K key, V value) {
+        return operation.apply(this, key, value);
+    }
+
+    /**
+     * Returns the hit and miss counters of the shared cache as seen by this node.
+     *
+     * @return the statistics of the shared cache
+     */
+    public TierStats getStats() {
+        return new TierStats("shared", hits.sum(), misses.sum(), 0, -1, -1);
+    }
+
+    /**
+     * Returns the number of shared cache operations that failed.
+     *
+     * @return the number of failures
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    private <T> T shared(Supplier<T> operation, T fallback) {
+        try {
+            return operation.get();
+        } catch (RuntimeException e) {
+            failures.increment();
+            LOGGER.warn("Shared cache operation failed", e);
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.bookstore.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into a single call.
+ *
+ * <p>
+ * The first caller for a key becomes the leader and runs the load on its own thread.
+ * Callers arriving while the load is in flight wait on the leader's
+ * {@link CompletableFuture} for at most the configured timeout and receive the same
+ * result or exception. Once the load completes the key is released, so later calls
+ * run a new load.
+ * </p>
+ *
+ * @param <K> the type of keys being loaded
+ * @param <V> the type of loaded values
+ */
+public class SingleFlightLoader<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder timedOutWaits = new LongAdder();
+
+    /**
+     * Constructs a new instance of {@link SingleFlightLoader}.
+     *
+     * @param timeoutMillis how long a caller waits for a load started by another caller
+     */
+    public SingleFlightLoader(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Invalid load timeout: " + timeoutMillis);
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Loads the value for a key, sharing the result with concurrent callers for the same key.
+     *
+     * @param key the key to load
+     * @param loader the load to run if no load for the key is in flight
+     * @return the loaded value
+     * @throws CacheLoadException if waiting for another caller's load timed out or was interrupted
+     */
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedLoads.increment();
+            return await(key, existing);
+        }
+
+        loads.increment();
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Returns the number of loads that were actually run.
+     *
+     * @return the number of loads
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Returns the number of calls that were served by another caller's load.
+     *
+     * @return the number of coalesced loads
+     */
+    public long getCoalescedLoads() {
+        return coalescedLoads.sum();
+    }
+
+    /**
+     * Returns the number of calls that gave up waiting for another caller's load.
+     *
+     * @return the number of timed out waits
+     */
+    public long getTimedOutWaits() {
+        return timedOutWaits.sum();
+    }
+
+    /**
+     * Returns the number of loads currently in flight.
+     *
+     * @return the number of in-flight loads
+     */
+    public int getInFlightLoads() {
+        return inFlight.size();
+    }
+
+    private V await(K key, CompletableFuture<V> future) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOutWaits.increment();
+            throw new CacheLoadException("Timed out after " + timeoutMillis + " ms waiting for load of key " + key, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheLoadException("Interrupted while waiting for load of key " + key, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CacheLoadException("Load of key " + key + " failed", cause);
+        }
+    }
+}
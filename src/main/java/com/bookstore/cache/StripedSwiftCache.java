@@ -0,0 +1,1155 @@
+package com.bookstore.cache;
+
+import org.swiftcache.cache.SwiftCache;
+import org.swiftcache.cache.SwiftCacheConfig;
+import org.swiftcache.cacherepository.ICacheRepository;
+import org.swiftcache.utils.TriFunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Lock-striped implementation of {@link SwiftCache}.
+ *
+ * <p>
+ * The key space is split across a power-of-two number of segments, each guarded
+ * by its own {@link ReentrantLock} and backed by a {@link LinkedHashMap} that keeps
+ * its entries in access order (LRU) or insertion order (FIFO). Recency updates and
+ * evictions are therefore O(1) and only contend with operations on the same segment,
+ * instead of serializing every call behind a single cache-wide lock.
+ * </p>
+ *
+ * <p>
+ * Calls to the backing {@link ICacheRepository} are always made outside of the
+ * segment locks, so a slow data source never blocks unrelated cache hits. The
+ * maximum size is divided evenly between segments, which makes eviction
+ * approximately (per segment) rather than globally LRU.
+ * </p>
+ *
+ * <p>
+ * Since a load is not serialized with the writes of its key, a value loaded before a
+ * write or removal completes could otherwise be cached after it and outlive it. Each
+ * segment therefore stamps its writes and removals when they start and when they
+ * finish, and a loaded value is only cached if no write of its segment started or
+ * finished during the load, like the tombstones of {@link NegativeCache}.
+ * </p>
+ *
+ * <p>
+ * Entries evicted from a segment are handed to the second level after the segment
+ * lock is released, so that the I/O and the lock of the level never hold up the
+ * segment. A key written or removed while its evicted entry is being demoted has the
+ * demoted copy dropped again, so the second level never serves a superseded value.
+ * </p>
+ *
+ * <p>
+ * With the {@value WTinyLfuEvictionStrategy#W_TINY_LFU_EVICTION_STRATEGY} eviction strategy
+ * each segment keeps its own {@link WTinyLfuEvictionStrategy} instead of relying on the
+ * ordering of its map, so keys read only once cannot flush frequently read keys.
+ * </p>
+ *
+ * <p>
+ * The write-behind policy is supported when a {@link WriteBehindExecutor} is supplied:
+ * writes and removals are then applied to the cache immediately and handed to the
+ * executor, which persists them in batches on a fixed pool of workers.
+ * </p>
+ *
+ * <p>
+ * Every entry records the time it was written. The refresh-ahead policy is supported
+ * when a {@link RefreshAheadScheduler} is supplied, which decides from that age when an
+ * entry is reloaded in the background and when it expires. Aging entries are reloaded
+ * with {@link BatchCacheRepository#reload(Object)} when the repository supports it, so
+ * that they do not come back from a cache level kept by the repository.
+ * </p>
+ *
+ * <p>
+ * An optional {@link CacheTier}, such as the {@link OffHeapTier}, acts as a second
+ * level behind the segments: entries evicted from a segment are demoted into it, and
+ * a segment miss takes the entry back out of the tier before the repository is
+ * consulted. Hits, misses and evictions are counted for each level.
+ * </p>
+ *
+ * <p>
+ * Multi-key operations check the cache for every key first and then read or write
+ * the remaining keys with a single call to a {@link BatchCacheRepository}.
+ * </p>
+ *
+ * <p>
+ * When a {@link CacheEventTracer} is supplied, hits, misses, promotions, loads,
+ * writes, removals, evictions and refreshes are recorded as sampled events. Nothing
+ * is logged on the request path.
+ * </p>
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ */
+public class StripedSwiftCache<K, V> extends SwiftCache<K, V> {
+
+    /**
+     * The default number of segments used when none is specified.
+     */
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private final ReadMode readMode;
+    private final WriteMode writeMode;
+    private final WriteBehindExecutor<K, V> writeBehindExecutor;
+    private final RefreshAheadScheduler<K> refreshAheadScheduler;
+    private final CacheTier<K, V> tier;
+    private final CacheEventTracer tracer;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a new instance of {@link StripedSwiftCache} with the default concurrency level.
+     *
+     * @param config the cache configuration
+     */
+    public StripedSwiftCache(SwiftCacheConfig config) {
+        this(config, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs a new instance of {@link StripedSwiftCache} without write-behind or refresh-ahead support.
+     *
+     * @param config the cache configuration
+     * @param concurrencyLevel the requested number of segments, rounded up to a power of two
+     *                         and capped so that every segment holds at least one entry
+     * @throws IllegalArgumentException if the configuration contains an unsupported policy
+     */
+    public StripedSwiftCache(SwiftCacheConfig config, int concurrencyLevel) {
+        this(config, concurrencyLevel, null, null);
+    }
+
+    /**
+     * Constructs a new instance of {@link StripedSwiftCache}.
+     *
+     * @param config the cache configuration
+     * @param concurrencyLevel the requested number of segments, rounded up to a power of two
+     *                         and capped so that every segment holds at least one entry
+     * @param writeBehindExecutor the executor used by the write-behind policy, or null if it is not supported
+     * @param refreshAheadScheduler the scheduler used by the refresh-ahead policy, or null if it is not supported
+     * @throws IllegalArgumentException if the configuration contains an unsupported policy
+     */
+    public StripedSwiftCache(SwiftCacheConfig config, int concurrencyLevel,
+                             WriteBehindExecutor<K, V> writeBehindExecutor,
+                             RefreshAheadScheduler<K> refreshAheadScheduler) {
+        this(config, concurrencyLevel, writeBehindExecutor, refreshAheadScheduler, null);
+    }
+
+    /**
+     * Constructs a new instance of {@link StripedSwiftCache} with a second cache level.
+     *
+     * @param config the cache configuration
+     * @param concurrencyLevel the requested number of segments, rounded up to a power of two
+     *                         and capped so that every segment holds at least one entry
+     * @param writeBehindExecutor the executor used by the write-behind policy, or null if it is not supported
+     * @param refreshAheadScheduler the scheduler used by the refresh-ahead policy, or null if it is not supported
+     * @param tier the level receiving entries evicted from the segments, or null for a single-level cache
+     * @throws IllegalArgumentException if the configuration contains an unsupported policy
+     */
+    public StripedSwiftCache(SwiftCacheConfig config, int concurrencyLevel,
+                             WriteBehindExecutor<K, V> writeBehindExecutor,
+                             RefreshAheadScheduler<K> refreshAheadScheduler,
+                             CacheTier<K, V> tier) {
+        this(config, concurrencyLevel, writeBehindExecutor, refreshAheadScheduler, tier, null);
+    }
+
+    /**
+     * Constructs a new instance of {@link StripedSwiftCache} with a second cache level and event tracing.
+     *
+     * @param config the cache configuration
+     * @param concurrencyLevel the requested number of segments, rounded up to a power of two
+     *                         and capped so that every segment holds at least one entry
+     * @param writeBehindExecutor the executor used by the write-behind policy, or null if it is not supported
+     * @param refreshAheadScheduler the scheduler used by the refresh-ahead policy, or null if it is not supported
+     * @param tier the level receiving entries evicted from the segments, or null for a single-level cache
+     * @param tracer the tracer recording cache operations, or null to disable tracing
+     * @throws IllegalArgumentException if the configuration contains an unsupported policy
+     */
+    public StripedSwiftCache(SwiftCacheConfig config, int concurrencyLevel,
+                             WriteBehindExecutor<K, V> writeBehindExecutor,
+                             RefreshAheadScheduler<K> refreshAheadScheduler,
+                             CacheTier<K, V> tier,
+                             CacheEventTracer tracer) {
+        super(0, null, null, null);
+        if (config.getMaxSize() <= 0) {
+            throw new IllegalArgumentException("Invalid max size: " + config.getMaxSize());
+        }
+
+        EvictionMode evictionMode = resolveEvictionMode(config.getEvictionStrategy());
+        this.readMode = resolveReadMode(config.getReadPolicy(), refreshAheadScheduler);
+        this.writeMode = resolveWriteMode(config.getWritePolicy(), writeBehindExecutor);
+        this.writeBehindExecutor = writeBehindExecutor;
+        this.refreshAheadScheduler = refreshAheadScheduler;
+        this.tier = tier;
+        this.tracer = tracer;
+
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount * 2L <= config.getMaxSize()) {
+            segmentCount <<= 1;
+        }
+        // The remainder of the division goes to the first segments, so that the capacities add up to the maximum size.
+        int baseCapacity = (int) (config.getMaxSize() / segmentCount);
+        int remainder = (int) (config.getMaxSize() % segmentCount);
+
+        this.segments = newSegments(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment<>(i < remainder ? baseCapacity + 1 : baseCapacity, evictionMode,
+                    this::onEviction, tier != null ? this::removeFromTier : null);
+        }
+        this.segmentMask = segmentCount - 1;
+    }
+
+    /**
+     * Retrieves a value from the cache, loading it from the repository on a miss
+     * when the read-through or refresh-ahead policy is configured.
+     *
+     * <p>
+     * Under the refresh-ahead policy, entries past the refresh threshold are served
+     * while a single background reload per key is scheduled, and entries past their
+     * expiry are reloaded synchronously.
+     * </p>
+     *
+     * @param repository the backing repository
+     * @param key the key of the value to retrieve
+     * @return the cached or loaded value, or null if it could not be found
+     */
+    @Override
+    public V get(ICacheRepository<K, V> repository, K key) {
+        Segment<K, V> segment = segmentFor(key);
+        Entry<V> entry = segment.get(key);
+        if (entry != null) {
+            if (readMode != ReadMode.REFRESH_AHEAD) {
+                hit(key);
+                return entry.value;
+            }
+            long age = System.nanoTime() - entry.writtenAt;
+            if (!refreshAheadScheduler.isExpired(age)) {
+                if (refreshAheadScheduler.needsRefresh(age)) {
+                    scheduleRefresh(repository, key, segment, entry);
+                }
+                hit(key);
+                return entry.value;
+            }
+        }
+        miss(key);
+        if (entry == null && tier != null) {
+            V demoted = tier.take(key);
+            if (demoted != null) {
+                trace(CacheEventType.PROMOTE, key, 0);
+                return putIfAbsent(segment, key, demoted);
+            }
+        }
+        if (entry == null && readMode == ReadMode.SIMPLE) {
+            return null;
+        }
+
+        long stamp = segment.stamp();
+        V value = load(repository, key, entry != null);
+        if (entry != null) {
+            // The expired entry is only replaced if no newer write happened during the load.
+            segment.replace(key, entry, value);
+            return value;
+        }
+        if (value == null) {
+            return null;
+        }
+        return putIfAbsent(segment, key, value, stamp);
+    }
+
+    /**
+     * Retrieves a value only if the heap level holds it and can serve it as is,
+     * without consulting the second level or any repository.
+     *
+     * <p>
+     * A found value counts as a hit. A null result is not counted, so that a caller
+     * can hand the lookup to {@link #get(ICacheRepository, Object)} on another thread,
+     * which then records the miss. Under the refresh-ahead policy, entries due for a
+     * reload are not returned.
+     * </p>
+     *
+     * @param key the key of the value to retrieve
+     * @return the cached value, or null if it has to be looked up with a repository
+     */
+    public V getIfPresent(K key) {
+        return getIfPresent(key, false);
+    }
+
+    /**
+     * Retrieves a value only if the heap level holds it and can serve it as is,
+     * without consulting the second level or any repository.
+     *
+     * @param key the key of the value to retrieve
+     * @param countMiss whether a null result counts as a miss, for callers that load
+     *                  the value themselves and then {@link #put(ICacheRepository, Object, Object) put} it
+     * @return the cached value, or null if it has to be looked up with a repository
+     */
+    public V getIfPresent(K key, boolean countMiss) {
+        Entry<V> entry = segmentFor(key).get(key);
+        if (entry == null || readMode == ReadMode.REFRESH_AHEAD
+                && refreshAheadScheduler.needsRefresh(System.nanoTime() - entry.writtenAt)) {
+            if (countMiss) {
+                miss(key);
+            }
+            return null;
+        }
+        hit(key);
+        return entry.value;
+    }
+
+    /**
+     * Returns the write stamp of a key, for callers that load the value themselves and
+     * then {@link #fill(Object, Object, long) fill} the cache with it.
+     *
+     * @param key the key of the value about to be loaded
+     * @return the stamp to pass to {@link #fill(Object, Object, long)}
+     */
+    public long stamp(K key) {
+        return segmentFor(key).stamp();
+    }
+
+    /**
+     * Caches a value loaded by the caller, unless the key already holds a value, or was
+     * written or removed, or is being written, since its stamp was taken; the loaded
+     * value may then be older than the repository.
+     *
+     * @param key the key of the loaded value
+     * @param value the loaded value
+     * @param stamp the stamp returned by {@link #stamp(Object)} before the value was loaded
+     * @return the value held by the cache after the fill, or the given value if it was not cached
+     */
+    public V fill(K key, V value, long stamp) {
+        return putIfAbsent(segmentFor(key), key, value, stamp);
+    }
+
+    /**
+     * Writes a value to the cache and the repository according to the configured writing policy.
+     *
+     * @param repository the backing repository
+     * @param key the key of the value to write
+     * @param value the value to write
+     * @return the value held by the cache after the write
+     */
+    @Override
+    public V put(ICacheRepository<K, V> repository, K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        if (writeMode == WriteMode.IF_ABSENT) {
+            V existing = putIfAbsentInAnyTier(segment, key, value);
+            if (existing != null) {
+                return existing;
+            }
+            trace(CacheEventType.PUT, key, 0);
+            repository.put(key, value);
+            return value;
+        }
+
+        segment.put(key, value);
+        removeFromTier(key);
+        trace(CacheEventType.PUT, key, 0);
+        try {
+            if (writeMode == WriteMode.BEHIND) {
+                writeBehindExecutor.write(repository, key, value);
+            } else {
+                repository.put(key, value);
+            }
+        } finally {
+            segment.endWrite();
+        }
+        return value;
+    }
+
+    /**
+     * Removes a value from the cache and the repository.
+     *
+     * @param repository the backing repository
+     * @param key the key of the value to remove
+     */
+    @Override
+    public void remove(ICacheRepository<K, V> repository, K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.remove(key);
+        removeFromTier(key);
+        trace(CacheEventType.REMOVE, key, 0);
+        try {
+            if (writeMode == WriteMode.BEHIND) {
+                writeBehindExecutor.delete(repository, key);
+            } else {
+                repository.remove(key);
+            }
+        } finally {
+            segment.endWrite();
+        }
+    }
+
+    /**
+     * Retrieves several values, loading all misses from the repository in a single batch.
+     *
+     * <p>
+     * Cached entries are handled as by {@link #get(ICacheRepository, Object)}; the keys
+     * that miss, or whose entries expired, are then loaded together with
+     * {@link BatchCacheRepository#getAll(Collection)}.
+     * </p>
+     *
+     * @param repository the backing repository
+     * @param keys the keys of the values to retrieve
+     * @return the cached or loaded values, keyed by their key; keys that could not be found are absent
+     */
+    public Map<K, V> getAll(BatchCacheRepository<K, V> repository, Collection<K> keys) {
+        Map<K, V> values = new HashMap<>();
+        Map<K, Entry<V>> expired = new HashMap<>();
+        Set<K> unloaded = new LinkedHashSet<>();
+        for (K key : keys) {
+            Segment<K, V> segment = segmentFor(key);
+            Entry<V> entry = segment.get(key);
+            if (entry != null) {
+                if (readMode != ReadMode.REFRESH_AHEAD) {
+                    hit(key);
+                    values.put(key, entry.value);
+                    continue;
+                }
+                long age = System.nanoTime() - entry.writtenAt;
+                if (!refreshAheadScheduler.isExpired(age)) {
+                    if (refreshAheadScheduler.needsRefresh(age)) {
+                        scheduleRefresh(repository, key, segment, entry);
+                    }
+                    hit(key);
+                    values.put(key, entry.value);
+                    continue;
+                }
+                miss(key);
+                expired.put(key, entry);
+                unloaded.add(key);
+                continue;
+            }
+            miss(key);
+            V demoted = tier != null ? tier.take(key) : null;
+            if (demoted != null) {
+                trace(CacheEventType.PROMOTE, key, 0);
+                values.put(key, putIfAbsent(segment, key, demoted));
+            } else if (readMode != ReadMode.SIMPLE) {
+                unloaded.add(key);
+            }
+        }
+        if (unloaded.isEmpty()) {
+            return values;
+        }
+
+        Map<K, Long> stamps = new HashMap<>();
+        for (K key : unloaded) {
+            stamps.put(key, segmentFor(key).stamp());
+        }
+        Set<K> missing = new LinkedHashSet<>(unloaded);
+        missing.removeAll(expired.keySet());
+        Map<K, V> loaded = loadAll(repository, missing, false);
+        if (!expired.isEmpty()) {
+            loaded.putAll(loadAll(repository, expired.keySet(), true));
+        }
+        for (K key : unloaded) {
+            Segment<K, V> segment = segmentFor(key);
+            V value = loaded.get(key);
+            Entry<V> entry = expired.get(key);
+            if (entry != null) {
+                segment.replace(key, entry, value);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            } else if (value != null) {
+                values.put(key, putIfAbsent(segment, key, value, stamps.get(key)));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Writes several values to the cache and persists them according to the configured
+     * writing policy, using a single {@link BatchCacheRepository#putAll(Map)} call unless
+     * the write-behind policy is configured.
+     *
+     * @param repository the backing repository
+     * @param values the values to write, keyed by their key
+     * @return the values held by the cache after the write, keyed by their key
+     */
+    public Map<K, V> putAll(BatchCacheRepository<K, V> repository, Map<K, V> values) {
+        Map<K, V> held = new LinkedHashMap<>();
+        Map<K, V> written = new LinkedHashMap<>();
+        List<Segment<K, V>> writing = new ArrayList<>();
+        try {
+            for (Map.Entry<K, V> value : values.entrySet()) {
+                Segment<K, V> segment = segmentFor(value.getKey());
+                if (writeMode == WriteMode.IF_ABSENT) {
+                    V existing = putIfAbsentInAnyTier(segment, value.getKey(), value.getValue());
+                    if (existing != null) {
+                        held.put(value.getKey(), existing);
+                        continue;
+                    }
+                } else {
+                    segment.put(value.getKey(), value.getValue());
+                    writing.add(segment);
+                    removeFromTier(value.getKey());
+                }
+                trace(CacheEventType.PUT, value.getKey(), 0);
+                held.put(value.getKey(), value.getValue());
+                written.put(value.getKey(), value.getValue());
+            }
+            if (written.isEmpty()) {
+                return held;
+            }
+
+            if (writeMode == WriteMode.BEHIND) {
+                written.forEach((key, value) -> writeBehindExecutor.write(repository, key, value));
+            } else {
+                repository.putAll(written);
+            }
+            return held;
+        } finally {
+            writing.forEach(Segment::endWrite);
+        }
+    }
+
+    /**
+     * Removes several values from the cache and the repository, using a single
+     * {@link BatchCacheRepository#removeAll(Collection)} call unless the write-behind
+     * policy is configured.
+     *
+     * @param repository the backing repository
+     * @param keys the keys of the values to remove
+     */
+    public void removeAll(BatchCacheRepository<K, V> repository, Collection<K> keys) {
+        List<Segment<K, V>> writing = new ArrayList<>();
+        try {
+            for (K key : keys) {
+                Segment<K, V> segment = segmentFor(key);
+                segment.remove(key);
+                writing.add(segment);
+                removeFromTier(key);
+                trace(CacheEventType.REMOVE, key, 0);
+            }
+            if (writeMode == WriteMode.BEHIND) {
+                keys.forEach(key -> writeBehindExecutor.delete(repository, key));
+            } else {
+                repository.removeAll(keys);
+            }
+        } finally {
+            writing.forEach(Segment::endWrite);
+        }
+    }
+
+    /**
+     * Executes an operation against the repository.
+     *
+     * <p>
+     * Unlike {@link SwiftCache}, no cache-wide lock is held while the operation runs;
+     * the operation is responsible for its own consistency with the repository.
+     * </p>
+     *
+     * @param repository the backing repository
+     * @param key the key passed to the operation
+     * @param value the value passed to the operation
+     * @param operation the operation to execute
+     * @param <R> the type of the result returned by the operation
+     * @return the result of the operation
+     */
+    @Override
+    public <R> R executeWithCache(ICacheRepository<K, V> repository, K key, V value,
+                                  TriFunction<ICacheRepository<K, V>, K, V, R> operation) {
+        return repository.executeWithCache(operation, key, value);
+    }
+
+    /**
+     * Returns the number of entries currently held across all segments and the second level.
+     *
+     * @return the number of cached entries
+     */
+    @Override
+    public long size() {
+        return heapSize() + (tier != null ? tier.size() : 0);
+    }
+
+    /**
+     * Removes all entries from the cache and its second level without touching any repository.
+     */
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+        if (tier != null) {
+            tier.clear();
+        }
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of each cache level, starting with the segments.
+     *
+     * @return the statistics of each level
+     */
+    public List<TierStats> getTierStats() {
+        TierStats heap = new TierStats("heap", hits.sum(), misses.sum(), evictions.sum(), heapSize(), -1);
+        return tier != null ? Arrays.asList(heap, tier.getStats()) : Collections.singletonList(heap);
+    }
+
+    /**
+     * Returns the keys held on the heap, hottest first, without counting as accesses.
+     *
+     * <p>
+     * Within a segment, keys are ordered by estimated access frequency under W-TinyLFU
+     * and by most recent access or insertion otherwise. Segments are interleaved, so
+     * a limit below the number of entries keeps the hottest keys of every segment.
+     * </p>
+     *
+     * @param limit the maximum number of keys to return
+     * @return the hottest keys, at most {@code limit} of them
+     */
+    public List<K> getHotKeys(int limit) {
+        List<List<K>> ranked = new ArrayList<>(segments.length);
+        for (Segment<K, V> segment : segments) {
+            ranked.add(segment.hotKeys());
+        }
+        List<K> keys = new ArrayList<>();
+        for (int rank = 0; keys.size() < limit; rank++) {
+            boolean found = false;
+            for (List<K> segmentKeys : ranked) {
+                if (rank < segmentKeys.size() && keys.size() < limit) {
+                    keys.add(segmentKeys.get(rank));
+                    found = true;
+                }
+            }
+            if (!found) {
+                break;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the number of segments the key space is split into.
+     *
+     * @return the number of segments
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    private long heapSize() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private V putIfAbsentInAnyTier(Segment<K, V> segment, K key, V value) {
+        V demoted = tier != null ? tier.take(key) : null;
+        if (demoted != null) {
+            // The key is still cached one level down, so it is promoted instead of overwritten.
+            return putIfAbsent(segment, key, demoted);
+        }
+        return segment.putIfAbsent(key, value);
+    }
+
+    private void removeFromTier(K key) {
+        if (tier != null) {
+            tier.remove(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegments(int count) {
+        return (Segment<K, V>[]) new Segment<?, ?>[count];
+    }
+
+    private void onEviction(K key, V value) {
+        evictions.increment();
+        trace(CacheEventType.EVICT, key, 0);
+        if (tier != null) {
+            tier.put(key, value);
+        }
+    }
+
+    private V putIfAbsent(Segment<K, V> segment, K key, V value) {
+        V existing = segment.putIfAbsent(key, value);
+        return existing != null ? existing : value;
+    }
+
+    private V putIfAbsent(Segment<K, V> segment, K key, V value, long stamp) {
+        V existing = segment.putIfAbsent(key, value, stamp);
+        return existing != null ? existing : value;
+    }
+
+    /**
+     * Loads a value from the repository, through {@link BatchCacheRepository#reload(Object)}
+     * when an aging entry is reloaded.
+     */
+    private V load(ICacheRepository<K, V> repository, K key, boolean reload) {
+        if (writeMode == WriteMode.BEHIND) {
+            WriteBehindExecutor.Pending<V> pending = writeBehindExecutor.getPending(repository, key);
+            if (pending != null) {
+                // The repository does not reflect this key yet, so it must not be read from it.
+                return pending.getValue();
+            }
+        }
+        if (tracer == null || !tracer.isEnabled(CacheEventType.LOAD)) {
+            return read(repository, key, reload);
+        }
+        long start = System.nanoTime();
+        V value = read(repository, key, reload);
+        tracer.record(CacheEventType.LOAD, key, System.nanoTime() - start);
+        return value;
+    }
+
+    private V read(ICacheRepository<K, V> repository, K key, boolean reload) {
+        return reload && repository instanceof BatchCacheRepository
+                ? ((BatchCacheRepository<K, V>) repository).reload(key)
+                : repository.get(key);
+    }
+
+    private Map<K, V> loadAll(BatchCacheRepository<K, V> repository, Collection<K> keys, boolean reload) {
+        if (keys.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<K, V> values = new HashMap<>();
+        List<K> unloaded = new ArrayList<>();
+        for (K key : keys) {
+            WriteBehindExecutor.Pending<V> pending = writeMode == WriteMode.BEHIND
+                    ? writeBehindExecutor.getPending(repository, key) : null;
+            if (pending == null) {
+                unloaded.add(key);
+            } else if (!pending.isRemoval()) {
+                values.put(key, pending.getValue());
+            }
+        }
+        if (!unloaded.isEmpty()) {
+            long start = System.nanoTime();
+            values.putAll(reload ? repository.reloadAll(unloaded) : repository.getAll(unloaded));
+            long elapsed = System.nanoTime() - start;
+            for (K key : unloaded) {
+                trace(CacheEventType.LOAD, key, elapsed);
+            }
+        }
+        return values;
+    }
+
+    private void scheduleRefresh(final ICacheRepository<K, V> repository, final K key,
+                                 final Segment<K, V> segment, final Entry<V> entry) {
+        boolean scheduled = refreshAheadScheduler.schedule(key,
+                () -> segment.replace(key, entry, load(repository, key, true)));
+        trace(CacheEventType.REFRESH, key, scheduled ? 1 : 0);
+    }
+
+    private void hit(K key) {
+        hits.increment();
+        trace(CacheEventType.HIT, key, 0);
+    }
+
+    private void miss(K key) {
+        misses.increment();
+        trace(CacheEventType.MISS, key, 0);
+    }
+
+    private void trace(CacheEventType type, K key, long value) {
+        if (tracer != null) {
+            tracer.record(type, key, value);
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & segmentMask];
+    }
+
+    private static EvictionMode resolveEvictionMode(String evictionStrategy) {
+        if (SwiftCacheConfig.LRU_EVICTION_STRATEGY.equals(evictionStrategy)) {
+            return EvictionMode.LRU;
+        }
+        if (SwiftCacheConfig.FIFO_EVICTION_STRATEGY.equals(evictionStrategy)) {
+            return EvictionMode.FIFO;
+        }
+        if (WTinyLfuEvictionStrategy.W_TINY_LFU_EVICTION_STRATEGY.equals(evictionStrategy)) {
+            return EvictionMode.W_TINY_LFU;
+        }
+        throw new IllegalArgumentException("Invalid eviction strategy: " + evictionStrategy);
+    }
+
+    private static ReadMode resolveReadMode(String readPolicy, RefreshAheadScheduler<?> refreshAheadScheduler) {
+        if (SwiftCacheConfig.SIMPLE_READ_POLICY.equals(readPolicy)) {
+            return ReadMode.SIMPLE;
+        }
+        if (SwiftCacheConfig.READ_THROUGH_POLICY.equals(readPolicy)) {
+            return ReadMode.THROUGH;
+        }
+        if (SwiftCacheConfig.REFRESH_AHEAD_POLICY.equals(readPolicy)) {
+            if (refreshAheadScheduler == null) {
+                throw new IllegalArgumentException("Reading policy " + readPolicy + " requires a refresh-ahead scheduler");
+            }
+            return ReadMode.REFRESH_AHEAD;
+        }
+        throw new IllegalArgumentException("Invalid reading policy: " + readPolicy);
+    }
+
+    private static WriteMode resolveWriteMode(String writePolicy, WriteBehindExecutor<?, ?> writeBehindExecutor) {
+        if (SwiftCacheConfig.WRITE_ALWAYS_POLICY.equals(writePolicy)) {
+            return WriteMode.ALWAYS;
+        }
+        if (SwiftCacheConfig.WRITE_IF_ABSENT_POLICY.equals(writePolicy)) {
+            return WriteMode.IF_ABSENT;
+        }
+        if (SwiftCacheConfig.WRITE_BEHIND_POLICY.equals(writePolicy)) {
+            if (writeBehindExecutor == null) {
+                throw new IllegalArgumentException("Writing policy " + writePolicy + " requires a write-behind executor");
+            }
+            return WriteMode.BEHIND;
+        }
+        throw new IllegalArgumentException("Invalid writing policy: " + writePolicy);
+    }
+
+    /**
+     * The ways a segment chooses the entry to evict.
+     */
+    private enum EvictionMode {
+        LRU,
+        FIFO,
+        W_TINY_LFU
+    }
+
+    /**
+     * The ways a read miss or an aging entry is handled.
+     */
+    private enum ReadMode {
+        SIMPLE,
+        THROUGH,
+        REFRESH_AHEAD
+    }
+
+    /**
+     * The ways a write can be propagated to the backing repository.
+     */
+    private enum WriteMode {
+        ALWAYS,
+        IF_ABSENT,
+        BEHIND
+    }
+
+    /**
+     * A cached value together with the time it was written.
+     *
+     * @param <V> the type of the cached value
+     */
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long writtenAt;
+
+        Entry(V value) {
+            this.value = value;
+            this.writtenAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * A bounded, independently locked portion of the cache.
+     *
+     * @param <K> the type of keys maintained by this segment
+     * @param <V> the type of cached values
+     */
+    private static final class Segment<K, V> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<K, Entry<V>> map;
+        private final WTinyLfuEvictionStrategy<K, Entry<V>> policy;
+        private final int capacity;
+        private final BiConsumer<K, V> evictionListener;
+        private final Consumer<K> demotionCancelledListener;
+        private final Map<K, Entry<V>> demoting = new HashMap<>();
+        private K evictedKey;
+        private Entry<V> evictedEntry;
+        private long writeStamp;
+        private int writesInFlight;
+
+        /**
+         * The eviction listener is invoked after the segment lock is released. When a
+         * demotion listener is given, it is invoked after the eviction listener if the
+         * evicted key was written or removed in the meantime.
+         */
+        Segment(final int capacity, EvictionMode evictionMode, final BiConsumer<K, V> evictionListener,
+                final Consumer<K> demotionCancelledListener) {
+            this.capacity = capacity;
+            this.evictionListener = evictionListener;
+            this.demotionCancelledListener = demotionCancelledListener;
+            this.policy = evictionMode == EvictionMode.W_TINY_LFU ? new WTinyLfuEvictionStrategy<>(capacity) : null;
+            this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, evictionMode == EvictionMode.LRU) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    if (policy != null || size() <= capacity) {
+                        return false;
+                    }
+                    evicted(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        Entry<V> get(K key) {
+            lock.lock();
+            try {
+                Entry<V> entry = map.get(key);
+                if (entry != null && policy != null) {
+                    policy.recordAccess(key);
+                }
+                return entry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Writes an entry and starts a write, which the caller finishes with {@link #endWrite()}.
+         */
+        void put(K key, V value) {
+            Entry<V> entry = new Entry<>(value);
+            K victim;
+            Entry<V> victimEntry;
+            lock.lock();
+            try {
+                startWrite();
+                written(key);
+                makeRoomFor(key);
+                map.put(key, entry);
+                recordWrite(key);
+                victim = evictedKey;
+                victimEntry = takeEvicted();
+            } finally {
+                lock.unlock();
+            }
+            demote(victim, victimEntry);
+        }
+
+        V putIfAbsent(K key, V value) {
+            return putIfAbsent(key, value, -1);
+        }
+
+        /**
+         * Inserts a loaded value unless the key is cached, or unless a write started or
+         * finished since the given {@link #stamp()}, in which case nothing is inserted.
+         * A negative stamp inserts the value regardless of writes.
+         */
+        V putIfAbsent(K key, V value, long stamp) {
+            K victim;
+            Entry<V> victimEntry;
+            lock.lock();
+            try {
+                Entry<V> existing = map.get(key);
+                if (existing != null) {
+                    return existing.value;
+                }
+                if (stamp >= 0 && (stamp != writeStamp || writesInFlight > 0)) {
+                    return null;
+                }
+                written(key);
+                makeRoomFor(key);
+                map.put(key, new Entry<>(value));
+                recordWrite(key);
+                victim = evictedKey;
+                victimEntry = takeEvicted();
+            } finally {
+                lock.unlock();
+            }
+            demote(victim, victimEntry);
+            return null;
+        }
+
+        /**
+         * Replaces an entry with a freshly loaded value, or drops it if the value no longer
+         * exists, unless the entry was overwritten or removed in the meantime.
+         */
+        void replace(K key, Entry<V> expected, V value) {
+            lock.lock();
+            try {
+                if (map.get(key) != expected) {
+                    return;
+                }
+                written(key);
+                if (value == null) {
+                    map.remove(key);
+                    if (policy != null) {
+                        policy.remove(key);
+                    }
+                } else {
+                    map.put(key, new Entry<>(value));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Removes an entry and starts a write, which the caller finishes with {@link #endWrite()}.
+         */
+        void remove(K key) {
+            lock.lock();
+            try {
+                startWrite();
+                written(key);
+                map.remove(key);
+                if (policy != null) {
+                    policy.remove(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Finishes a write started by {@link #put(Object, Object)} or {@link #remove(Object)}
+         * once the repository reflects it.
+         */
+        void endWrite() {
+            lock.lock();
+            try {
+                writesInFlight--;
+                writeStamp++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long stamp() {
+            lock.lock();
+            try {
+                return writeStamp;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<K> hotKeys() {
+            List<K> keys;
+            lock.lock();
+            try {
+                keys = new ArrayList<>(map.keySet());
+                if (policy != null) {
+                    Map<K, Integer> frequencies = new HashMap<>();
+                    for (K key : keys) {
+                        frequencies.put(key, policy.frequency(key));
+                    }
+                    keys.sort((a, b) -> Integer.compare(frequencies.get(b), frequencies.get(a)));
+                    return keys;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // The map iterates from the least to the most recently accessed or inserted key.
+            Collections.reverse(keys);
+            return keys;
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return map.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                map.clear();
+                demoting.clear();
+                if (policy != null) {
+                    policy.clear();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Evicts the entry chosen by the W-TinyLFU policy before a new key is inserted into
+         * a full segment. Under LRU and FIFO the map evicts its eldest entry by itself.
+         */
+        private void makeRoomFor(K key) {
+            if (policy == null || map.size() < capacity || map.containsKey(key)) {
+                return;
+            }
+            K victim = policy.selectVictim(map::containsKey);
+            if (victim != null) {
+                evicted(victim, map.remove(victim));
+            }
+        }
+
+        /**
+         * Records the entry evicted by the current insert, to be demoted once the lock is
+         * released. At most one entry is evicted per insert.
+         */
+        private void evicted(K key, Entry<V> entry) {
+            evictedKey = key;
+            evictedEntry = entry;
+            if (demotionCancelledListener != null) {
+                demoting.put(key, entry);
+            }
+        }
+
+        private Entry<V> takeEvicted() {
+            Entry<V> entry = evictedEntry;
+            evictedKey = null;
+            evictedEntry = null;
+            return entry;
+        }
+
+        private void startWrite() {
+            writesInFlight++;
+            writeStamp++;
+        }
+
+        /**
+         * Cancels the pending demotion of a key that is being written or removed.
+         */
+        private void written(K key) {
+            if (!demoting.isEmpty()) {
+                demoting.remove(key);
+            }
+        }
+
+        private void demote(K key, Entry<V> entry) {
+            if (entry == null) {
+                return;
+            }
+            evictionListener.accept(key, entry.value);
+            if (demotionCancelledListener == null) {
+                return;
+            }
+            boolean cancelled;
+            lock.lock();
+            try {
+                cancelled = !demoting.remove(key, entry);
+            } finally {
+                lock.unlock();
+            }
+            if (cancelled) {
+                demotionCancelledListener.accept(key);
+            }
+        }
+
+        private void recordWrite(K key) {
+            if (policy != null) {
+                policy.recordAccess(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.bookstore.cache;
+
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of the counters of one cache level.
+ */
+@Getter
+public class TierStats {
+
+    /**
+     * The name of the cache level.
+     */
+    private final String name;
+
+    /**
+     * The number of lookups answered by the level.
+     */
+    private final long hits;
+
+    /**
+     * The number of lookups the level could not answer.
+     */
+    private final long misses;
+
+    /**
+     * The number of entries evicted from the level.
+     */
+    private final long evictions;
+
+    /**
+     * The number of entries currently held.
+     */
+    private final long entries;
+
+    /**
+     * The number of bytes used by the entries, or -1 if the level is not sized in bytes.
+     */
+    private final long usedBytes;
+
+    /**
+     * Constructs a new instance of {@link TierStats}.
+     *
+     * @param name the name of the cache level
+     * @param hits the number of lookups answered by the level
+     * @param misses the number of lookups the level could not answer
+     * @param evictions the number of entries evicted from the level
+     * @param entries the number of entries currently held
+     * @param usedBytes the number of bytes used by the entries, or -1 if the level is not sized in bytes
+     */
+    public TierStats(String name, long hits, long misses, long evictions, long entries, long usedBytes) {
+        this.name = name;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.usedBytes = usedBytes;
+    }
+
+    /**
+     * Returns the fraction of lookups answered by the level.
+     *
+     * @return the hit rate between 0 and 1, or 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
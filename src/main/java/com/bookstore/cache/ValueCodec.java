@@ -0,0 +1,27 @@
+package com.bookstore.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of cached values, used by tiers that store values outside the Java heap.
+ *
+ * @param <V> the type of encoded values
+ */
+public interface ValueCodec<V> {
+
+    /**
+     * Encodes a value.
+     *
+     * @param value the value to encode
+     * @return the encoded bytes
+     */
+    byte[] encode(V value);
+
+    /**
+     * Decodes a value from the remaining bytes of a buffer.
+     *
+     * @param buffer the buffer positioned at the start of an encoded value
+     * @return the decoded value
+     */
+    V decode(ByteBuffer buffer);
+}
@@ -0,0 +1,93 @@
+package com.bookstore.cache;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads when the application runs on Java 21 or later.
+ *
+ * <p>
+ * The application is compiled for Java 8, so the Java 21 thread builder API is
+ * looked up reflectively. {@link #isSupported()} tells whether it is available;
+ * the factory methods fail with an {@link IllegalStateException} when it is not,
+ * rather than silently falling back to platform threads.
+ * </p>
+ *
+ * <p>
+ * A virtual thread blocked on a socket releases its carrier thread, unless it is
+ * inside a {@code synchronized} block or method. Code run on these threads should
+ * therefore guard blocking calls with {@link java.util.concurrent.locks.ReentrantLock}
+ * rather than monitors.
+ * </p>
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = findOfVirtual();
+
+    private VirtualThreads() {
+        // Utility class
+    }
+
+    /**
+     * Returns whether the running JVM supports virtual threads.
+     *
+     * @return true on Java 21 or later
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a factory of virtual threads named {@code namePrefix} followed by a counter starting at 1.
+     *
+     * @param namePrefix the prefix of the thread names
+     * @return the thread factory
+     * @throws IllegalStateException if the running JVM does not support virtual threads
+     */
+    public static ThreadFactory factory(String namePrefix) {
+        if (OF_VIRTUAL == null) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later, running on Java "
+                    + System.getProperty("java.specification.version"));
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot create virtual threads", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create virtual threads", e.getCause());
+        }
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread for each task.
+     *
+     * @param namePrefix the prefix of the thread names
+     * @return the executor
+     * @throws IllegalStateException if the running JVM does not support virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        ThreadFactory factory = factory(namePrefix);
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot create virtual threads", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create virtual threads", e.getCause());
+        }
+    }
+
+    private static Method findOfVirtual() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
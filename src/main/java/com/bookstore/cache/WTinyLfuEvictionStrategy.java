@@ -0,0 +1,226 @@
+package com.bookstore.cache;
+
+import org.swiftcache.evictionstrategy.IEvictionStrategy;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Window TinyLFU eviction strategy.
+ *
+ * <p>
+ * New keys enter a small LRU admission window holding 1% of the capacity and overflow
+ * into the main area. Once the cache is full, the key about to overflow from the window
+ * competes with the least recently used key of the main area, and whichever a
+ * {@link FrequencySketch} estimates to be accessed less often is evicted. The main area is a segmented LRU: keys enter its
+ * probation segment and move to the protected segment (80% of the main area) when
+ * they are accessed again. A scan of keys that are each read once, such as a crawler
+ * walking the whole catalog, therefore only churns the window and cannot flush the
+ * frequently read keys out of the main area.
+ * </p>
+ *
+ * <p>
+ * The strategy keeps its own ordering and ignores the queue passed by
+ * {@link org.swiftcache.cache.SwiftCache}. All methods are guarded by a lock, since
+ * SwiftCache reports reads while holding only its shared read lock. It is a
+ * {@link ReentrantLock} rather than a monitor so that virtual threads waiting for it
+ * release their carrier thread.
+ * </p>
+ *
+ * @param <K> the type of keys maintained by the cache
+ * @param <V> the type of cached values
+ */
+public class WTinyLfuEvictionStrategy<K, V> implements IEvictionStrategy<K, V> {
+
+    /**
+     * Eviction strategy name selecting this strategy, alongside
+     * {@link org.swiftcache.cache.SwiftCacheConfig#LRU_EVICTION_STRATEGY} and
+     * {@link org.swiftcache.cache.SwiftCacheConfig#FIFO_EVICTION_STRATEGY}.
+     */
+    public static final String W_TINY_LFU_EVICTION_STRATEGY = "WTinyLFU";
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch<K> sketch;
+    private final LinkedHashSet<K> window = new LinkedHashSet<>();
+    private final LinkedHashSet<K> probation = new LinkedHashSet<>();
+    private final LinkedHashSet<K> protectedSegment = new LinkedHashSet<>();
+    private final long windowCapacity;
+    private final long protectedCapacity;
+
+    /**
+     * Constructs a new instance of {@link WTinyLfuEvictionStrategy}.
+     *
+     * @param maximumSize the maximum number of entries of the cache
+     */
+    public WTinyLfuEvictionStrategy(long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Invalid max size: " + maximumSize);
+        }
+        this.windowCapacity = Math.max(1, maximumSize / 100);
+        this.protectedCapacity = (maximumSize - windowCapacity) * 4 / 5;
+        this.sketch = new FrequencySketch<>(maximumSize);
+    }
+
+    /**
+     * Evicts one entry from a full cache.
+     *
+     * @param cache the cached entries
+     * @param queue unused
+     */
+    @Override
+    public void evict(Map<K, V> cache, Queue<K> queue) {
+        K victim = selectVictim(cache::containsKey);
+        if (victim != null) {
+            cache.remove(victim);
+        }
+    }
+
+    /**
+     * Records a read or write of a key.
+     *
+     * @param key the accessed key
+     * @param queue unused
+     */
+    @Override
+    public void updateQueue(K key, Queue<K> queue) {
+        recordAccess(key);
+    }
+
+    /**
+     * Records a read or write of a key, adding it to the admission window if it is new.
+     *
+     * @param key the accessed key
+     */
+    public void recordAccess(K key) {
+        lock.lock();
+        try {
+            sketch.increment(key);
+            if (window.remove(key)) {
+                window.add(key);
+            } else if (probation.remove(key)) {
+                protectedSegment.add(key);
+                if (protectedSegment.size() > protectedCapacity) {
+                    probation.add(pollFirst(protectedSegment));
+                }
+            } else if (protectedSegment.remove(key)) {
+                protectedSegment.add(key);
+            } else {
+                window.add(key);
+                if (window.size() > windowCapacity) {
+                    probation.add(pollFirst(window));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Chooses the key to evict and stops tracking it.
+     *
+     * @param isCached tells whether a tracked key is still cached; keys removed from the
+     *                 cache behind the strategy's back are discarded instead of chosen
+     * @return the key to evict, or null if no cached key is tracked
+     */
+    public K selectVictim(Predicate<? super K> isCached) {
+        lock.lock();
+        try {
+            K candidate = window.size() >= windowCapacity ? firstCached(window, isCached) : null;
+            K mainVictim = firstCached(probation, isCached);
+            if (mainVictim == null) {
+                mainVictim = firstCached(protectedSegment, isCached);
+            }
+
+            if (candidate != null && mainVictim != null) {
+                // The candidate is about to be pushed out of the window by the key being inserted.
+                if (sketch.frequency(candidate) > sketch.frequency(mainVictim)) {
+                    probation.remove(mainVictim);
+                    protectedSegment.remove(mainVictim);
+                    return mainVictim;
+                }
+                window.remove(candidate);
+                return candidate;
+            }
+            if (mainVictim != null) {
+                probation.remove(mainVictim);
+                protectedSegment.remove(mainVictim);
+                return mainVictim;
+            }
+            K victim = candidate != null ? candidate : firstCached(window, isCached);
+            if (victim != null) {
+                window.remove(victim);
+            }
+            return victim;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops tracking a key that was removed from the cache.
+     *
+     * @param key the removed key
+     */
+    public void remove(K key) {
+        lock.lock();
+        try {
+            if (!window.remove(key) && !probation.remove(key)) {
+                protectedSegment.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops tracking all keys. Access frequencies are kept.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the estimated number of recent accesses to a key.
+     *
+     * @param key the key
+     * @return the estimated frequency
+     */
+    public int frequency(K key) {
+        lock.lock();
+        try {
+            return sketch.frequency(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <K> K firstCached(LinkedHashSet<K> segment, Predicate<? super K> isCached) {
+        Iterator<K> iterator = segment.iterator();
+        while (iterator.hasNext()) {
+            K key = iterator.next();
+            if (isCached.test(key)) {
+                return key;
+            }
+            iterator.remove();
+        }
+        return null;
+    }
+
+    private static <K> K pollFirst(LinkedHashSet<K> segment) {
+        Iterator<K> iterator = segment.iterator();
+        K key = iterator.next();
+        iterator.remove();
+        return key;
+    }
+}
@@ -0,0 +1,611 @@
+package com.bookstore.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftcache.cacherepository.ICacheRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pooled, batching write-behind executor for cache repositories.
+ *
+ * <p>
+ * Writes and deletes are recorded in a per-repository pending map and the key is
+ * handed to one of a fixed number of workers, chosen by key hash so that all
+ * operations on a key are applied in order by the same worker. Repeated writes
+ * to a key that has not been flushed yet are coalesced into its latest state.
+ * Workers drain their bounded queue in batches and apply them with
+ * {@link BatchCacheRepository#putAll(Map)} and {@link BatchCacheRepository#removeAll(Collection)}
+ * when the repository supports it.
+ * </p>
+ *
+ * <p>
+ * When a worker queue is full, callers block until space is available, which
+ * throttles writers to the rate the data source can absorb. {@link #shutdown()}
+ * flushes every pending operation before the workers exit; operations submitted
+ * afterwards are written synchronously.
+ * </p>
+ *
+ * <p>
+ * Each worker flushes its batches while holding a lock of its own. An operation
+ * written synchronously takes the lock of the worker its key belongs to and drops
+ * the operation still pending for the key, if any, before applying its own, so that
+ * an older value flushed concurrently can never overwrite it.
+ * </p>
+ *
+ * <p>
+ * An operation whose batch fails is queued again by its worker after a backoff that
+ * doubles with every attempt, unless a newer operation on the key is pending by then,
+ * which supersedes it and is flushed without waiting for the backoff. Since the key
+ * cannot be flushed by anyone else while its worker holds the lock, a retry never
+ * overwrites a newer value. Operations still failing after the maximum number of
+ * attempts, or failing during {@link #shutdown()}, are dropped and counted.
+ * </p>
+ *
+ * @param <K> the type of keys written by this executor
+ * @param <V> the type of values written by this executor
+ */
+public class WriteBehindExecutor<K, V> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindExecutor.class);
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int MAX_BACKOFF_DOUBLINGS = 6;
+
+    /**
+     * The default number of times an operation is attempted before it is dropped.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    /**
+     * The default delay before the first retry of a failed operation, in milliseconds.
+     */
+    public static final long DEFAULT_RETRY_BACKOFF_MILLIS = 100;
+
+    private final ConcurrentMap<ICacheRepository<K, V>, ConcurrentMap<K, Pending<V>>> pending = new ConcurrentHashMap<>();
+    private final List<BlockingQueue<Slot<K, V>>> queues;
+    private final List<ReentrantLock> flushLocks;
+    private final ExecutorService workers;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final int maxAttempts;
+    private final long retryBackoffNanos;
+    private volatile boolean running = true;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder coalescedWrites = new LongAdder();
+    private final LongAdder flushedWrites = new LongAdder();
+    private final LongAdder flushedBatches = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAdder retriedWrites = new LongAdder();
+    private final LongAdder droppedWrites = new LongAdder();
+    private final LongAdder backPressureWaits = new LongAdder();
+    private final AtomicLong lastFlushLagNanos = new AtomicLong();
+    private final AtomicLong maxFlushLagNanos = new AtomicLong();
+
+    /**
+     * Constructs a new instance of {@link WriteBehindExecutor} and starts its workers.
+     *
+     * @param workerCount the number of worker threads
+     * @param queueCapacity the maximum number of keys queued per worker before writers block
+     * @param batchSize the maximum number of operations applied per batch
+     * @param flushIntervalMillis how long a worker waits to fill a batch once it has received an operation
+     */
+    public WriteBehindExecutor(int workerCount, int queueCapacity, int batchSize, long flushIntervalMillis) {
+        this(workerCount, queueCapacity, batchSize, flushIntervalMillis, DEFAULT_MAX_ATTEMPTS,
+                DEFAULT_RETRY_BACKOFF_MILLIS, null);
+    }
+
+    /**
+     * Constructs a new instance of {@link WriteBehindExecutor} and starts its workers on threads of the given factory.
+     *
+     * @param workerCount the number of worker threads
+     * @param queueCapacity the maximum number of keys queued per worker before writers block
+     * @param batchSize the maximum number of operations applied per batch
+     * @param flushIntervalMillis how long a worker waits to fill a batch once it has received an operation
+     * @param maxAttempts the number of times an operation is attempted before it is dropped
+     * @param retryBackoffMillis the delay before the first retry of a failed operation, doubled for every further one
+     * @param threadFactory the factory of the worker threads, or null for daemon platform threads
+     */
+    public WriteBehindExecutor(int workerCount, int queueCapacity, int batchSize, long flushIntervalMillis,
+                               int maxAttempts, long retryBackoffMillis, ThreadFactory threadFactory) {
+        if (workerCount <= 0 || queueCapacity <= 0 || batchSize <= 0 || flushIntervalMillis < 0
+                || maxAttempts <= 0 || retryBackoffMillis < 0) {
+            throw new IllegalArgumentException("Invalid write-behind settings");
+        }
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(retryBackoffMillis);
+        this.queues = new ArrayList<>(workerCount);
+        this.flushLocks = new ArrayList<>(workerCount);
+        this.workers = Executors.newFixedThreadPool(workerCount,
+                threadFactory != null ? threadFactory : new WorkerThreadFactory());
+        for (int i = 0; i < workerCount; i++) {
+            queues.add(new ArrayBlockingQueue<>(queueCapacity));
+            flushLocks.add(new ReentrantLock());
+        }
+        for (int i = 0; i < workerCount; i++) {
+            final int index = i;
+            workers.execute(() -> runWorker(index));
+        }
+    }
+
+    /**
+     * Schedules a value to be written to the repository.
+     *
+     * @param repository the repository to write to
+     * @param key the key of the value
+     * @param value the value to write
+     */
+    public void write(ICacheRepository<K, V> repository, K key, V value) {
+        submit(repository, key, new Pending<>(value, System.nanoTime()));
+    }
+
+    /**
+     * Schedules a key to be deleted from the repository.
+     *
+     * @param repository the repository to delete from
+     * @param key the key to delete
+     */
+    public void delete(ICacheRepository<K, V> repository, K key) {
+        submit(repository, key, new Pending<>(null, System.nanoTime()));
+    }
+
+    /**
+     * Returns the operation that is waiting to be flushed for a key, if any.
+     *
+     * @param repository the repository the operation targets
+     * @param key the key of the operation
+     * @return the pending operation, or null if nothing is pending for the key
+     */
+    public Pending<V> getPending(ICacheRepository<K, V> repository, K key) {
+        ConcurrentMap<K, Pending<V>> repositoryPending = pending.get(repository);
+        return repositoryPending == null ? null : repositoryPending.get(key);
+    }
+
+    /**
+     * Stops accepting asynchronous operations, flushes everything that is pending
+     * and waits for the workers to exit.
+     */
+    public void shutdown() {
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOGGER.warn("Write-behind workers did not finish flushing within 30 seconds, {} operations pending",
+                        getQueueDepth());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Operations submitted while the workers were exiting are flushed on the calling thread.
+        List<Slot<K, V>> remaining = new ArrayList<>();
+        for (int i = 0; i < queues.size(); i++) {
+            queues.get(i).drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                flush(i, remaining, null);
+                remaining.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of operations waiting to be flushed.
+     *
+     * @return the write-behind queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Returns the number of writes that replaced a not yet flushed write to the same key.
+     *
+     * @return the number of coalesced writes
+     */
+    public long getCoalescedWrites() {
+        return coalescedWrites.sum();
+    }
+
+    /**
+     * Returns the number of operations applied to repositories.
+     *
+     * @return the number of flushed operations
+     */
+    public long getFlushedWrites() {
+        return flushedWrites.sum();
+    }
+
+    /**
+     * Returns the number of batches applied to repositories.
+     *
+     * @return the number of flushed batches
+     */
+    public long getFlushedBatches() {
+        return flushedBatches.sum();
+    }
+
+    /**
+     * Returns the number of attempts to apply an operation that failed, retried or not.
+     *
+     * @return the number of failed attempts
+     */
+    public long getFailedWrites() {
+        return failedWrites.sum();
+    }
+
+    /**
+     * Returns the number of failed operations queued again to be retried.
+     *
+     * @return the number of retried operations
+     */
+    public long getRetriedWrites() {
+        return retriedWrites.sum();
+    }
+
+    /**
+     * Returns the number of operations dropped after failing their last attempt.
+     *
+     * @return the number of dropped operations
+     */
+    public long getDroppedWrites() {
+        return droppedWrites.sum();
+    }
+
+    /**
+     * Returns the number of times a writer had to wait for space in a full queue.
+     *
+     * @return the number of back-pressure waits
+     */
+    public long getBackPressureWaits() {
+        return backPressureWaits.sum();
+    }
+
+    /**
+     * Returns the time the oldest operation of the last batch spent waiting to be flushed.
+     *
+     * @return the last flush lag in milliseconds
+     */
+    public long getLastFlushLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastFlushLagNanos.get());
+    }
+
+    /**
+     * Returns the longest time an operation spent waiting to be flushed.
+     *
+     * @return the maximum flush lag in milliseconds
+     */
+    public long getMaxFlushLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxFlushLagNanos.get());
+    }
+
+    private void submit(ICacheRepository<K, V> repository, K key, Pending<V> operation) {
+        if (!running) {
+            applyNow(repository, key, operation);
+            return;
+        }
+
+        ConcurrentMap<K, Pending<V>> repositoryPending =
+                pending.computeIfAbsent(repository, r -> new ConcurrentHashMap<>());
+        Pending<V> previous = repositoryPending.put(key, operation);
+        if (previous != null) {
+            coalescedWrites.increment();
+            // A retry waits out its backoff, which the newer operation does not have to.
+            if (previous.attempts == 0) {
+                return;
+            }
+        } else {
+            queueDepth.incrementAndGet();
+        }
+
+        Slot<K, V> slot = new Slot<>(repository, key);
+        BlockingQueue<Slot<K, V>> queue = queues.get(indexFor(key));
+        if (queue.offer(slot)) {
+            return;
+        }
+        backPressureWaits.increment();
+        try {
+            queue.put(slot);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            applyNow(repository, key, null);
+        }
+    }
+
+    private void applyNow(ICacheRepository<K, V> repository, K key, Pending<V> operation) {
+        ReentrantLock lock = flushLocks.get(indexFor(key));
+        lock.lock();
+        try {
+            ConcurrentMap<K, Pending<V>> repositoryPending = pending.get(repository);
+            Pending<V> latest = repositoryPending == null ? null : repositoryPending.remove(key);
+            if (latest != null) {
+                queueDepth.decrementAndGet();
+                if (operation != null) {
+                    coalescedWrites.increment();
+                }
+            }
+            if (operation != null) {
+                latest = operation;
+            }
+            if (latest != null) {
+                apply(repository, key, latest);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int indexFor(K key) {
+        int h = key.hashCode();
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % queues.size();
+    }
+
+    private void runWorker(int index) {
+        BlockingQueue<Slot<K, V>> queue = queues.get(index);
+        Queue<Retry<K, V>> retries = new PriorityQueue<>();
+        List<Slot<K, V>> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                long wait = retries.isEmpty() ? POLL_NANOS
+                        : Math.max(0, Math.min(POLL_NANOS, retries.peek().dueAt - System.nanoTime()));
+                Slot<K, V> first = queue.poll(wait, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                }
+                long deadline = System.nanoTime() + lingerNanos;
+                while (first != null && batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    // Wait in short slices so that a shutdown does not have to sit out the whole interval.
+                    Slot<K, V> next = queue.poll(Math.min(remaining, POLL_NANOS), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            long now = System.nanoTime();
+            while (!retries.isEmpty() && retries.peek().dueAt <= now && batch.size() < batchSize) {
+                batch.add(retries.poll().slot);
+            }
+            if (!batch.isEmpty()) {
+                flush(index, batch, retries);
+                batch.clear();
+            }
+        }
+
+        // Operations waiting out a backoff get a last attempt without waiting any longer.
+        while (!retries.isEmpty()) {
+            batch.add(retries.poll().slot);
+        }
+        if (!batch.isEmpty()) {
+            flush(index, batch, null);
+        }
+    }
+
+    private void flush(int index, List<Slot<K, V>> batch, Queue<Retry<K, V>> retries) {
+        ReentrantLock lock = flushLocks.get(index);
+        lock.lock();
+        try {
+            flushLocked(batch, retries);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLocked(List<Slot<K, V>> batch, Queue<Retry<K, V>> retries) {
+        Map<ICacheRepository<K, V>, Map<K, Pending<V>>> operations = new IdentityHashMap<>();
+        Map<ICacheRepository<K, V>, Map<K, V>> writes = new IdentityHashMap<>();
+        Map<ICacheRepository<K, V>, List<K>> deletes = new IdentityHashMap<>();
+        long now = System.nanoTime();
+        long oldest = now;
+
+        for (Slot<K, V> slot : batch) {
+            Pending<V> operation = pending.get(slot.repository).remove(slot.key);
+            if (operation == null) {
+                continue;
+            }
+            queueDepth.decrementAndGet();
+            oldest = Math.min(oldest, operation.enqueuedAt);
+            operations.computeIfAbsent(slot.repository, r -> new LinkedHashMap<>()).put(slot.key, operation);
+            if (operation.isRemoval()) {
+                deletes.computeIfAbsent(slot.repository, r -> new ArrayList<>()).add(slot.key);
+            } else {
+                writes.computeIfAbsent(slot.repository, r -> new LinkedHashMap<>()).put(slot.key, operation.value);
+            }
+        }
+
+        for (Map.Entry<ICacheRepository<K, V>, Map<K, V>> entry : writes.entrySet()) {
+            if (!applyWrites(entry.getKey(), entry.getValue())) {
+                retry(entry.getKey(), entry.getValue().keySet(), operations.get(entry.getKey()), retries);
+            }
+        }
+        for (Map.Entry<ICacheRepository<K, V>, List<K>> entry : deletes.entrySet()) {
+            if (!applyDeletes(entry.getKey(), entry.getValue())) {
+                retry(entry.getKey(), entry.getValue(), operations.get(entry.getKey()), retries);
+            }
+        }
+
+        long lag = now - oldest;
+        lastFlushLagNanos.set(lag);
+        maxFlushLagNanos.accumulateAndGet(lag, Math::max);
+    }
+
+    private void retry(ICacheRepository<K, V> repository, Collection<K> keys, Map<K, Pending<V>> operations,
+                       Queue<Retry<K, V>> retries) {
+        ConcurrentMap<K, Pending<V>> repositoryPending = pending.get(repository);
+        long now = System.nanoTime();
+        int dropped = 0;
+        for (K key : keys) {
+            Pending<V> operation = operations.get(key);
+            int attempts = operation.attempts + 1;
+            if (retries == null || !running || attempts >= maxAttempts) {
+                dropped++;
+                continue;
+            }
+            // A newer operation pending for the key supersedes the failed one.
+            Pending<V> retry = new Pending<>(operation.value, operation.enqueuedAt, attempts);
+            if (repositoryPending.putIfAbsent(key, retry) == null) {
+                queueDepth.incrementAndGet();
+                retriedWrites.increment();
+                long backoff = retryBackoffNanos << Math.min(attempts - 1, MAX_BACKOFF_DOUBLINGS);
+                retries.add(new Retry<>(new Slot<>(repository, key), now + backoff));
+            }
+        }
+        if (dropped > 0) {
+            droppedWrites.add(dropped);
+            LOGGER.error("Dropped {} write-behind operations that failed their last attempt", dropped);
+        }
+    }
+
+    private boolean applyWrites(ICacheRepository<K, V> repository, Map<K, V> values) {
+        try {
+            if (repository instanceof BatchCacheRepository) {
+                ((BatchCacheRepository<K, V>) repository).putAll(values);
+            } else {
+                for (Map.Entry<K, V> entry : values.entrySet()) {
+                    repository.put(entry.getKey(), entry.getValue());
+                }
+            }
+            flushedWrites.add(values.size());
+            flushedBatches.increment();
+            return true;
+        } catch (RuntimeException e) {
+            failedWrites.add(values.size());
+            LOGGER.warn("Write-behind flush of {} values failed", values.size(), e);
+            return false;
+        }
+    }
+
+    private boolean applyDeletes(ICacheRepository<K, V> repository, List<K> keys) {
+        try {
+            if (repository instanceof BatchCacheRepository) {
+                ((BatchCacheRepository<K, V>) repository).removeAll(keys);
+            } else {
+                for (K key : keys) {
+                    repository.remove(key);
+                }
+            }
+            flushedWrites.add(keys.size());
+            flushedBatches.increment();
+            return true;
+        } catch (RuntimeException e) {
+            failedWrites.add(keys.size());
+            LOGGER.warn("Write-behind flush of {} deletes failed", keys.size(), e);
+            return false;
+        }
+    }
+
+    private void apply(ICacheRepository<K, V> repository, K key, Pending<V> operation) {
+        if (operation.isRemoval()) {
+            repository.remove(key);
+        } else {
+            repository.put(key, operation.value);
+        }
+    }
+
+    /**
+     * An operation waiting to be flushed: either the latest value written for a key
+     * or a removal of that key.
+     *
+     * @param <V> the type of the written value
+     */
+    public static final class Pending<V> {
+
+        private final V value;
+        private final long enqueuedAt;
+        private final int attempts;
+
+        Pending(V value, long enqueuedAt) {
+            this(value, enqueuedAt, 0);
+        }
+
+        Pending(V value, long enqueuedAt, int attempts) {
+            this.value = value;
+            this.enqueuedAt = enqueuedAt;
+            this.attempts = attempts;
+        }
+
+        /**
+         * Returns the value to be written.
+         *
+         * @return the pending value, or null for a removal
+         */
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Returns whether this operation deletes the key.
+         *
+         * @return true if the key is pending removal
+         */
+        public boolean isRemoval() {
+            return value == null;
+        }
+    }
+
+    private static final class Slot<K, V> {
+
+        private final ICacheRepository<K, V> repository;
+        private final K key;
+
+        Slot(ICacheRepository<K, V> repository, K key) {
+            this.repository = repository;
+            this.key = key;
+        }
+    }
+
+    private static final class Retry<K, V> implements Comparable<Retry<K, V>> {
+
+        private final Slot<K, V> slot;
+        private final long dueAt;
+
+        Retry(Slot<K, V> slot, long dueAt) {
+            this.slot = slot;
+            this.dueAt = dueAt;
+        }
+
+        @Override
+        public int compareTo(Retry<K, V> other) {
+            return Long.compare(dueAt - other.dueAt, 0);
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "write-behind-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
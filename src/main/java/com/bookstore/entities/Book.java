@@ -16,7 +16,8 @@ import javax.persistence.Table;
  *
  * <p>
  * The class is mapped to a PostgreSQL table named "books_postgres"
- * and a MongoDB collection named "books_mongo".
+ * and a MongoDB collection named "books_mongo". The table is mapped both for
+ * JPA and for Spring Data R2DBC, which the reactive profile uses.
  * </p>
  *
  * <p>
@@ -35,6 +36,7 @@ import javax.persistence.Table;
 @Getter
 @Entity
 @Table(name = "books_postgres")
+@org.springframework.data.relational.core.mapping.Table("books_postgres")
 @Document(collection = "books_mongo")
 public class Book {
 
@@ -44,6 +46,7 @@ public class Book {
      * and as the unique identifier in the MongoDB collection.
      */
     @Id
+    @org.springframework.data.annotation.Id
     private String id;
 
     /**
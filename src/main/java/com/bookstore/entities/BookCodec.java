@@ -0,0 +1,100 @@
+package com.bookstore.entities;
+
+import com.bookstore.cache.ValueCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of {@link Book} entities for off-heap cache tiers.
+ *
+ * <p>
+ * The id, title, author and ISBN are written as UTF-8 bytes, each preceded by its
+ * length plus one as an unsigned variable-length integer (0 denotes null), followed
+ * by the price as an 8-byte IEEE 754 double. A typical book takes well under 100 bytes.
+ * </p>
+ */
+public class BookCodec implements ValueCodec<Book> {
+
+    /**
+     * Encodes a {@link Book} entity.
+     *
+     * @param book the Book entity to encode
+     * @return the encoded bytes
+     */
+    @Override
+    public byte[] encode(Book book) {
+        byte[] id = utf8(book.getId());
+        byte[] title = utf8(book.getTitle());
+        byte[] author = utf8(book.getAuthor());
+        byte[] isbn = utf8(book.getIsbn());
+
+        ByteBuffer buffer = ByteBuffer.allocate(
+                sizeOf(id) + sizeOf(title) + sizeOf(author) + sizeOf(isbn) + Double.BYTES);
+        putString(buffer, id);
+        putString(buffer, title);
+        putString(buffer, author);
+        putString(buffer, isbn);
+        buffer.putDouble(book.getPrice());
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a {@link Book} entity.
+     *
+     * @param buffer the buffer positioned at the start of an encoded book
+     * @return the decoded Book entity
+     */
+    @Override
+    public Book decode(ByteBuffer buffer) {
+        Book book = new Book();
+        book.setId(getString(buffer));
+        book.setTitle(getString(buffer));
+        book.setAuthor(getString(buffer));
+        book.setIsbn(getString(buffer));
+        book.setPrice(buffer.getDouble());
+        return book;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] bytes) {
+        int length = bytes == null ? 0 : bytes.length + 1;
+        int size = 1;
+        while ((length >>>= 7) != 0) {
+            size++;
+        }
+        return size + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        int length = bytes == null ? 0 : bytes.length + 1;
+        while ((length & ~0x7F) != 0) {
+            buffer.put((byte) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        buffer.put((byte) length);
+        if (bytes != null) {
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,34 @@
+package com.bookstore.entities;
+
+/**
+ * Thrown when a book would be saved under the identifier of a different stored book,
+ * which saving it would overwrite.
+ */
+public class BookIdCollisionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+
+    /**
+     * Constructs a new instance of {@link BookIdCollisionException}.
+     *
+     * @param id the identifier shared by both books
+     * @param stored the book stored under the identifier
+     * @param saved the book being saved
+     */
+    public BookIdCollisionException(String id, Book stored, Book saved) {
+        super("Book id " + id + " of \"" + saved.getTitle() + "\" by " + saved.getAuthor()
+                + " already identifies \"" + stored.getTitle() + "\" by " + stored.getAuthor());
+        this.id = id;
+    }
+
+    /**
+     * Returns the identifier shared by both books.
+     *
+     * @return the identifier
+     */
+    public String getId() {
+        return id;
+    }
+}
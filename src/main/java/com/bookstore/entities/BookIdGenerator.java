@@ -0,0 +1,42 @@
+package com.bookstore.entities;
+
+/**
+ * Derives the identifier of a {@link Book} from its title, author and ISBN, so that
+ * saving the same book twice updates it instead of duplicating it.
+ *
+ * <p>
+ * Implementations must be stateless and thread-safe, and must always derive the same
+ * identifier from the same fields.
+ * </p>
+ */
+public interface BookIdGenerator {
+
+    /**
+     * Derives the identifier of a book from its fields.
+     *
+     * @param title the title of the book, or null
+     * @param author the author of the book, or null
+     * @param isbn the ISBN of the book, or null
+     * @return the identifier
+     */
+    String generate(String title, String author, String isbn);
+
+    /**
+     * Derives the identifier of a book from its title, author and ISBN.
+     *
+     * @param book the book to identify
+     * @return the identifier
+     */
+    default String generate(Book book) {
+        return generate(book.getTitle(), book.getAuthor(), book.getIsbn());
+    }
+
+    /**
+     * Assigns a book the identifier derived from its title, author and ISBN.
+     *
+     * @param book the book to identify
+     */
+    default void assignId(Book book) {
+        book.setId(generate(book));
+    }
+}
@@ -0,0 +1,37 @@
+package com.bookstore.entities;
+
+/**
+ * {@link BookIdGenerator} deriving the 32-bit identifiers of the first releases: the
+ * hexadecimal {@link String#hashCode()} of the title, author and ISBN concatenated.
+ *
+ * <p>
+ * The hash is computed over the fields in place rather than over their concatenation,
+ * and a null field hashes as {@code "null"}, as it did when concatenated. Distinct books
+ * may share an identifier; this scheme is only kept for catalogs whose identifiers
+ * have not been migrated yet.
+ * </p>
+ */
+public class LegacyBookIdGenerator implements BookIdGenerator {
+
+    /**
+     * Derives the identifier of a book from the {@link String#hashCode()} of its fields concatenated.
+     *
+     * @param title the title of the book, or null
+     * @param author the author of the book, or null
+     * @param isbn the ISBN of the book, or null
+     * @return the identifier, of 1 to 8 hexadecimal digits
+     */
+    @Override
+    public String generate(String title, String author, String isbn) {
+        int hash = hash(hash(hash(0, title), author), isbn);
+        return Integer.toHexString(hash);
+    }
+
+    private static int hash(int hash, String field) {
+        String chars = String.valueOf(field);
+        for (int i = 0; i < chars.length(); i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,126 @@
+package com.bookstore.entities;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link BookIdGenerator} deriving 128-bit identifiers with MurmurHash3 (x64, 128-bit
+ * variant).
+ *
+ * <p>
+ * Each field is hashed as its length followed by its UTF-16 code units, so that fields
+ * are never confused with one another ({@code "ab" + "c"} and {@code "a" + "bc"} differ)
+ * and a null field differs from an empty one. The fields are fed to the hash in place,
+ * without concatenating or encoding them, and the identifier is the 32 lowercase
+ * hexadecimal digits of the hash. The probability that any two of a billion distinct
+ * books share an identifier is below 10<sup>-20</sup>.
+ * </p>
+ */
+public class Murmur3BookIdGenerator implements BookIdGenerator {
+
+    /**
+     * The number of hexadecimal digits of every identifier.
+     */
+    public static final int ID_LENGTH = 32;
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * Derives the identifier of a book from the MurmurHash3 of its fields.
+     *
+     * @param title the title of the book, or null
+     * @param author the author of the book, or null
+     * @param isbn the ISBN of the book, or null
+     * @return the identifier, of {@value #ID_LENGTH} hexadecimal digits
+     */
+    @Override
+    public String generate(String title, String author, String isbn) {
+        // The hash state lives in locals rather than in a hasher object, so that nothing but
+        // the digits and the identifier is allocated, whether or not the JIT inlines the helpers.
+        long h1 = 0;
+        long h2 = 0;
+        long k1 = 0;
+        long word = 0;
+        int shift = 0;
+        long length = 0;
+        for (int f = 0; f < 3; f++) {
+            String field = f == 0 ? title : f == 1 ? author : isbn;
+            int fieldLength = field != null ? field.length() : -1;
+            int end = Math.max(fieldLength, 0);
+            // Two units of length first, then the code units of the field.
+            for (int i = -2; i < end; i++) {
+                int unit = i >= 0 ? field.charAt(i) : i == -2 ? fieldLength & 0xffff : fieldLength >>> 16;
+                word |= (unit & 0xffffL) << shift;
+                shift += 16;
+                if (shift < 64) {
+                    continue;
+                }
+                if ((length & 8) == 0) {
+                    k1 = word;
+                } else {
+                    h1 ^= mixK1(k1);
+                    h1 = Long.rotateLeft(h1, 27);
+                    h1 += h2;
+                    h1 = h1 * 5 + 0x52dce729;
+
+                    h2 ^= mixK2(word);
+                    h2 = Long.rotateLeft(h2, 31);
+                    h2 += h1;
+                    h2 = h2 * 5 + 0x38495ab5;
+                }
+                length += 8;
+                word = 0;
+                shift = 0;
+            }
+        }
+
+        // The partial last block is mixed without the rounds; its unused bytes are zero.
+        if ((length & 8) == 0) {
+            h1 ^= mixK1(word);
+        } else {
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(word);
+        }
+        length += shift >>> 3;
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        // The string copies these Latin-1 bytes as they are, where a char[] of the digits,
+        // twice as large, would have to be compressed into the copy.
+        byte[] id = new byte[ID_LENGTH];
+        for (int i = 0; i < 16; i++) {
+            id[i] = HEX_DIGITS[(int) (h1 >>> (60 - (i << 2))) & 0xf];
+            id[i + 16] = HEX_DIGITS[(int) (h2 >>> (60 - (i << 2))) & 0xf];
+        }
+        return new String(id, StandardCharsets.ISO_8859_1);
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,64 @@
+package com.bookstore.mongorepo;
+
+import com.bookstore.BookstoreApplication;
+import com.bookstore.cache.RepositoryMetrics;
+import com.bookstore.cache.RepositoryMetrics.Operation;
+import com.bookstore.entities.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Writes {@link Book} entities to MongoDB with unordered bulk writes.
+ *
+ * <p>
+ * Each book is an upserting replacement in a single {@code bulkWrite}. The writes are
+ * unordered, so the server may apply them in parallel and a failed document does not
+ * stop the others. The latency of each bulk write is recorded in the
+ * {@link RepositoryMetrics} timers tagged with {@value BookMongoDBCacheRepository#STORE}.
+ * </p>
+ */
+@Component
+@Profile("!" + BookstoreApplication.REACTIVE_PROFILE)
+public class BookMongoDBBulkWriter {
+
+    private final MongoTemplate mongoTemplate;
+    private final RepositoryMetrics metrics;
+
+    /**
+     * Constructs a new instance of {@link BookMongoDBBulkWriter}.
+     *
+     * @param mongoTemplate the template running operations against MongoDB
+     * @param meterRegistry the registry recording the latency of each bulk write
+     */
+    @Autowired
+    public BookMongoDBBulkWriter(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.metrics = new RepositoryMetrics(meterRegistry, BookMongoDBCacheRepository.STORE);
+    }
+
+    /**
+     * Inserts the given books, or replaces them if they already exist, in one unordered bulk write.
+     *
+     * @param books the books to write, with their ids assigned
+     */
+    public void upsertAll(Collection<Book> books) {
+        metrics.timer(Operation.UPSERT_ALL).record(() -> {
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class);
+            for (Book book : books) {
+                operations.replaceOne(query(where("_id").is(book.getId())), book,
+                        FindAndReplaceOptions.options().upsert());
+            }
+            operations.execute();
+        });
+    }
+}
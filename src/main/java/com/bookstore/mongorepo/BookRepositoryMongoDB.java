@@ -1,8 +1,11 @@
 package com.bookstore.mongorepo;
 
 import com.bookstore.entities.Book;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.stream.Stream;
+
 /**
  * Repository interface for managing {@link Book} entities in a MongoDB database.
  *
@@ -16,4 +19,17 @@ import org.springframework.data.mongodb.repository.MongoRepository;
  * The primary key type for the Book entity is {@link String}.
  * </p>
  */
-public interface BookRepositoryMongoDB extends MongoRepository<Book, String> {}
\ No newline at end of file
+public interface BookRepositoryMongoDB extends MongoRepository<Book, String> {
+
+    /**
+     * Streams every book from a cursor, fetching 1000 documents at a time.
+     *
+     * <p>
+     * The stream must be closed to release the cursor.
+     * </p>
+     *
+     * @return the stream of books, in no particular order
+     */
+    @Meta(cursorBatchSize = 1000)
+    Stream<Book> streamAllBy();
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.bookstore.mongorepo;
+
+import com.bookstore.entities.Book;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+/**
+ * Reactive repository interface for managing {@link Book} entities in a MongoDB database.
+ *
+ * <p>
+ * This interface extends {@link ReactiveMongoRepository}, providing non-blocking
+ * CRUD operations for the Book entity on the reactive MongoDB driver. It is used
+ * by the reactive profile in place of {@link BookRepositoryMongoDB}.
+ * </p>
+ *
+ * <p>
+ * The primary key type for the Book entity is {@link String}.
+ * </p>
+ */
+public interface ReactiveBookRepositoryMongoDB extends ReactiveMongoRepository<Book, String> {}
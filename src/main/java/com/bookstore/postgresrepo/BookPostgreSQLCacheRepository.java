@@ -1,10 +1,22 @@
 package com.bookstore.postgresrepo;
 
+import com.bookstore.BookstoreApplication;
+import com.bookstore.cache.BatchCacheRepository;
+import com.bookstore.cache.RepositoryMetrics;
+import com.bookstore.cache.RepositoryMetrics.Operation;
 import com.bookstore.entities.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.swiftcache.cacherepository.ICacheRepository;
 import org.swiftcache.utils.TriFunction;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Implementation of the {@link ICacheRepository} interface for managing
  * {@link Book} entities in a PostgreSQL repository with caching capabilities.
@@ -12,21 +24,47 @@ import org.swiftcache.utils.TriFunction;
  * <p>
  * This class serves as a bridge between the application and the PostgreSQL
  * repository, allowing for standard cache operations such as retrieval,
- * insertion, and deletion of Book entities.
+ * insertion, and deletion of Book entities, as well as batched retrieval,
+ * insertion and deletion through {@link BatchCacheRepository}.
+ * </p>
+ *
+ * <p>
+ * The latency of every operation is recorded in the {@link RepositoryMetrics}
+ * timers tagged with {@value #STORE}.
  * </p>
  */
 @Component
-public class BookPostgreSQLCacheRepository implements ICacheRepository<String, Book> {
+@Profile("!" + BookstoreApplication.REACTIVE_PROFILE)
+public class BookPostgreSQLCacheRepository implements BatchCacheRepository<String, Book> {
+
+    /**
+     * Name of this store in the {@code store} tag of the repository timers.
+     */
+    public static final String STORE = "postgresql";
 
     private final BookRepositoryPostgreSQL postgreSQLRepository;
+    private final RepositoryMetrics metrics;
 
     /**
-     * Constructs a new instance of {@link BookPostgreSQLCacheRepository}.
+     * Constructs a new instance of {@link BookPostgreSQLCacheRepository} recording its latency in the
+     * global meter registry.
      *
      * @param repository the PostgreSQL repository for Book entities
      */
     public BookPostgreSQLCacheRepository(BookRepositoryPostgreSQL repository) {
+        this(repository, Metrics.globalRegistry);
+    }
+
+    /**
+     * Constructs a new instance of {@link BookPostgreSQLCacheRepository}.
+     *
+     * @param repository the PostgreSQL repository for Book entities
+     * @param meterRegistry the registry recording the latency of each operation
+     */
+    @Autowired
+    public BookPostgreSQLCacheRepository(BookRepositoryPostgreSQL repository, MeterRegistry meterRegistry) {
         this.postgreSQLRepository = repository;
+        this.metrics = new RepositoryMetrics(meterRegistry, STORE);
     }
 
     /**
@@ -37,7 +75,7 @@ public class BookPostgreSQLCacheRepository implements ICacheRepository<String, B
      */
     @Override
     public Book get(String key) {
-        return postgreSQLRepository.findById(key).orElse(null);
+        return metrics.timer(Operation.GET).record(() -> postgreSQLRepository.findById(key).orElse(null));
     }
 
     /**
@@ -48,7 +86,7 @@ public class BookPostgreSQLCacheRepository implements ICacheRepository<String, B
      */
     @Override
     public void put(String key, Book value) {
-        postgreSQLRepository.save(value);
+        metrics.timer(Operation.PUT).record(() -> postgreSQLRepository.save(value));
     }
 
     /**
@@ -58,7 +96,44 @@ public class BookPostgreSQLCacheRepository implements ICacheRepository<String, B
      */
     @Override
     public void remove(String key) {
-        postgreSQLRepository.deleteById(key);
+        metrics.timer(Operation.REMOVE).record(() -> postgreSQLRepository.deleteById(key));
+    }
+
+    /**
+     * Retrieves all {@link Book} entities with the given identifiers from the PostgreSQL repository in a single batch.
+     *
+     * @param keys the unique identifiers of the books
+     * @return the Book entities found, keyed by their unique identifier
+     */
+    @Override
+    public Map<String, Book> getAll(Collection<String> keys) {
+        return metrics.timer(Operation.GET_ALL).record(() -> {
+            Map<String, Book> books = new HashMap<>();
+            for (Book book : postgreSQLRepository.findAllById(keys)) {
+                books.put(book.getId(), book);
+            }
+            return books;
+        });
+    }
+
+    /**
+     * Saves all given {@link Book} entities in the PostgreSQL repository in a single batch.
+     *
+     * @param values the Book entities to be saved, keyed by their unique identifier
+     */
+    @Override
+    public void putAll(Map<String, Book> values) {
+        metrics.timer(Operation.PUT_ALL).record(() -> postgreSQLRepository.saveAll(values.values()));
+    }
+
+    /**
+     * Deletes all {@link Book} entities with the given identifiers from the PostgreSQL repository.
+     *
+     * @param keys the unique identifiers of the books to be deleted
+     */
+    @Override
+    public void removeAll(Collection<String> keys) {
+        metrics.timer(Operation.REMOVE_ALL).record(() -> postgreSQLRepository.deleteAllById(keys));
     }
 
     /**
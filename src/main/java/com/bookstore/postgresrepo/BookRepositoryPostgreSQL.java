@@ -1,7 +1,17 @@
 package com.bookstore.postgresrepo;
 
 import com.bookstore.entities.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * Repository interface for managing {@link Book} entities in a PostgreSQL database.
@@ -16,4 +26,40 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * The primary key type for the Book entity is {@link String}.
  * </p>
  */
-public interface BookRepositoryPostgreSQL extends JpaRepository<Book, String> {}
\ No newline at end of file
+public interface BookRepositoryPostgreSQL extends JpaRepository<Book, String> {
+
+    /**
+     * The number of rows fetched from the server-side cursor at a time by {@link #streamAll()}.
+     */
+    String STREAM_FETCH_SIZE = "1000";
+
+    /**
+     * Streams every book from a server-side cursor, fetching {@value #STREAM_FETCH_SIZE}
+     * rows at a time, as read-only entities.
+     *
+     * <p>
+     * The stream must be consumed and closed within a read-only transaction, which keeps
+     * the cursor open. The entities stay attached to the persistence context until they
+     * are detached.
+     * </p>
+     *
+     * @return the stream of books, in no particular order
+     */
+    @Query("select b from Book b")
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    Stream<Book> streamAll();
+
+    /**
+     * Finds books whose identifier has fewer characters than the given length, such as
+     * those identified by an earlier, shorter identifier scheme.
+     *
+     * @param length the length identifiers must be shorter than
+     * @param pageable the page of books to find
+     * @return the books found
+     */
+    @Query("select b from Book b where length(b.id) < ?1")
+    List<Book> findByIdShorterThan(int length, Pageable pageable);
+}
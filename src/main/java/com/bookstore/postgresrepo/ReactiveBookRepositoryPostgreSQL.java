@@ -0,0 +1,43 @@
+package com.bookstore.postgresrepo;
+
+import com.bookstore.entities.Book;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive repository interface for managing {@link Book} entities in a PostgreSQL database.
+ *
+ * <p>
+ * This interface extends {@link R2dbcRepository}, providing non-blocking CRUD
+ * operations for the Book entity over R2DBC. It is used by the reactive profile
+ * in place of {@link BookRepositoryPostgreSQL}.
+ * </p>
+ *
+ * <p>
+ * Book identifiers are assigned by the application, so {@code save} would issue an
+ * {@code UPDATE} for new books. Books are written with {@link #upsert} instead.
+ * </p>
+ */
+public interface ReactiveBookRepositoryPostgreSQL extends R2dbcRepository<Book, String> {
+
+    /**
+     * Inserts a book, or updates it if a book with the same identifier exists.
+     *
+     * @param id the unique identifier of the book
+     * @param title the title of the book
+     * @param author the author of the book
+     * @param isbn the ISBN of the book
+     * @param price the price of the book
+     * @return the number of rows written
+     */
+    @Modifying
+    @Query("INSERT INTO books_postgres (id, title, author, isbn, price) "
+            + "VALUES (:id, :title, :author, :isbn, :price) "
+            + "ON CONFLICT (id) DO UPDATE SET title = EXCLUDED.title, author = EXCLUDED.author, "
+            + "isbn = EXCLUDED.isbn, price = EXCLUDED.price")
+    Mono<Integer> upsert(@Param("id") String id, @Param("title") String title, @Param("author") String author,
+                         @Param("isbn") String isbn, @Param("price") double price);
+}
@@ -0,0 +1,255 @@
+package com.bookstore.pricing;
+
+import com.bookstore.entities.Book;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.swiftcache.cacherepository.ICacheRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Prices books with the {@link PricingRule}s of a rules file, compiled into a {@link RulePipeline}.
+ *
+ * <p>
+ * The rules are read when the engine is created, from the given JSON file or, without
+ * one, from the {@value #DEFAULT_RULES} resource. Invalid rules fail the creation.
+ * </p>
+ *
+ * <p>
+ * A rules file is checked for changes at a fixed interval. A changed file is read and
+ * compiled on a background thread and then replaces the current pipeline in a single
+ * write, so requests keep being priced with the previous rules until the new ones are
+ * ready and never wait for a reload. A file that cannot be read or compiled is logged
+ * and counted, and the previous rules stay in place. Each reload increments the
+ * version of the rules, which is part of the key of memoized prices.
+ * </p>
+ *
+ * <p>
+ * {@link #calculatePrice(ICacheRepository, String, Book)} has the signature of the
+ * operations passed to {@code SwiftCache#executeWithCache}.
+ * </p>
+ */
+public class PricingEngine implements MeterBinder {
+
+    /**
+     * The classpath resource holding the rules used when no rules file is configured.
+     */
+    public static final String DEFAULT_RULES = "/pricing-rules.json";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PricingEngine.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true);
+
+    private final Path rulesFile;
+    private final ScheduledThreadPoolExecutor executor;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile RulePipeline pipeline;
+    private FileTime lastModified;
+
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder failedReloads = new LongAdder();
+
+    /**
+     * Constructs a new instance of {@link PricingEngine}.
+     *
+     * @param rulesFile the JSON file holding the rules, or null to use the {@value #DEFAULT_RULES} resource
+     * @param reloadIntervalMillis the time between two checks of the rules file for changes, or 0 to never reload
+     * @param threadFactory the factory of the reload thread, or null for a daemon platform thread
+     * @throws IllegalStateException if the rules cannot be read or compiled
+     */
+    public PricingEngine(Path rulesFile, long reloadIntervalMillis, ThreadFactory threadFactory) {
+        if (reloadIntervalMillis < 0) {
+            throw new IllegalArgumentException("Invalid pricing rules reload interval");
+        }
+        this.rulesFile = rulesFile;
+        try {
+            this.lastModified = rulesFile != null ? Files.getLastModifiedTime(rulesFile) : null;
+            this.pipeline = RulePipeline.compile(read(), 1);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Cannot load pricing rules from "
+                    + (rulesFile != null ? rulesFile : DEFAULT_RULES), e);
+        }
+        LOGGER.info("Loaded {} pricing rules from {}", pipeline.size(), rulesFile != null ? rulesFile : DEFAULT_RULES);
+        this.executor = new ScheduledThreadPoolExecutor(1,
+                threadFactory != null ? threadFactory : new ReloadThreadFactory());
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        if (rulesFile != null && reloadIntervalMillis > 0) {
+            executor.scheduleWithFixedDelay(this::reloadIfModified, reloadIntervalMillis, reloadIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Calculates the price of a {@link Book} with the current rules and saves it to the given repository.
+     *
+     * @param repo the cache repository where the book is stored
+     * @param key the unique identifier of the book
+     * @param book the Book entity for which to calculate the price
+     * @param <R> the type of the result returned by the method
+     * @return the updated Book entity with the calculated price
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R calculatePrice(ICacheRepository<String, Book> repo, String key, Book book) {
+        book.setPrice(pipeline.apply(book.getAuthor(), book.getIsbn(), book.getPrice()));
+        repo.put(key, book);
+        return (R) book;
+    }
+
+    /**
+     * Reads and compiles the rules file again, even if it has not changed.
+     *
+     * @return true if the new rules replaced the current ones
+     */
+    public boolean reload() {
+        if (rulesFile == null) {
+            return false;
+        }
+        reloadLock.lock();
+        try {
+            FileTime modified = Files.getLastModifiedTime(rulesFile);
+            RulePipeline reloaded = RulePipeline.compile(read(), pipeline.getVersion() + 1);
+            pipeline = reloaded;
+            lastModified = modified;
+            reloads.increment();
+            LOGGER.info("Reloaded {} pricing rules from {}, now at version {}", reloaded.size(), rulesFile,
+                    reloaded.getVersion());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failedReloads.increment();
+            LOGGER.warn("Keeping pricing rules version {}, cannot reload {}", pipeline.getVersion(), rulesFile, e);
+            return false;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the version of the current rules.
+     *
+     * @return 1 for the rules read on creation, incremented by each reload
+     */
+    public long getVersion() {
+        return pipeline.getVersion();
+    }
+
+    /**
+     * Returns the number of current rules.
+     *
+     * @return the number of rules
+     */
+    public int getRuleCount() {
+        return pipeline.size();
+    }
+
+    /**
+     * Returns the number of times the rules were reloaded.
+     *
+     * @return the number of reloads
+     */
+    public long getReloads() {
+        return reloads.sum();
+    }
+
+    /**
+     * Returns the number of reloads that failed and kept the previous rules.
+     *
+     * @return the number of failed reloads
+     */
+    public long getFailedReloads() {
+        return failedReloads.sum();
+    }
+
+    /**
+     * Stops checking the rules file for changes.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Registers the pricing rules meters with the given registry.
+     *
+     * @param registry the registry to register the meters with
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bookstore.pricing.rules", this, PricingEngine::getRuleCount)
+                .description("The number of pricing rules in use")
+                .register(registry);
+        Gauge.builder("bookstore.pricing.rules.version", this, PricingEngine::getVersion)
+                .description("The version of the pricing rules in use")
+                .register(registry);
+        FunctionCounter.builder("bookstore.pricing.rules.reloads", this, PricingEngine::getReloads)
+                .tag("result", "success")
+                .description("The number of times the pricing rules were reloaded")
+                .register(registry);
+        FunctionCounter.builder("bookstore.pricing.rules.reloads", this, PricingEngine::getFailedReloads)
+                .tag("result", "failure")
+                .description("The number of pricing rule reloads that kept the previous rules")
+                .register(registry);
+    }
+
+    private void reloadIfModified() {
+        try {
+            FileTime modified = Files.getLastModifiedTime(rulesFile);
+            reloadLock.lock();
+            try {
+                if (modified.equals(lastModified)) {
+                    return;
+                }
+            } finally {
+                reloadLock.unlock();
+            }
+            reload();
+        } catch (IOException e) {
+            failedReloads.increment();
+            LOGGER.warn("Cannot check pricing rules {} for changes", rulesFile, e);
+        }
+    }
+
+    private List<PricingRule> read() throws IOException {
+        TypeReference<List<PricingRule>> type = new TypeReference<List<PricingRule>>() {
+        };
+        if (rulesFile != null) {
+            try (InputStream in = Files.newInputStream(rulesFile)) {
+                return MAPPER.readValue(in, type);
+            }
+        }
+        try (InputStream in = PricingEngine.class.getResourceAsStream(DEFAULT_RULES)) {
+            if (in == null) {
+                throw new IOException("Missing resource " + DEFAULT_RULES);
+            }
+            return MAPPER.readValue(in, type);
+        }
+    }
+
+    private static final class ReloadThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "pricing-rules-reload-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
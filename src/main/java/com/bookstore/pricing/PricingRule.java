@@ -0,0 +1,90 @@
+package com.bookstore.pricing;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Definition of a pricing rule, as read from the rules file.
+ *
+ * <p>
+ * A rule applies to the books matching all of its conditions: an exact author, an
+ * ISBN prefix and a price range, each of which may be left out. Its action changes
+ * the price by adding an amount, multiplying it by a factor, replacing it or rounding
+ * it to a multiple of the amount. Prices are never rounded otherwise. Rules are
+ * evaluated in the order they are defined, each one seeing the price left by the
+ * previous ones, until one marked {@code stop} applies.
+ * </p>
+ *
+ * <p>
+ * Example definition:
+ * <pre>
+ *     { "id": "bloch-promotion", "author": "Joshua Bloch", "action": "MULTIPLY", "amount": 0.9 }
+ * </pre>
+ * </p>
+ */
+@Setter
+@Getter
+public class PricingRule {
+
+    /**
+     * The change a rule applies to the price.
+     */
+    public enum Action {
+        /**
+         * Adds the amount to the price.
+         */
+        ADD,
+        /**
+         * Multiplies the price by the amount.
+         */
+        MULTIPLY,
+        /**
+         * Replaces the price by the amount.
+         */
+        SET,
+        /**
+         * Rounds the price to the nearest multiple of the amount, such as 0.01 for cents.
+         */
+        ROUND
+    }
+
+    /**
+     * The name of the rule, used in logs.
+     */
+    private String id;
+
+    /**
+     * The author the book must have, or null for any author.
+     */
+    private String author;
+
+    /**
+     * The prefix the ISBN of the book must start with, or null for any ISBN.
+     */
+    private String isbnPrefix;
+
+    /**
+     * The lowest price the rule applies to, inclusive, or null for no lower bound.
+     */
+    private Double minPrice;
+
+    /**
+     * The highest price the rule applies to, exclusive, or null for no upper bound.
+     */
+    private Double maxPrice;
+
+    /**
+     * The change applied to the price.
+     */
+    private Action action;
+
+    /**
+     * The amount added, the factor multiplied by, the price set or the step rounded to.
+     */
+    private double amount;
+
+    /**
+     * Whether the rules after this one are skipped when it applies.
+     */
+    private boolean stop;
+}
@@ -0,0 +1,255 @@
+package com.bookstore.pricing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable, ordered set of {@link PricingRule}s compiled for evaluation on every request.
+ *
+ * <p>
+ * Each rule is given a bit in a bitset by its position in the definitions. Rules with
+ * an author are indexed by author, the others with an ISBN prefix in a trie of the
+ * prefixes, and the remaining ones apply to every book. Each trie node holds the bits
+ * of the rules of its own prefix and of all shorter prefixes, so a lookup walks the
+ * ISBN once and ORs three bitsets. The rules whose bits are set are then checked and
+ * applied in definition order.
+ * </p>
+ *
+ * <p>
+ * {@link #apply(String, String, double)} only reads the compiled arrays and maps, and
+ * allocates nothing. Prices are only rounded by {@link PricingRule.Action#ROUND} rules.
+ * </p>
+ */
+public final class RulePipeline {
+
+    private final long version;
+    private final Rule[] rules;
+    private final long[] unconditional;
+    private final Map<String, long[]> byAuthor;
+    private final Node isbnPrefixes;
+
+    private RulePipeline(long version, Rule[] rules, long[] unconditional, Map<String, long[]> byAuthor,
+                         Node isbnPrefixes) {
+        this.version = version;
+        this.rules = rules;
+        this.unconditional = unconditional;
+        this.byAuthor = byAuthor;
+        this.isbnPrefixes = isbnPrefixes;
+    }
+
+    /**
+     * Compiles rule definitions into a pipeline.
+     *
+     * @param definitions the rules, in evaluation order
+     * @param version the version of the rules, which changes whenever they are reloaded
+     * @return the compiled pipeline
+     * @throws IllegalArgumentException if a definition has no action, an empty condition or a step that is not positive
+     */
+    public static RulePipeline compile(List<PricingRule> definitions, long version) {
+        int words = Math.max(1, (definitions.size() + Long.SIZE - 1) / Long.SIZE);
+        Rule[] rules = new Rule[definitions.size()];
+        long[] unconditional = new long[words];
+        Map<String, long[]> byAuthor = new HashMap<>();
+        Map<String, long[]> byIsbnPrefix = new TreeMap<>();
+        for (int i = 0; i < rules.length; i++) {
+            PricingRule definition = definitions.get(i);
+            rules[i] = new Rule(definition, i);
+            long[] bits;
+            if (definition.getAuthor() != null) {
+                bits = byAuthor.computeIfAbsent(definition.getAuthor(), author -> new long[words]);
+            } else if (definition.getIsbnPrefix() != null) {
+                bits = byIsbnPrefix.computeIfAbsent(definition.getIsbnPrefix(), prefix -> new long[words]);
+            } else {
+                bits = unconditional;
+            }
+            bits[i / Long.SIZE] |= 1L << (i % Long.SIZE);
+        }
+        return new RulePipeline(version, rules, unconditional, byAuthor, Node.build(byIsbnPrefix, words));
+    }
+
+    /**
+     * Returns an empty pipeline, which leaves every price unchanged.
+     *
+     * @param version the version of the rules
+     * @return the empty pipeline
+     */
+    public static RulePipeline empty(long version) {
+        return compile(Collections.emptyList(), version);
+    }
+
+    /**
+     * Applies the rules matching a book to its price.
+     *
+     * @param author the author of the book, or null
+     * @param isbn the ISBN of the book, or null
+     * @param price the price of the book
+     * @return the price once every matching rule has applied
+     */
+    public double apply(String author, String isbn, double price) {
+        long[] authorBits = author != null ? byAuthor.get(author) : null;
+        long[] isbnBits = isbn != null ? isbnPrefixes.find(isbn) : null;
+        for (int word = 0; word < unconditional.length; word++) {
+            long bits = unconditional[word];
+            if (authorBits != null) {
+                bits |= authorBits[word];
+            }
+            if (isbnBits != null) {
+                bits |= isbnBits[word];
+            }
+            while (bits != 0) {
+                Rule rule = rules[word * Long.SIZE + Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+                if (rule.matches(author, isbn, price)) {
+                    price = rule.apply(price);
+                    if (rule.stop) {
+                        return price;
+                    }
+                }
+            }
+        }
+        return price;
+    }
+
+    /**
+     * Returns the version of the rules.
+     *
+     * @return the version given when the pipeline was compiled
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of rules.
+     *
+     * @return the number of rules in the pipeline
+     */
+    public int size() {
+        return rules.length;
+    }
+
+    private static final class Rule {
+
+        private final String author;
+        private final String isbnPrefix;
+        private final double minPrice;
+        private final double maxPrice;
+        private final PricingRule.Action action;
+        private final double amount;
+        private final double steps;
+        private final boolean stop;
+
+        private Rule(PricingRule definition, int position) {
+            if (definition.getAction() == null) {
+                throw new IllegalArgumentException("Pricing rule " + name(definition, position) + " has no action");
+            }
+            if ("".equals(definition.getAuthor()) || "".equals(definition.getIsbnPrefix())) {
+                throw new IllegalArgumentException("Pricing rule " + name(definition, position)
+                        + " has an empty condition");
+            }
+            if (definition.getAction() == PricingRule.Action.ROUND && !(definition.getAmount() > 0)) {
+                throw new IllegalArgumentException("Pricing rule " + name(definition, position)
+                        + " rounds to a step that is not positive");
+            }
+            this.author = definition.getAuthor();
+            this.isbnPrefix = definition.getIsbnPrefix();
+            this.minPrice = definition.getMinPrice() != null ? definition.getMinPrice() : Double.NEGATIVE_INFINITY;
+            this.maxPrice = definition.getMaxPrice() != null ? definition.getMaxPrice() : Double.POSITIVE_INFINITY;
+            this.action = definition.getAction();
+            this.amount = definition.getAmount();
+            // Multiplying by the number of steps per unit keeps 0.01 exact where dividing by it would not.
+            this.steps = 1 / amount;
+            this.stop = definition.isStop();
+        }
+
+        private boolean matches(String bookAuthor, String isbn, double price) {
+            return price >= minPrice && price < maxPrice
+                    && (author == null || author.equals(bookAuthor))
+                    && (isbnPrefix == null || (isbn != null && isbn.startsWith(isbnPrefix)));
+        }
+
+        private double apply(double price) {
+            switch (action) {
+                case ADD:
+                    return price + amount;
+                case MULTIPLY:
+                    return price * amount;
+                case ROUND:
+                    return Math.round(price * steps) / steps;
+                default:
+                    return amount;
+            }
+        }
+
+        private static String name(PricingRule definition, int position) {
+            return definition.getId() != null ? definition.getId() : "#" + (position + 1);
+        }
+    }
+
+    private static final class Node {
+
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private long[] bits;
+
+        private static Node build(Map<String, long[]> byPrefix, int words) {
+            Node root = new Node();
+            Map<Node, Map<Character, Node>> edges = new HashMap<>();
+            for (Map.Entry<String, long[]> entry : byPrefix.entrySet()) {
+                Node node = root;
+                for (char label : entry.getKey().toCharArray()) {
+                    node = edges.computeIfAbsent(node, parent -> new TreeMap<>())
+                            .computeIfAbsent(label, child -> new Node());
+                }
+                node.bits = entry.getValue();
+            }
+            root.freeze(edges, null, words);
+            return root;
+        }
+
+        private void freeze(Map<Node, Map<Character, Node>> edges, long[] inherited, int words) {
+            if (inherited != null) {
+                long[] merged = bits != null ? bits.clone() : new long[words];
+                for (int word = 0; word < words; word++) {
+                    merged[word] |= inherited[word];
+                }
+                bits = merged;
+            }
+            Map<Character, Node> next = edges.get(this);
+            if (next == null) {
+                return;
+            }
+            labels = new char[next.size()];
+            children = next.values().toArray(new Node[0]);
+            List<Character> keys = new ArrayList<>(next.keySet());
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = keys.get(i);
+                children[i].freeze(edges, bits, words);
+            }
+        }
+
+        private long[] find(String isbn) {
+            Node node = this;
+            long[] found = bits;
+            for (int i = 0; i < isbn.length(); i++) {
+                int child = Arrays.binarySearch(node.labels, isbn.charAt(i));
+                if (child < 0) {
+                    break;
+                }
+                node = node.children[child];
+                if (node.bits != null) {
+                    found = node.bits;
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.bookstore.search;
+
+import com.bookstore.entities.Book;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory secondary indexes of {@link Book}s by ISBN, author and title.
+ *
+ * <p>
+ * ISBNs and authors are indexed in hash maps from the value to the ids of its books,
+ * and titles in a sorted map, so that a title prefix is answered from the range of
+ * titles starting with it. ISBNs are compared without separators, and authors and
+ * titles regardless of case and of surrounding spaces; the spaces ending a title
+ * prefix are kept, so that {@code "java "} only matches whole words. Results are
+ * ordered by title and then by id, which keeps pages stable while the index changes.
+ * </p>
+ *
+ * <p>
+ * A title prefix alone is answered by walking its range only as far as the requested
+ * page, skipping whole titles before it, and counting on to at most
+ * {@value #MAX_COUNTED_MATCHES} matches, so short prefixes matching most of the
+ * catalog do not hold the read lock for a walk over all of it. Past that, the total
+ * is a lower bound and the page says so.
+ * </p>
+ *
+ * <p>
+ * The index only holds the fields it searches on and the ids; callers load the books
+ * themselves. Lookups share a read lock, so they run concurrently with each other and
+ * only wait for the short updates.
+ * </p>
+ */
+public class BookIndex implements MeterBinder {
+
+    /**
+     * The maximum number of results on a page.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * The number of title prefix matches counted before a search stops counting them
+     * and returns their total as a lower bound, unless its page lies further.
+     */
+    public static final int MAX_COUNTED_MATCHES = 1000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> byId = new HashMap<>();
+    private final Map<String, Set<String>> byIsbn = new HashMap<>();
+    private final Map<String, Set<String>> byAuthor = new HashMap<>();
+    private final NavigableMap<String, Set<String>> byTitle = new TreeMap<>();
+
+    private final LongAdder searches = new LongAdder();
+
+    /**
+     * Adds a book to the index, replacing the entry of a book with the same id.
+     *
+     * @param book the book to index
+     */
+    public void add(Book book) {
+        addAll(Collections.singletonList(book));
+    }
+
+    /**
+     * Adds books to the index, replacing the entries of books with the same ids.
+     *
+     * @param books the books to index
+     */
+    public void addAll(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                unlink(book.getId());
+                link(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the books that are not indexed yet, leaving the entries of the others as they are.
+     *
+     * @param books the books to index
+     */
+    public void addAllIfAbsent(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                if (!byId.containsKey(book.getId())) {
+                    link(book);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a book from the index.
+     *
+     * @param id the unique identifier of the book
+     */
+    public void remove(String id) {
+        removeAll(Collections.singletonList(id));
+    }
+
+    /**
+     * Removes books from the index.
+     *
+     * @param ids the unique identifiers of the books
+     */
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(this::unlink);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the books matching every given condition.
+     *
+     * @param isbn the ISBN of the books, or null for any ISBN
+     * @param author the author of the books, or null for any author
+     * @param titlePrefix the start of the title of the books, or null for any title
+     * @param page the zero-based number of the page to return
+     * @param size the maximum number of results on a page
+     * @return the ids of the matching books on the page, ordered by title and id
+     * @throws IllegalArgumentException if no condition is given, or the page or size is out of range
+     */
+    public SearchPage<String> search(String isbn, String author, String titlePrefix, int page, int size) {
+        String isbnKey = normalizeIsbn(isbn);
+        String authorKey = normalize(author);
+        String titleKey = normalizePrefix(titlePrefix);
+        if (isbnKey == null && authorKey == null && titleKey == null) {
+            throw new IllegalArgumentException("No search condition");
+        }
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Invalid search page");
+        }
+        searches.increment();
+        long offset = (long) page * size;
+
+        lock.readLock().lock();
+        try {
+            if (isbnKey == null && authorKey == null) {
+                return titleRange(titleKey, offset, page, size);
+            }
+            Set<String> candidates = smallest(isbnKey != null ? byIsbn.get(isbnKey) : null,
+                    authorKey != null ? byAuthor.get(authorKey) : null,
+                    isbnKey != null, authorKey != null);
+            List<Entry> matches = new ArrayList<>();
+            for (String id : candidates) {
+                Entry entry = byId.get(id);
+                if (entry.matches(isbnKey, authorKey, titleKey)) {
+                    matches.add(entry);
+                }
+            }
+            matches.sort(Entry.ORDER);
+            List<String> ids = new ArrayList<>();
+            for (int i = (int) Math.min(offset, matches.size()); i < matches.size() && ids.size() < size; i++) {
+                ids.add(matches.get(i).id);
+            }
+            return new SearchPage<>(ids, page, size, matches.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed books.
+     *
+     * @return the number of books
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of searches answered.
+     *
+     * @return the number of searches
+     */
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    /**
+     * Registers the index meters with the given registry.
+     *
+     * @param registry the registry to register the meters with
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bookstore.search.index.size", this, BookIndex::size)
+                .description("The number of books in the search index")
+                .register(registry);
+        FunctionCounter.builder("bookstore.search.queries", this, BookIndex::getSearches)
+                .description("The number of searches answered from the index")
+                .register(registry);
+    }
+
+    private SearchPage<String> titleRange(String prefix, long offset, int page, int size) {
+        long limit = Math.max(offset + size, MAX_COUNTED_MATCHES);
+        List<String> ids = new ArrayList<>();
+        long total = 0;
+        for (Set<String> titled : byTitle.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (total >= limit) {
+                return new SearchPage<>(ids, page, size, total, false);
+            }
+            if (total + titled.size() <= offset || ids.size() == size) {
+                total += titled.size();
+                continue;
+            }
+            for (String id : titled) {
+                if (total >= offset && ids.size() < size) {
+                    ids.add(id);
+                }
+                total++;
+            }
+        }
+        return new SearchPage<>(ids, page, size, total);
+    }
+
+    private void link(Book book) {
+        Entry entry = new Entry(book.getId(), normalizeIsbn(book.getIsbn()),
+                normalize(book.getAuthor()), normalize(book.getTitle()));
+        byId.put(entry.id, entry);
+        link(byIsbn, entry.isbn, entry.id);
+        link(byAuthor, entry.author, entry.id);
+        link(byTitle, entry.title, entry.id);
+    }
+
+    private void unlink(String id) {
+        Entry entry = byId.remove(id);
+        if (entry != null) {
+            unlink(byIsbn, entry.isbn, id);
+            unlink(byAuthor, entry.author, id);
+            unlink(byTitle, entry.title, id);
+        }
+    }
+
+    private static Set<String> smallest(Set<String> isbnIds, Set<String> authorIds, boolean byIsbn,
+                                        boolean byAuthor) {
+        if ((byIsbn && isbnIds == null) || (byAuthor && authorIds == null)) {
+            return Collections.emptySet();
+        }
+        if (isbnIds == null) {
+            return authorIds;
+        }
+        return authorIds == null || isbnIds.size() <= authorIds.size() ? isbnIds : authorIds;
+    }
+
+    private static void link(Map<String, Set<String>> index, String key, String id) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new TreeSet<>()).add(id);
+        }
+    }
+
+    private static void unlink(Map<String, Set<String>> index, String key, String id) {
+        if (key == null) {
+            return;
+        }
+        Set<String> ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizePrefix(String prefix) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return null;
+        }
+        int start = 0;
+        while (Character.isWhitespace(prefix.charAt(start))) {
+            start++;
+        }
+        return prefix.substring(start).toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizeIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(isbn.length());
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toUpperCase(c));
+            }
+        }
+        return normalized.length() == 0 ? null : normalized.toString();
+    }
+
+    private static final class Entry {
+
+        private static final Comparator<Entry> ORDER = Comparator
+                .comparing((Entry entry) -> entry.title, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(entry -> entry.id);
+
+        private final String id;
+        private final String isbn;
+        private final String author;
+        private final String title;
+
+        private Entry(String id, String isbn, String author, String title) {
+            this.id = id;
+            this.isbn = isbn;
+            this.author = author;
+            this.title = title;
+        }
+
+        private boolean matches(String isbnKey, String authorKey, String titlePrefix) {
+            return (isbnKey == null || isbnKey.equals(isbn))
+                    && (authorKey == null || authorKey.equals(author))
+                    && (titlePrefix == null || (title != null && title.startsWith(titlePrefix)));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.bookstore.search;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable page of search results.
+ *
+ * @param <T> the type of the results
+ */
+@Getter
+public class SearchPage<T> {
+
+    /**
+     * The results on the page, in the order of the search.
+     */
+    private final List<T> content;
+
+    /**
+     * The zero-based number of the page.
+     */
+    private final int page;
+
+    /**
+     * The maximum number of results on a page.
+     */
+    private final int size;
+
+    /**
+     * The number of results on all pages, or a lower bound of it if {@link #totalExact} is false.
+     */
+    private final long total;
+
+    /**
+     * Whether {@link #total} counts every result, rather than stopping once enough were counted.
+     */
+    private final boolean totalExact;
+
+    /**
+     * Constructs a new instance of {@link SearchPage}.
+     *
+     * @param content the results on the page
+     * @param page the zero-based number of the page
+     * @param size the maximum number of results on a page
+     * @param total the number of results on all pages
+     */
+    public SearchPage(List<T> content, int page, int size, long total) {
+        this(content, page, size, total, true);
+    }
+
+    /**
+     * Constructs a new instance of {@link SearchPage} whose total may be a lower bound.
+     *
+     * @param content the results on the page
+     * @param page the zero-based number of the page
+     * @param size the maximum number of results on a page
+     * @param total the number of results on all pages, or a lower bound of it
+     * @param totalExact whether the total counts every result
+     */
+    public SearchPage(List<T> content, int page, int size, long total, boolean totalExact) {
+        this.content = Collections.unmodifiableList(content);
+        this.page = page;
+        this.size = size;
+        this.total = total;
+        this.totalExact = totalExact;
+    }
+}
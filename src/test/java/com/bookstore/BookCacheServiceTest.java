@@ -1,14 +1,43 @@
 package com.bookstore;
 
+import com.bookstore.cache.DualWriteException;
+import com.bookstore.cache.DualWriter;
+import com.bookstore.cache.InMemoryInvalidationBus;
+import com.bookstore.cache.InMemorySharedCache;
+import com.bookstore.cache.MappedFileCache;
+import com.bookstore.cache.NegativeCache;
+import com.bookstore.cache.NoOpCacheRepository;
+import com.bookstore.cache.PriceMemo;
+import com.bookstore.cache.ReadRouter;
+import com.bookstore.cache.SingleFlightLoader;
+import com.bookstore.cache.StripedSwiftCache;
 import com.bookstore.entities.Book;
+import com.bookstore.entities.BookIdCollisionException;
+import com.bookstore.entities.LegacyBookIdGenerator;
+import com.bookstore.entities.Murmur3BookIdGenerator;
+import com.bookstore.entities.BookCodec;
 import com.bookstore.mongorepo.BookMongoDBCacheRepository;
 import com.bookstore.postgresrepo.BookPostgreSQLCacheRepository;
+import com.bookstore.search.BookIndex;
+import com.bookstore.search.SearchPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.swiftcache.cache.SwiftCache;
+import org.swiftcache.cache.SwiftCacheConfig;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,7 +63,12 @@ class BookCacheServiceTest {
     @Mock
     private BookMongoDBCacheRepository mongoDBRepository;
 
-    @InjectMocks
+    @Spy
+    private SingleFlightLoader<String, Book> bookLoader = new SingleFlightLoader<>(1000);
+
+    @Spy
+    private DualWriter dualWriter = new DualWriter(1, 1);
+
     private BookCacheService bookCacheService;
 
     private Book book;
@@ -46,6 +80,8 @@ class BookCacheServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        bookCacheService = BookCacheService.builder(cache, postgreSQLRepository, mongoDBRepository, bookLoader,
+                dualWriter).build();
         book = new Book();
         book.setId("1");
         book.setTitle("Test Book");
@@ -62,6 +98,39 @@ class BookCacheServiceTest {
         when(cache.get(postgreSQLRepository, "1")).thenReturn(book);
         Book retrievedBook = bookCacheService.getBook("1");
         assertEquals("Test Book", retrievedBook.getTitle());
+        verify(bookLoader, times(1)).load(eq("1"), any());
+    }
+
+    /**
+     * Tests that a cached book is returned without going through the loader, even while
+     * a load of the same id is in flight.
+     */
+    @Test
+    void testGetBookHitBypassesLoader() throws Exception {
+        BookCacheService service = BookCacheService.builder(localCache(), postgreSQLRepository, mongoDBRepository,
+                bookLoader, dualWriter).build();
+        when(postgreSQLRepository.get("1")).thenReturn(book);
+        assertSame(book, service.getBook("1"));
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Book> inFlight = CompletableFuture.supplyAsync(() -> bookLoader.load("1", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return book;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertSame(book, service.getBook("1"));
+        }
+        assertEquals(0, bookLoader.getCoalescedLoads());
+        verify(bookLoader, times(2)).load(eq("1"), any());
+        release.countDown();
+        inFlight.get(5, TimeUnit.SECONDS);
     }
 
     /**
@@ -69,11 +138,26 @@ class BookCacheServiceTest {
      */
     @Test
     void testPutBook() {
-        String id = Integer.toHexString((book.getTitle() + book.getAuthor() + book.getIsbn()).hashCode());
+        String id = new Murmur3BookIdGenerator().generate(book);
         when(cache.put(mongoDBRepository, id, book)).thenReturn(book);
         Book savedBook = bookCacheService.putBook(book);
         assertNotNull(savedBook);
         assertEquals("Test Book", savedBook.getTitle());
+        verify(cache, times(1)).put(postgreSQLRepository, id, book);
+    }
+
+    /**
+     * Tests that a failed repository write evicts the book from the cache only.
+     */
+    @Test
+    void testPutBookEvictsOnFailure() {
+        String id = new Murmur3BookIdGenerator().generate(book);
+        when(cache.put(mongoDBRepository, id, book)).thenThrow(new IllegalStateException("MongoDB unavailable"));
+
+        DualWriteException e = assertThrows(DualWriteException.class, () -> bookCacheService.putBook(book));
+        assertFalse(e.isPrimaryFailed());
+        assertTrue(e.isSecondaryFailed());
+        verify(cache, times(1)).remove(any(NoOpCacheRepository.class), eq(id));
     }
 
     /**
@@ -84,6 +168,42 @@ class BookCacheServiceTest {
         doNothing().when(cache).remove(postgreSQLRepository, "1");
         bookCacheService.removeBook("1");
         verify(cache, times(1)).remove(postgreSQLRepository, "1");
+        verify(cache, times(1)).remove(mongoDBRepository, "1");
+    }
+
+    /**
+     * Tests the retrieval of several Book entities, skipping unknown identifiers.
+     */
+    @Test
+    void testGetBooks() {
+        when(cache.get(postgreSQLRepository, "1")).thenReturn(book);
+        List<Book> books = bookCacheService.getBooks(Arrays.asList("1", "2", "1"));
+        assertEquals(1, books.size());
+        assertSame(book, books.get(0));
+        verify(cache, times(1)).get(postgreSQLRepository, "2");
+    }
+
+    /**
+     * Tests the saving of several Book entities to both repositories.
+     */
+    @Test
+    void testPutBooks() {
+        String id = new Murmur3BookIdGenerator().generate(book);
+        when(cache.put(mongoDBRepository, id, book)).thenReturn(book);
+        List<Book> savedBooks = bookCacheService.putBooks(Arrays.asList(book));
+        assertEquals(1, savedBooks.size());
+        assertSame(book, savedBooks.get(0));
+        verify(cache, times(1)).put(postgreSQLRepository, id, book);
+    }
+
+    /**
+     * Tests the removal of several Book entities from both repositories.
+     */
+    @Test
+    void testRemoveBooks() {
+        bookCacheService.removeBooks(Arrays.asList("1", "2"));
+        verify(cache, times(1)).remove(postgreSQLRepository, "2");
+        verify(cache, times(1)).remove(mongoDBRepository, "2");
     }
 
     /**
@@ -116,4 +236,362 @@ class BookCacheServiceTest {
         Book updatedBook = BookPriceCalculator.calculatePrice(postgreSQLRepository, book.getId(), book);
         assertEquals(10.00, updatedBook.getPrice()); // Price should remain 10.00
     }
+
+    /**
+     * Tests that repeated price calculations are answered from the memo and that only
+     * changed prices are written back, in one batch per database.
+     */
+    @Test
+    void testCalculatePriceMemoizedAndWrittenBackInBatches() {
+        PriceMemo<String, Book> priceMemo = new PriceMemo<>(100, 60_000);
+        BookCacheService service = service(localCache()).priceMemo(priceMemo).build();
+
+        assertEquals(11.99, service.calculateBookPrice(book).getPrice());
+        book.setPrice(9.99);
+        assertEquals(11.99, service.calculateBookPrice(book).getPrice());
+        assertEquals(1, priceMemo.getHits());
+        verify(postgreSQLRepository, never()).put(any(), any());
+        assertEquals(11.99, service.getBook(book.getId()).getPrice());
+
+        assertEquals(1, priceMemo.flush());
+        verify(postgreSQLRepository).putAll(argThat(books -> books.get(book.getId()).getPrice() == 11.99));
+        verify(mongoDBRepository).putAll(argThat(books -> books.size() == 1));
+
+        Book samePrice = new Book();
+        samePrice.setTitle(book.getTitle());
+        samePrice.setAuthor(book.getAuthor());
+        samePrice.setIsbn(book.getIsbn());
+        samePrice.setPrice(11.99);
+        assertEquals(11.99, service.calculateBookPrice(samePrice).getPrice());
+        assertEquals(0, priceMemo.getPendingWrites());
+
+        service.putBook(book);
+        assertEquals(0, priceMemo.size());
+        priceMemo.shutdown();
+    }
+
+    /**
+     * Tests that saved books are found by a search, and that removed books and books
+     * that no longer exist are not.
+     */
+    @Test
+    void testSearchIndexedBooks() {
+        BookIndex bookIndex = new BookIndex();
+        BookCacheService service = service(localCache()).bookIndex(bookIndex).build();
+        service.putBook(book);
+        Book ghost = new Book();
+        ghost.setId("ghost");
+        ghost.setTitle("Test Ghost");
+        bookIndex.add(ghost);
+
+        SearchPage<Book> found = service.searchBooks(null, null, "TEST", 0, 10);
+        assertEquals(1, found.getContent().size());
+        assertEquals(book.getId(), found.getContent().get(0).getId());
+        assertEquals(1, found.getTotal());
+        assertEquals(1, bookIndex.size());
+
+        service.removeBook(book.getId());
+        assertEquals(0, service.searchBooks(book.getIsbn(), null, null, 0, 10).getTotal());
+        assertNull(bookCacheService.searchBooks(book.getIsbn(), null, null, 0, 10));
+    }
+
+    /**
+     * Tests that books written around the cache are evicted from it and indexed, and
+     * that a failed write still evicts them.
+     */
+    @Test
+    void testWriteAround() {
+        BookIndex bookIndex = new BookIndex();
+        StripedSwiftCache<String, Book> localCache = localCache();
+        BookCacheService service = service(localCache).bookIndex(bookIndex).build();
+        service.putBook(book);
+        bookIndex.remove(book.getId());
+        List<Book> books = Collections.singletonList(book);
+
+        service.writeAround(books, () -> {
+        });
+        assertNull(localCache.getIfPresent(book.getId()));
+        assertEquals(1, bookIndex.size());
+
+        service.putBook(book);
+        assertThrows(IllegalStateException.class, () -> service.writeAround(books, () -> {
+            throw new IllegalStateException("down");
+        }));
+        assertNull(localCache.getIfPresent(book.getId()));
+    }
+
+    /**
+     * Tests that books written around the cache, or whose write failed, are also
+     * dropped from the shared cache, so no node keeps serving the older copy.
+     */
+    @Test
+    void testWriteAroundEvictsSharedCache() {
+        InMemorySharedCache<String, Book> sharedCache = new InMemorySharedCache<>();
+        BookCacheService service = node(sharedCache, new InMemoryInvalidationBus<>());
+        String id = service.putBook(book).getId();
+        sharedCache.put(id, book);
+
+        service.writeAround(Collections.singletonList(book), () -> {
+        });
+        assertNull(sharedCache.get(id));
+
+        sharedCache.put(id, book);
+        doThrow(new IllegalStateException("down")).when(postgreSQLRepository).put(eq(id), any());
+        assertThrows(DualWriteException.class, () -> service.putBook(book));
+        assertNull(sharedCache.get(id));
+    }
+
+    /**
+     * Tests that a book is not saved under the identifier of a different cached book,
+     * while the cached book can still be updated, and that saves do not read the databases.
+     */
+    @Test
+    void testPutBookRejectsIdCollision() {
+        BookCacheService service = service(localCache()).idGenerator(new LegacyBookIdGenerator()).build();
+        book.setTitle("Aa");
+        service.putBook(book);
+        Book colliding = new Book();
+        colliding.setTitle("BB");
+        colliding.setAuthor(book.getAuthor());
+        colliding.setIsbn(book.getIsbn());
+
+        BookIdCollisionException e = assertThrows(BookIdCollisionException.class,
+                () -> service.putBooks(Collections.singletonList(colliding)));
+        assertEquals(book.getId(), e.getId());
+        assertThrows(BookIdCollisionException.class, () -> service.putBook(colliding));
+        verify(mongoDBRepository, never()).put(eq(book.getId()), same(colliding));
+        assertSame(book, service.getBook(book.getId()));
+
+        book.setPrice(20.0);
+        assertEquals(20.0, service.putBook(book).getPrice());
+        verify(postgreSQLRepository, never()).get(any());
+        verify(postgreSQLRepository, never()).getAll(any());
+    }
+
+    /**
+     * Tests that a price is not calculated, nor written, for a book whose identifier
+     * is that of a different cached book.
+     */
+    @Test
+    void testCalculateBookPriceRejectsIdCollision() {
+        PriceMemo<String, Book> priceMemo = new PriceMemo<>(10, 60_000);
+        try {
+            BookCacheService service = service(localCache()).idGenerator(new LegacyBookIdGenerator())
+                    .priceMemo(priceMemo).build();
+            book.setTitle("Aa");
+            service.putBook(book);
+            Book colliding = new Book();
+            colliding.setTitle("BB");
+            colliding.setAuthor(book.getAuthor());
+            colliding.setIsbn(book.getIsbn());
+            colliding.setPrice(5.0);
+
+            assertThrows(BookIdCollisionException.class, () -> service.calculateBookPrice(colliding));
+            assertEquals(0, priceMemo.getPendingWrites());
+            assertEquals(0, priceMemo.getMisses());
+            assertSame(book, service.getBook(book.getId()));
+        } finally {
+            priceMemo.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a missing book is looked up once until it is saved, and that saving it
+     * forgets that it was missing.
+     */
+    @Test
+    void testMissingBookCachedNegatively() throws Exception {
+        NegativeCache<String> negativeCache = new NegativeCache<>(100, 60_000);
+        List<Runnable> tasks = new ArrayList<>();
+        BookCacheService service = service(localCache()).ioExecutor(tasks::add).negativeCache(negativeCache).build();
+        String id = new Murmur3BookIdGenerator().generate(book);
+
+        assertNull(service.getBook(id));
+        assertNull(service.getBook(id));
+        CompletableFuture<Book> future = service.getBookAsync(id);
+        assertTrue(future.isDone());
+        assertNull(future.get());
+        assertTrue(tasks.isEmpty());
+        verify(postgreSQLRepository, times(1)).get(id);
+        assertEquals(2, negativeCache.getHits());
+
+        service.putBook(book);
+        assertFalse(negativeCache.contains(id));
+        assertSame(book, service.getBook(id));
+    }
+
+    private static StripedSwiftCache<String, Book> localCache() {
+        return new StripedSwiftCache<>(new SwiftCacheConfig(10, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1);
+    }
+
+    private BookCacheService.Builder service(SwiftCache<String, Book> localCache) {
+        return BookCacheService.builder(localCache, postgreSQLRepository, mongoDBRepository,
+                new SingleFlightLoader<>(1000), new DualWriter(0, 1));
+    }
+
+    private BookCacheService node(InMemorySharedCache<String, Book> sharedCache, InMemoryInvalidationBus<String> bus) {
+        return service(localCache()).sharedCache(sharedCache).invalidationBus(bus).build();
+    }
+
+    /**
+     * Tests that nodes share loaded books, and that a write on one node removes the shared
+     * copy and makes the other nodes drop their local copies.
+     */
+    @Test
+    void testSharedCacheAndInvalidationAcrossNodes() {
+        InMemorySharedCache<String, Book> sharedCache = new InMemorySharedCache<>();
+        InMemoryInvalidationBus<String> firstBus = new InMemoryInvalidationBus<>();
+        BookCacheService first = node(sharedCache, firstBus);
+        BookCacheService second = node(sharedCache, firstBus.join());
+        BookCacheService third = node(sharedCache, firstBus.join());
+
+        String id = first.putBook(book).getId();
+        assertNull(sharedCache.get(id));
+        when(postgreSQLRepository.get(id)).thenReturn(book);
+        assertSame(book, second.getBook(id));
+        assertSame(book, third.getBook(id));
+        verify(postgreSQLRepository, times(1)).get(id);
+
+        Book updated = new Book();
+        updated.setTitle(book.getTitle());
+        updated.setAuthor(book.getAuthor());
+        updated.setIsbn(book.getIsbn());
+        updated.setPrice(19.99);
+        first.putBook(updated);
+        assertNull(sharedCache.get(id));
+        when(postgreSQLRepository.get(id)).thenReturn(updated);
+        assertEquals(19.99, second.getBook(id).getPrice());
+        assertEquals(19.99, third.getBook(id).getPrice());
+
+        first.removeBook(id);
+        when(postgreSQLRepository.get(id)).thenReturn(null);
+        assertNull(second.getBook(id));
+        verify(postgreSQLRepository, times(3)).get(id);
+        assertEquals("shared", second.getCacheStats().get(1).getName());
+    }
+
+    /**
+     * Tests that a restarted node serves books from the file on local disk, and that removed books are dropped from it.
+     *
+     * @param directory the directory holding the file
+     */
+    @Test
+    void testServesBooksFromDiskAfterRestart(@TempDir Path directory) {
+        Path path = directory.resolve("books.log");
+        MappedFileCache<Book> file = new MappedFileCache<>("books", path, new BookCodec(), 1 << 16, 0.5);
+        String id = service(localCache()).persistentCache(file).build().putBook(book).getId();
+        file.close();
+
+        MappedFileCache<Book> reopened = new MappedFileCache<>("books", path, new BookCodec(), 1 << 16, 0.5);
+        BookCacheService restarted = service(localCache()).persistentCache(reopened).build();
+        Book served = restarted.getBook(id);
+        assertEquals(book.getTitle(), served.getTitle());
+        assertEquals(book.getPrice(), served.getPrice());
+        verify(postgreSQLRepository, never()).get(any());
+        assertEquals("disk", restarted.getCacheStats().get(1).getName());
+        assertEquals(1, restarted.getCacheStats().get(1).getHits());
+
+        restarted.removeBook(id);
+        assertEquals(0, reopened.size());
+        reopened.close();
+    }
+
+    /**
+     * Tests that a node announcing changes on an invalidation bus starts with an empty file,
+     * since it missed the changes made while it was down.
+     *
+     * @param directory the directory holding the file
+     */
+    @Test
+    void testDropsFileOnStartupWithInvalidationBus(@TempDir Path directory) {
+        MappedFileCache<Book> file = new MappedFileCache<>("books", directory.resolve("books.log"),
+                new BookCodec(), 1 << 16, 0.5);
+        file.put("1", book);
+
+        service(localCache()).persistentCache(file).invalidationBus(new InMemoryInvalidationBus<>()).build();
+
+        assertEquals(0, file.size());
+        file.close();
+    }
+
+    /**
+     * Tests that a book missing from the cache is read from MongoDB while PostgreSQL is failing.
+     */
+    @Test
+    void testReadsFromMongoDBWhilePostgreSQLFails() {
+        ReadRouter readRouter = new ReadRouter("postgresql", "mongodb", 0, 0, 1, 60_000);
+        BookCacheService service = service(localCache()).readRouter(readRouter).build();
+        when(postgreSQLRepository.get("1")).thenThrow(new IllegalStateException("unreachable"));
+        when(mongoDBRepository.get(anyString())).thenReturn(book);
+
+        assertSame(book, service.getBook("1"));
+        assertSame(book, service.getBook("2"));
+
+        verify(postgreSQLRepository, times(1)).get(any());
+        assertFalse(service.getRoutingStats().get(0).isHealthy());
+        assertEquals(2, service.getRoutingStats().get(1).getWins());
+    }
+
+    /**
+     * Tests that a book whose save failed on MongoDB is read from PostgreSQL even while
+     * reads are routed to MongoDB.
+     */
+    @Test
+    void testReadsFromPostgreSQLAfterMongoDBWriteFailed() {
+        ReadRouter readRouter = new ReadRouter("postgresql", "mongodb", 0, 0, 1, 60_000);
+        BookCacheService service = service(localCache()).readRouter(readRouter).build();
+        doThrow(new IllegalStateException("down")).when(mongoDBRepository).put(anyString(), any());
+        assertThrows(DualWriteException.class, () -> service.putBook(book));
+        String id = book.getId();
+        Book stale = new Book();
+        when(postgreSQLRepository.get("2")).thenThrow(new IllegalStateException("unreachable"));
+        when(postgreSQLRepository.get(id)).thenReturn(book);
+        when(mongoDBRepository.get(anyString())).thenReturn(stale);
+
+        assertSame(stale, service.getBook("2"));
+        assertFalse(service.getRoutingStats().get(0).isHealthy());
+        assertSame(book, service.getBook(id));
+        verify(mongoDBRepository, never()).get(id);
+    }
+
+    /**
+     * Tests that cached books are returned on the calling thread while misses are handed to the executor.
+     */
+    @Test
+    void testGetBookAsyncCompletesHitsOnCallingThread() {
+        List<Runnable> tasks = new ArrayList<>();
+        StripedSwiftCache<String, Book> localCache = localCache();
+        BookCacheService service = service(localCache).ioExecutor(tasks::add).build();
+        when(postgreSQLRepository.get("1")).thenReturn(book);
+
+        CompletableFuture<Book> miss = service.getBookAsync("1");
+        assertFalse(miss.isDone());
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertSame(book, miss.join());
+
+        CompletableFuture<Book> hit = service.getBookAsync("1");
+        assertTrue(hit.isDone());
+        assertSame(book, hit.join());
+        assertEquals(1, tasks.size());
+        assertEquals(1, localCache.getTierStats().get(0).getHits());
+        assertEquals(1, localCache.getTierStats().get(0).getMisses());
+    }
+
+    /**
+     * Tests that an operation the executor rejects yields a failed future instead of an exception.
+     */
+    @Test
+    void testAsyncOperationRejectedByExecutor() {
+        BookCacheService service = BookCacheService.builder(cache, postgreSQLRepository, mongoDBRepository,
+                bookLoader, dualWriter).ioExecutor(task -> {
+                    throw new RejectedExecutionException("saturated");
+                }).build();
+
+        CompletableFuture<Book> future = service.putBookAsync(book);
+
+        assertTrue(future.isCompletedExceptionally());
+        verify(cache, never()).put(any(), any(), any());
+    }
 }
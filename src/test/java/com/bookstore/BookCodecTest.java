@@ -0,0 +1,72 @@
+package com.bookstore;
+
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookCodec;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link BookCodec} class.
+ *
+ * <p>
+ * This class tests that Book entities survive an encode/decode round trip,
+ * including null and non-ASCII fields.
+ * </p>
+ */
+class BookCodecTest {
+
+    private final BookCodec codec = new BookCodec();
+
+    /**
+     * Tests that every field of a Book entity is preserved.
+     */
+    @Test
+    void testRoundTrip() {
+        Book book = new Book();
+        book.setId("1");
+        book.setTitle("Crime and Punishment \u2014 \u041f\u0440\u0435\u0441\u0442\u0443\u043f\u043b\u0435\u043d\u0438\u0435");
+        book.setAuthor("Fyodor Dostoevsky");
+        book.setIsbn("978-0143107637");
+        book.setPrice(12.5);
+
+        Book decoded = codec.decode(ByteBuffer.wrap(codec.encode(book)));
+
+        assertEquals(book.getId(), decoded.getId());
+        assertEquals(book.getTitle(), decoded.getTitle());
+        assertEquals(book.getAuthor(), decoded.getAuthor());
+        assertEquals(book.getIsbn(), decoded.getIsbn());
+        assertEquals(book.getPrice(), decoded.getPrice());
+    }
+
+    /**
+     * Tests that null fields are preserved and take a single byte each.
+     */
+    @Test
+    void testNullFields() {
+        Book book = new Book();
+        byte[] encoded = codec.encode(book);
+
+        assertEquals(4 + Double.BYTES, encoded.length);
+        Book decoded = codec.decode(ByteBuffer.wrap(encoded));
+        assertNull(decoded.getId());
+        assertNull(decoded.getTitle());
+    }
+
+    /**
+     * Tests that strings longer than a single-byte length prefix are preserved.
+     */
+    @Test
+    void testLongField() {
+        Book book = new Book();
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            title.append('x');
+        }
+        book.setTitle(title.toString());
+
+        assertEquals(title.toString(), codec.decode(ByteBuffer.wrap(codec.encode(book))).getTitle());
+    }
+}
@@ -1,18 +1,34 @@
 package com.bookstore;
 
+import com.bookstore.cache.RoutingStats;
+import com.bookstore.cache.TierStats;
 import com.bookstore.entities.Book;
 import com.bookstore.entities.BookDTO;
+import com.bookstore.entities.BookFormat;
+import com.bookstore.entities.BookIdCollisionException;
+import com.bookstore.search.SearchPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 /**
@@ -30,7 +46,12 @@ class BookControllerTest {
     @Mock
     private BookCacheService bookCacheService;
 
-    @InjectMocks
+    @Mock
+    private BookExportService bookExportService;
+
+    @Mock
+    private BookImportService bookImportService;
+
     private BookController bookController;
 
     private Book book;
@@ -43,6 +64,7 @@ class BookControllerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        bookController = new BookController(bookCacheService, bookExportService, bookImportService, 1000, 1000);
         book = new Book();
         book.setId("1");
         book.setTitle("Test Book");
@@ -63,20 +85,20 @@ class BookControllerTest {
      */
     @Test
     void testGetBookReturnsBook() {
-        when(bookCacheService.getBook("1")).thenReturn(book);
-        ResponseEntity<Book> response = bookController.getBook("1");
+        when(bookCacheService.getBookAsync("1")).thenReturn(CompletableFuture.completedFuture(book));
+        ResponseEntity<Book> response = result(bookController.getBook("1"));
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Test Book", Objects.requireNonNull(response.getBody()).getTitle());
     }
 
     /**
-     * Tests the retrieval of a Book entity, returning an internal server error.
+     * Tests the retrieval of an unknown Book entity, returning a not found status.
      */
     @Test
-    void testGetBookReturnsInternalServerError() {
-        when(bookCacheService.getBook("1")).thenReturn(null);
-        ResponseEntity<Book> response = bookController.getBook("1");
-        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    void testGetBookReturnsNotFound() {
+        when(bookCacheService.getBookAsync("1")).thenReturn(CompletableFuture.completedFuture(null));
+        ResponseEntity<Book> response = result(bookController.getBook("1"));
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
     /**
@@ -84,8 +106,8 @@ class BookControllerTest {
      */
     @Test
     void testAddBookReturnsBook() {
-        when(bookCacheService.putBook(any(Book.class))).thenReturn(book);
-        ResponseEntity<Book> response = bookController.addBook(bookDTO);
+        when(bookCacheService.putBookAsync(any(Book.class))).thenReturn(CompletableFuture.completedFuture(book));
+        ResponseEntity<Book> response = result(bookController.addBook(bookDTO));
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Test Book", Objects.requireNonNull(response.getBody()).getTitle());
     }
@@ -95,8 +117,8 @@ class BookControllerTest {
      */
     @Test
     void testAddBookReturnsInternalServerError() {
-        when(bookCacheService.putBook(any(Book.class))).thenReturn(null);
-        ResponseEntity<Book> response = bookController.addBook(bookDTO);
+        when(bookCacheService.putBookAsync(any(Book.class))).thenReturn(CompletableFuture.completedFuture(null));
+        ResponseEntity<Book> response = result(bookController.addBook(bookDTO));
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
 
@@ -105,9 +127,212 @@ class BookControllerTest {
      */
     @Test
     void testRemoveBook() {
-        ResponseEntity<Void> response = bookController.removeBook("1");
+        when(bookCacheService.removeBookAsync("1")).thenReturn(CompletableFuture.completedFuture(null));
+        ResponseEntity<Void> response = result(bookController.removeBook("1"));
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        verify(bookCacheService, times(1)).removeBook("1");
+        verify(bookCacheService, times(1)).removeBookAsync("1");
+    }
+
+    /**
+     * Tests the retrieval of several Book entities.
+     */
+    @Test
+    void testGetBooks() {
+        List<String> ids = Collections.singletonList("1");
+        when(bookCacheService.getBooksAsync(ids))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList(book)));
+        ResponseEntity<List<Book>> response = result(bookController.getBooks(ids));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, Objects.requireNonNull(response.getBody()).size());
+    }
+
+    /**
+     * Tests the addition of several Book entities.
+     */
+    @Test
+    void testAddBooks() {
+        when(bookCacheService.putBooksAsync(anyList()))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList(book)));
+        ResponseEntity<List<Book>> response = result(bookController.addBooks(Collections.singletonList(bookDTO)));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Test Book", Objects.requireNonNull(response.getBody()).get(0).getTitle());
+    }
+
+    /**
+     * Tests the removal of several Book entities.
+     */
+    @Test
+    void testRemoveBooks() {
+        List<String> ids = Collections.singletonList("1");
+        when(bookCacheService.removeBooksAsync(ids)).thenReturn(CompletableFuture.completedFuture(null));
+        ResponseEntity<Void> response = result(bookController.removeBooks(ids));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(bookCacheService, times(1)).removeBooksAsync(ids);
+    }
+
+    /**
+     * Tests that a lookup completing after the controller returned still answers the request.
+     */
+    @Test
+    void testGetBookCompletesLater() {
+        CompletableFuture<Book> pending = new CompletableFuture<>();
+        when(bookCacheService.getBookAsync("1")).thenReturn(pending);
+        DeferredResult<ResponseEntity<Book>> deferred = bookController.getBook("1");
+        assertFalse(deferred.hasResult());
+
+        pending.complete(book);
+        assertEquals(HttpStatus.OK, result(deferred).getStatusCode());
+    }
+
+    /**
+     * Tests that a request the executor has no room for is answered with 503.
+     */
+    @Test
+    void testRejectedRequestReturnsServiceUnavailable() {
+        CompletableFuture<Book> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(new RejectedExecutionException("saturated"));
+        when(bookCacheService.getBookAsync("1")).thenReturn(rejected);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, result(bookController.getBook("1")).getStatusCode());
+    }
+
+    /**
+     * Tests that a failed write is handed to the error handling of the framework.
+     */
+    @Test
+    void testFailedWriteSetsErrorResult() {
+        CompletableFuture<Book> failed = new CompletableFuture<>();
+        IllegalStateException failure = new IllegalStateException("unreachable");
+        failed.completeExceptionally(new CompletionException(failure));
+        when(bookCacheService.putBookAsync(any(Book.class))).thenReturn(failed);
+        assertSame(failure, bookController.addBook(bookDTO).getResult());
+    }
+
+    /**
+     * Tests that a book colliding with a different stored book is answered with a conflict.
+     */
+    @Test
+    void testIdCollisionReturnsConflict() {
+        CompletableFuture<Book> failed = new CompletableFuture<>();
+        BookIdCollisionException collision = new BookIdCollisionException("1", new Book(), new Book());
+        failed.completeExceptionally(collision);
+        when(bookCacheService.putBookAsync(any(Book.class))).thenReturn(failed);
+        assertSame(collision, bookController.addBook(bookDTO).getResult());
+        assertEquals(HttpStatus.CONFLICT, bookController.handleIdCollision(collision).getStatusCode());
+    }
+
+    /**
+     * Tests that a search returns the page of matching books.
+     */
+    @Test
+    void testSearchBooks() {
+        SearchPage<Book> page = new SearchPage<>(Collections.singletonList(book), 0, 20, 1);
+        when(bookCacheService.searchBooksAsync(null, "Author", "test", 0, 20))
+                .thenReturn(CompletableFuture.completedFuture(page));
+        ResponseEntity<SearchPage<Book>> response = result(bookController.searchBooks(null, "Author", "test", 0, 20));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, Objects.requireNonNull(response.getBody()).getTotal());
+    }
+
+    /**
+     * Tests that an invalid search returns a bad request, and a search without an index a not found.
+     */
+    @Test
+    void testSearchBooksRejected() {
+        when(bookCacheService.searchBooksAsync(null, null, null, 0, 20))
+                .thenThrow(new IllegalArgumentException("No search condition"));
+        assertEquals(HttpStatus.BAD_REQUEST,
+                result(bookController.searchBooks(null, null, null, 0, 20)).getStatusCode());
+
+        when(bookCacheService.searchBooksAsync("123456789", null, null, 0, 20))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        assertEquals(HttpStatus.NOT_FOUND,
+                result(bookController.searchBooks("123456789", null, null, 0, 20)).getStatusCode());
+    }
+
+    /**
+     * Tests that an export streams the books of the chosen database in the chosen format.
+     *
+     * @throws IOException if the books cannot be written
+     */
+    @Test
+    void testExportBooks() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = bookController.exportBooks("mongodb", "BINARY");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM, response.getHeaders().getContentType());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Objects.requireNonNull(response.getBody()).writeTo(out);
+        verify(bookExportService).exportMongoDB(BookFormat.BINARY, out);
+        verify(bookExportService, never()).exportPostgreSQL(any(), any());
+    }
+
+    /**
+     * Tests that an export from an unknown database or in an unknown format returns a bad request.
+     */
+    @Test
+    void testExportBooksRejected() {
+        assertEquals(HttpStatus.BAD_REQUEST, bookController.exportBooks("mysql", "ndjson").getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, bookController.exportBooks("postgresql", "csv").getStatusCode());
+    }
+
+    /**
+     * Tests that an import returns its summary, and that an unknown format or an invalid
+     * CSV header returns a bad request.
+     */
+    @Test
+    void testImportBooks() {
+        ByteArrayInputStream body = new ByteArrayInputStream(new byte[0]);
+        BookImportReport report = new BookImportReport(2, 2, 0, 0, 1, 0, Collections.emptyList(), 5);
+        when(bookImportService.importBooksAsync(body, BookImportService.Format.CSV))
+                .thenReturn(CompletableFuture.completedFuture(report));
+
+        ResponseEntity<BookImportReport> response = result(bookController.importBooks("csv", body));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(report, response.getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, result(bookController.importBooks("xml", body)).getStatusCode());
+
+        CompletableFuture<BookImportReport> invalid = new CompletableFuture<>();
+        invalid.completeExceptionally(new IllegalArgumentException("Missing column: isbn"));
+        when(bookImportService.importBooksAsync(body, BookImportService.Format.NDJSON)).thenReturn(invalid);
+        assertEquals(HttpStatus.BAD_REQUEST, result(bookController.importBooks("ndjson", body)).getStatusCode());
+    }
+
+    /**
+     * Tests that an import the executor has no room for is answered with 503.
+     */
+    @Test
+    void testImportBooksRejected() {
+        ByteArrayInputStream body = new ByteArrayInputStream(new byte[0]);
+        CompletableFuture<BookImportReport> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(new RejectedExecutionException("saturated"));
+        when(bookImportService.importBooksAsync(body, BookImportService.Format.NDJSON)).thenReturn(rejected);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                result(bookController.importBooks("ndjson", body)).getStatusCode());
+    }
+
+    /**
+     * Tests the retrieval of the cache statistics.
+     */
+    @Test
+    void testGetCacheStats() {
+        TierStats stats = new TierStats("heap", 3, 1, 0, 2, -1);
+        when(bookCacheService.getCacheStats()).thenReturn(Collections.singletonList(stats));
+        ResponseEntity<List<TierStats>> response = bookController.getCacheStats();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(0.75, Objects.requireNonNull(response.getBody()).get(0).getHitRate());
+    }
+
+    /**
+     * Tests the retrieval of the read routing statistics.
+     */
+    @Test
+    void testGetRoutingStats() {
+        RoutingStats stats = new RoutingStats("mongodb", true, 4, 1, 5, 0, 1.5, 3.0);
+        when(bookCacheService.getRoutingStats()).thenReturn(Collections.singletonList(stats));
+        ResponseEntity<List<RoutingStats>> response = bookController.getRoutingStats();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(5, Objects.requireNonNull(response.getBody()).get(0).getWins());
     }
 
     /**
@@ -132,4 +357,10 @@ class BookControllerTest {
         ResponseEntity<Book> response = bookController.calculateBookPrice(bookDTO);
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ResponseEntity<T> result(DeferredResult<ResponseEntity<T>> deferred) {
+        assertTrue(deferred.hasResult());
+        return (ResponseEntity<T>) deferred.getResult();
+    }
 }
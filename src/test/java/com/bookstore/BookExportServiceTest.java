@@ -0,0 +1,117 @@
+package com.bookstore;
+
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookCodec;
+import com.bookstore.entities.BookFormat;
+import com.bookstore.mongorepo.BookRepositoryMongoDB;
+import com.bookstore.postgresrepo.BookRepositoryPostgreSQL;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link BookExportService} class.
+ *
+ * <p>
+ * This class tests that the books streamed from either database are written in
+ * both formats, and that the cursors are closed and the PostgreSQL entities detached.
+ * </p>
+ */
+class BookExportServiceTest {
+
+    @Mock
+    private BookRepositoryPostgreSQL postgreSQLRepository;
+
+    @Mock
+    private BookRepositoryMongoDB mongoDBRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private BookExportService exportService;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Sets up the test environment before each test method.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        exportService = new BookExportService(postgreSQLRepository, mongoDBRepository, entityManager);
+    }
+
+    /**
+     * Tests that the books of PostgreSQL are written as JSON lines and detached once written.
+     *
+     * @throws IOException if the books cannot be written
+     */
+    @Test
+    void testExportPostgreSQLAsNdjson() throws IOException {
+        Book first = book("1", "Effective Java");
+        Book second = book("2", "Java Puzzlers");
+        when(postgreSQLRepository.streamAll()).thenReturn(books(first, second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, exportService.exportPostgreSQL(BookFormat.NDJSON, out));
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("Java Puzzlers", new ObjectMapper().readValue(lines[1], Book.class).getTitle());
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+        assertTrue(closed.get());
+    }
+
+    /**
+     * Tests that the books of MongoDB are written as length-prefixed binary records.
+     *
+     * @throws IOException if the books cannot be written
+     */
+    @Test
+    void testExportMongoDBAsBinary() throws IOException {
+        when(mongoDBRepository.streamAllBy()).thenReturn(books(book("1", "Effective Java"), book("2", "Java Puzzlers")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, exportService.exportMongoDB(BookFormat.BINARY, out));
+
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        BookCodec codec = new BookCodec();
+        int length = buffer.getInt();
+        int start = buffer.position();
+        assertEquals("Effective Java", codec.decode(buffer).getTitle());
+        assertEquals(start + length, buffer.position());
+        buffer.getInt();
+        assertEquals("2", codec.decode(buffer).getId());
+        assertFalse(buffer.hasRemaining());
+        verifyNoInteractions(entityManager);
+        assertTrue(closed.get());
+    }
+
+    private Stream<Book> books(Book... books) {
+        return Stream.of(books).onClose(() -> closed.set(true));
+    }
+
+    private static Book book(String id, String title) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setIsbn("123456789");
+        book.setPrice(9.99);
+        return book;
+    }
+}
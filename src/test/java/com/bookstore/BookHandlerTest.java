@@ -0,0 +1,132 @@
+package com.bookstore;
+
+import com.bookstore.cache.TierStats;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link BookHandler} class and the routes of {@link ReactiveConfig}.
+ *
+ * <p>
+ * This class tests that the reactive API answers with the same paths, bodies and
+ * status codes as {@link BookController}. The service is mocked and requests are
+ * sent through a {@link WebTestClient} bound to the router function.
+ * </p>
+ */
+class BookHandlerTest {
+
+    @Mock
+    private ReactiveBookCacheService bookCacheService;
+
+    private WebTestClient client;
+
+    private Book book;
+
+    /**
+     * Sets up the test environment before each test method.
+     * Initializes mocks, the client bound to the routes and a sample Book entity.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        BookHandler handler = new BookHandler(bookCacheService, 200);
+        client = WebTestClient.bindToRouterFunction(new ReactiveConfig().getBookRoutes(handler)).build();
+        book = new Book();
+        book.setId("1");
+        book.setTitle("Test Book");
+        book.setPrice(9.99);
+    }
+
+    /**
+     * Tests the retrieval of a Book entity, returning a successful response.
+     */
+    @Test
+    void testGetBookReturnsBook() {
+        when(bookCacheService.getBook("1")).thenReturn(Mono.just(book));
+        client.get().uri("/api/books/1").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.title").isEqualTo("Test Book");
+    }
+
+    /**
+     * Tests the retrieval of an unknown Book entity, returning a not found status like the servlet API.
+     */
+    @Test
+    void testGetBookReturnsNotFound() {
+        when(bookCacheService.getBook("1")).thenReturn(Mono.empty());
+        client.get().uri("/api/books/1").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    /**
+     * Tests that a request not answered within the timeout is answered with 503.
+     */
+    @Test
+    void testSlowRequestReturnsServiceUnavailable() {
+        when(bookCacheService.getBook("1")).thenReturn(Mono.never());
+        client.get().uri("/api/books/1").exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Tests the retrieval of several Book entities from comma-separated and repeated identifiers.
+     */
+    @Test
+    void testGetBooks() {
+        when(bookCacheService.getBooks(Arrays.asList("1", "2", "3")))
+                .thenReturn(Mono.just(Collections.singletonList(book)));
+        client.get().uri("/api/books?ids=1,2&ids=3").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].id").isEqualTo("1");
+    }
+
+    /**
+     * Tests the addition of a Book entity.
+     */
+    @Test
+    void testAddBook() {
+        BookDTO bookDTO = new BookDTO();
+        bookDTO.setTitle("Test Book");
+        when(bookCacheService.putBook(any(Book.class))).thenReturn(Mono.just(book));
+        client.post().uri("/api/books").bodyValue(bookDTO).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.id").isEqualTo("1");
+    }
+
+    /**
+     * Tests the removal of several Book entities.
+     */
+    @Test
+    void testRemoveBooks() {
+        when(bookCacheService.removeBooks(Collections.singletonList("1"))).thenReturn(Mono.empty());
+        client.method(HttpMethod.DELETE).uri("/api/books/batch")
+                .bodyValue(Collections.singletonList("1")).exchange()
+                .expectStatus().isOk();
+        verify(bookCacheService, times(1)).removeBooks(Collections.singletonList("1"));
+    }
+
+    /**
+     * Tests the retrieval of the cache statistics.
+     */
+    @Test
+    void testGetCacheStats() {
+        when(bookCacheService.getCacheStats())
+                .thenReturn(Collections.singletonList(new TierStats("heap", 3, 1, 0, 2, -1)));
+        client.get().uri("/api/books/cache/stats").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].hitRate").isEqualTo(0.75);
+    }
+}
@@ -0,0 +1,78 @@
+package com.bookstore;
+
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookIdGenerator;
+import com.bookstore.entities.LegacyBookIdGenerator;
+import com.bookstore.entities.Murmur3BookIdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link BookIdGenerator} implementations.
+ *
+ * <p>
+ * This class tests that the legacy scheme still derives the identifiers of the first
+ * releases, and that the MurmurHash3 scheme derives stable 128-bit identifiers that
+ * keep the fields apart.
+ * </p>
+ */
+class BookIdGeneratorTest {
+
+    private final BookIdGenerator legacy = new LegacyBookIdGenerator();
+
+    private final BookIdGenerator murmur3 = new Murmur3BookIdGenerator();
+
+    /**
+     * Tests that the legacy identifiers are those of the concatenated fields, null fields included.
+     */
+    @Test
+    void testLegacyMatchesConcatenatedHashCode() {
+        assertEquals(Integer.toHexString(("Test Book" + "Author" + "123456789").hashCode()),
+                legacy.generate("Test Book", "Author", "123456789"));
+        String nullTitle = null;
+        assertEquals(Integer.toHexString((nullTitle + "Author" + "").hashCode()),
+                legacy.generate(null, "Author", ""));
+        assertEquals(legacy.generate("Aa", "Author", "1"), legacy.generate("BB", "Author", "1"));
+    }
+
+    /**
+     * Tests that the MurmurHash3 identifiers are those of the reference implementation
+     * over the length-prefixed UTF-16 fields.
+     */
+    @Test
+    void testMurmur3MatchesReference() {
+        assertEquals("5cb24e0ee8580fdad41e6043a6ffba1b",
+                murmur3.generate("Effective Java", "Joshua Bloch", "978-0134685991"));
+        assertEquals("fde58568c22bb69cfbbd5182441850ec", murmur3.generate(null, "", null));
+        assertEquals("cd5785f293001f562fd2e19841e37d0d", murmur3.generate("Caf\u00e9", "\ud83d\ude00", ""));
+
+        Book book = new Book();
+        book.setTitle("Test Book");
+        book.setAuthor("Author");
+        book.setIsbn("123456789");
+        murmur3.assignId(book);
+        assertEquals("39be31495974c18603e2bb18fe4ea751", book.getId());
+    }
+
+    /**
+     * Tests that the MurmurHash3 identifiers tell apart books whose fields the legacy scheme confuses.
+     */
+    @Test
+    void testMurmur3KeepsFieldsApart() {
+        assertNotEquals(murmur3.generate("ab", "c", "1"), murmur3.generate("a", "bc", "1"));
+        assertNotEquals(murmur3.generate("", "Author", "1"), murmur3.generate(null, "Author", "1"));
+        assertNotEquals(murmur3.generate("Aa", "Author", "1"), murmur3.generate("BB", "Author", "1"));
+
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            String id = murmur3.generate("Title " + i, "Author " + (i % 100), Integer.toString(i));
+            assertEquals(Murmur3BookIdGenerator.ID_LENGTH, id.length());
+            ids.add(id);
+        }
+        assertEquals(100_000, ids.size());
+    }
+}
@@ -0,0 +1,136 @@
+package com.bookstore;
+
+import com.bookstore.cache.DualWriter;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookIdCollisionException;
+import com.bookstore.entities.LegacyBookIdGenerator;
+import com.bookstore.entities.Murmur3BookIdGenerator;
+import com.bookstore.mongorepo.BookMongoDBBulkWriter;
+import com.bookstore.postgresrepo.BookPostgreSQLBulkWriter;
+import com.bookstore.postgresrepo.BookRepositoryPostgreSQL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link BookIdMigrator} class.
+ *
+ * <p>
+ * This class tests that books stored under legacy identifiers are upserted under their
+ * new identifiers and removed under the old ones, a batch at a time, without
+ * overwriting books already saved under their new identifiers, and stopping on a
+ * collision with a different book.
+ * </p>
+ */
+class BookIdMigratorTest {
+
+    @Mock
+    private BookRepositoryPostgreSQL postgreSQLRepository;
+
+    @Mock
+    private BookCacheService bookCacheService;
+
+    @Mock
+    private BookPostgreSQLBulkWriter postgreSQLWriter;
+
+    @Mock
+    private BookMongoDBBulkWriter mongoDBWriter;
+
+    private final Murmur3BookIdGenerator idGenerator = new Murmur3BookIdGenerator();
+
+    /**
+     * Sets up the test environment before each test method.
+     * Makes the mocked cache service run the writes it is given.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(bookCacheService).writeAround(anyCollection(), any());
+    }
+
+    /**
+     * Tests that every batch of legacy books is re-keyed until none is left.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMigrate() {
+        Book first = legacyBook("Effective Java");
+        Book second = legacyBook("Java Puzzlers");
+        Book third = legacyBook("Effective Java, Third Edition");
+        when(postgreSQLRepository.findByIdShorterThan(eq(Murmur3BookIdGenerator.ID_LENGTH), any()))
+                .thenReturn(Arrays.asList(first, second), Collections.singletonList(third), Collections.emptyList());
+        Book resaved = legacyBook("Java Puzzlers");
+        idGenerator.assignId(resaved);
+        when(bookCacheService.getBooks(anyCollection())).thenReturn(Collections.emptyList());
+        when(bookCacheService.getBooks(argThat(ids -> ids.contains(resaved.getId()))))
+                .thenReturn(Collections.singletonList(resaved));
+
+        BookIdMigrator migrator = new BookIdMigrator(postgreSQLRepository, bookCacheService, postgreSQLWriter,
+                mongoDBWriter, new DualWriter(0, 1), idGenerator, 2);
+        assertEquals(3, migrator.migrate());
+
+        ArgumentCaptor<Collection<Book>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(postgreSQLWriter, times(2)).upsertAll(batches.capture());
+        List<Book> upserted = (List<Book>) batches.getAllValues().get(0);
+        assertEquals(1, upserted.size());
+        assertEquals(idGenerator.generate(first), upserted.get(0).getId());
+        assertEquals(idGenerator.generate(third), batches.getAllValues().get(1).iterator().next().getId());
+        verify(mongoDBWriter, times(2)).upsertAll(anyCollection());
+        verify(bookCacheService).removeBooks(Arrays.asList(first.getId(), second.getId()));
+        verify(bookCacheService).removeBooks(Collections.singletonList(third.getId()));
+    }
+
+    /**
+     * Tests that the migration stops rather than overwrite a different book stored under a new identifier.
+     */
+    @Test
+    void testMigrateStopsOnCollision() {
+        Book legacy = legacyBook("Effective Java");
+        when(postgreSQLRepository.findByIdShorterThan(eq(Murmur3BookIdGenerator.ID_LENGTH), any()))
+                .thenReturn(Collections.singletonList(legacy));
+        Book other = legacyBook("Java Puzzlers");
+        other.setId(idGenerator.generate(legacy));
+        when(bookCacheService.getBooks(anyCollection())).thenReturn(Collections.singletonList(other));
+
+        BookIdMigrator migrator = new BookIdMigrator(postgreSQLRepository, bookCacheService, postgreSQLWriter,
+                mongoDBWriter, new DualWriter(0, 1), idGenerator, 2);
+        BookIdCollisionException e = assertThrows(BookIdCollisionException.class, migrator::migrate);
+        assertEquals(other.getId(), e.getId());
+        verifyNoInteractions(postgreSQLWriter, mongoDBWriter);
+        verify(bookCacheService, never()).removeBooks(anyCollection());
+    }
+
+    /**
+     * Tests that the migration is skipped unless the new identifiers are those of MurmurHash3.
+     */
+    @Test
+    void testRunSkippedWithLegacyScheme() {
+        new BookIdMigrator(postgreSQLRepository, bookCacheService, postgreSQLWriter, mongoDBWriter,
+                new DualWriter(0, 1), new LegacyBookIdGenerator(), 2).run(null);
+        verifyNoInteractions(postgreSQLRepository);
+    }
+
+    private static Book legacyBook(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Joshua Bloch");
+        book.setIsbn("123456789");
+        book.setPrice(9.99);
+        new LegacyBookIdGenerator().assignId(book);
+        return book;
+    }
+}
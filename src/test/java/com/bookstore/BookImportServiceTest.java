@@ -0,0 +1,246 @@
+package com.bookstore;
+
+import com.bookstore.cache.DualWriter;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.Murmur3BookIdGenerator;
+import com.bookstore.mongorepo.BookMongoDBBulkWriter;
+import com.bookstore.postgresrepo.BookPostgreSQLBulkWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link BookImportService} class.
+ *
+ * <p>
+ * This class tests that NDJSON and CSV feeds are parsed into batches written to both
+ * databases in feed order, and that unparseable records and failed batches are
+ * reported without stopping the import, while a cancelled import stops reading.
+ * </p>
+ */
+class BookImportServiceTest {
+
+    @Mock
+    private BookCacheService bookCacheService;
+
+    @Mock
+    private BookPostgreSQLBulkWriter postgreSQLWriter;
+
+    @Mock
+    private BookMongoDBBulkWriter mongoDBWriter;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private BookImportService importService;
+
+    /**
+     * Sets up the test environment before each test method.
+     * Makes the mocked cache service run the writes it is given.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(bookCacheService).writeAround(anyCollection(), any());
+        importService = new BookImportService(bookCacheService, postgreSQLWriter, mongoDBWriter,
+                new DualWriter(0, 1), new Murmur3BookIdGenerator(), null, 2, registry);
+    }
+
+    /**
+     * Tests that an NDJSON feed is written in batches, skipping blank and unparseable lines.
+     *
+     * @throws IOException if the feed cannot be read
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportNdjson() throws IOException {
+        BookImportReport report = importService.importBooks(feed(
+                "{\"title\":\"A\",\"author\":\"X\",\"isbn\":\"1\",\"price\":1.5,\"publisher\":\"P\"}\n"
+                        + "{\"title\":\"B\",\"author\":\"X\",\"isbn\":\"2\",\"price\":2}\n"
+                        + "\n"
+                        + "{\"title\":\"C\",\n"
+                        + "{\"title\":\"D\",\"author\":\"Y\",\"isbn\":\"4\",\"price\":4}\n"), BookImportService.Format.NDJSON);
+
+        assertEquals(4, report.getRead());
+        assertEquals(3, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(2, report.getBatches());
+        assertTrue(report.getErrors().get(0).startsWith("Line 4: "));
+        ArgumentCaptor<Collection<Book>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(postgreSQLWriter, times(2)).upsertAll(batches.capture());
+        assertEquals("A", batches.getAllValues().get(0).iterator().next().getTitle());
+        assertEquals("D", batches.getAllValues().get(1).iterator().next().getTitle());
+        assertNotNull(batches.getAllValues().get(1).iterator().next().getId());
+        verify(mongoDBWriter, times(2)).upsertAll(anyCollection());
+        assertEquals(3, registry.get("bookstore.import.books").tag("result", "imported").counter().count());
+    }
+
+    /**
+     * Tests that a CSV feed is read by the column names of its header, with quoted fields,
+     * and that repeated books are written once per batch.
+     *
+     * @throws IOException if the feed cannot be read
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportCsv() throws IOException {
+        BookImportReport report = importService.importBooks(feed(
+                "isbn,price,title,author\n"
+                        + "1,10,\"Java, \"\"Effective\"\"\",Joshua Bloch\n"
+                        + "1,10,\"Java, \"\"Effective\"\"\",Joshua Bloch\n"
+                        + "2,free,Puzzlers,Joshua Bloch\n"), BookImportService.Format.CSV);
+
+        assertEquals(3, report.getRead());
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getRejected());
+        ArgumentCaptor<Collection<Book>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(postgreSQLWriter).upsertAll(batch.capture());
+        Book book = batch.getValue().iterator().next();
+        assertEquals("Java, \"Effective\"", book.getTitle());
+        assertEquals(10.0, book.getPrice());
+    }
+
+    /**
+     * Tests that a batch that cannot be written is reported while the other batches are imported.
+     *
+     * @throws IOException if the feed cannot be read
+     */
+    @Test
+    void testFailedBatchIsIsolated() throws IOException {
+        doThrow(new IllegalStateException("down")).doNothing().when(postgreSQLWriter).upsertAll(anyCollection());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            importService = new BookImportService(bookCacheService, postgreSQLWriter, mongoDBWriter,
+                    new DualWriter(0, 1), new Murmur3BookIdGenerator(), executor, 2, registry);
+            BookImportReport report = importService.importBooks(feed(
+                    "title,author,isbn,price\nA,X,1,1\nB,X,2,2\nC,X,3,3\n"), BookImportService.Format.CSV);
+
+            assertEquals(1, report.getImported());
+            assertEquals(2, report.getFailed());
+            assertEquals(1, report.getFailedBatches());
+            assertTrue(report.getErrors().get(0).startsWith("Batch 1 of 2 books"));
+            verify(bookCacheService, times(2)).writeAround(anyCollection(), any());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a CSV feed without a required column is rejected before anything is written.
+     */
+    @Test
+    void testCsvWithoutColumnRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importService.importBooks(feed("title,author,price\nA,X,1\n"), BookImportService.Format.CSV));
+        assertThrows(IllegalArgumentException.class,
+                () -> importService.importBooks(feed(""), BookImportService.Format.CSV));
+        verifyNoInteractions(postgreSQLWriter);
+    }
+
+    /**
+     * Tests that an asynchronous import runs on the executor, and fails with the rejection
+     * of an executor that has no room for it.
+     *
+     * @throws Exception if the import fails
+     */
+    @Test
+    void testImportAsync() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            importService = new BookImportService(bookCacheService, postgreSQLWriter, mongoDBWriter,
+                    new DualWriter(0, 1), new Murmur3BookIdGenerator(), executor, 2, registry);
+            BookImportReport report = importService.importBooksAsync(feed(
+                    "title,author,isbn,price\nA,X,1,1\nB,Y,2,2\nC,Z,3,3\n"), BookImportService.Format.CSV)
+                    .get(5, TimeUnit.SECONDS);
+            // The only worker runs the import itself, so it must write its batches too.
+            assertEquals(3, report.getImported());
+        } finally {
+            executor.shutdown();
+        }
+
+        importService = new BookImportService(bookCacheService, postgreSQLWriter, mongoDBWriter,
+                new DualWriter(0, 1), new Murmur3BookIdGenerator(), runnable -> {
+                    throw new RejectedExecutionException("saturated");
+                }, 2, registry);
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> importService.importBooksAsync(feed(""), BookImportService.Format.NDJSON).get());
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+
+    /**
+     * Tests that cancelling an asynchronous import stops reading a feed that never ends.
+     *
+     * @throws Exception if the executor is interrupted
+     */
+    @Test
+    void testCancelledImportStopsReading() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicReference<CompletableFuture<BookImportReport>> report = new AtomicReference<>();
+        AtomicLong lines = new AtomicLong();
+        InputStream endless = new InputStream() {
+            private byte[] line = new byte[0];
+            private int position;
+
+            @Override
+            public int read() {
+                if (position == line.length) {
+                    long number = lines.incrementAndGet();
+                    if (number == 100) {
+                        report.get().cancel(false);
+                    }
+                    line = ("{\"title\":\"T" + number + "\",\"author\":\"A\",\"isbn\":\"" + number
+                            + "\",\"price\":1}\n").getBytes(StandardCharsets.UTF_8);
+                    position = 0;
+                }
+                return line[position++];
+            }
+        };
+        try {
+            importService = new BookImportService(bookCacheService, postgreSQLWriter, mongoDBWriter,
+                    new DualWriter(0, 1), new Murmur3BookIdGenerator(), executor, 2, registry);
+            CountDownLatch started = new CountDownLatch(1);
+            executor.submit(() -> {
+                started.await();
+                return null;
+            });
+            report.set(importService.importBooksAsync(endless, BookImportService.Format.NDJSON));
+            started.countDown();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(report.get().isCancelled());
+        long read = lines.get();
+        verify(postgreSQLWriter, atMost((int) read / 2)).upsertAll(anyCollection());
+        assertTrue(read < 1_000, read + " lines read");
+    }
+
+    private static InputStream feed(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
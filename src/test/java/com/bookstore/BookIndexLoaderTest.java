@@ -0,0 +1,100 @@
+package com.bookstore;
+
+import com.bookstore.entities.Book;
+import com.bookstore.postgresrepo.BookRepositoryPostgreSQL;
+import com.bookstore.search.BookIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link BookIndexLoader} class.
+ *
+ * <p>
+ * This class tests that every book streamed from PostgreSQL in a read-only transaction
+ * is indexed and detached, that the cursor is closed, and that books indexed since the
+ * cursor was opened are not replaced.
+ * </p>
+ */
+class BookIndexLoaderTest {
+
+    @Mock
+    private BookRepositoryPostgreSQL postgreSQLRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final BookIndex bookIndex = new BookIndex();
+
+    private BookIndexLoader loader;
+
+    /**
+     * Sets up the test environment before each test method.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        loader = new BookIndexLoader(postgreSQLRepository, bookIndex, entityManager, transactionManager);
+    }
+
+    /**
+     * Tests that more books than a batch are indexed and detached within a read-only transaction.
+     */
+    @Test
+    void testLoadIndexesEveryBook() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            books.add(book(String.valueOf(i), "Title " + i));
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+        when(postgreSQLRepository.streamAll()).thenReturn(books.stream().onClose(() -> closed.set(true)));
+
+        assertEquals(1500, loader.load());
+
+        assertEquals(1500, bookIndex.size());
+        assertEquals(Collections.singletonList("1499"),
+                bookIndex.search(null, null, "Title 1499", 0, 10).getContent());
+        verify(entityManager, times(1500)).detach(any(Book.class));
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        assertTrue(closed.get());
+    }
+
+    /**
+     * Tests that a book indexed while the cursor was open keeps its newer entry.
+     */
+    @Test
+    void testLoadKeepsBooksIndexedMeanwhile() {
+        bookIndex.add(book("1", "New Title"));
+        when(postgreSQLRepository.streamAll()).thenReturn(Stream.of(book("1", "Old Title")));
+
+        loader.load();
+
+        assertTrue(bookIndex.search(null, null, "Old", 0, 10).getContent().isEmpty());
+        assertEquals(Collections.singletonList("1"), bookIndex.search(null, null, "New", 0, 10).getContent());
+    }
+
+    private static Book book(String id, String title) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor("Author");
+        return book;
+    }
+}
@@ -0,0 +1,144 @@
+package com.bookstore;
+
+import com.bookstore.entities.Book;
+import com.bookstore.search.BookIndex;
+import com.bookstore.search.SearchPage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link BookIndex} class.
+ *
+ * <p>
+ * This class tests that books are found by ISBN, author and title prefix, alone or
+ * combined, in pages ordered by title, that title prefixes stop counting matches
+ * early, and that updated and removed books are
+ * reindexed.
+ * </p>
+ */
+class BookIndexTest {
+
+    private final BookIndex index = new BookIndex();
+
+    /**
+     * Tests lookups by ISBN regardless of separators and by author regardless of case.
+     */
+    @Test
+    void testIsbnAndAuthor() {
+        index.addAll(Arrays.asList(
+                book("1", "Effective Java", "Joshua Bloch", "978-0134686097"),
+                book("2", "Java Puzzlers", "Joshua Bloch", "978-0321336781"),
+                book("3", "Java Concurrency in Practice", "Brian Goetz", "978-0321349606")));
+
+        assertEquals(Collections.singletonList("1"), index.search("9780134686097", null, null, 0, 10).getContent());
+        assertEquals(Arrays.asList("1", "2"), index.search(null, "joshua bloch", null, 0, 10).getContent());
+        assertEquals(Collections.singletonList("2"),
+                index.search("978-0321336781", "Joshua Bloch", null, 0, 10).getContent());
+        assertTrue(index.search("978-0321349606", "Joshua Bloch", null, 0, 10).getContent().isEmpty());
+        assertTrue(index.search(null, "Unknown", null, 0, 10).getContent().isEmpty());
+    }
+
+    /**
+     * Tests title prefix lookups, alone and combined with an author, in title order.
+     */
+    @Test
+    void testTitlePrefix() {
+        index.addAll(Arrays.asList(
+                book("1", "Java Puzzlers", "Joshua Bloch", null),
+                book("2", "Effective Java", "Joshua Bloch", null),
+                book("3", "Java Concurrency in Practice", "Brian Goetz", null),
+                book("4", "Javascript: The Good Parts", "Douglas Crockford", null)));
+
+        assertEquals(Arrays.asList("3", "1", "4"), index.search(null, null, "java", 0, 10).getContent());
+        assertEquals(Arrays.asList("3", "1"), index.search(null, null, "Java ", 0, 10).getContent());
+        assertEquals(Collections.singletonList("1"), index.search(null, "Joshua Bloch", "Java", 0, 10).getContent());
+        assertTrue(index.search(null, null, "Kotlin", 0, 10).getContent().isEmpty());
+    }
+
+    /**
+     * Tests that results are split into pages with the total of all pages.
+     */
+    @Test
+    void testPages() {
+        for (int i = 0; i < 5; i++) {
+            index.add(book(String.valueOf(i), "Title " + i, "Author", null));
+        }
+
+        SearchPage<String> byTitle = index.search(null, null, "title", 1, 2);
+        assertEquals(Arrays.asList("2", "3"), byTitle.getContent());
+        assertEquals(5, byTitle.getTotal());
+        SearchPage<String> byAuthor = index.search(null, "Author", null, 2, 2);
+        assertEquals(Collections.singletonList("4"), byAuthor.getContent());
+        assertEquals(5, byAuthor.getTotal());
+        assertTrue(index.search(null, "Author", null, 3, 2).getContent().isEmpty());
+    }
+
+    /**
+     * Tests that a title prefix stops counting matches past the page and the counting
+     * limit, and reports the total as a lower bound then.
+     */
+    @Test
+    void testTitlePrefixStopsCounting() {
+        for (int i = 0; i < 1500; i++) {
+            index.add(book(String.format("%04d", i), String.format("Title %04d", i / 2), "Author", null));
+        }
+
+        SearchPage<String> first = index.search(null, null, "title", 0, 3);
+        assertEquals(Arrays.asList("0000", "0001", "0002"), first.getContent());
+        assertEquals(BookIndex.MAX_COUNTED_MATCHES, first.getTotal());
+        assertFalse(first.isTotalExact());
+        SearchPage<String> deep = index.search(null, null, "title", 120, 10);
+        assertEquals("1200", deep.getContent().get(0));
+        assertEquals("1209", deep.getContent().get(9));
+        assertEquals(1210, deep.getTotal());
+        assertFalse(deep.isTotalExact());
+        SearchPage<String> last = index.search(null, null, "title", 149, 10);
+        assertEquals("1499", last.getContent().get(9));
+        assertEquals(1500, last.getTotal());
+        assertTrue(last.isTotalExact());
+        assertTrue(index.search(null, "Author", null, 0, 10).isTotalExact());
+    }
+
+    /**
+     * Tests that a book added again is reindexed and a removed book is no longer found.
+     */
+    @Test
+    void testUpdateAndRemove() {
+        index.add(book("1", "Effective Java", "Joshua Bloch", "978-0134686097"));
+        index.add(book("1", "Effective Java", "J. Bloch", "978-0134686097"));
+
+        assertTrue(index.search(null, "Joshua Bloch", null, 0, 10).getContent().isEmpty());
+        assertEquals(1, index.search(null, "J. Bloch", null, 0, 10).getTotal());
+        assertEquals(1, index.size());
+
+        index.remove("1");
+        assertEquals(0, index.size());
+        assertEquals(0, index.search(null, null, "Effective", 0, 10).getTotal());
+        assertEquals(3, index.getSearches());
+    }
+
+    /**
+     * Tests that searches without a condition or with an invalid page are rejected.
+     */
+    @Test
+    void testInvalidSearch() {
+        assertThrows(IllegalArgumentException.class, () -> index.search(null, " ", null, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search(null, "Author", null, -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search(null, "Author", null, 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.search(null, "Author", null, 0, BookIndex.MAX_PAGE_SIZE + 1));
+    }
+
+    private static Book book(String id, String title, String author, String isbn) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setIsbn(isbn);
+        return book;
+    }
+}
@@ -1,16 +1,21 @@
 package com.bookstore;
 
+import com.bookstore.cache.RepositoryMetrics;
 import com.bookstore.entities.Book;
 import com.bookstore.mongorepo.BookMongoDBCacheRepository;
 import com.bookstore.mongorepo.BookRepositoryMongoDB;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.swiftcache.cacherepository.ICacheRepository;
 import org.swiftcache.utils.TriFunction;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -31,18 +36,21 @@ class BookMongoDBCacheRepositoryTest {
     @Mock
     private BookRepositoryMongoDB mongoDBRepository;
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
+
     private BookMongoDBCacheRepository mongoDBCacheRepository;
 
     private Book book;
 
     /**
      * Sets up the test environment before each test method.
-     * Initializes mocks and creates a sample Book instance.
+     * Initializes mocks, creates the repository with a fresh meter registry and a sample Book instance.
      */
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        mongoDBCacheRepository = new BookMongoDBCacheRepository(mongoDBRepository, meterRegistry);
         book = new Book();
         book.setId("1");
         book.setTitle("Test Book");
@@ -79,6 +87,38 @@ class BookMongoDBCacheRepositoryTest {
         verify(mongoDBRepository, times(1)).deleteById("1");
     }
 
+    /**
+     * Tests the batched retrieval of Book entities.
+     */
+    @Test
+    void testGetAllBooks() {
+        List<String> keys = Collections.singletonList("1");
+        when(mongoDBRepository.findAllById(keys)).thenReturn(Collections.singletonList(book));
+        assertEquals(Collections.singletonMap("1", book), mongoDBCacheRepository.getAll(keys));
+    }
+
+    /**
+     * Tests the batched saving of Book entities.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPutAllBooks() {
+        mongoDBCacheRepository.putAll(Collections.singletonMap("1", book));
+        ArgumentCaptor<Iterable<Book>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(mongoDBRepository, times(1)).saveAll(captor.capture());
+        assertEquals(book, captor.getValue().iterator().next());
+    }
+
+    /**
+     * Tests the batched removal of Book entities.
+     */
+    @Test
+    void testRemoveAllBooks() {
+        List<String> keys = Collections.singletonList("1");
+        mongoDBCacheRepository.removeAll(keys);
+        verify(mongoDBRepository, times(1)).deleteAllById(keys);
+    }
+
     /**
      * Tests the execution of a custom operation with the cache.
      */
@@ -93,4 +133,23 @@ class BookMongoDBCacheRepositoryTest {
         Book result = mongoDBCacheRepository.executeWithCache(operation, book.getId(), book);
         assertEquals(10.99, result.getPrice()); // Price should be updated
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that reads and writes are recorded in the load and write timers of the store.
+     */
+    @Test
+    void testRecordsLatencyPerOperation() {
+        when(mongoDBRepository.findById("1")).thenReturn(Optional.of(book));
+        mongoDBCacheRepository.get("1");
+        mongoDBCacheRepository.get("1");
+        mongoDBCacheRepository.put("1", book);
+
+        assertEquals(2, timer(RepositoryMetrics.LOAD_TIMER, "get").count());
+        assertEquals(1, timer(RepositoryMetrics.WRITE_TIMER, "put").count());
+        assertEquals(0, timer(RepositoryMetrics.WRITE_TIMER, "remove").count());
+    }
+
+    private Timer timer(String name, String operation) {
+        return meterRegistry.get(name).tag("store", BookMongoDBCacheRepository.STORE).tag("operation", operation).timer();
+    }
+}
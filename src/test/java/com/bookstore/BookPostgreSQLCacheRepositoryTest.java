@@ -1,16 +1,21 @@
 package com.bookstore;
 
+import com.bookstore.cache.RepositoryMetrics;
 import com.bookstore.entities.Book;
 import com.bookstore.postgresrepo.BookPostgreSQLCacheRepository;
 import com.bookstore.postgresrepo.BookRepositoryPostgreSQL;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.swiftcache.cacherepository.ICacheRepository;
 import org.swiftcache.utils.TriFunction;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -31,18 +36,21 @@ class BookPostgreSQLCacheRepositoryTest {
     @Mock
     private BookRepositoryPostgreSQL postgreSQLRepository;
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
+
     private BookPostgreSQLCacheRepository postgreSQLCacheRepository;
 
     private Book book;
 
     /**
      * Sets up the test environment before each test method.
-     * Initializes mocks and creates a sample Book instance.
+     * Initializes mocks, creates the repository with a fresh meter registry and a sample Book instance.
      */
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        postgreSQLCacheRepository = new BookPostgreSQLCacheRepository(postgreSQLRepository, meterRegistry);
         book = new Book();
         book.setId("1");
         book.setTitle("Test Book");
@@ -79,6 +87,38 @@ class BookPostgreSQLCacheRepositoryTest {
         verify(postgreSQLRepository, times(1)).deleteById("1");
     }
 
+    /**
+     * Tests the batched retrieval of Book entities.
+     */
+    @Test
+    void testGetAllBooks() {
+        List<String> keys = Collections.singletonList("1");
+        when(postgreSQLRepository.findAllById(keys)).thenReturn(Collections.singletonList(book));
+        assertEquals(Collections.singletonMap("1", book), postgreSQLCacheRepository.getAll(keys));
+    }
+
+    /**
+     * Tests the batched saving of Book entities.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPutAllBooks() {
+        postgreSQLCacheRepository.putAll(Collections.singletonMap("1", book));
+        ArgumentCaptor<Iterable<Book>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(postgreSQLRepository, times(1)).saveAll(captor.capture());
+        assertEquals(book, captor.getValue().iterator().next());
+    }
+
+    /**
+     * Tests the batched removal of Book entities.
+     */
+    @Test
+    void testRemoveAllBooks() {
+        List<String> keys = Collections.singletonList("1");
+        postgreSQLCacheRepository.removeAll(keys);
+        verify(postgreSQLRepository, times(1)).deleteAllById(keys);
+    }
+
     /**
      * Tests the execution of a custom operation with the cache.
      */
@@ -93,4 +133,23 @@ class BookPostgreSQLCacheRepositoryTest {
         Book result = postgreSQLCacheRepository.executeWithCache(operation, book.getId(), book);
         assertEquals(11.99, result.getPrice()); // Price should be updated
     }
+
+    /**
+     * Tests that reads and writes are recorded in the load and write timers of the store.
+     */
+    @Test
+    void testRecordsLatencyPerOperation() {
+        when(postgreSQLRepository.findById("1")).thenReturn(Optional.of(book));
+        postgreSQLCacheRepository.get("1");
+        postgreSQLCacheRepository.get("1");
+        postgreSQLCacheRepository.put("1", book);
+
+        assertEquals(2, timer(RepositoryMetrics.LOAD_TIMER, "get").count());
+        assertEquals(1, timer(RepositoryMetrics.WRITE_TIMER, "put").count());
+        assertEquals(0, timer(RepositoryMetrics.WRITE_TIMER, "remove").count());
+    }
+
+    private Timer timer(String name, String operation) {
+        return meterRegistry.get(name).tag("store", BookPostgreSQLCacheRepository.STORE).tag("operation", operation).timer();
+    }
 }
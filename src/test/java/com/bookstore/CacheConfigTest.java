@@ -1,12 +1,20 @@
 package com.bookstore;
 
+import com.bookstore.cache.CacheTier;
+import com.bookstore.cache.OffHeapTier;
+import com.bookstore.cache.ReadRouter;
+import com.bookstore.cache.StripedSwiftCache;
+import com.bookstore.cache.WTinyLfuEvictionStrategy;
 import com.bookstore.entities.Book;
 import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.util.TestPropertyValues;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.swiftcache.cache.SwiftCache;
+import org.swiftcache.cache.SwiftCacheConfig;
+import org.swiftcache.readingpolicy.ReadThroughPolicy;
 
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Unit tests for the {@link CacheConfig} class.
@@ -34,4 +42,82 @@ class CacheConfigTest {
         SwiftCache<String, Book> cache = context.getBean(SwiftCache.class);
         assertNotNull(cache);
     }
+
+    /**
+     * Tests that the striped cache engine is used when no engine is configured.
+     */
+    @Test
+    void testDefaultEngineIsStriped() {
+        ApplicationContext context = new AnnotationConfigApplicationContext(CacheConfig.class);
+        assertInstanceOf(StripedSwiftCache.class, context.getBean(SwiftCache.class));
+    }
+
+    /**
+     * Tests that the default striped cache has no off-heap second level.
+     */
+    @Test
+    void testOffHeapTierDisabledByDefault() {
+        ApplicationContext context = new AnnotationConfigApplicationContext(CacheConfig.class);
+        assertTrue(context.getBeansOfType(CacheTier.class).isEmpty());
+        assertEquals(1, context.getBean(StripedSwiftCache.class).getTierStats().size());
+    }
+
+    /**
+     * Tests that the striped cache is backed by an off-heap second level once it is enabled.
+     */
+    @Test
+    void testOffHeapTierEnabled() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        TestPropertyValues.of("bookstore.cache.off-heap.enabled=true",
+                "bookstore.cache.off-heap.capacity-bytes=1048576",
+                "bookstore.cache.off-heap.slab-size-bytes=65536").applyTo(context);
+        context.register(CacheConfig.class);
+        context.refresh();
+        assertInstanceOf(OffHeapTier.class, context.getBean(CacheTier.class));
+        assertEquals(2, context.getBean(StripedSwiftCache.class).getTierStats().size());
+        context.close();
+    }
+
+    /**
+     * Tests that reads are not routed to MongoDB unless read routing is enabled.
+     */
+    @Test
+    void testReadRoutingDisabledByDefault() {
+        ApplicationContext context = new AnnotationConfigApplicationContext(CacheConfig.class);
+        assertTrue(context.getBeansOfType(ReadRouter.class).isEmpty());
+    }
+
+    /**
+     * Tests that the stock SwiftCache engine can still be selected.
+     */
+    @Test
+    void testSwiftCacheEngine() {
+        SwiftCache<String, Book> cache = new CacheConfig().getSwiftCache(CacheConfig.SWIFT_CACHE_ENGINE, 100,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, 16,
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY, null, null, null, null, "WARNING");
+        assertEquals(SwiftCache.class, cache.getClass());
+    }
+
+    /**
+     * Tests that the W-TinyLFU eviction strategy can be used with the stock SwiftCache engine.
+     */
+    @Test
+    void testSwiftCacheEngineWithWTinyLfu() {
+        SwiftCache<String, Book> cache = new CacheConfig().getSwiftCache(CacheConfig.SWIFT_CACHE_ENGINE, 100,
+                WTinyLfuEvictionStrategy.W_TINY_LFU_EVICTION_STRATEGY, 16,
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY, null, null, null, null, "WARNING");
+        assertInstanceOf(WTinyLfuEvictionStrategy.class, cache.getEvictionStrategy());
+        assertInstanceOf(ReadThroughPolicy.class, cache.getReadingPolicy());
+    }
+
+    /**
+     * Tests that an unknown engine name is rejected.
+     */
+    @Test
+    void testInvalidEngine() {
+        CacheConfig config = new CacheConfig();
+        assertThrows(IllegalArgumentException.class, () -> config.getSwiftCache("unknown", 100,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, 16,
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY, null, null, null, null, "WARNING"));
+    }
 }
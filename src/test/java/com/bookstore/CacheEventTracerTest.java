@@ -0,0 +1,153 @@
+package com.bookstore;
+
+import com.bookstore.cache.CacheEventTracer;
+import com.bookstore.cache.CacheEventType;
+import com.bookstore.cache.JfrCacheEventSink;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for the {@link CacheEventTracer} class.
+ *
+ * <p>
+ * This class tests that sampled events are drained in order, that disabled and
+ * sampled-out events are skipped, that a full buffer drops events instead of
+ * blocking, and that the Flight Recorder sink emits recordable events.
+ * </p>
+ */
+class CacheEventTracerTest {
+
+    private static Map<CacheEventType, Integer> rates(CacheEventType type, int rate) {
+        Map<CacheEventType, Integer> rates = new EnumMap<>(CacheEventType.class);
+        rates.put(type, rate);
+        return rates;
+    }
+
+    /**
+     * Tests that recorded events reach the sink in order with their values.
+     */
+    @Test
+    void testDrainsEventsInOrder() {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        Map<CacheEventType, Integer> rates = rates(CacheEventType.HIT, 1);
+        rates.put(CacheEventType.LOAD, 1);
+        CacheEventTracer tracer = new CacheEventTracer(rates, 16,
+                (type, keyHash, value, recordedAt) -> events.add(type + ":" + keyHash + ":" + value));
+
+        tracer.record(CacheEventType.HIT, "a", 0);
+        tracer.record(CacheEventType.LOAD, "b", 42);
+        tracer.record(CacheEventType.MISS, "c", 0);
+        tracer.shutdown();
+
+        assertEquals(2, tracer.getRecordedEvents());
+        assertEquals(2, events.size());
+        assertEquals("HIT:" + "a".hashCode() + ":0", events.get(0));
+        assertEquals("LOAD:" + "b".hashCode() + ":42", events.get(1));
+    }
+
+    /**
+     * Tests that a sample rate of n records about one event in n.
+     */
+    @Test
+    void testSamplesEvents() {
+        CacheEventTracer tracer = new CacheEventTracer(rates(CacheEventType.MISS, 10), 1 << 15,
+                (type, keyHash, value, recordedAt) -> { });
+        assertTrue(tracer.isEnabled(CacheEventType.MISS));
+        assertFalse(tracer.isEnabled(CacheEventType.HIT));
+
+        for (int i = 0; i < 20_000; i++) {
+            tracer.record(CacheEventType.MISS, i, 0);
+            tracer.record(CacheEventType.HIT, i, 0);
+        }
+        tracer.shutdown();
+
+        assertTrue(tracer.getRecordedEvents() > 1_500 && tracer.getRecordedEvents() < 2_500,
+                "recorded " + tracer.getRecordedEvents());
+    }
+
+    /**
+     * Tests that events are dropped rather than blocking the caller when the sink falls behind.
+     */
+    @Test
+    void testDropsEventsWhenBufferIsFull() throws InterruptedException {
+        CountDownLatch draining = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CacheEventTracer tracer = new CacheEventTracer(rates(CacheEventType.PUT, 1), 4,
+                (type, keyHash, value, recordedAt) -> {
+                    draining.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+
+        tracer.record(CacheEventType.PUT, 0, 0);
+        draining.await();
+        // The first event is held by the sink and keeps its slot, so the buffer has room for three more.
+        for (int i = 1; i <= 10; i++) {
+            tracer.record(CacheEventType.PUT, i, 0);
+        }
+        release.countDown();
+        tracer.shutdown();
+
+        assertEquals(4, tracer.getRecordedEvents());
+        assertEquals(7, tracer.getDroppedEvents());
+    }
+
+    /**
+     * Tests the parsing of sample rates.
+     */
+    @Test
+    void testParseSampleRates() {
+        Map<CacheEventType, Integer> rates = CacheEventTracer.parseSampleRates(" evict=1, MISS=64 ,");
+        assertEquals(2, rates.size());
+        assertEquals(1, rates.get(CacheEventType.EVICT));
+        assertEquals(64, rates.get(CacheEventType.MISS));
+        assertTrue(CacheEventTracer.parseSampleRates("").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> CacheEventTracer.parseSampleRates("unknown=1"));
+        assertThrows(IllegalArgumentException.class, () -> CacheEventTracer.parseSampleRates("miss"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CacheEventTracer(CacheEventTracer.parseSampleRates("miss=-1"), 4, null));
+    }
+
+    /**
+     * Tests that drained events are emitted as Flight Recorder events.
+     */
+    @Test
+    void testEmitsFlightRecorderEvents() throws Exception {
+        assumeTrue(JfrCacheEventSink.isAvailable());
+        Path file = Files.createTempFile("cache-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.bookstore.CacheOperation");
+            recording.start();
+            CacheEventTracer tracer = new CacheEventTracer(rates(CacheEventType.EVICT, 1), 16,
+                    new JfrCacheEventSink());
+            tracer.record(CacheEventType.EVICT, "evicted", 0);
+            tracer.shutdown();
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(1, events.size());
+            assertEquals("EVICT", events.get(0).getString("operation"));
+            assertEquals("evicted".hashCode(), events.get(0).getInt("keyHash"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
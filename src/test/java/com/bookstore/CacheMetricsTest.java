@@ -0,0 +1,145 @@
+package com.bookstore;
+
+import com.bookstore.cache.CacheMetrics;
+import com.bookstore.cache.NoOpCacheRepository;
+import com.bookstore.cache.OffHeapTier;
+import com.bookstore.cache.SingleFlightLoader;
+import com.bookstore.cache.StripedSwiftCache;
+import com.bookstore.cache.WriteBehindExecutor;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookCodec;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.swiftcache.SwiftCacheManager;
+import org.swiftcache.cache.SwiftCache;
+import org.swiftcache.cache.SwiftCacheConfig;
+import org.swiftcache.cacherepository.ICacheRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link CacheMetrics} class.
+ *
+ * <p>
+ * This class tests that the per-level cache counters, the write-behind queue
+ * depth and the single-flight counters are published as meters, and that a scrape
+ * snapshots the level counters once.
+ * </p>
+ */
+class CacheMetricsTest {
+
+    private final ICacheRepository<String, Book> repository = new NoOpCacheRepository<>();
+
+    private SimpleMeterRegistry registry;
+
+    /**
+     * Creates a fresh meter registry before each test method.
+     */
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    private static Book book(String id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Title " + id);
+        return book;
+    }
+
+    private double gets(String tier, String result) {
+        return registry.get("cache.gets").tags("cache", "books", "tier", tier, "result", result)
+                .functionCounter().count();
+    }
+
+    /**
+     * Tests that hits, misses, evictions, entries and the hit ratio are published per cache level.
+     */
+    @Test
+    void testPublishesTierCounters() {
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(1,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.READ_THROUGH_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1, null, null,
+                new OffHeapTier<>(new BookCodec(), 1 << 16, 1 << 12));
+        new CacheMetrics("books", cache, null, null, null).bindTo(registry);
+
+        cache.put(repository, "1", book("1"));
+        cache.put(repository, "2", book("2"));
+        cache.get(repository, "2");
+        cache.get(repository, "1");
+        cache.get(repository, "3");
+
+        assertEquals(1, gets("heap", "hit"));
+        assertEquals(2, gets("heap", "miss"));
+        assertEquals(1, gets("off-heap", "hit"));
+        assertEquals(1, gets("off-heap", "miss"));
+        assertTrue(registry.get("cache.evictions").tags("tier", "heap").functionCounter().count() >= 1);
+        assertEquals(1, registry.get("cache.size").tags("tier", "heap").gauge().value());
+        assertEquals(1.0 / 3, registry.get("cache.hit.ratio").tags("tier", "heap").gauge().value(), 1e-9);
+    }
+
+    /**
+     * Tests that reading every level meter of a scrape snapshots the level counters once.
+     */
+    @Test
+    void testSnapshotsTiersOncePerScrape() {
+        StripedSwiftCache<String, Book> cache = spy(new StripedSwiftCache<>(new SwiftCacheConfig(1,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.READ_THROUGH_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1, null, null,
+                new OffHeapTier<>(new BookCodec(), 1 << 16, 1 << 12)));
+        new CacheMetrics("books", cache, null, null, null).bindTo(registry);
+        clearInvocations(cache);
+
+        registry.getMeters().forEach(meter -> meter.measure().forEach(Measurement::getValue));
+
+        assertEquals(10, registry.find("cache.gets").functionCounters().size()
+                + registry.find("cache.evictions").functionCounters().size()
+                + registry.find("cache.size").gauges().size()
+                + registry.find("cache.hit.ratio").gauges().size());
+        verify(cache, times(1)).getTierStats();
+    }
+
+    /**
+     * Tests that only the size of the stock SwiftCache is published.
+     */
+    @Test
+    void testPublishesSizeOfStockCache() {
+        SwiftCache<String, Book> cache = new SwiftCacheManager<String, Book>(new SwiftCacheConfig(10,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.READ_THROUGH_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY)).getSwiftCache();
+        new CacheMetrics("books", cache, null, null, null).bindTo(registry);
+
+        cache.put(repository, "1", book("1"));
+
+        assertEquals(1, registry.get("cache.size").tag("cache", "books").gauge().value());
+        assertNull(registry.find("cache.gets").meter());
+    }
+
+    /**
+     * Tests that the write-behind queue depth and the single-flight counters are published.
+     */
+    @Test
+    void testPublishesWriteBehindAndLoaderMeters() {
+        WriteBehindExecutor<String, Book> executor = new WriteBehindExecutor<>(1, 100, 100, 60_000);
+        SingleFlightLoader<String, Book> loader = new SingleFlightLoader<>(1000);
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(10,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.READ_THROUGH_POLICY,
+                SwiftCacheConfig.WRITE_BEHIND_POLICY), 1, executor, null);
+        new CacheMetrics("books", cache, executor, null, loader).bindTo(registry);
+
+        cache.put(repository, "1", book("1"));
+        cache.put(repository, "2", book("2"));
+        loader.load("1", () -> cache.get(repository, "1"));
+
+        assertEquals(2, registry.get("bookstore.cache.write-behind.queue.depth").gauge().value());
+        assertEquals(1, registry.get("bookstore.cache.loads").functionCounter().count());
+
+        executor.shutdown();
+
+        assertEquals(0, registry.get("bookstore.cache.write-behind.queue.depth").gauge().value());
+        assertEquals(2, registry.get("bookstore.cache.write-behind.flushed").functionCounter().count());
+    }
+}
@@ -0,0 +1,122 @@
+package com.bookstore;
+
+import com.bookstore.cache.CacheWarmer;
+import com.bookstore.cache.HotKeySnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link CacheWarmer} and {@link HotKeySnapshot} classes.
+ *
+ * <p>
+ * This class tests that snapshots survive a round trip through the disk, that
+ * unreadable snapshots are ignored, that the cache is warmed in batches with its
+ * progress reported, and that no snapshot is written before the warm-up finished.
+ * </p>
+ */
+class CacheWarmerTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Tests that the keys written to a snapshot are read back in order.
+     */
+    @Test
+    void testSnapshotRoundTrip() {
+        HotKeySnapshot snapshot = new HotKeySnapshot(directory.resolve("nested/hot-keys.snapshot"));
+        snapshot.write(Arrays.asList("3", "1", "2"));
+
+        assertEquals(Arrays.asList("3", "1", "2"), snapshot.read());
+    }
+
+    /**
+     * Tests that a missing or foreign snapshot file reads as an empty snapshot.
+     */
+    @Test
+    void testUnreadableSnapshotIsEmpty() throws IOException {
+        Path path = directory.resolve("hot-keys.snapshot");
+        assertEquals(Collections.emptyList(), new HotKeySnapshot(path).read());
+
+        Files.write(path, new byte[]{1, 2, 3});
+        assertEquals(Collections.emptyList(), new HotKeySnapshot(path).read());
+    }
+
+    /**
+     * Tests that the snapshot keys are loaded in batches and that progress is reported.
+     */
+    @Test
+    void testWarmsCacheInBatches() throws Exception {
+        HotKeySnapshot snapshot = new HotKeySnapshot(directory.resolve("hot-keys.snapshot"));
+        snapshot.write(Arrays.asList("1", "2", "3", "4", "5"));
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        CacheWarmer warmer = new CacheWarmer("books", snapshot, null, batch -> batches.add(new ArrayList<>(batch)),
+                4, 2, 60_000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        warmer.bindTo(registry);
+
+        warmer.start().get(1, TimeUnit.SECONDS);
+        warmer.shutdown();
+
+        assertEquals(Arrays.asList(Arrays.asList("1", "2"), Arrays.asList("3", "4")), batches);
+        assertTrue(warmer.isWarm());
+        assertEquals(4, warmer.getWarmedKeys());
+        assertEquals(1.0, registry.get("bookstore.cache.warm-up.progress").gauge().value());
+        assertTrue(registry.get("bookstore.cache.warm-up.duration").timeGauge().value(TimeUnit.MILLISECONDS) >= 0);
+    }
+
+    /**
+     * Tests that a failing batch is counted and does not stop the warm-up.
+     */
+    @Test
+    void testSkipsFailedBatch() throws Exception {
+        HotKeySnapshot snapshot = new HotKeySnapshot(directory.resolve("hot-keys.snapshot"));
+        snapshot.write(Arrays.asList("1", "2", "3"));
+        List<String> loaded = Collections.synchronizedList(new ArrayList<>());
+        CacheWarmer warmer = new CacheWarmer("books", snapshot, null, batch -> {
+            if (batch.contains("1")) {
+                throw new IllegalStateException("unreachable");
+            }
+            loaded.addAll(batch);
+        }, 10, 1, 60_000);
+
+        warmer.start().get(1, TimeUnit.SECONDS);
+        warmer.shutdown();
+
+        assertEquals(Arrays.asList("2", "3"), loaded);
+        assertEquals(1, warmer.getFailedBatches());
+        assertEquals(3, warmer.getWarmedKeys());
+    }
+
+    /**
+     * Tests that the hot keys are only snapshotted once the warm-up has finished.
+     */
+    @Test
+    void testSnapshotsOnlyAfterWarmUp() throws Exception {
+        HotKeySnapshot snapshot = new HotKeySnapshot(directory.resolve("hot-keys.snapshot"));
+        snapshot.write(Collections.singletonList("1"));
+        CacheWarmer warmer = new CacheWarmer("books", snapshot, limit -> Arrays.asList("7", "8", "9").subList(0, limit),
+                batch -> { }, 2, 10, 60_000);
+
+        assertFalse(warmer.snapshot());
+        assertEquals(Collections.singletonList("1"), snapshot.read());
+
+        warmer.start().get(1, TimeUnit.SECONDS);
+        warmer.shutdown();
+
+        assertEquals(1, warmer.getSnapshotsWritten());
+        assertEquals(Arrays.asList("7", "8"), snapshot.read());
+    }
+}
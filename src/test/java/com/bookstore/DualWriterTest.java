@@ -0,0 +1,171 @@
+package com.bookstore;
+
+import com.bookstore.cache.DualWriteException;
+import com.bookstore.cache.DualWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link DualWriter} class.
+ *
+ * <p>
+ * This class tests that both sides of a dual write run concurrently and on which
+ * threads, the order of both sides when no thread is idle, the retry and failure
+ * contract, and the per-store meters.
+ * </p>
+ */
+class DualWriterTest {
+
+    private SimpleMeterRegistry registry;
+
+    private DualWriter writer;
+
+    /**
+     * Sets up the test environment before each test method.
+     * Creates the registry recording the meters of the writer.
+     */
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Shuts the writer down after each test method.
+     */
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+    }
+
+    /**
+     * Tests that the two writes overlap instead of running one after the other.
+     */
+    @Test
+    void testWritesRunConcurrently() {
+        writer = writer(1, 1);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        // Each side only completes once the other one has started, which deadlocks if they run sequentially.
+        String result = writer.write(() -> awaitOther(bothStarted), () -> awaitOther(bothStarted) ? "secondary" : null);
+
+        assertEquals("secondary", result);
+        assertEquals(1, registry.get(DualWriter.WRITE_TIMER).tag("store", "primary").timer().count());
+        assertEquals(1, registry.get(DualWriter.WRITE_TIMER).tag("store", "secondary").timer().count());
+    }
+
+    /**
+     * Tests that secondary writes run on threads of the given factory.
+     */
+    @Test
+    void testRunsSecondaryWritesOnGivenThreads() {
+        writer = new DualWriter("primary", "secondary", 1, 1, runnable -> new Thread(runnable, "custom-writer"),
+                registry);
+
+        String thread = writer.write(() -> null, () -> Thread.currentThread().getName());
+
+        assertEquals("custom-writer", thread);
+    }
+
+    /**
+     * Tests that a failed attempt is retried before the write is reported as failed.
+     */
+    @Test
+    void testRetriesFailedSide() {
+        writer = writer(0, 2);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = writer.write(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("transient");
+            }
+            return null;
+        }, () -> "ok");
+
+        assertEquals("ok", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, counter(DualWriter.RETRIES_COUNTER, "primary"));
+        assertEquals(0.0, counter(DualWriter.FAILURES_COUNTER, "primary"));
+    }
+
+    /**
+     * Tests that a side failing on every attempt is reported while the other side is still applied.
+     */
+    @Test
+    void testReportsFailedSide() {
+        writer = writer(1, 2);
+        AtomicInteger primaryWrites = new AtomicInteger();
+
+        DualWriteException e = assertThrows(DualWriteException.class, () -> writer.write(
+                primaryWrites::incrementAndGet,
+                () -> {
+                    throw new IllegalStateException("down");
+                }));
+
+        assertFalse(e.isPrimaryFailed());
+        assertTrue(e.isSecondaryFailed());
+        assertEquals("down", e.getCause().getMessage());
+        assertEquals(1, primaryWrites.get());
+        assertEquals(1.0, counter(DualWriter.FAILURES_COUNTER, "secondary"));
+        assertEquals(1.0, counter(DualWriter.RETRIES_COUNTER, "secondary"));
+    }
+
+    /**
+     * Tests that when no thread is idle, the secondary write runs on the calling thread
+     * after the primary write rather than before it.
+     */
+    @Test
+    void testSecondaryRunsAfterPrimaryWhenBusy() throws InterruptedException {
+        writer = writer(1, 1);
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread other = new Thread(() -> writer.write(() -> null, () -> {
+            busy.countDown();
+            return await(release);
+        }));
+        other.start();
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        String thread = writer.write(() -> order.add("primary"), () -> {
+            order.add("secondary");
+            return Thread.currentThread().getName();
+        });
+        release.countDown();
+        other.join(5_000);
+
+        assertEquals(Arrays.asList("primary", "secondary"), order);
+        assertEquals(Thread.currentThread().getName(), thread);
+    }
+
+    private DualWriter writer(int threads, int maxAttempts) {
+        return new DualWriter("primary", "secondary", threads, maxAttempts, null, registry);
+    }
+
+    private double counter(String name, String store) {
+        return registry.get(name).tag("store", store).counter().count();
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean awaitOther(CountDownLatch bothStarted) {
+        bothStarted.countDown();
+        return await(bothStarted);
+    }
+}
@@ -0,0 +1,59 @@
+package com.bookstore;
+
+import com.bookstore.cache.FrequencySketch;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link FrequencySketch} class.
+ *
+ * <p>
+ * This class tests that the packed 4-bit counters count up to 15 without disturbing
+ * their neighbours, and that they are halved once the sample size is reached.
+ * </p>
+ */
+class FrequencySketchTest {
+
+    /**
+     * Tests that frequencies saturate at 15 and that unrelated keys stay at zero.
+     */
+    @Test
+    void testCountsSaturate() {
+        FrequencySketch<Integer> sketch = new FrequencySketch<>(1000);
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(1);
+        }
+        for (int i = 0; i < 3; i++) {
+            sketch.increment(2);
+        }
+
+        assertEquals(15, sketch.frequency(1));
+        assertEquals(3, sketch.frequency(2));
+        int untouched = 0;
+        for (int key = 3; key < 1000; key++) {
+            if (sketch.frequency(key) == 0) {
+                untouched++;
+            }
+        }
+        assertTrue(untouched > 990);
+    }
+
+    /**
+     * Tests that every counter is halved once the sample size is reached.
+     */
+    @Test
+    void testAging() {
+        FrequencySketch<Integer> sketch = new FrequencySketch<>(10);
+        for (int i = 0; i < 15; i++) {
+            sketch.increment(1);
+        }
+        assertEquals(15, sketch.frequency(1));
+
+        // The sample size of a 10-entry cache is 100 increments.
+        for (int key = 100; sketch.frequency(1) == 15; key++) {
+            sketch.increment(key);
+        }
+        assertEquals(7, sketch.frequency(1));
+    }
+}
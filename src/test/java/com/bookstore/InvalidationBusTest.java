@@ -0,0 +1,127 @@
+package com.bookstore;
+
+import com.bookstore.cache.InMemoryInvalidationBus;
+import com.bookstore.cache.RedisInvalidationBus;
+import com.bookstore.cache.RedisSharedCache;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link InMemoryInvalidationBus}, {@link RedisInvalidationBus}
+ * and {@link RedisSharedCache} classes.
+ *
+ * <p>
+ * This class tests that invalidations reach every node but the publisher, and that
+ * the Redis implementations encode keys, values and messages as expected. Redis
+ * itself is mocked.
+ * </p>
+ */
+class InvalidationBusTest {
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("channel".getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests that in-memory invalidations reach every other node of the network but not the publisher.
+     */
+    @Test
+    void testInMemoryBusSkipsPublisher() {
+        InMemoryInvalidationBus<String> first = new InMemoryInvalidationBus<>();
+        InMemoryInvalidationBus<String> second = first.join();
+        InMemoryInvalidationBus<String> unrelated = new InMemoryInvalidationBus<>();
+        List<String> firstKeys = new ArrayList<>();
+        List<String> secondKeys = new ArrayList<>();
+        List<String> unrelatedKeys = new ArrayList<>();
+        first.subscribe(firstKeys::add);
+        second.subscribe(secondKeys::add);
+        unrelated.subscribe(unrelatedKeys::add);
+
+        first.publish(Arrays.asList("1", "2"));
+
+        assertTrue(firstKeys.isEmpty());
+        assertEquals(Arrays.asList("1", "2"), secondKeys);
+        assertTrue(unrelatedKeys.isEmpty());
+    }
+
+    /**
+     * Tests that Redis invalidations are published with the node id and ignored by the publishing node.
+     */
+    @Test
+    void testRedisBusSkipsOwnMessages() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisInvalidationBus bus = new RedisInvalidationBus(template, mock(RedisMessageListenerContainer.class),
+                "invalidations");
+        List<String> keys = new ArrayList<>();
+        bus.subscribe(keys::add);
+
+        bus.publish(Arrays.asList("1", "2"));
+        verify(template).convertAndSend("invalidations", bus.getNodeId() + "\n1\n2");
+
+        bus.onMessage(message(bus.getNodeId() + "\n1\n2"), null);
+        assertTrue(keys.isEmpty());
+
+        bus.onMessage(message("other-node\n3\n4"), null);
+        assertEquals(Arrays.asList("3", "4"), keys);
+    }
+
+    /**
+     * Tests that a failed Redis publication does not fail the write that triggered it.
+     */
+    @Test
+    void testRedisPublishFailureIsSwallowed() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        doThrow(new IllegalStateException("unreachable")).when(template).convertAndSend(anyString(), anyString());
+        RedisInvalidationBus bus = new RedisInvalidationBus(template, mock(RedisMessageListenerContainer.class),
+                "invalidations");
+
+        assertDoesNotThrow(() -> bus.publish(Collections.singletonList("1")));
+    }
+
+    /**
+     * Tests that the Redis shared cache stores encoded books under prefixed keys with a time to live.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRedisSharedCacheEncodesBooks() {
+        RedisTemplate<String, byte[]> template = mock(RedisTemplate.class);
+        ValueOperations<String, byte[]> values = mock(ValueOperations.class);
+        when(template.opsForValue()).thenReturn(values);
+        BookCodec codec = new BookCodec();
+        RedisSharedCache<Book> cache = new RedisSharedCache<>(template, "book:", codec, 1000);
+        Book book = new Book();
+        book.setId("1");
+        book.setTitle("Test Book");
+        book.setPrice(9.99);
+
+        cache.put("1", book);
+        verify(values).set(eq("book:1"), any(byte[].class), eq(1000L), eq(TimeUnit.MILLISECONDS));
+        cache.putIfAbsent("1", book);
+        verify(values).setIfAbsent(eq("book:1"), any(byte[].class), eq(1000L), eq(TimeUnit.MILLISECONDS));
+
+        when(values.get("book:1")).thenReturn(codec.encode(book));
+        when(values.multiGet(Arrays.asList("book:1", "book:2"))).thenReturn(Arrays.asList(codec.encode(book), null));
+        assertEquals("Test Book", cache.get("1").getTitle());
+        assertEquals(Collections.singleton("1"), cache.getAll(Arrays.asList("1", "2")).keySet());
+        assertNull(cache.get("2"));
+
+        cache.removeAll(Arrays.asList("1", "2"));
+        verify(template).delete(Arrays.asList("book:1", "book:2"));
+    }
+}
@@ -0,0 +1,303 @@
+package com.bookstore;
+
+import com.bookstore.cache.MappedFileCache;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link MappedFileCache} class.
+ *
+ * <p>
+ * This class tests that books are read back after a restart with and without the
+ * index, that corrupt and expired records are dropped, that loaded books never replace
+ * newer writes, and that compaction reclaims the space of overwritten books.
+ * </p>
+ */
+class MappedFileCacheTest {
+
+    private static final int CAPACITY = 1 << 14;
+
+    @TempDir
+    Path directory;
+
+    private final List<MappedFileCache<Book>> opened = new ArrayList<>();
+
+    /**
+     * Closes every cache opened by the test.
+     */
+    @AfterEach
+    void tearDown() {
+        opened.forEach(MappedFileCache::close);
+    }
+
+    /**
+     * Tests that written and removed books are read back from the log and its index after a restart.
+     */
+    @Test
+    void testReadsBackAfterRestart() {
+        MappedFileCache<Book> file = open(0.5);
+        file.put("1", book("1", 10));
+        file.put("2", book("2", 20));
+        file.put("1", book("1", 11));
+        file.remove("2");
+        file.close();
+
+        MappedFileCache<Book> reopened = open(0.5);
+        assertTrue(Files.exists(directory.resolve("books.log.idx")));
+        assertEquals(1, reopened.size());
+        assertEquals(11, reopened.get("1").getPrice());
+        assertNull(reopened.get("2"));
+        assertEquals(1, reopened.getStats().getHits());
+        assertEquals(1, reopened.getStats().getMisses());
+    }
+
+    /**
+     * Tests that the records of a log that was not closed are recovered by scanning it.
+     */
+    @Test
+    void testScansLogWithoutIndex() {
+        MappedFileCache<Book> crashed = open(0.5);
+        crashed.put("1", book("1", 10));
+        crashed.put("2", book("2", 20));
+        crashed.remove("1");
+
+        MappedFileCache<Book> reopened = open(0.5);
+        assertFalse(Files.exists(directory.resolve("books.log.idx")));
+        assertNull(reopened.get("1"));
+        assertEquals(20, reopened.get("2").getPrice());
+    }
+
+    /**
+     * Tests that a corrupt record is never returned and that the log is truncated at it on startup.
+     *
+     * @throws IOException if the log cannot be modified
+     */
+    @Test
+    void testDropsCorruptRecords() throws IOException {
+        MappedFileCache<Book> file = open(0.5);
+        file.put("1", book("1", 10));
+        file.put("2", book("2", 20));
+        corrupt(16 + recordLength("1") + 20);
+
+        assertNull(file.get("2"));
+        assertEquals(1, file.getCorruptRecords());
+        assertEquals(10, file.get("1").getPrice());
+
+        MappedFileCache<Book> reopened = open(0.5);
+        assertEquals(1, reopened.size());
+        assertEquals(1, reopened.getCorruptRecords());
+        reopened.put("3", book("3", 30));
+        reopened.close();
+
+        MappedFileCache<Book> recovered = open(0.5);
+        assertEquals(10, recovered.get("1").getPrice());
+        assertNull(recovered.get("2"));
+        assertEquals(30, recovered.get("3").getPrice());
+    }
+
+    /**
+     * Tests that compaction drops overwritten and removed records but keeps the latest values.
+     */
+    @Test
+    void testCompactionReclaimsGarbage() {
+        MappedFileCache<Book> file = open(1);
+        for (int i = 0; i < 20; i++) {
+            file.put("1", book("1", i));
+            file.put("2", book("2", i));
+        }
+        file.remove("2");
+        assertTrue(file.getGarbageBytes() > 0);
+
+        assertTrue(file.compact());
+        assertEquals(0, file.getGarbageBytes());
+        assertEquals(recordLength("1"), file.getUsedBytes());
+        assertEquals(1, file.getCompactions());
+        assertEquals(19, file.get("1").getPrice());
+        file.close();
+
+        MappedFileCache<Book> reopened = open(1);
+        assertEquals(1, reopened.size());
+        assertEquals(19, reopened.get("1").getPrice());
+    }
+
+    /**
+     * Tests that the log is compacted in the background once garbage takes up the threshold.
+     *
+     * @throws InterruptedException if the test is interrupted while waiting
+     */
+    @Test
+    void testCompactsInBackground() throws InterruptedException {
+        MappedFileCache<Book> file = open(0.25);
+        for (int i = 0; i * recordLength("1") < CAPACITY / 2; i++) {
+            file.put("1", book("1", i));
+        }
+        for (int i = 0; i < 100 && file.getCompactions() == 0; i++) {
+            Thread.sleep(20);
+        }
+
+        assertTrue(file.getCompactions() > 0);
+        assertNotNull(file.get("1"));
+    }
+
+    /**
+     * Tests that a write into a full log does not compact it on the writing thread, and
+     * that the log is compacted in the background so that later writes fit again.
+     *
+     * @throws InterruptedException if the test is interrupted while waiting
+     */
+    @Test
+    void testFullLogCompactsInBackground() throws InterruptedException {
+        MappedFileCache<Book> file = open(1);
+        for (int i = 0; i < 10_000 && file.getStats().getEvictions() == 0; i++) {
+            file.put("1", book("1", i));
+        }
+        assertNull(file.get("1"));
+
+        for (int i = 0; i < 100 && file.getCompactions() == 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, file.getCompactions());
+        file.put("1", book("1", 1));
+        assertEquals(1, file.get("1").getPrice());
+    }
+
+    /**
+     * Tests that books written and removed while the log is being compacted are kept as
+     * written, before and after a restart.
+     *
+     * @throws Exception if the compacting thread fails
+     */
+    @Test
+    void testWritesDuringCompactionAreKept() throws Exception {
+        MappedFileCache<Book> file = new MappedFileCache<>("books", directory.resolve("books.log"),
+                new BookCodec(), 1 << 20, 1);
+        opened.add(file);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CompletableFuture<Void> compacting = CompletableFuture.runAsync(() -> {
+            while (writing.get()) {
+                file.compact();
+            }
+        });
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                file.put(String.valueOf(i), book(String.valueOf(i), round));
+            }
+            file.remove(String.valueOf(round));
+        }
+        writing.set(false);
+        compacting.get(5, TimeUnit.SECONDS);
+        assertTrue(file.getCompactions() > 0);
+        file.close();
+
+        MappedFileCache<Book> reopened = new MappedFileCache<>("books", directory.resolve("books.log"),
+                new BookCodec(), 1 << 20, 1);
+        opened.add(reopened);
+        for (int i = 0; i < 50; i++) {
+            if (i == 19) {
+                assertNull(reopened.get(String.valueOf(i)));
+            } else {
+                assertEquals(19, reopened.get(String.valueOf(i)).getPrice());
+            }
+        }
+    }
+
+    /**
+     * Tests that a loaded book is not appended if its key was written or removed since the load started.
+     */
+    @Test
+    void testFillSkippedAfterWrite() {
+        MappedFileCache<Book> file = open(0.5);
+        long stamp = file.stamp("1");
+        file.put("1", book("1", 11));
+        assertFalse(file.fill("1", book("1", 10), stamp));
+        assertEquals(11, file.get("1").getPrice());
+
+        stamp = file.stamp("1");
+        file.remove("1");
+        assertFalse(file.fill("1", book("1", 11), stamp));
+        assertNull(file.get("1"));
+
+        assertTrue(file.fill("1", book("1", 12), file.stamp("1")));
+        assertEquals(12, file.get("1").getPrice());
+    }
+
+    /**
+     * Tests that a book older than the maximum age is no longer served.
+     *
+     * @throws InterruptedException if the test is interrupted while waiting
+     */
+    @Test
+    void testExpiresOldBooks() throws InterruptedException {
+        MappedFileCache<Book> file = new MappedFileCache<>("books", directory.resolve("books.log"),
+                new BookCodec(), CAPACITY, 0.5, 50);
+        opened.add(file);
+        file.put("1", book("1", 10));
+        assertEquals(10, file.get("1").getPrice());
+
+        Thread.sleep(100);
+        assertNull(file.get("1"));
+        assertEquals(0, file.size());
+        assertEquals(1, file.getStats().getMisses());
+    }
+
+    /**
+     * Tests that a book that does not fit in the log replaces its older value with a tombstone.
+     */
+    @Test
+    void testBookLargerThanLogIsNotServed() {
+        MappedFileCache<Book> file = open(0.5);
+        file.put("1", book("1", 10));
+        Book large = book("1", 20);
+        large.setTitle(new String(new char[CAPACITY]).replace('\u0000', 'x'));
+
+        file.put("1", large);
+
+        assertNull(file.get("1"));
+        assertEquals(1, file.getStats().getEvictions());
+    }
+
+    private MappedFileCache<Book> open(double compactionThreshold) {
+        MappedFileCache<Book> file = new MappedFileCache<>("books", directory.resolve("books.log"),
+                new BookCodec(), CAPACITY, compactionThreshold);
+        opened.add(file);
+        return file;
+    }
+
+    private void corrupt(long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("books.log"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), offset);
+        }
+    }
+
+    private static int recordLength(String id) {
+        return 20 + id.getBytes(StandardCharsets.UTF_8).length + new BookCodec().encode(book(id, 0)).length;
+    }
+
+    private static Book book(String id, double price) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Title " + id);
+        book.setAuthor("Author");
+        book.setIsbn("123456789");
+        book.setPrice(price);
+        return book;
+    }
+}
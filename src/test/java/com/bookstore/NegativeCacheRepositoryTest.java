@@ -0,0 +1,85 @@
+package com.bookstore;
+
+import com.bookstore.cache.BatchCacheRepository;
+import com.bookstore.cache.NegativeCache;
+import com.bookstore.cache.NegativeCacheRepository;
+import com.bookstore.entities.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link NegativeCacheRepository} class.
+ *
+ * <p>
+ * This class tests that keys the repository does not hold are not looked up again,
+ * and that writes make them visible again.
+ * </p>
+ */
+class NegativeCacheRepositoryTest {
+
+    @Mock
+    private BatchCacheRepository<String, Book> repository;
+
+    private NegativeCache<String> negativeCache;
+
+    private NegativeCacheRepository<Book> negativeRepository;
+
+    private Book book;
+
+    /**
+     * Sets up the test environment before each test method.
+     * Initializes mocks, an empty negative cache and a sample Book entity.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        negativeCache = new NegativeCache<>(100, 60_000);
+        negativeRepository = new NegativeCacheRepository<>(negativeCache, repository);
+        book = new Book();
+        book.setId("1");
+        book.setTitle("Test Book");
+    }
+
+    /**
+     * Tests that a missing book is looked up once and found again once it is saved.
+     */
+    @Test
+    void testGetMissingUntilPut() {
+        assertNull(negativeRepository.get("1"));
+        assertNull(negativeRepository.get("1"));
+        verify(repository, times(1)).get("1");
+        assertEquals(1, negativeCache.getHits());
+
+        negativeRepository.put("1", book);
+        when(repository.get("1")).thenReturn(book);
+        assertSame(book, negativeRepository.get("1"));
+        verify(repository).put("1", book);
+    }
+
+    /**
+     * Tests that only the books not known to be missing are read in a batch, and the
+     * missing ones are remembered until they are saved.
+     */
+    @Test
+    void testGetAllSkipsMissing() {
+        when(repository.getAll(any())).thenReturn(Collections.singletonMap("1", book));
+
+        Map<String, Book> found = negativeRepository.getAll(Arrays.asList("1", "2"));
+        assertEquals(Collections.singletonMap("1", book), found);
+        assertTrue(negativeCache.contains("2"));
+        assertTrue(negativeRepository.getAll(Collections.singletonList("2")).isEmpty());
+        verify(repository, times(1)).getAll(any());
+
+        negativeRepository.putAll(Collections.singletonMap("2", book));
+        assertFalse(negativeCache.contains("2"));
+    }
+}
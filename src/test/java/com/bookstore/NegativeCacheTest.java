@@ -0,0 +1,102 @@
+package com.bookstore;
+
+import com.bookstore.cache.NegativeCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link NegativeCache} class.
+ *
+ * <p>
+ * This class tests that tombstones are bounded, expire, are removed by invalidations,
+ * are not added by lookups that raced with an invalidation, and are counted.
+ * </p>
+ */
+class NegativeCacheTest {
+
+    /**
+     * Tests that a tombstoned key is known to be absent until it is invalidated.
+     */
+    @Test
+    void testTombstoneUntilInvalidated() {
+        NegativeCache<String> negativeCache = new NegativeCache<>(10, 60_000);
+        assertFalse(negativeCache.contains("1"));
+        assertTrue(negativeCache.add("1", negativeCache.stamp()));
+        assertTrue(negativeCache.contains("1"));
+
+        negativeCache.invalidate("1");
+        assertFalse(negativeCache.contains("1"));
+        negativeCache.add("1", negativeCache.stamp());
+        negativeCache.add("2", negativeCache.stamp());
+        negativeCache.invalidateAll(Arrays.asList("1", "2"));
+        assertEquals(0, negativeCache.size());
+    }
+
+    /**
+     * Tests that a lookup started before an invalidation does not tombstone its key.
+     */
+    @Test
+    void testAddAfterInvalidationIgnored() {
+        NegativeCache<String> negativeCache = new NegativeCache<>(10, 60_000);
+        long stamp = negativeCache.stamp();
+        negativeCache.invalidate("1");
+
+        assertFalse(negativeCache.add("1", stamp));
+        assertFalse(negativeCache.contains("1"));
+        assertEquals(0, negativeCache.getAdded());
+    }
+
+    /**
+     * Tests that the oldest tombstones are dropped beyond the maximum number of entries.
+     */
+    @Test
+    void testTombstonesAreBounded() {
+        NegativeCache<String> negativeCache = new NegativeCache<>(2, 60_000);
+        negativeCache.add("1", negativeCache.stamp());
+        negativeCache.add("2", negativeCache.stamp());
+        negativeCache.add("3", negativeCache.stamp());
+
+        assertEquals(2, negativeCache.size());
+        assertFalse(negativeCache.contains("1"));
+        assertTrue(negativeCache.contains("3"));
+    }
+
+    /**
+     * Tests that tombstones expire after their time to live.
+     */
+    @Test
+    void testTombstonesExpire() throws InterruptedException {
+        NegativeCache<String> negativeCache = new NegativeCache<>(10, 20);
+        negativeCache.add("1", negativeCache.stamp());
+        Thread.sleep(50);
+
+        assertEquals(0, negativeCache.size());
+        negativeCache.add("2", negativeCache.stamp());
+        Thread.sleep(50);
+        assertFalse(negativeCache.contains("2"));
+    }
+
+    /**
+     * Tests that lookups are counted as hits or misses and exposed as meters.
+     */
+    @Test
+    void testMetrics() {
+        NegativeCache<String> negativeCache = new NegativeCache<>(10, 60_000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        negativeCache.bindTo(registry);
+        negativeCache.add("1", negativeCache.stamp());
+        negativeCache.contains("1");
+        negativeCache.contains("1");
+        negativeCache.contains("2");
+        negativeCache.contains("2", false);
+
+        assertEquals(2.0, registry.get("bookstore.cache.negative").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("bookstore.cache.negative").tag("result", "miss").functionCounter().count());
+        assertEquals(1.0, registry.get("bookstore.cache.negative.added").functionCounter().count());
+        assertEquals(1.0, registry.get("bookstore.cache.negative.size").gauge().value());
+    }
+}
@@ -0,0 +1,108 @@
+package com.bookstore;
+
+import com.bookstore.cache.OffHeapTier;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookCodec;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link OffHeapTier} class.
+ *
+ * <p>
+ * This class tests storing and taking values, slab recycling when the byte
+ * capacity is exhausted, striping, and the hit/miss counters.
+ * </p>
+ */
+class OffHeapTierTest {
+
+    private static Book book(String id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Title " + id);
+        book.setPrice(1.0);
+        return book;
+    }
+
+    /**
+     * Tests that a stored value can be taken exactly once.
+     */
+    @Test
+    void testPutAndTake() {
+        OffHeapTier<String, Book> tier = new OffHeapTier<>(new BookCodec(), 1024, 256);
+        tier.put("1", book("1"));
+
+        assertEquals("Title 1", tier.take("1").getTitle());
+        assertNull(tier.take("1"));
+        assertEquals(1, tier.getStats().getHits());
+        assertEquals(1, tier.getStats().getMisses());
+        assertEquals(0, tier.getStats().getUsedBytes());
+    }
+
+    /**
+     * Tests that overwriting a key keeps only the latest value.
+     */
+    @Test
+    void testOverwrite() {
+        OffHeapTier<String, Book> tier = new OffHeapTier<>(new BookCodec(), 1024, 256);
+        tier.put("1", book("1"));
+        tier.put("1", book("2"));
+
+        assertEquals(1, tier.size());
+        assertEquals("Title 2", tier.take("1").getTitle());
+    }
+
+    /**
+     * Tests that the oldest slab is recycled once the byte capacity is used up.
+     */
+    @Test
+    void testRecyclesOldestSlab() {
+        OffHeapTier<String, Book> tier = new OffHeapTier<>(new BookCodec(), 128, 64);
+        for (int i = 0; i < 10; i++) {
+            tier.put(String.valueOf(i), book(String.valueOf(i)));
+        }
+
+        assertTrue(tier.getStats().getEvictions() > 0);
+        assertTrue(tier.getStats().getUsedBytes() <= 128);
+        assertEquals(128, tier.getAllocatedBytes());
+        assertNull(tier.take("0"));
+        assertEquals("Title 9", tier.take("9").getTitle());
+    }
+
+    /**
+     * Tests that a striped tier allocates slabs on demand, holds the keys of every
+     * stripe and recycles slabs within the byte capacity.
+     */
+    @Test
+    void testStripes() {
+        OffHeapTier<String, Book> tier = new OffHeapTier<>(new BookCodec(), 4096, 256, 4);
+        assertEquals(0, tier.getAllocatedBytes());
+        for (int i = 0; i < 8; i++) {
+            tier.put(String.valueOf(i), book(String.valueOf(i)));
+        }
+        assertEquals(8, tier.size());
+        assertEquals(8, tier.getStats().getEntries());
+
+        for (int i = 0; i < 1000; i++) {
+            tier.put(String.valueOf(i), book(String.valueOf(i)));
+        }
+        assertTrue(tier.getStats().getEvictions() > 0);
+        assertEquals(4096, tier.getAllocatedBytes());
+        assertEquals("Title 999", tier.take("999").getTitle());
+    }
+
+    /**
+     * Tests that a tier is not split into more stripes than it has slabs.
+     */
+    @Test
+    void testFewerSlabsThanStripes() {
+        OffHeapTier<String, Book> tier = new OffHeapTier<>(new BookCodec(), 128, 64, 16);
+        for (int i = 0; i < 10; i++) {
+            tier.put(String.valueOf(i), book(String.valueOf(i)));
+        }
+        assertEquals(128, tier.getAllocatedBytes());
+        assertEquals("Title 9", tier.take("9").getTitle());
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapTier<>(new BookCodec(), 128, 64, 0));
+    }
+}
@@ -0,0 +1,140 @@
+package com.bookstore;
+
+import com.bookstore.cache.BatchCacheRepository;
+import com.bookstore.cache.MappedFileCache;
+import com.bookstore.cache.PersistentCacheRepository;
+import com.bookstore.entities.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link PersistentCacheRepository} class.
+ *
+ * <p>
+ * This class tests that the file is consulted before the repository, filled from it
+ * unless written during the load, bypassed by reloads, emptied before the repository
+ * is written, and bypassed when it fails.
+ * </p>
+ */
+class PersistentCacheRepositoryTest {
+
+    @Mock
+    private BatchCacheRepository<String, Book> repository;
+
+    @Mock
+    private MappedFileCache<Book> fileCache;
+
+    private PersistentCacheRepository<Book> persistentRepository;
+
+    private Book book;
+
+    /**
+     * Sets up the test environment before each test method.
+     * Initializes mocks and a sample Book entity.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        persistentRepository = new PersistentCacheRepository<>(fileCache, repository);
+        book = new Book();
+        book.setId("1");
+        book.setTitle("Test Book");
+    }
+
+    /**
+     * Tests that a book missing from the file is loaded from the repository and appended to the file.
+     */
+    @Test
+    void testGetFillsFile() {
+        when(fileCache.stamp("1")).thenReturn(7L);
+        when(repository.get("1")).thenReturn(book);
+
+        assertSame(book, persistentRepository.get("1"));
+        InOrder inOrder = inOrder(fileCache, repository);
+        inOrder.verify(fileCache).stamp("1");
+        inOrder.verify(repository).get("1");
+        inOrder.verify(fileCache).fill("1", book, 7L);
+
+        when(fileCache.get("1")).thenReturn(book);
+        assertSame(book, persistentRepository.get("1"));
+        verify(repository, times(1)).get("1");
+    }
+
+    /**
+     * Tests that a reload reads the repository even if the file holds the book, and
+     * replaces or removes the copy in the file.
+     */
+    @Test
+    void testReloadBypassesFile() {
+        when(fileCache.get("1")).thenReturn(book);
+        Book fresh = new Book();
+        when(repository.reload("1")).thenReturn(fresh);
+
+        assertSame(fresh, persistentRepository.reload("1"));
+        verify(fileCache).fill("1", fresh, 0L);
+
+        when(repository.reload("1")).thenReturn(null);
+        assertNull(persistentRepository.reload("1"));
+        verify(fileCache).remove("1");
+        verify(fileCache, never()).get(any());
+        verify(repository, never()).get(any());
+    }
+
+    /**
+     * Tests that a batch only reads the books missing from the file from the repository.
+     */
+    @Test
+    void testGetAllReadsMissingBooksFromRepository() {
+        Book other = new Book();
+        when(fileCache.get("1")).thenReturn(book);
+        when(repository.getAll(Collections.singletonList("2"))).thenReturn(Collections.singletonMap("2", other));
+
+        Map<String, Book> books = persistentRepository.getAll(Arrays.asList("1", "2"));
+
+        assertEquals(2, books.size());
+        assertSame(other, books.get("2"));
+        verify(fileCache).fill("2", other, 0L);
+    }
+
+    /**
+     * Tests that the file drops a book before the repository is written, so a failed write leaves no stale copy.
+     */
+    @Test
+    void testRemovesFromFileBeforeWritingRepository() {
+        doThrow(new IllegalStateException("down")).when(repository).put("1", book);
+
+        assertThrows(IllegalStateException.class, () -> persistentRepository.put("1", book));
+        persistentRepository.remove("1");
+
+        InOrder inOrder = inOrder(fileCache, repository);
+        inOrder.verify(fileCache).remove("1");
+        inOrder.verify(repository).put("1", book);
+        inOrder.verify(fileCache).remove("1");
+        inOrder.verify(repository).remove("1");
+        inOrder.verify(fileCache).remove("1");
+        verify(fileCache, never()).put(any(), any());
+    }
+
+    /**
+     * Tests that a failing file falls back to the repository.
+     */
+    @Test
+    void testFailingFileFallsBackToRepository() {
+        when(fileCache.get("1")).thenThrow(new IllegalStateException("unreadable"));
+        doThrow(new IllegalStateException("unwritable")).when(fileCache).fill(any(), any(), anyLong());
+        when(repository.get("1")).thenReturn(book);
+
+        assertSame(book, persistentRepository.get("1"));
+        assertEquals(2, persistentRepository.getFailures());
+    }
+}
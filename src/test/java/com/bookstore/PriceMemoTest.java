@@ -0,0 +1,192 @@
+package com.bookstore;
+
+import com.bookstore.cache.PriceMemo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PriceMemo} class.
+ *
+ * <p>
+ * This class tests that prices are only memoized for the inputs they were computed
+ * from, and that pending values are coalesced, written back in batches, queued again
+ * when their batch fails and dropped when invalidated.
+ * </p>
+ */
+class PriceMemoTest {
+
+    private final List<PriceMemo<String, String>> memos = new ArrayList<>();
+
+    /**
+     * Stops every memo created by the test.
+     */
+    @AfterEach
+    void tearDown() {
+        memos.forEach(PriceMemo::shutdown);
+    }
+
+    /**
+     * Tests that a memoized price is only returned for the same input price and rule version.
+     */
+    @Test
+    void testMemoMatchesInputs() {
+        PriceMemo<String, String> memo = memo(10, 60_000);
+        memo.put("1", 9.99, 1, 11.99);
+
+        assertEquals(11.99, memo.get("1", 9.99, 1));
+        assertNull(memo.get("1", 8.99, 1));
+        assertNull(memo.get("1", 9.99, 2));
+        assertNull(memo.get("2", 9.99, 1));
+        assertEquals(1, memo.getHits());
+        assertEquals(3, memo.getMisses());
+    }
+
+    /**
+     * Tests that the least recently used prices are dropped beyond the maximum number of entries.
+     */
+    @Test
+    void testMemoIsBounded() {
+        PriceMemo<String, String> memo = memo(2, 60_000);
+        memo.put("1", 1, 1, 3);
+        memo.put("2", 2, 1, 4);
+        memo.get("1", 1, 1);
+        memo.put("3", 3, 1, 5);
+
+        assertEquals(2, memo.size());
+        assertNotNull(memo.get("1", 1, 1));
+        assertNull(memo.get("2", 2, 1));
+    }
+
+    /**
+     * Tests that pending values are coalesced per key and dropped when their key is invalidated.
+     */
+    @Test
+    void testWriteBackCoalescesAndInvalidates() {
+        List<Map<String, String>> batches = new ArrayList<>();
+        PriceMemo<String, String> memo = memo(10, 60_000);
+        memo.start(batches::add);
+        memo.writeBack("1", "a");
+        memo.writeBack("1", "b");
+        memo.writeBack("2", "c");
+        memo.put("2", 1, 1, 3);
+        memo.invalidate("2");
+
+        assertEquals(1, memo.flush());
+        assertEquals(Collections.singletonMap("1", "b"), batches.get(0));
+        assertEquals(1, memo.getCoalescedWrites());
+        assertEquals(0, memo.size());
+        assertEquals(0, memo.flush());
+    }
+
+    /**
+     * Tests that an invalidation waits for the batch being written, so the write that
+     * follows the invalidation cannot be overwritten by that batch.
+     *
+     * @throws Exception if the test is interrupted while waiting
+     */
+    @Test
+    void testInvalidateWaitsForFlushInProgress() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PriceMemo<String, String> memo = memo(10, 60_000);
+        memo.start(batch -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        memo.writeBack("1", "a");
+        Thread flusher = new Thread(memo::flush);
+        flusher.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch invalidated = new CountDownLatch(1);
+        Thread invalidator = new Thread(() -> {
+            memo.invalidate("1");
+            invalidated.countDown();
+        });
+        invalidator.start();
+        assertFalse(invalidated.await(100, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(invalidated.await(5, TimeUnit.SECONDS));
+        flusher.join();
+        invalidator.join();
+    }
+
+    /**
+     * Tests that the prices of a batch the writer fails on are forgotten, and that its
+     * values are queued again unless replaced or invalidated since.
+     */
+    @Test
+    void testFailedWriteBackIsQueuedAgain() {
+        List<Map<String, String>> batches = new ArrayList<>();
+        AtomicBoolean down = new AtomicBoolean(true);
+        PriceMemo<String, String> memo = memo(10, 60_000);
+        memo.start(batch -> {
+            if (down.get()) {
+                memo.writeBack("2", "d");
+                throw new IllegalStateException("down");
+            }
+            batches.add(batch);
+        });
+        memo.put("1", 9.99, 1, 11.99);
+        memo.writeBack("1", "a");
+        memo.writeBack("2", "b");
+        memo.writeBack("3", "c");
+
+        assertThrows(IllegalStateException.class, memo::flush);
+        assertNull(memo.get("1", 9.99, 1));
+        assertEquals(3, memo.getFailedWrites());
+        assertEquals(3, memo.getPendingWrites());
+
+        memo.invalidate("3");
+        down.set(false);
+        assertEquals(2, memo.flush());
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("2", "d");
+        expected.put("1", "a");
+        assertEquals(expected, batches.get(0));
+    }
+
+    /**
+     * Tests that pending values are written back periodically once started.
+     *
+     * @throws InterruptedException if the test is interrupted while waiting
+     */
+    @Test
+    void testWritesBackPeriodically() throws InterruptedException {
+        List<Map<String, String>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch written = new CountDownLatch(1);
+        PriceMemo<String, String> memo = memo(10, 10);
+        memo.start(batch -> {
+            batches.add(batch);
+            written.countDown();
+        });
+        memo.writeBack("1", "a");
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonMap("1", "a"), batches.get(0));
+        assertThrows(IllegalStateException.class, () -> memo.start(batches::add));
+    }
+
+    private PriceMemo<String, String> memo(int maxEntries, long flushIntervalMillis) {
+        PriceMemo<String, String> memo = new PriceMemo<>(maxEntries, flushIntervalMillis);
+        memos.add(memo);
+        return memo;
+    }
+}
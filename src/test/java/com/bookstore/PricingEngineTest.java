@@ -0,0 +1,124 @@
+package com.bookstore;
+
+import com.bookstore.cache.NoOpCacheRepository;
+import com.bookstore.entities.Book;
+import com.bookstore.pricing.PricingEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PricingEngine} class.
+ *
+ * <p>
+ * This class tests that the bundled rules match the fixed pricing rule, and that a
+ * reloaded rules file replaces the rules only when it is valid.
+ * </p>
+ */
+class PricingEngineTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<PricingEngine> engines = new ArrayList<>();
+
+    /**
+     * Stops every engine created by the test.
+     */
+    @AfterEach
+    void tearDown() {
+        engines.forEach(PricingEngine::shutdown);
+    }
+
+    /**
+     * Tests that the bundled rules add $2 to books priced less than $10, like the
+     * {@link BookPriceCalculator}.
+     */
+    @Test
+    void testBundledRules() {
+        PricingEngine engine = engine(null);
+
+        assertEquals(11.99, price(engine, 9.99));
+        assertEquals(9.999 + 2.0, price(engine, 9.999));
+        assertEquals(10.0, price(engine, 10));
+        assertEquals(1, engine.getVersion());
+    }
+
+    /**
+     * Tests that reloading a changed rules file replaces the rules and increments their version.
+     *
+     * @throws IOException if the rules file cannot be written
+     */
+    @Test
+    void testReload() throws IOException {
+        Path rules = write("[{\"action\":\"ADD\",\"amount\":1}]");
+        PricingEngine engine = engine(rules);
+        assertEquals(10.0, price(engine, 9));
+
+        write("[{\"action\":\"MULTIPLY\",\"amount\":2},{\"author\":\"Joshua Bloch\",\"action\":\"ADD\",\"amount\":1}]");
+
+        assertTrue(engine.reload());
+        assertEquals(18.0, price(engine, 9));
+        assertEquals(2, engine.getVersion());
+        assertEquals(2, engine.getRuleCount());
+        assertEquals(1, engine.getReloads());
+    }
+
+    /**
+     * Tests that the current rules are kept when the reloaded rules file is invalid.
+     *
+     * @throws IOException if the rules file cannot be written
+     */
+    @Test
+    void testInvalidReloadKeepsRules() throws IOException {
+        Path rules = write("[{\"action\":\"ADD\",\"amount\":1}]");
+        PricingEngine engine = engine(rules);
+
+        write("[{\"action\":\"DISCOUNT\",\"amount\":1}]");
+
+        assertFalse(engine.reload());
+        assertEquals(10.0, price(engine, 9));
+        assertEquals(1, engine.getVersion());
+        assertEquals(1, engine.getFailedReloads());
+    }
+
+    /**
+     * Tests that an invalid rules file fails the creation of the engine.
+     *
+     * @throws IOException if the rules file cannot be written
+     */
+    @Test
+    void testInvalidRulesFailCreation() throws IOException {
+        Path rules = write("[{\"amount\":1}]");
+
+        assertThrows(IllegalStateException.class, () -> new PricingEngine(rules, 0, null));
+        assertThrows(IllegalStateException.class,
+                () -> new PricingEngine(directory.resolve("missing.json"), 0, null));
+    }
+
+    private PricingEngine engine(Path rules) {
+        PricingEngine engine = new PricingEngine(rules, 0, null);
+        engines.add(engine);
+        return engine;
+    }
+
+    private Path write(String rules) throws IOException {
+        return Files.write(directory.resolve("pricing-rules.json"), rules.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double price(PricingEngine engine, double price) {
+        Book book = new Book();
+        book.setPrice(price);
+        Book priced = engine.calculatePrice(new NoOpCacheRepository<>(), "1", book);
+        return priced.getPrice();
+    }
+}
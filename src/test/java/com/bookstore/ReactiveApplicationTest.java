@@ -0,0 +1,56 @@
+package com.bookstore;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@value BookstoreApplication#REACTIVE_PROFILE} profile of the
+ * {@link BookstoreApplication}.
+ *
+ * <p>
+ * This class verifies that the reactive application context starts with the WebFlux
+ * routes and reactive repositories instead of the servlet components. The databases
+ * are not contacted, since their reactive clients connect on first use.
+ * </p>
+ */
+@SpringBootTest(properties = {
+        "spring.r2dbc.url=r2dbc:postgresql://localhost:5432/bookstore",
+        "spring.r2dbc.username=postgres"
+})
+@ActiveProfiles(BookstoreApplication.REACTIVE_PROFILE)
+@AutoConfigureWebTestClient
+class ReactiveApplicationTest {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private WebTestClient client;
+
+    /**
+     * Tests that the reactive service replaces the servlet controller and service.
+     */
+    @Test
+    void testReactiveComponentsReplaceServletComponents() {
+        assertNotNull(context.getBean(ReactiveBookCacheService.class));
+        assertTrue(context.getBeansOfType(BookController.class).isEmpty());
+        assertTrue(context.getBeansOfType(BookCacheService.class).isEmpty());
+    }
+
+    /**
+     * Tests that the routes are served without reaching a database.
+     */
+    @Test
+    void testServesCacheStats() {
+        client.get().uri("/api/books/cache/stats").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].name").isEqualTo("heap");
+    }
+}
@@ -0,0 +1,218 @@
+package com.bookstore;
+
+import com.bookstore.cache.NoOpCacheRepository;
+import com.bookstore.cache.StripedSwiftCache;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookIdCollisionException;
+import com.bookstore.entities.LegacyBookIdGenerator;
+import com.bookstore.mongorepo.ReactiveBookRepositoryMongoDB;
+import com.bookstore.postgresrepo.ReactiveBookRepositoryPostgreSQL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.swiftcache.cache.SwiftCacheConfig;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link ReactiveBookCacheService} class.
+ *
+ * <p>
+ * This class tests that cached books are served without a query, that concurrent
+ * misses share one query, and that writes reach both repositories before the cache
+ * and evict the book when they fail. The reactive repositories are mocked.
+ * </p>
+ */
+class ReactiveBookCacheServiceTest {
+
+    @Mock
+    private ReactiveBookRepositoryPostgreSQL postgreSQLRepository;
+
+    @Mock
+    private ReactiveBookRepositoryMongoDB mongoDBRepository;
+
+    private StripedSwiftCache<String, Book> cache;
+
+    private ReactiveBookCacheService bookCacheService;
+
+    private Book book;
+
+    /**
+     * Sets up the test environment before each test method.
+     * Initializes mocks, an empty cache and a sample Book entity.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(postgreSQLRepository.findAllById(anyIterable())).thenReturn(Flux.empty());
+        cache = new StripedSwiftCache<>(new SwiftCacheConfig(10, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1);
+        bookCacheService = new ReactiveBookCacheService(cache, postgreSQLRepository, mongoDBRepository, null, null);
+        book = new Book();
+        book.setTitle("Test Book");
+        book.setAuthor("Author");
+        book.setIsbn("123456789");
+        book.setPrice(9.99);
+    }
+
+    /**
+     * Tests that a loaded book is cached and then served without another query.
+     */
+    @Test
+    void testGetBookCachesLoadedBook() {
+        book.setId("1");
+        when(postgreSQLRepository.findById("1")).thenReturn(Mono.just(book));
+
+        assertSame(book, bookCacheService.getBook("1").block());
+        assertSame(book, bookCacheService.getBook("1").block());
+
+        verify(postgreSQLRepository, times(1)).findById("1");
+        assertEquals(1, cache.getTierStats().get(0).getHits());
+        assertEquals(1, cache.getTierStats().get(0).getMisses());
+    }
+
+    /**
+     * Tests that lookups of the same book started while it is loading share one query.
+     */
+    @Test
+    void testConcurrentMissesShareOneQuery() {
+        book.setId("1");
+        Sinks.One<Book> result = Sinks.one();
+        when(postgreSQLRepository.findById("1")).thenReturn(result.asMono());
+
+        Mono<Book> first = bookCacheService.getBook("1");
+        Mono<Book> second = bookCacheService.getBook("1");
+        result.tryEmitValue(book);
+
+        assertSame(book, first.block());
+        assertSame(book, second.block());
+        verify(postgreSQLRepository, times(1)).findById("1");
+    }
+
+    /**
+     * Tests that a book loaded, alone or in a batch, before a removal of it completed is not cached.
+     */
+    @Test
+    void testLoadOverlappingWriteIsNotCached() {
+        book.setId("1");
+        Sinks.One<Book> removing = Sinks.one();
+        when(postgreSQLRepository.findById("1")).thenReturn(removing.asMono());
+        when(postgreSQLRepository.deleteById("1")).thenReturn(Mono.empty());
+        when(mongoDBRepository.deleteById("1")).thenReturn(Mono.empty());
+
+        Mono<Book> load = bookCacheService.getBook("1");
+        bookCacheService.removeBook("1").block();
+        removing.tryEmitValue(book);
+        assertSame(book, load.block());
+        assertNull(cache.getIfPresent("1"));
+
+        Book other = new Book();
+        other.setId("2");
+        Sinks.One<Book> batchRemoving = Sinks.one();
+        when(postgreSQLRepository.findAllById(Collections.singletonList("2")))
+                .thenReturn(Flux.from(batchRemoving.asMono()));
+        when(postgreSQLRepository.deleteById("2")).thenReturn(Mono.empty());
+        when(mongoDBRepository.deleteById("2")).thenReturn(Mono.empty());
+
+        Mono<List<Book>> batch = bookCacheService.getBooks(Collections.singletonList("2")).cache();
+        batch.subscribe();
+        bookCacheService.removeBook("2").block();
+        batchRemoving.tryEmitValue(other);
+        assertEquals(Collections.singletonList(other), batch.block());
+        assertNull(cache.getIfPresent("2"));
+    }
+
+    /**
+     * Tests that a saved book is written to both repositories and then cached.
+     */
+    @Test
+    void testPutBookWritesBothRepositories() {
+        when(postgreSQLRepository.upsert(anyString(), eq("Test Book"), eq("Author"), eq("123456789"), eq(9.99)))
+                .thenReturn(Mono.just(1));
+        when(mongoDBRepository.save(book)).thenReturn(Mono.just(book));
+
+        Book saved = bookCacheService.putBook(book).block();
+
+        assertNotNull(saved);
+        assertSame(book, cache.getIfPresent(saved.getId()));
+        verify(mongoDBRepository, times(1)).save(book);
+    }
+
+    /**
+     * Tests that a failed write propagates and leaves the book out of the cache.
+     */
+    @Test
+    void testFailedPutBookEvictsBook() {
+        when(postgreSQLRepository.upsert(anyString(), any(), any(), any(), anyDouble())).thenReturn(Mono.just(1));
+        when(mongoDBRepository.save(book)).thenReturn(Mono.error(new IllegalStateException("unreachable")));
+
+        assertThrows(IllegalStateException.class, () -> bookCacheService.putBook(book).block());
+        assertNull(cache.getIfPresent(book.getId()));
+    }
+
+    /**
+     * Tests that a price is not calculated, nor written, for a book whose identifier is
+     * that of a different cached book.
+     */
+    @Test
+    void testCalculateBookPriceRejectsIdCollision() {
+        bookCacheService = new ReactiveBookCacheService(cache, postgreSQLRepository, mongoDBRepository, null,
+                new LegacyBookIdGenerator());
+        book.setTitle("Aa");
+        String id = new LegacyBookIdGenerator().generate(book);
+        cache.put(new NoOpCacheRepository<>(), id, book);
+        Book colliding = new Book();
+        colliding.setTitle("BB");
+        colliding.setAuthor(book.getAuthor());
+        colliding.setIsbn(book.getIsbn());
+        colliding.setPrice(5.0);
+
+        assertThrows(BookIdCollisionException.class, () -> bookCacheService.calculateBookPrice(colliding).block());
+        assertEquals(5.0, colliding.getPrice());
+        verify(postgreSQLRepository, never()).upsert(any(), any(), any(), any(), anyDouble());
+    }
+
+    /**
+     * Tests that only the books missing from the cache are read, in one query, and returned in order.
+     */
+    @Test
+    void testGetBooksLoadsMissingBooksInOneQuery() {
+        book.setId("1");
+        Book other = new Book();
+        other.setId("2");
+        when(postgreSQLRepository.findById("1")).thenReturn(Mono.just(book));
+        when(postgreSQLRepository.findAllById(Arrays.asList("2", "3"))).thenReturn(Flux.just(other));
+        bookCacheService.getBook("1").block();
+
+        List<Book> books = bookCacheService.getBooks(Arrays.asList("2", "1", "3", "2")).block();
+
+        assertEquals(Arrays.asList(other, book), books);
+        verify(postgreSQLRepository, times(1)).findAllById(Arrays.asList("2", "3"));
+    }
+
+    /**
+     * Tests that a removed book is deleted from both repositories and from the cache.
+     */
+    @Test
+    void testRemoveBooksEvictsBooks() {
+        book.setId("1");
+        when(postgreSQLRepository.findById("1")).thenReturn(Mono.just(book));
+        when(postgreSQLRepository.deleteAllById(Collections.singleton("1"))).thenReturn(Mono.empty());
+        when(mongoDBRepository.deleteAllById(Collections.singleton("1"))).thenReturn(Mono.empty());
+        bookCacheService.getBook("1").block();
+
+        bookCacheService.removeBooks(Collections.singletonList("1")).block();
+
+        assertNull(cache.getIfPresent("1"));
+        verify(mongoDBRepository, times(1)).deleteAllById(Collections.singleton("1"));
+    }
+}
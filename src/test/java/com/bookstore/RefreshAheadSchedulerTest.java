@@ -0,0 +1,89 @@
+package com.bookstore;
+
+import com.bookstore.cache.RefreshAheadScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link RefreshAheadScheduler} class.
+ *
+ * <p>
+ * This class tests the refresh and expiry thresholds, single-flight
+ * deduplication of reloads and the bounded work queue.
+ * </p>
+ */
+class RefreshAheadSchedulerTest {
+
+    /**
+     * Tests the refresh and expiry thresholds.
+     */
+    @Test
+    void testThresholds() {
+        RefreshAheadScheduler<String> scheduler = new RefreshAheadScheduler<>(10, 100, 1, 1);
+        long millis = TimeUnit.MILLISECONDS.toNanos(1);
+
+        assertFalse(scheduler.needsRefresh(5 * millis));
+        assertTrue(scheduler.needsRefresh(10 * millis));
+        assertFalse(scheduler.isExpired(99 * millis));
+        assertTrue(scheduler.isExpired(100 * millis));
+        scheduler.shutdown();
+    }
+
+    /**
+     * Tests that only one reload per key is in flight at a time.
+     */
+    @Test
+    void testSingleFlight() throws InterruptedException {
+        RefreshAheadScheduler<String> scheduler = new RefreshAheadScheduler<>(0, 0, 1, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reloads = new AtomicInteger();
+        Runnable reload = () -> {
+            reloads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        assertTrue(scheduler.schedule("1", reload));
+        assertFalse(scheduler.schedule("1", reload));
+        assertEquals(1, scheduler.getInFlightRefreshes());
+        assertEquals(1, scheduler.getDeduplicatedRefreshes());
+
+        release.countDown();
+        scheduler.shutdown();
+        assertEquals(1, reloads.get());
+        assertEquals(0, scheduler.getInFlightRefreshes());
+    }
+
+    /**
+     * Tests that reloads are skipped when the work queue is full.
+     */
+    @Test
+    void testRejectsWhenQueueIsFull() {
+        RefreshAheadScheduler<String> scheduler = new RefreshAheadScheduler<>(0, 0, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // The first reload is handed straight to the new worker, the second one fills the queue.
+        assertTrue(scheduler.schedule("1", blocking));
+        assertTrue(scheduler.schedule("2", blocking));
+        assertFalse(scheduler.schedule("3", blocking));
+        assertEquals(1, scheduler.getRejectedRefreshes());
+
+        release.countDown();
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,204 @@
+package com.bookstore;
+
+import com.bookstore.cache.BatchCacheRepository;
+import com.bookstore.cache.ReadRouter;
+import com.bookstore.cache.RoutingCacheRepository;
+import com.bookstore.cache.RoutingStats;
+import com.bookstore.entities.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link RoutingCacheRepository} and {@link ReadRouter} classes.
+ *
+ * <p>
+ * This class tests that reads go to the faster repository, that slow reads are
+ * hedged, that failing repositories stop receiving reads, that the primary
+ * repository confirms what the secondary one does not hold and answers for keys
+ * whose secondary write failed, and that writes only reach the primary repository.
+ * </p>
+ */
+class RoutingCacheRepositoryTest {
+
+    @Mock
+    private BatchCacheRepository<String, Book> primary;
+
+    @Mock
+    private BatchCacheRepository<String, Book> secondary;
+
+    private ReadRouter router;
+
+    private Book book;
+
+    /**
+     * Sets up the test environment before each test method.
+     * Initializes mocks and a sample Book entity.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        book = new Book();
+        book.setId("1");
+        book.setTitle("Test Book");
+    }
+
+    /**
+     * Shuts the router down after each test method.
+     */
+    @AfterEach
+    void tearDown() {
+        router.shutdown();
+    }
+
+    /**
+     * Tests that reads move to the secondary repository while the primary one is slower.
+     */
+    @Test
+    void testRoutesToFasterRepository() {
+        router = new ReadRouter("primary", "secondary", 0, 0, 3, 5000);
+        RoutingCacheRepository<String, Book> repository = new RoutingCacheRepository<>(primary, secondary, router);
+        when(primary.get("1")).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(5);
+            return book;
+        });
+        when(secondary.get("1")).thenReturn(book);
+
+        for (int i = 0; i < 20; i++) {
+            assertSame(book, repository.get("1"));
+        }
+
+        RoutingStats primaryStats = router.getStats().get(0);
+        RoutingStats secondaryStats = router.getStats().get(1);
+        assertEquals(2, primaryStats.getReads());
+        assertEquals(18, secondaryStats.getReads());
+        assertTrue(primaryStats.getMedianMillis() > secondaryStats.getMedianMillis());
+    }
+
+    /**
+     * Tests that a read the chosen repository is slow to answer is answered by the other one.
+     */
+    @Test
+    void testHedgesSlowRead() throws InterruptedException {
+        router = new ReadRouter("primary", "secondary", 2, 5, 3, 5000);
+        RoutingCacheRepository<String, Book> repository = new RoutingCacheRepository<>(primary, secondary, router);
+        CountDownLatch release = new CountDownLatch(1);
+        when(primary.get("1")).thenAnswer(invocation -> {
+            release.await();
+            return book;
+        });
+        when(secondary.get("1")).thenReturn(book);
+
+        long start = System.nanoTime();
+        assertSame(book, repository.get("1"));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        release.countDown();
+
+        assertEquals(1, router.getStats().get(0).getReads());
+        assertEquals(1, router.getStats().get(1).getHedges());
+        assertEquals(1, router.getStats().get(1).getWins());
+    }
+
+    /**
+     * Tests that a repository failing several reads in a row stops receiving reads.
+     */
+    @Test
+    void testFailingRepositoryStopsReceivingReads() {
+        router = new ReadRouter("primary", "secondary", 0, 0, 2, 60_000);
+        RoutingCacheRepository<String, Book> repository = new RoutingCacheRepository<>(primary, secondary, router);
+        when(primary.get("1")).thenThrow(new IllegalStateException("unreachable"));
+        when(secondary.get("1")).thenReturn(book);
+
+        for (int i = 0; i < 5; i++) {
+            assertSame(book, repository.get("1"));
+        }
+
+        verify(primary, times(2)).get("1");
+        assertFalse(router.getStats().get(0).isHealthy());
+        assertEquals(2, router.getStats().get(0).getFailures());
+    }
+
+    /**
+     * Tests that values the secondary repository does not hold are read from the primary one.
+     */
+    @Test
+    void testPrimaryConfirmsSecondaryMisses() {
+        router = new ReadRouter("primary", "secondary", 0, 0, 3, 5000);
+        RoutingCacheRepository<String, Book> repository = new RoutingCacheRepository<>(primary, secondary, router);
+        when(primary.get("1")).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(5);
+            return book;
+        });
+        when(primary.getAll(Arrays.asList("1", "2"))).thenReturn(Collections.singletonMap("1", book));
+        when(secondary.getAll(Arrays.asList("1", "2"))).thenReturn(Collections.emptyMap());
+
+        assertSame(book, repository.get("1"));
+        assertSame(book, repository.get("1"));
+        assertEquals(Collections.singleton("1"), repository.getAll(Arrays.asList("1", "2")).keySet());
+
+        verify(secondary).get("1");
+        verify(primary, times(2)).get("1");
+    }
+
+    /**
+     * Tests that keys whose secondary write failed are read from the primary repository
+     * only, until they are reported as written to both repositories again.
+     */
+    @Test
+    void testUnreplicatedKeysReadFromPrimary() {
+        router = new ReadRouter("primary", "secondary", 0, 0, 3, 5000);
+        RoutingCacheRepository<String, Book> repository = new RoutingCacheRepository<>(primary, secondary, router);
+        Book stale = new Book();
+        when(primary.get("1")).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(5);
+            return book;
+        });
+        when(secondary.get("1")).thenReturn(stale);
+        when(primary.getAll(Arrays.asList("1", "2"))).thenReturn(Collections.singletonMap("1", book));
+
+        repository.markUnreplicated(Collections.singletonList("1"));
+        for (int i = 0; i < 20; i++) {
+            assertSame(book, repository.get("1"));
+        }
+        assertSame(book, repository.getAll(Arrays.asList("1", "2")).get("1"));
+        verifyNoInteractions(secondary);
+        assertEquals(1, repository.getUnreplicated());
+
+        repository.markReplicated(Collections.singletonList("1"));
+        for (int i = 0; i < 20; i++) {
+            repository.get("1");
+        }
+        verify(secondary, atLeastOnce()).get("1");
+        assertEquals(0, repository.getUnreplicated());
+    }
+
+    /**
+     * Tests that writes and deletes only reach the primary repository.
+     */
+    @Test
+    void testWritesOnlyReachPrimary() {
+        router = new ReadRouter("primary", "secondary", 0, 0, 3, 5000);
+        RoutingCacheRepository<String, Book> repository = new RoutingCacheRepository<>(primary, secondary, router);
+
+        repository.put("1", book);
+        repository.putAll(Collections.singletonMap("1", book));
+        repository.remove("1");
+        repository.removeAll(Collections.singletonList("1"));
+
+        verify(primary).put("1", book);
+        verify(primary).putAll(Collections.singletonMap("1", book));
+        verify(primary).remove("1");
+        verify(primary).removeAll(Collections.singletonList("1"));
+        verifyNoInteractions(secondary);
+    }
+}
@@ -0,0 +1,155 @@
+package com.bookstore;
+
+import com.bookstore.pricing.PricingRule;
+import com.bookstore.pricing.RulePipeline;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link RulePipeline} class.
+ *
+ * <p>
+ * This class tests that rules apply in definition order to the books matching their
+ * author, ISBN prefix and price range, and that a rule marked to stop skips the
+ * remaining ones. Prices are only rounded by rounding rules.
+ * </p>
+ */
+class RulePipelineTest {
+
+    /**
+     * Tests that an empty pipeline leaves prices unchanged.
+     */
+    @Test
+    void testEmptyPipeline() {
+        RulePipeline pipeline = RulePipeline.empty(1);
+
+        assertEquals(0, pipeline.size());
+        assertEquals(9.99, pipeline.apply("Author", "978-0", 9.99));
+    }
+
+    /**
+     * Tests that rules apply in definition order, each to the price left by the previous ones.
+     */
+    @Test
+    void testRulesApplyInOrder() {
+        RulePipeline pipeline = RulePipeline.compile(Arrays.asList(
+                rule(null, null, PricingRule.Action.ADD, 10),
+                rule(null, null, PricingRule.Action.MULTIPLY, 0.5)), 1);
+
+        assertEquals(10.0, pipeline.apply(null, null, 10));
+    }
+
+    /**
+     * Tests that author and ISBN prefix rules only apply to the books matching them,
+     * including rules of shorter prefixes.
+     */
+    @Test
+    void testAuthorAndIsbnPrefixIndexes() {
+        RulePipeline pipeline = RulePipeline.compile(Arrays.asList(
+                rule("Joshua Bloch", null, PricingRule.Action.ADD, 1),
+                rule(null, "978", PricingRule.Action.ADD, 10),
+                rule(null, "978-1", PricingRule.Action.ADD, 100),
+                rule(null, "979", PricingRule.Action.ADD, 1000)), 1);
+
+        assertEquals(1.0, pipeline.apply("Joshua Bloch", null, 0));
+        assertEquals(0.0, pipeline.apply("Brian Goetz", null, 0));
+        assertEquals(10.0, pipeline.apply(null, "978-0", 0));
+        assertEquals(110.0, pipeline.apply(null, "978-1-23", 0));
+        assertEquals(111.0, pipeline.apply("Joshua Bloch", "978-1-23", 0));
+        assertEquals(0.0, pipeline.apply(null, "97", 0));
+    }
+
+    /**
+     * Tests that price ranges include their lower bound and exclude their upper bound.
+     */
+    @Test
+    void testPriceRange() {
+        PricingRule band = rule(null, null, PricingRule.Action.SET, 1);
+        band.setMinPrice(10.0);
+        band.setMaxPrice(20.0);
+        RulePipeline pipeline = RulePipeline.compile(Collections.singletonList(band), 1);
+
+        assertEquals(9.99, pipeline.apply(null, null, 9.99));
+        assertEquals(1.0, pipeline.apply(null, null, 10));
+        assertEquals(20.0, pipeline.apply(null, null, 20));
+    }
+
+    /**
+     * Tests that a rule marked to stop skips the rules after it only when it applies.
+     */
+    @Test
+    void testStop() {
+        PricingRule stop = rule("Joshua Bloch", null, PricingRule.Action.SET, 5);
+        stop.setStop(true);
+        RulePipeline pipeline = RulePipeline.compile(Arrays.asList(
+                stop,
+                rule(null, null, PricingRule.Action.ADD, 1)), 1);
+
+        assertEquals(5.0, pipeline.apply("Joshua Bloch", null, 30));
+        assertEquals(31.0, pipeline.apply("Brian Goetz", null, 30));
+    }
+
+    /**
+     * Tests that more rules than fit in one bitset word are all evaluated in order.
+     */
+    @Test
+    void testManyRules() {
+        List<PricingRule> rules = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            rules.add(rule(i % 2 == 0 ? "Joshua Bloch" : null, null, PricingRule.Action.ADD, 1));
+        }
+        rules.add(rule(null, "978", PricingRule.Action.MULTIPLY, 2));
+        RulePipeline pipeline = RulePipeline.compile(rules, 1);
+
+        assertEquals(151, pipeline.size());
+        assertEquals(75.0, pipeline.apply(null, null, 0));
+        assertEquals(300.0, pipeline.apply("Joshua Bloch", "978-0", 0));
+    }
+
+    /**
+     * Tests that prices are only rounded by a rounding rule, to the multiple of its step.
+     */
+    @Test
+    void testRoundsOnlyWithRoundingRule() {
+        PricingRule discount = rule(null, null, PricingRule.Action.MULTIPLY, 0.9);
+        RulePipeline unrounded = RulePipeline.compile(Collections.singletonList(discount), 1);
+        RulePipeline rounded = RulePipeline.compile(Arrays.asList(discount,
+                rule(null, null, PricingRule.Action.ROUND, 0.01)), 1);
+        RulePipeline nickels = RulePipeline.compile(Collections.singletonList(
+                rule(null, null, PricingRule.Action.ROUND, 0.05)), 1);
+
+        assertEquals(9.99 * 0.9, unrounded.apply(null, null, 9.99));
+        assertEquals(8.99, rounded.apply(null, null, 9.99));
+        assertEquals(9.95, nickels.apply(null, null, 9.96));
+    }
+
+    /**
+     * Tests that rules without an action, with an empty condition or rounding to no step are rejected.
+     */
+    @Test
+    void testInvalidRules() {
+        assertThrows(IllegalArgumentException.class, () -> RulePipeline.compile(
+                Collections.singletonList(rule(null, null, null, 1)), 1));
+        assertThrows(IllegalArgumentException.class, () -> RulePipeline.compile(
+                Collections.singletonList(rule("", null, PricingRule.Action.ADD, 1)), 1));
+        assertThrows(IllegalArgumentException.class, () -> RulePipeline.compile(
+                Collections.singletonList(rule(null, "", PricingRule.Action.ADD, 1)), 1));
+        assertThrows(IllegalArgumentException.class, () -> RulePipeline.compile(
+                Collections.singletonList(rule(null, null, PricingRule.Action.ROUND, 0)), 1));
+    }
+
+    private static PricingRule rule(String author, String isbnPrefix, PricingRule.Action action, double amount) {
+        PricingRule rule = new PricingRule();
+        rule.setAuthor(author);
+        rule.setIsbnPrefix(isbnPrefix);
+        rule.setAction(action);
+        rule.setAmount(amount);
+        return rule;
+    }
+}
@@ -0,0 +1,164 @@
+package com.bookstore;
+
+import com.bookstore.cache.BatchCacheRepository;
+import com.bookstore.cache.InMemorySharedCache;
+import com.bookstore.cache.SharedCache;
+import com.bookstore.cache.SharedCacheRepository;
+import com.bookstore.entities.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link SharedCacheRepository} class.
+ *
+ * <p>
+ * This class tests that the shared cache is consulted before the repository, filled
+ * from it unless written meanwhile, emptied after it is written, and bypassed when it fails.
+ * </p>
+ */
+class SharedCacheRepositoryTest {
+
+    @Mock
+    private BatchCacheRepository<String, Book> repository;
+
+    private InMemorySharedCache<String, Book> sharedCache;
+
+    private SharedCacheRepository<String, Book> sharedRepository;
+
+    private Book book;
+
+    /**
+     * Sets up the test environment before each test method.
+     * Initializes mocks, an empty shared cache and a sample Book entity.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        sharedCache = new InMemorySharedCache<>();
+        sharedRepository = new SharedCacheRepository<>(sharedCache, repository);
+        book = new Book();
+        book.setId("1");
+        book.setTitle("Test Book");
+    }
+
+    /**
+     * Tests that a book loaded from the repository is shared and then served from the shared cache.
+     */
+    @Test
+    void testGetFillsSharedCache() {
+        when(repository.get("1")).thenReturn(book);
+
+        assertSame(book, sharedRepository.get("1"));
+        assertSame(book, sharedRepository.get("1"));
+
+        verify(repository, times(1)).get("1");
+        assertEquals(1, sharedRepository.getStats().getHits());
+        assertEquals(1, sharedRepository.getStats().getMisses());
+    }
+
+    /**
+     * Tests that a book loaded before another node shared a newer copy does not replace that copy.
+     */
+    @Test
+    void testGetDoesNotReplaceBookSharedDuringLoad() {
+        Book newer = new Book();
+        newer.setId("1");
+        when(repository.get("1")).thenAnswer(invocation -> {
+            sharedCache.put("1", newer);
+            return book;
+        });
+        when(repository.getAll(Collections.singletonList("1"))).thenAnswer(invocation -> {
+            sharedCache.put("1", newer);
+            return Collections.singletonMap("1", book);
+        });
+
+        assertSame(book, sharedRepository.get("1"));
+        assertSame(newer, sharedCache.get("1"));
+
+        sharedCache.remove("1");
+        assertSame(book, sharedRepository.getAll(Collections.singletonList("1")).get("1"));
+        assertSame(newer, sharedCache.get("1"));
+    }
+
+    /**
+     * Tests that writes and deletes reach the repository before removing the shared copy.
+     */
+    @Test
+    void testWritesRepositoryFirst() {
+        SharedCache<String, Book> mockSharedCache = mock(SharedCache.class);
+        SharedCacheRepository<String, Book> ordered = new SharedCacheRepository<>(mockSharedCache, repository);
+
+        ordered.put("1", book);
+        ordered.remove("1");
+
+        InOrder inOrder = inOrder(repository, mockSharedCache);
+        inOrder.verify(repository).put("1", book);
+        inOrder.verify(mockSharedCache).remove("1");
+        inOrder.verify(repository).remove("1");
+        inOrder.verify(mockSharedCache).remove("1");
+        verify(mockSharedCache, never()).put(any(), any());
+    }
+
+    /**
+     * Tests that only the books missing from the shared cache are loaded, in one batch.
+     */
+    @Test
+    void testGetAllLoadsUnsharedBooksInOneBatch() {
+        Book other = new Book();
+        other.setId("2");
+        sharedCache.put("1", book);
+        when(repository.getAll(Collections.singletonList("2"))).thenReturn(Collections.singletonMap("2", other));
+
+        Map<String, Book> books = sharedRepository.getAll(Arrays.asList("1", "2"));
+
+        assertEquals(2, books.size());
+        assertSame(other, sharedCache.get("2"));
+        verify(repository, times(1)).getAll(Collections.singletonList("2"));
+    }
+
+    /**
+     * Tests that a failing shared cache falls back to the repository.
+     */
+    @Test
+    void testFailingSharedCacheFallsBackToRepository() {
+        SharedCache<String, Book> failing = mock(SharedCache.class);
+        when(failing.get("1")).thenThrow(new IllegalStateException("unreachable"));
+        doThrow(new IllegalStateException("unreachable")).when(failing).putIfAbsent(any(), any());
+        doThrow(new IllegalStateException("unreachable")).when(failing).remove(any());
+        when(repository.get("1")).thenReturn(book);
+        SharedCacheRepository<String, Book> fallback = new SharedCacheRepository<>(failing, repository);
+
+        assertSame(book, fallback.get("1"));
+        fallback.put("1", book);
+
+        verify(repository, times(1)).put("1", book);
+        assertEquals(3, fallback.getFailures());
+    }
+
+    /**
+     * Tests that batch writes and removals also delete the shared copies.
+     */
+    @Test
+    void testRemoveAllInvalidatesSharedCache() {
+        sharedCache.put("1", book);
+        sharedRepository.removeAll(Collections.singletonList("1"));
+
+        verify(repository, times(1)).removeAll(Collections.singletonList("1"));
+        assertEquals(0, sharedCache.size());
+
+        sharedCache.put("1", book);
+        sharedRepository.putAll(Collections.singletonMap("1", book));
+        verify(repository, times(1)).putAll(Collections.singletonMap("1", book));
+        assertEquals(0, sharedCache.size());
+    }
+}
@@ -0,0 +1,101 @@
+package com.bookstore;
+
+import com.bookstore.cache.CacheLoadException;
+import com.bookstore.cache.SingleFlightLoader;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link SingleFlightLoader} class.
+ *
+ * <p>
+ * This class tests that concurrent loads of a key are collapsed into one,
+ * that waiters time out, and that failures are shared with all waiters.
+ * </p>
+ */
+class SingleFlightLoaderTest {
+
+    /**
+     * Starts a load on another thread that blocks until the returned latch is released.
+     */
+    private static CompletableFuture<String> startBlockingLoad(SingleFlightLoader<String, String> loader,
+                                                               CountDownLatch started, CountDownLatch release,
+                                                               AtomicInteger calls) {
+        return CompletableFuture.supplyAsync(() -> loader.load("1", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "value";
+        }));
+    }
+
+    /**
+     * Tests that a caller arriving during a load receives the leader's result without loading.
+     */
+    @Test
+    void testConcurrentLoadsAreCoalesced() throws Exception {
+        SingleFlightLoader<String, String> loader = new SingleFlightLoader<>(5000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> leader = startBlockingLoad(loader, started, release, calls);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(() -> loader.load("1", () -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        while (loader.getCoalescedLoads() == 0) {
+            Thread.yield();
+        }
+        release.countDown();
+
+        assertEquals("value", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("value", waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(1, loader.getLoads());
+        assertEquals(0, loader.getInFlightLoads());
+    }
+
+    /**
+     * Tests that a waiter gives up after the configured timeout.
+     */
+    @Test
+    void testWaitTimesOut() throws Exception {
+        SingleFlightLoader<String, String> loader = new SingleFlightLoader<>(10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = startBlockingLoad(loader, started, release, new AtomicInteger());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(CacheLoadException.class, () -> loader.load("1", () -> "other"));
+        assertEquals(1, loader.getTimedOutWaits());
+        release.countDown();
+        assertEquals("value", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that a failed load is propagated and releases the key.
+     */
+    @Test
+    void testFailureReleasesKey() {
+        SingleFlightLoader<String, String> loader = new SingleFlightLoader<>(1000);
+
+        assertThrows(IllegalStateException.class, () -> loader.load("1", () -> {
+            throw new IllegalStateException("down");
+        }));
+        assertEquals("value", loader.load("1", () -> "value"));
+        assertEquals(2, loader.getLoads());
+    }
+}
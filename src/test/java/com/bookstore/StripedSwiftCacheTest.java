@@ -0,0 +1,508 @@
+package com.bookstore;
+
+import com.bookstore.cache.BatchCacheRepository;
+import com.bookstore.cache.CacheEventTracer;
+import com.bookstore.cache.CacheEventType;
+import com.bookstore.cache.OffHeapTier;
+import com.bookstore.cache.RefreshAheadScheduler;
+import com.bookstore.cache.StripedSwiftCache;
+import com.bookstore.cache.TierStats;
+import com.bookstore.cache.WriteBehindExecutor;
+import com.bookstore.entities.Book;
+import com.bookstore.entities.BookCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.swiftcache.cache.SwiftCacheConfig;
+import org.swiftcache.cacherepository.ICacheRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link StripedSwiftCache} class.
+ *
+ * <p>
+ * This class tests the segmented cache engine, including read-through loading,
+ * write policies and per-segment LRU/FIFO eviction. It uses Mockito for mocking
+ * the backing repository and JUnit for assertions.
+ * </p>
+ */
+class StripedSwiftCacheTest {
+
+    @Mock
+    private ICacheRepository<String, Book> repository;
+
+    @Mock
+    private BatchCacheRepository<String, Book> batchRepository;
+
+    private Book book;
+
+    /**
+     * Sets up the test environment before each test method.
+     * Initializes mocks and creates a sample Book entity.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        book = new Book();
+        book.setId("1");
+        book.setTitle("Test Book");
+        book.setAuthor("Author");
+        book.setIsbn("123456789");
+        book.setPrice(9.99);
+    }
+
+    private static StripedSwiftCache<String, Book> newCache(long maxSize, String eviction, String read, String write) {
+        return new StripedSwiftCache<>(new SwiftCacheConfig(maxSize, eviction, read, write), 1);
+    }
+
+    /**
+     * Tests that a read-through miss loads from the repository once and is then served from the cache.
+     */
+    @Test
+    void testReadThroughLoadsOnce() {
+        StripedSwiftCache<String, Book> cache = newCache(10, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+        when(repository.get("1")).thenReturn(book);
+
+        assertSame(book, cache.get(repository, "1"));
+        assertSame(book, cache.get(repository, "1"));
+        verify(repository, times(1)).get("1");
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Tests that the simple read policy never consults the repository.
+     */
+    @Test
+    void testSimpleReadDoesNotLoad() {
+        StripedSwiftCache<String, Book> cache = newCache(10, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.SIMPLE_READ_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+
+        assertNull(cache.get(repository, "1"));
+        verify(repository, never()).get(any());
+    }
+
+    /**
+     * Tests that the least recently used entry is evicted when the cache is full.
+     */
+    @Test
+    void testLruEviction() {
+        StripedSwiftCache<String, Book> cache = newCache(2, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.SIMPLE_READ_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+        cache.put(repository, "a", book);
+        cache.put(repository, "b", book);
+        cache.get(repository, "a");
+        cache.put(repository, "c", book);
+
+        assertNotNull(cache.get(repository, "a"));
+        assertNull(cache.get(repository, "b"));
+        assertNotNull(cache.get(repository, "c"));
+    }
+
+    /**
+     * Tests that the first inserted entry is evicted under FIFO regardless of reads.
+     */
+    @Test
+    void testFifoEviction() {
+        StripedSwiftCache<String, Book> cache = newCache(2, SwiftCacheConfig.FIFO_EVICTION_STRATEGY,
+                SwiftCacheConfig.SIMPLE_READ_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+        cache.put(repository, "a", book);
+        cache.put(repository, "b", book);
+        cache.get(repository, "a");
+        cache.put(repository, "c", book);
+
+        assertNull(cache.get(repository, "a"));
+        assertNotNull(cache.get(repository, "b"));
+    }
+
+    /**
+     * Tests that the write-if-absent policy keeps the existing value and skips the repository.
+     */
+    @Test
+    void testWriteIfAbsent() {
+        StripedSwiftCache<String, Book> cache = newCache(10, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.SIMPLE_READ_POLICY, SwiftCacheConfig.WRITE_IF_ABSENT_POLICY);
+        Book other = new Book();
+
+        assertSame(book, cache.put(repository, "1", book));
+        assertSame(book, cache.put(repository, "1", other));
+        verify(repository, times(1)).put("1", book);
+        verify(repository, never()).put("1", other);
+    }
+
+    /**
+     * Tests that removal clears the entry from both the cache and the repository.
+     */
+    @Test
+    void testRemove() {
+        StripedSwiftCache<String, Book> cache = newCache(10, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.SIMPLE_READ_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+        cache.put(repository, "1", book);
+        cache.remove(repository, "1");
+
+        assertEquals(0, cache.size());
+        verify(repository, times(1)).remove("1");
+    }
+
+    /**
+     * Tests that write-behind defers the repository write and serves pending values on a miss.
+     */
+    @Test
+    void testWriteBehind() {
+        WriteBehindExecutor<String, Book> executor = new WriteBehindExecutor<>(1, 10, 10, 60_000);
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(10,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.READ_THROUGH_POLICY,
+                SwiftCacheConfig.WRITE_BEHIND_POLICY), 1, executor, null);
+
+        cache.put(repository, "1", book);
+        cache.clear();
+        assertSame(book, cache.get(repository, "1"));
+        verify(repository, never()).get(any());
+        verify(repository, never()).put(any(), any());
+
+        executor.shutdown();
+        verify(repository, times(1)).put("1", book);
+    }
+
+    /**
+     * Tests that write-behind cannot be configured without an executor.
+     */
+    @Test
+    void testWriteBehindRequiresExecutor() {
+        SwiftCacheConfig config = new SwiftCacheConfig(10, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_BEHIND_POLICY);
+        assertThrows(IllegalArgumentException.class, () -> new StripedSwiftCache<String, Book>(config));
+    }
+
+    /**
+     * Tests that refresh-ahead serves the cached value and reloads it in the background.
+     */
+    @Test
+    void testRefreshAhead() {
+        RefreshAheadScheduler<String> scheduler = new RefreshAheadScheduler<>(0, 60_000, 1, 10);
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(10,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.REFRESH_AHEAD_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1, null, scheduler);
+        Book fresh = new Book();
+        when(repository.get("1")).thenReturn(fresh);
+
+        cache.put(repository, "1", book);
+        assertSame(book, cache.get(repository, "1"));
+        scheduler.shutdown();
+
+        verify(repository, times(1)).get("1");
+        assertEquals(1, scheduler.getScheduledRefreshes());
+        assertSame(fresh, cache.get(repository, "1"));
+    }
+
+    /**
+     * Tests that expired entries are reloaded synchronously instead of being served.
+     */
+    @Test
+    void testRefreshAheadExpiry() {
+        RefreshAheadScheduler<String> scheduler = new RefreshAheadScheduler<>(0, 0, 1, 10);
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(10,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.REFRESH_AHEAD_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1, null, scheduler);
+        Book fresh = new Book();
+        when(repository.get("1")).thenReturn(fresh);
+
+        cache.put(repository, "1", book);
+        assertSame(fresh, cache.get(repository, "1"));
+        assertEquals(0, scheduler.getScheduledRefreshes());
+        scheduler.shutdown();
+    }
+
+    /**
+     * Tests that aging entries are reloaded through the reload operation of a batch repository,
+     * and missing ones through its lookups.
+     */
+    @Test
+    void testRefreshAheadReloadsFromBatchRepository() {
+        RefreshAheadScheduler<String> scheduler = new RefreshAheadScheduler<>(0, 0, 1, 10);
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(10,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.REFRESH_AHEAD_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1, null, scheduler);
+        Book fresh = new Book();
+        when(batchRepository.reload("1")).thenReturn(fresh);
+        when(batchRepository.reloadAll(Collections.singletonList("1"))).thenReturn(Collections.singletonMap("1", fresh));
+
+        cache.put(batchRepository, "1", book);
+        assertSame(fresh, cache.get(batchRepository, "1"));
+        assertEquals(Collections.singletonMap("1", fresh), cache.getAll(batchRepository, Arrays.asList("1", "2")));
+        scheduler.shutdown();
+
+        verify(batchRepository, never()).get(any());
+        verify(batchRepository).getAll(Collections.singletonList("2"));
+    }
+
+    /**
+     * Tests that the segment count is a power of two bounded by the maximum size.
+     */
+    @Test
+    void testSegmentCount() {
+        SwiftCacheConfig config = new SwiftCacheConfig(100, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+        assertEquals(16, new StripedSwiftCache<String, Book>(config, 10).getSegmentCount());
+        assertEquals(64, new StripedSwiftCache<String, Book>(config, 1000).getSegmentCount());
+    }
+
+    /**
+     * Tests that the segment capacities add up to the maximum size rather than exceed it.
+     */
+    @Test
+    void testCapacityMatchesMaxSize() {
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(100,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.READ_THROUGH_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY), 16);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(repository, Integer.toString(i), book);
+        }
+        assertTrue(cache.size() <= 100);
+        assertEquals(100, cache.size());
+    }
+
+    /**
+     * Tests that hot keys are listed most recently used first without changing the LRU order.
+     */
+    @Test
+    void testHotKeys() {
+        StripedSwiftCache<String, Book> cache = newCache(3, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+        cache.put(repository, "1", book);
+        cache.put(repository, "2", book);
+        cache.put(repository, "3", book);
+        cache.get(repository, "1");
+
+        assertEquals(Arrays.asList("1", "3", "2"), cache.getHotKeys(10));
+        assertEquals(Arrays.asList("1", "3"), cache.getHotKeys(2));
+
+        cache.put(repository, "4", book);
+        assertEquals(Arrays.asList("4", "1", "3"), cache.getHotKeys(10));
+    }
+
+    /**
+     * Tests that an unknown policy name is rejected.
+     */
+    @Test
+    void testInvalidPolicy() {
+        SwiftCacheConfig config = new SwiftCacheConfig(10, "MRU",
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+        assertThrows(IllegalArgumentException.class, () -> new StripedSwiftCache<String, Book>(config));
+    }
+
+    /**
+     * Tests that a multi-key read serves hits from the cache and loads all misses in one batch.
+     */
+    @Test
+    void testGetAllLoadsMissesInOneBatch() {
+        StripedSwiftCache<String, Book> cache = newCache(10, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+        Book other = new Book();
+        cache.put(batchRepository, "1", book);
+        when(batchRepository.getAll(Arrays.asList("2", "3"))).thenReturn(Collections.singletonMap("2", other));
+
+        Map<String, Book> books = cache.getAll(batchRepository, Arrays.asList("1", "2", "3"));
+
+        assertEquals(2, books.size());
+        assertSame(book, books.get("1"));
+        assertSame(other, books.get("2"));
+        verify(batchRepository, times(1)).getAll(any());
+        verify(batchRepository, never()).get(any());
+        assertSame(other, cache.get(batchRepository, "2"));
+    }
+
+    /**
+     * Tests that a multi-key write caches every value and persists them in one batch.
+     */
+    @Test
+    void testPutAllWritesOneBatch() {
+        StripedSwiftCache<String, Book> cache = newCache(10, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.SIMPLE_READ_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+        Map<String, Book> values = new LinkedHashMap<>();
+        values.put("1", book);
+        values.put("2", new Book());
+
+        assertEquals(values, cache.putAll(batchRepository, values));
+        verify(batchRepository, times(1)).putAll(values);
+        verify(batchRepository, never()).put(any(), any());
+        assertEquals(2, cache.size());
+    }
+
+    /**
+     * Tests that a multi-key removal clears every entry and deletes them in one batch.
+     */
+    @Test
+    void testRemoveAllDeletesOneBatch() {
+        StripedSwiftCache<String, Book> cache = newCache(10, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.SIMPLE_READ_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+        cache.put(batchRepository, "1", book);
+        cache.put(batchRepository, "2", book);
+
+        cache.removeAll(batchRepository, Arrays.asList("1", "2"));
+
+        assertEquals(0, cache.size());
+        verify(batchRepository, times(1)).removeAll(Arrays.asList("1", "2"));
+    }
+
+    /**
+     * Tests that evicted entries are demoted to the second level and promoted back on a read.
+     */
+    @Test
+    void testOffHeapTierDemotionAndPromotion() {
+        OffHeapTier<String, Book> tier = new OffHeapTier<>(new BookCodec(), 4096, 1024);
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(1,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.READ_THROUGH_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1, null, null, tier);
+
+        cache.put(repository, "1", book);
+        cache.put(repository, "2", new Book());
+        assertEquals(1, tier.size());
+        assertEquals(2, cache.size());
+
+        Book promoted = cache.get(repository, "1");
+        assertEquals("Test Book", promoted.getTitle());
+        assertEquals(9.99, promoted.getPrice());
+        verify(repository, never()).get(any());
+
+        List<TierStats> stats = cache.getTierStats();
+        assertEquals(1, stats.get(0).getMisses());
+        assertEquals(2, stats.get(0).getEvictions());
+        assertEquals(1, stats.get(1).getHits());
+        assertEquals(1, tier.size());
+    }
+
+    /**
+     * Tests that an evicted entry is demoted after the segment lock is released.
+     */
+    @Test
+    void testDemotesOutsideSegmentLock() {
+        OffHeapTier<String, Book> tier = spy(new OffHeapTier<>(new BookCodec(), 4096, 1024));
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(1,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.READ_THROUGH_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1, null, null, tier);
+        doAnswer(invocation -> {
+            // Blocks if the evicting thread still holds the lock of the only segment.
+            CompletableFuture.supplyAsync(() -> cache.getIfPresent("2")).get(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(tier).put(any(), any());
+
+        cache.put(repository, "1", book);
+        cache.put(repository, "2", book);
+        assertEquals(1, tier.size());
+    }
+
+    /**
+     * Tests that a key removed while its evicted entry is being demoted has the demoted copy dropped.
+     */
+    @Test
+    void testRemoveDuringDemotionDropsDemotedCopy() {
+        OffHeapTier<String, Book> tier = spy(new OffHeapTier<>(new BookCodec(), 4096, 1024));
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(1,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.SIMPLE_READ_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1, null, null, tier);
+        doAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> cache.remove(repository, "1")).get(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(tier).put(eq("1"), any());
+
+        cache.put(repository, "1", book);
+        cache.put(repository, "2", book);
+
+        assertEquals(0, tier.size());
+        assertNull(cache.get(repository, "1"));
+    }
+
+    /**
+     * Tests that a value loaded before a concurrent removal finishes is not cached,
+     * whether the removal starts during the load or the load starts during the removal.
+     *
+     * @throws Exception if the concurrent operation fails
+     */
+    @Test
+    void testLoadOverlappingRemoveIsNotCached() throws Exception {
+        StripedSwiftCache<String, Book> cache = newCache(10, SwiftCacheConfig.LRU_EVICTION_STRATEGY,
+                SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY);
+        CompletableFuture<Void> removed = new CompletableFuture<>();
+        when(repository.get("1")).thenAnswer(invocation -> {
+            // The removal runs to its end while the load still holds the deleted book.
+            removed.complete(CompletableFuture.runAsync(() -> cache.remove(repository, "1"))
+                    .get(5, TimeUnit.SECONDS));
+            return book;
+        });
+
+        assertSame(book, cache.get(repository, "1"));
+        assertTrue(removed.isDone());
+        assertNull(cache.getIfPresent("1"));
+
+        CompletableFuture<Book> loaded = new CompletableFuture<>();
+        doReturn(book).when(repository).get("1");
+        doAnswer(invocation -> {
+            // The load runs to its end before the repository has deleted the book.
+            loaded.complete(CompletableFuture.supplyAsync(() -> cache.get(repository, "1"))
+                    .get(5, TimeUnit.SECONDS));
+            return null;
+        }).when(repository).remove("1");
+
+        cache.remove(repository, "1");
+        assertSame(book, loaded.get());
+        assertNull(cache.getIfPresent("1"));
+    }
+
+    /**
+     * Tests that removing a key also removes its demoted copy.
+     */
+    @Test
+    void testRemoveInvalidatesOffHeapTier() {
+        OffHeapTier<String, Book> tier = new OffHeapTier<>(new BookCodec(), 4096, 1024);
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(1,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.SIMPLE_READ_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1, null, null, tier);
+
+        cache.put(repository, "1", book);
+        cache.put(repository, "2", book);
+        cache.remove(repository, "1");
+
+        assertNull(cache.get(repository, "1"));
+        assertEquals(0, tier.size());
+    }
+
+    /**
+     * Tests that cache operations are recorded by the event tracer.
+     */
+    @Test
+    void testTracesOperations() {
+        Map<CacheEventType, Integer> rates = new EnumMap<>(CacheEventType.class);
+        for (CacheEventType type : CacheEventType.values()) {
+            rates.put(type, 1);
+        }
+        List<CacheEventType> events = Collections.synchronizedList(new ArrayList<>());
+        CacheEventTracer tracer = new CacheEventTracer(rates, 64, (type, keyHash, value, recordedAt) -> events.add(type));
+        StripedSwiftCache<String, Book> cache = new StripedSwiftCache<>(new SwiftCacheConfig(1,
+                SwiftCacheConfig.LRU_EVICTION_STRATEGY, SwiftCacheConfig.READ_THROUGH_POLICY,
+                SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1, null, null, null, tracer);
+        when(repository.get("2")).thenReturn(book);
+
+        cache.put(repository, "1", book);
+        cache.get(repository, "1");
+        cache.get(repository, "2");
+        cache.remove(repository, "2");
+        tracer.shutdown();
+
+        assertEquals(Arrays.asList(CacheEventType.PUT, CacheEventType.HIT, CacheEventType.MISS,
+                CacheEventType.LOAD, CacheEventType.EVICT, CacheEventType.REMOVE), events);
+    }
+}
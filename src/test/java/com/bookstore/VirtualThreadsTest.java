@@ -0,0 +1,66 @@
+package com.bookstore;
+
+import com.bookstore.cache.VirtualThreads;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for the {@link VirtualThreads} class.
+ *
+ * <p>
+ * This class tests that virtual threads are created and named on Java 21 and later,
+ * and that older JVMs are reported instead of silently using platform threads.
+ * </p>
+ */
+class VirtualThreadsTest {
+
+    /**
+     * Tests that the factory creates virtual threads named after the prefix.
+     */
+    @Test
+    void testCreatesNamedVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        ThreadFactory factory = VirtualThreads.factory("test-");
+
+        Thread first = factory.newThread(() -> { });
+        Thread second = factory.newThread(() -> { });
+
+        assertEquals("test-1", first.getName());
+        assertEquals("test-2", second.getName());
+        assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(first));
+    }
+
+    /**
+     * Tests that the thread-per-task executor runs each task on a new virtual thread.
+     */
+    @Test
+    void testRunsTasksOnVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("task-");
+
+        String first = executor.submit(() -> Thread.currentThread().getName()).get(1, TimeUnit.SECONDS);
+        String second = executor.submit(() -> Thread.currentThread().getName()).get(1, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertNotEquals(first, second);
+        assertTrue(first.startsWith("task-"));
+    }
+
+    /**
+     * Tests that requesting virtual threads on an older JVM fails.
+     */
+    @Test
+    void testRejectsOlderJvm() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        assertThrows(IllegalStateException.class, () -> VirtualThreads.factory("test-"));
+        assertThrows(IllegalStateException.class, () -> VirtualThreads.newThreadPerTaskExecutor("test-"));
+    }
+}
@@ -0,0 +1,155 @@
+package com.bookstore;
+
+import com.bookstore.cache.FrequencySketch;
+import com.bookstore.cache.NoOpCacheRepository;
+import com.bookstore.cache.StripedSwiftCache;
+import com.bookstore.cache.WTinyLfuEvictionStrategy;
+import org.junit.jupiter.api.Test;
+import org.swiftcache.cache.SwiftCacheConfig;
+import org.swiftcache.cacherepository.ICacheRepository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link WTinyLfuEvictionStrategy} and {@link FrequencySketch} classes.
+ *
+ * <p>
+ * Besides the admission and aging rules, this class replays a Zipfian trace and a
+ * Zipfian trace interleaved with catalog scans against 100-entry caches, and checks
+ * that W-TinyLFU achieves a clearly higher hit rate than LRU on both.
+ * </p>
+ */
+class WTinyLfuEvictionStrategyTest {
+
+    private static final int CACHE_SIZE = 100;
+    private static final int CATALOG_SIZE = 10_000;
+    private static final int REQUESTS = 200_000;
+
+    /**
+     * Tests that the sketch counts accesses and halves its counters once the sample size is reached.
+     */
+    @Test
+    void testSketchAging() {
+        FrequencySketch<String> sketch = new FrequencySketch<>(16);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("hot");
+        }
+        assertEquals(10, sketch.frequency("hot"));
+
+        // The sample size is ten times the maximum size, so the next 150 increments trigger aging.
+        for (int i = 0; i < 150; i++) {
+            sketch.increment("other" + i);
+        }
+        int aged = sketch.frequency("hot");
+        assertTrue(aged >= 5 && aged < 10, "aged frequency " + aged);
+    }
+
+    /**
+     * Tests that a frequently read key is not evicted in favour of a key read only once.
+     */
+    @Test
+    void testRejectsOneHitWonder() {
+        WTinyLfuEvictionStrategy<String, String> strategy = new WTinyLfuEvictionStrategy<>(2);
+        Map<String, String> cache = new HashMap<>();
+        LinkedList<String> queue = new LinkedList<>();
+
+        cache.put("hot", "hot");
+        strategy.updateQueue("hot", queue);
+        for (int i = 0; i < 5; i++) {
+            strategy.updateQueue("hot", queue);
+        }
+        cache.put("scan-1", "scan-1");
+        strategy.updateQueue("scan-1", queue);
+
+        // Under LRU the full cache would now evict "hot", its least recently used key.
+        strategy.evict(cache, queue);
+        assertTrue(cache.containsKey("hot"));
+        assertFalse(cache.containsKey("scan-1"));
+    }
+
+    /**
+     * Tests that keys removed from the cache behind the strategy's back are skipped.
+     */
+    @Test
+    void testSkipsRemovedKeys() {
+        WTinyLfuEvictionStrategy<String, String> strategy = new WTinyLfuEvictionStrategy<>(10);
+        strategy.recordAccess("gone");
+        strategy.recordAccess("present");
+
+        assertEquals("present", strategy.selectVictim("present"::equals));
+        assertNull(strategy.selectVictim(key -> true));
+    }
+
+    /**
+     * Tests that W-TinyLFU beats LRU on a Zipfian trace.
+     */
+    @Test
+    void testHitRateOnZipfianTrace() {
+        int[] trace = zipfTrace(new Random(42), REQUESTS, 0);
+
+        double lru = hitRate(SwiftCacheConfig.LRU_EVICTION_STRATEGY, trace);
+        double tinyLfu = hitRate(WTinyLfuEvictionStrategy.W_TINY_LFU_EVICTION_STRATEGY, trace);
+
+        assertTrue(tinyLfu > lru * 1.2, "W-TinyLFU " + tinyLfu + " vs LRU " + lru);
+    }
+
+    /**
+     * Tests that W-TinyLFU beats LRU on a Zipfian trace interleaved with full catalog scans.
+     */
+    @Test
+    void testHitRateOnScanMixedTrace() {
+        int[] trace = zipfTrace(new Random(42), REQUESTS, 1_000);
+
+        double lru = hitRate(SwiftCacheConfig.LRU_EVICTION_STRATEGY, trace);
+        double tinyLfu = hitRate(WTinyLfuEvictionStrategy.W_TINY_LFU_EVICTION_STRATEGY, trace);
+
+        assertTrue(tinyLfu > lru * 1.3, "W-TinyLFU " + tinyLfu + " vs LRU " + lru);
+    }
+
+    private static double hitRate(String evictionStrategy, int[] trace) {
+        StripedSwiftCache<String, String> cache = new StripedSwiftCache<>(new SwiftCacheConfig(CACHE_SIZE,
+                evictionStrategy, SwiftCacheConfig.READ_THROUGH_POLICY, SwiftCacheConfig.WRITE_ALWAYS_POLICY), 1);
+        ICacheRepository<String, String> repository = new NoOpCacheRepository<String, String>() {
+            @Override
+            public String get(String key) {
+                return key;
+            }
+        };
+        for (int id : trace) {
+            cache.get(repository, String.valueOf(id));
+        }
+        return cache.getTierStats().get(0).getHitRate();
+    }
+
+    /**
+     * Builds a trace of Zipf-distributed (s = 1) catalog ids. When {@code scanEvery} is
+     * positive, every {@code scanEvery} requests are followed by a scan of 100 ids that
+     * are never read again, as a crawler walking the catalog would produce.
+     */
+    private static int[] zipfTrace(Random random, int requests, int scanEvery) {
+        double[] cumulative = new double[CATALOG_SIZE];
+        double sum = 0;
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+
+        int[] trace = new int[requests];
+        int scanned = CATALOG_SIZE;
+        for (int i = 0; i < requests; i++) {
+            if (scanEvery > 0 && i % scanEvery >= scanEvery - CACHE_SIZE) {
+                trace[i] = scanned++;
+                continue;
+            }
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            trace[i] = index >= 0 ? index : -index - 1;
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,269 @@
+package com.bookstore;
+
+import com.bookstore.cache.BatchCacheRepository;
+import com.bookstore.cache.WriteBehindExecutor;
+import com.bookstore.entities.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.swiftcache.cacherepository.ICacheRepository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link WriteBehindExecutor} class.
+ *
+ * <p>
+ * This class tests write coalescing, batched flushing through
+ * {@link BatchCacheRepository}, flush-on-shutdown, the ordering of writes
+ * submitted after shutdown, and the retries of failed writes. It uses Mockito for
+ * mocking the repositories and JUnit for assertions.
+ * </p>
+ */
+class WriteBehindExecutorTest {
+
+    @Mock
+    private BatchCacheRepository<String, Book> batchRepository;
+
+    @Mock
+    private ICacheRepository<String, Book> repository;
+
+    private WriteBehindExecutor<String, Book> executor;
+
+    /**
+     * Sets up the test environment before each test method.
+     * Initializes mocks and creates an executor with a long flush interval so that
+     * operations stay pending until shutdown.
+     */
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        executor = new WriteBehindExecutor<>(1, 100, 100, 60_000);
+    }
+
+    /**
+     * Shuts the executor down after each test method.
+     */
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private static Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        return book;
+    }
+
+    /**
+     * Tests that repeated writes to a key are coalesced and flushed as one batch.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCoalescesAndFlushesInBatch() {
+        Book latest = book("latest");
+        executor.write(batchRepository, "1", book("first"));
+        executor.write(batchRepository, "1", latest);
+        executor.write(batchRepository, "2", book("other"));
+
+        assertEquals(2, executor.getQueueDepth());
+        assertEquals(1, executor.getCoalescedWrites());
+        assertSame(latest, executor.getPending(batchRepository, "1").getValue());
+
+        executor.shutdown();
+
+        ArgumentCaptor<Map<String, Book>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(batchRepository, times(1)).putAll(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertSame(latest, captor.getValue().get("1"));
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(2, executor.getFlushedWrites());
+        assertNull(executor.getPending(batchRepository, "1"));
+    }
+
+    /**
+     * Tests that a delete replaces a pending write and is flushed as a batch removal.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDeleteReplacesPendingWrite() {
+        executor.write(batchRepository, "1", book("first"));
+        executor.delete(batchRepository, "1");
+
+        assertTrue(executor.getPending(batchRepository, "1").isRemoval());
+
+        executor.shutdown();
+
+        ArgumentCaptor<Collection<String>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(batchRepository, times(1)).removeAll(captor.capture());
+        assertEquals(Collections.singletonList("1"), captor.getValue());
+        verify(batchRepository, never()).putAll(any());
+    }
+
+    /**
+     * Tests that repositories without batch support receive single-key writes.
+     */
+    @Test
+    void testFallsBackToSingleWrites() {
+        Book value = book("single");
+        executor.write(repository, "1", value);
+        executor.shutdown();
+
+        verify(repository, times(1)).put("1", value);
+    }
+
+    /**
+     * Tests that writes submitted after shutdown are applied synchronously.
+     */
+    @Test
+    void testWritesAfterShutdownAreSynchronous() {
+        executor.shutdown();
+        Book value = book("late");
+        executor.write(repository, "1", value);
+
+        verify(repository, times(1)).put("1", value);
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    /**
+     * Tests that a write submitted after shutdown waits for an older write of the same
+     * key that a worker is still flushing, instead of being overwritten by it.
+     */
+    @Test
+    void testWriteAfterShutdownNotOverwrittenByFlush() throws InterruptedException {
+        WriteBehindExecutor<String, Book> flushing = new WriteBehindExecutor<>(1, 100, 100, 0);
+        Book older = book("older");
+        Book newer = book("newer");
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch releaseFlush = new CountDownLatch(1);
+        List<Book> written = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            Book value = invocation.getArgument(1);
+            if (value == older) {
+                flushStarted.countDown();
+                releaseFlush.await(5, TimeUnit.SECONDS);
+            }
+            written.add(value);
+            return null;
+        }).when(repository).put(eq("1"), any());
+
+        flushing.write(repository, "1", older);
+        assertTrue(flushStarted.await(5, TimeUnit.SECONDS));
+        Thread shutdown = new Thread(flushing::shutdown);
+        shutdown.start();
+        awaitState(shutdown, Thread.State.TIMED_WAITING);
+
+        Thread writer = new Thread(() -> flushing.write(repository, "1", newer));
+        writer.start();
+        awaitState(writer, Thread.State.WAITING);
+        releaseFlush.countDown();
+        writer.join(5_000);
+        shutdown.join(5_000);
+
+        assertEquals(Arrays.asList(older, newer), written);
+    }
+
+    /**
+     * Tests that a failed write is retried after a backoff and then flushed.
+     *
+     * @throws InterruptedException if interrupted while waiting for the retry
+     */
+    @Test
+    void testFailedWriteIsRetried() throws InterruptedException {
+        WriteBehindExecutor<String, Book> retrying = new WriteBehindExecutor<>(1, 100, 100, 0, 3, 10, null);
+        Book value = book("value");
+        CountDownLatch written = new CountDownLatch(1);
+        doThrow(new IllegalStateException("down")).doAnswer(invocation -> {
+            written.countDown();
+            return null;
+        }).when(repository).put("1", value);
+
+        retrying.write(repository, "1", value);
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        retrying.shutdown();
+        verify(repository, times(2)).put("1", value);
+        assertEquals(1, retrying.getFailedWrites());
+        assertEquals(1, retrying.getRetriedWrites());
+        assertEquals(0, retrying.getDroppedWrites());
+        assertEquals(0, retrying.getQueueDepth());
+    }
+
+    /**
+     * Tests that a write still failing after the maximum number of attempts is dropped.
+     *
+     * @throws InterruptedException if interrupted while waiting for the attempts
+     */
+    @Test
+    void testWriteDroppedAfterMaxAttempts() throws InterruptedException {
+        WriteBehindExecutor<String, Book> retrying = new WriteBehindExecutor<>(1, 100, 100, 0, 3, 1, null);
+        Book value = book("value");
+        doThrow(new IllegalStateException("down")).when(repository).put("1", value);
+
+        retrying.write(repository, "1", value);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (retrying.getDroppedWrites() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        retrying.shutdown();
+        verify(repository, times(3)).put("1", value);
+        assertEquals(3, retrying.getFailedWrites());
+        assertEquals(2, retrying.getRetriedWrites());
+        assertEquals(1, retrying.getDroppedWrites());
+        assertEquals(0, retrying.getQueueDepth());
+    }
+
+    /**
+     * Tests that a write submitted while an older one waits to be retried is flushed
+     * without waiting for the backoff, and the older one is not retried.
+     *
+     * @throws InterruptedException if interrupted while waiting for the write
+     */
+    @Test
+    void testNewerWriteSupersedesRetry() throws InterruptedException {
+        WriteBehindExecutor<String, Book> retrying = new WriteBehindExecutor<>(1, 100, 100, 0, 3, 60_000, null);
+        Book older = book("older");
+        Book newer = book("newer");
+        CountDownLatch written = new CountDownLatch(1);
+        doThrow(new IllegalStateException("down")).when(repository).put("1", older);
+        doAnswer(invocation -> {
+            written.countDown();
+            return null;
+        }).when(repository).put("1", newer);
+
+        retrying.write(repository, "1", older);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (retrying.getRetriedWrites() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        retrying.write(repository, "1", newer);
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        retrying.shutdown();
+        verify(repository, times(1)).put("1", older);
+        verify(repository, times(1)).put("1", newer);
+        assertEquals(0, retrying.getDroppedWrites());
+        assertEquals(0, retrying.getQueueDepth());
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != state && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+}